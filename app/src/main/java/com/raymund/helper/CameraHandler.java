@@ -7,6 +7,7 @@ import android.view.Surface;
 
 import com.google.gson.Gson;
 import com.raymund.widget.CameraTextureView;
+import com.serenegiant.usb.ControlProfile;
 import com.serenegiant.usb.USBMonitor;
 import com.serenegiant.usb.UVCCamera;
 import com.serenegiant.usb.UVCCameraPrefs;
@@ -104,6 +105,11 @@ public class CameraHandler {
                         cameraPrefs.getFrameFormat(),
                         cameraPrefs.getFramerate()
                 );
+                mCamera.setOrientation(cameraPrefs.getOrientation());
+                ControlProfile profile = cameraPrefs.getControlProfile();
+                if (profile != null) {
+                    mCamera.applyControlProfile(profile);
+                }
 
                 mCameraView.setAspectRatio(cameraPrefs.getWidth(), cameraPrefs.getHeight());
             }
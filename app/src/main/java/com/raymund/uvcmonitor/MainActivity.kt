@@ -20,6 +20,7 @@ import com.serenegiant.usb.*
 import com.serenegiant.usb.CameraDialog.CameraDialogParent
 import com.serenegiant.usb.USBMonitor.OnDeviceConnectListener
 import com.serenegiant.usb.USBMonitor.UsbControlBlock
+import java.io.File
 import java.nio.ByteBuffer
 import java.util.concurrent.locks.ReentrantLock
 import kotlin.concurrent.withLock
@@ -49,6 +50,8 @@ class MainActivity : BaseActivity(), CameraDialogParent {
 
         mCameraView = findViewById(R.id.camera_texture_view)
         mUSBMonitor = USBMonitor(this, mOnDeviceConnectListener)
+        // keep supported formats of known cameras over restarts
+        UVCCamera.setSupportedSizeCache(UVCSizeCache(File(cacheDir, "uvcsize")))
 
         mCameraHandler = CameraHandler(mCameraView)
     }
@@ -34,6 +34,7 @@ class SettingsActivity : AppCompatActivity() {
         private var mPreviewFrameFormat: ListPreference? = null
         private var mPreviewResolution: ListPreference? = null
         private var mPreviewFramerate: ListPreference? = null
+        private var mPreviewOrientation: ListPreference? = null
 
         constructor(supportedSizeList: UVCSize, cameraPreferences: UVCCameraPrefs) : this() {
             mSupportedSizeList = supportedSizeList
@@ -78,6 +79,12 @@ class SettingsActivity : AppCompatActivity() {
             initPreviewPref(mPreviewFrameFormat, formatIndex, mSupportedSizeList!!.formatCharSeq)
             initPreviewPref(mPreviewResolution, frameIndex, format.frameResCharSeq)
             initPreviewPref(mPreviewFramerate, framerateIndex, frame.intervalCharSeq)
+
+            mPreviewOrientation = findPreference("preview_orientation")
+            mPreviewOrientation!!.apply {
+                onPreferenceChangeListener = this@SettingsFragment
+                value = mCameraPreferences!!.orientationString
+            }
         }
 
         private fun updatePrefsFile() {
@@ -116,6 +123,9 @@ class SettingsActivity : AppCompatActivity() {
                 "preview_framerate" -> {
                     mCameraPreferences!!.setFramerate(newValue as String)
                 }
+                "preview_orientation" -> {
+                    mCameraPreferences!!.setOrientation(newValue as String)
+                }
             }
 
             updatePrefsFile()
@@ -0,0 +1,103 @@
+/*
+ *  UVCCamera
+ *  library and sample to access to UVC web camera on non-rooted Android device
+ *
+ * Copyright (c) 2014-2017 saki t_saki@serenegiant.com
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ *
+ *  All files in the folder are under this Apache License, Version 2.0.
+ *  Files in the libjpeg-turbo, libusb, libuvc, rapidjson folder
+ *  may have a different license, see the respective files.
+ */
+
+package com.serenegiant.usb.benchmark;
+
+import android.hardware.usb.UsbDevice;
+import android.hardware.usb.UsbInterface;
+
+import com.serenegiant.usb.DeviceFilter;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * matching attached devices against device filters like USBMonitor does on every attach event
+ */
+@State(Scope.Benchmark)
+public class DeviceFilterBenchmark {
+	private static final int USB_CLASS_MISC = 0xef;
+	private static final int USB_CLASS_VIDEO = 0x0e;
+	private static final int USB_CLASS_AUDIO = 0x01;
+	private static final int USB_CLASS_HID = 0x03;
+
+	@Param({"1", "16"})
+	public int filters;
+
+	@Param({"4"})
+	public int devices;
+
+	private DeviceFilter[] mFilters;
+	private DeviceFilter mNoMatchFilter;
+	private UsbDevice[] mDevices;
+
+	@Setup(Level.Trial)
+	public void setup() {
+		mFilters = new DeviceFilter[filters];
+		// vendor specific filters first, class filter for UVC at last like device_filter.xml
+		for (int i = 0; i < filters - 1; i++) {
+			mFilters[i] = new DeviceFilter(0x1000 + i, 0x2000 + i, -1, -1, -1, null, null, null);
+		}
+		mFilters[filters - 1] = new DeviceFilter(-1, -1, USB_CLASS_MISC, 2, -1, null, null, null);
+		mNoMatchFilter = new DeviceFilter(-1, -1, USB_CLASS_VIDEO, 3, -1, null, null, null);
+		mDevices = new UsbDevice[devices];
+		for (int i = 0; i < devices; i++) {
+			// composite device, video is behind audio and HID interfaces
+			mDevices[i] = new UsbDevice("/dev/bus/usb/001/00" + i, 0x046d, 0x0800 + i,
+				USB_CLASS_MISC, 2, 1, new UsbInterface[] {
+					new UsbInterface(USB_CLASS_HID, 0, 0),
+					new UsbInterface(USB_CLASS_AUDIO, 1, 0),
+					new UsbInterface(USB_CLASS_AUDIO, 2, 0),
+					new UsbInterface(USB_CLASS_VIDEO, 1, 0),
+					new UsbInterface(USB_CLASS_VIDEO, 2, 0),
+				});
+		}
+	}
+
+	@Benchmark
+	public void matches(final Blackhole blackhole) {
+		for (final UsbDevice device: mDevices) {
+			for (final DeviceFilter filter: mFilters) {
+				if (filter.matches(device)) {
+					blackhole.consume(filter);
+					break;
+				}
+			}
+		}
+	}
+
+	/**
+	 * worst case, the filter does not match and all interfaces are checked
+	 */
+	@Benchmark
+	public void noMatch(final Blackhole blackhole) {
+		for (final UsbDevice device: mDevices) {
+			blackhole.consume(mNoMatchFilter.matches(device));
+		}
+	}
+}
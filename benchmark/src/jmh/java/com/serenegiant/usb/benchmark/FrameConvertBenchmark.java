@@ -0,0 +1,83 @@
+/*
+ *  UVCCamera
+ *  library and sample to access to UVC web camera on non-rooted Android device
+ *
+ * Copyright (c) 2014-2017 saki t_saki@serenegiant.com
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ *
+ *  All files in the folder are under this Apache License, Version 2.0.
+ *  Files in the libjpeg-turbo, libusb, libuvc, rapidjson folder
+ *  may have a different license, see the respective files.
+ */
+
+package com.serenegiant.usb.benchmark;
+
+import com.serenegiant.usb.FrameConverter;
+import com.serenegiant.usb.UVCCamera;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+/**
+ * YUYV conversion in Java by FrameConverter
+ */
+@State(Scope.Benchmark)
+public class FrameConvertBenchmark {
+	@Param({"640x480", "1280x720", "1920x1080"})
+	public String resolution;
+
+	@Param({"YUV", "RGB565", "RGBX", "YUV420SP", "NV21"})
+	public String pixelFormat;
+
+	private int mWidth, mHeight;
+	private int mPixelFormat;
+	private ByteBuffer mFrame;
+	private ByteBuffer mOut;
+
+	@Setup(Level.Trial)
+	public void setup() {
+		final int[] size = SyntheticFrames.parseResolution(resolution);
+		mWidth = size[0];
+		mHeight = size[1];
+		mPixelFormat = pixelFormat(pixelFormat);
+		mFrame = SyntheticFrames.yuyv(mWidth, mHeight, 0);
+		mOut = ByteBuffer.allocateDirect(FrameConverter.getFrameBytes(mWidth, mHeight, mPixelFormat))
+			.order(ByteOrder.nativeOrder());
+	}
+
+	@Benchmark
+	public ByteBuffer convert() {
+		FrameConverter.convert(mFrame, mWidth, mHeight, mPixelFormat, mOut);
+		return mOut;
+	}
+
+	private static int pixelFormat(final String name) {
+		switch (name) {
+		case "YUV":			return UVCCamera.PIXEL_FORMAT_YUV;
+		case "RGB565":		return UVCCamera.PIXEL_FORMAT_RGB565;
+		case "RGBX":		return UVCCamera.PIXEL_FORMAT_RGBX;
+		case "YUV420SP":	return UVCCamera.PIXEL_FORMAT_YUV420SP;
+		case "NV21":		return UVCCamera.PIXEL_FORMAT_NV21;
+		default:
+			throw new IllegalArgumentException("unknown pixel format:" + name);
+		}
+	}
+}
@@ -0,0 +1,120 @@
+/*
+ *  UVCCamera
+ *  library and sample to access to UVC web camera on non-rooted Android device
+ *
+ * Copyright (c) 2014-2017 saki t_saki@serenegiant.com
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ *
+ *  All files in the folder are under this Apache License, Version 2.0.
+ *  Files in the libjpeg-turbo, libusb, libuvc, rapidjson folder
+ *  may have a different license, see the respective files.
+ */
+
+package com.serenegiant.usb.benchmark;
+
+import com.serenegiant.usb.FrameBus;
+import com.serenegiant.usb.FrameDispatcher;
+import com.serenegiant.usb.IFrameCallback;
+import com.serenegiant.usb.UVCCamera;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+/**
+ * cost on the capture thread of handing a frame to IFrameCallback.
+ * Native code passes a direct ByteBuffer that wraps the frame memory and reuses it
+ * after onFrame returns, so callbacks have to copy it before returning.
+ */
+@State(Scope.Benchmark)
+public class FrameHandoffBenchmark {
+	private static class NopCallback implements IFrameCallback {
+		@Override
+		public void onFrame(final ByteBuffer frame) {
+		}
+	}
+
+	@Param({"640x480", "1280x720", "1920x1080"})
+	public String resolution;
+
+	private ByteBuffer mFrame;
+	private ByteBuffer mDirectCopy;
+	private byte[] mHeapCopy;
+	private FrameDispatcher mDispatcher;
+	private FrameBus mBus;
+
+	@Setup(Level.Trial)
+	public void setup() {
+		final int[] size = SyntheticFrames.parseResolution(resolution);
+		mFrame = SyntheticFrames.yuyv(size[0], size[1], 0);
+		mDirectCopy = ByteBuffer.allocateDirect(mFrame.capacity()).order(ByteOrder.nativeOrder());
+		mHeapCopy = new byte[mFrame.capacity()];
+		mDispatcher = new FrameDispatcher(new NopCallback(), 2, FrameDispatcher.OVERFLOW_DROP_OLDEST, 1);
+		mBus = new FrameBus(size[0], size[1]);
+		mBus.subscribe(new NopCallback(), UVCCamera.PIXEL_FORMAT_YUV, 1, 2);
+		mBus.subscribe(new NopCallback(), UVCCamera.PIXEL_FORMAT_NV21, 1, 2);
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDown() {
+		mDispatcher.release();
+		mBus.release();
+	}
+
+	/**
+	 * copy into preallocated direct ByteBuffer, minimum cost of any callback
+	 */
+	@Benchmark
+	public ByteBuffer directCopy() {
+		mFrame.rewind();
+		mDirectCopy.clear();
+		mDirectCopy.put(mFrame);
+		return mDirectCopy;
+	}
+
+	/**
+	 * copy into preallocated byte array, common pattern in callbacks
+	 */
+	@Benchmark
+	public byte[] heapCopy() {
+		mFrame.rewind();
+		mFrame.get(mHeapCopy);
+		return mHeapCopy;
+	}
+
+	/**
+	 * copy into pooled buffer and enqueue to worker thread
+	 */
+	@Benchmark
+	public void dispatcher() {
+		mFrame.rewind();
+		mDispatcher.onFrame(mFrame);
+	}
+
+	/**
+	 * fan-out to two subscribers, one of them needs NV21 conversion
+	 */
+	@Benchmark
+	public void frameBus() {
+		mFrame.rewind();
+		mBus.onFrame(mFrame);
+	}
+}
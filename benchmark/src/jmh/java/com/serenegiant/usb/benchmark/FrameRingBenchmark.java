@@ -0,0 +1,134 @@
+/*
+ *  UVCCamera
+ *  library and sample to access to UVC web camera on non-rooted Android device
+ *
+ * Copyright (c) 2014-2017 saki t_saki@serenegiant.com
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ *
+ *  All files in the folder are under this Apache License, Version 2.0.
+ *  Files in the libjpeg-turbo, libusb, libuvc, rapidjson folder
+ *  may have a different license, see the respective files.
+ */
+
+package com.serenegiant.usb.benchmark;
+
+import com.serenegiant.usb.FrameRing;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Group;
+import org.openjdk.jmh.annotations.GroupThreads;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.infra.Control;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+/**
+ * per frame overhead of handing frames from the capture thread to one consumer thread
+ * while both threads run concurrently, lock-free FrameRing vs. ArrayBlockingQueue with buffer pool
+ * that FrameDispatcher uses. Each operation is one frame handed over without loss,
+ * the producer waits for a free slot and the consumer waits for a frame by spinning with yield
+ * (yield keeps this meaningful even on a single core machine).
+ * Even the largest frame takes far less than 16.7ms(60fps),
+ * so the difference is the overhead per frame at 60fps and above.
+ * Each group runs one producer and one consumer, score of the group is average of both.
+ */
+@State(Scope.Group)
+public class FrameRingBenchmark {
+	private static final int CAPACITY = 4;
+
+	@Param({"160x120", "640x480", "1920x1080"})
+	public String resolution;
+
+	private ByteBuffer mFrame;
+	private FrameRing mRing;
+	private BlockingQueue<ByteBuffer> mQueue;
+	private BlockingQueue<ByteBuffer> mPool;
+
+	@Setup(Level.Trial)
+	public void setup() {
+		final int[] size = SyntheticFrames.parseResolution(resolution);
+		mFrame = SyntheticFrames.yuyv(size[0], size[1], 0);
+		final int bytes = mFrame.capacity();
+		mRing = new FrameRing(CAPACITY, bytes);
+		mQueue = new ArrayBlockingQueue<ByteBuffer>(CAPACITY);
+		mPool = new ArrayBlockingQueue<ByteBuffer>(CAPACITY);
+		for (int i = 0; i < CAPACITY; i++) {
+			mPool.offer(ByteBuffer.allocateDirect(bytes).order(ByteOrder.nativeOrder()));
+		}
+	}
+
+	@Benchmark
+	@Group("ring")
+	@GroupThreads(1)
+	public void ringProducer(final Control control) {
+		mFrame.rewind();
+		while (!mRing.offer(mFrame) && !control.stopMeasurement) {
+			Thread.yield();
+		}
+	}
+
+	@Benchmark
+	@Group("ring")
+	@GroupThreads(1)
+	public void ringConsumer(final Control control, final Blackhole bh) {
+		ByteBuffer frame;
+		while (((frame = mRing.peek()) == null) && !control.stopMeasurement) {
+			Thread.yield();
+		}
+		if (frame != null) {
+			bh.consume(frame.get(0));
+			mRing.remove();
+		}
+	}
+
+	@Benchmark
+	@Group("blockingQueue")
+	@GroupThreads(1)
+	public void queueProducer(final Control control) {
+		ByteBuffer buf;
+		while (((buf = mPool.poll()) == null) && !control.stopMeasurement) {
+			Thread.yield();
+		}
+		if (buf != null) {
+			mFrame.rewind();
+			buf.clear();
+			buf.put(mFrame);
+			buf.flip();
+			// never fails because the pool has the same number of buffers as the queue capacity
+			mQueue.offer(buf);
+		}
+	}
+
+	@Benchmark
+	@Group("blockingQueue")
+	@GroupThreads(1)
+	public void queueConsumer(final Control control, final Blackhole bh) {
+		ByteBuffer frame;
+		while (((frame = mQueue.poll()) == null) && !control.stopMeasurement) {
+			Thread.yield();
+		}
+		if (frame != null) {
+			bh.consume(frame.get(0));
+			mPool.offer(frame);
+		}
+	}
+}
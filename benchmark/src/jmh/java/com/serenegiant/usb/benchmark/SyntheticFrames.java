@@ -0,0 +1,276 @@
+/*
+ *  UVCCamera
+ *  library and sample to access to UVC web camera on non-rooted Android device
+ *
+ * Copyright (c) 2014-2017 saki t_saki@serenegiant.com
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ *
+ *  All files in the folder are under this Apache License, Version 2.0.
+ *  Files in the libjpeg-turbo, libusb, libuvc, rapidjson folder
+ *  may have a different license, see the respective files.
+ */
+
+package com.serenegiant.usb.benchmark;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Random;
+
+/**
+ * deterministic test data so benchmarks run without camera
+ */
+final class SyntheticFrames {
+	// Y, U, V of 75% color bars
+	private static final int[][] BARS = {
+		{ 180, 128, 128 },	// white
+		{ 162,  44, 142 },	// yellow
+		{ 131, 156,  44 },	// cyan
+		{ 112,  72,  58 },	// green
+		{  84, 184, 198 },	// magenta
+		{  65, 100, 212 },	// red
+		{  35, 212, 114 },	// blue
+		{  16, 128, 128 },	// black
+	};
+
+	private SyntheticFrames() {
+		// static methods only
+	}
+
+	/**
+	 * parse "WIDTHxHEIGHT"
+	 * @param resolution
+	 * @return int[] {width, height}
+	 */
+	static int[] parseResolution(final String resolution) {
+		final int ix = resolution.indexOf('x');
+		return new int[] {
+			Integer.parseInt(resolution.substring(0, ix)),
+			Integer.parseInt(resolution.substring(ix + 1)),
+		};
+	}
+
+	/**
+	 * YUYV color bars with some noise on luminance like UVC camera sends,
+	 * the noise keeps JPEG encoder from taking shortcuts on flat area.
+	 * @param width
+	 * @param height
+	 * @param seed
+	 * @return direct ByteBuffer, position is 0 and limit is the frame size
+	 */
+	static ByteBuffer yuyv(final int width, final int height, final long seed) {
+		final ByteBuffer result = ByteBuffer.allocateDirect(width * height * 2).order(ByteOrder.nativeOrder());
+		final Random random = new Random(seed);
+		final int barWidth = Math.max(width / BARS.length, 2);
+		for (int y = 0; y < height; y++) {
+			for (int x = 0; x < width; x += 2) {
+				final int[] bar = BARS[Math.min(x / barWidth, BARS.length - 1)];
+				result.put((byte)clamp(bar[0] + random.nextInt(16) - 8));
+				result.put((byte)bar[1]);
+				result.put((byte)clamp(bar[0] + random.nextInt(16) - 8));
+				result.put((byte)bar[2]);
+			}
+		}
+		result.flip();
+		return result;
+	}
+
+	/**
+	 * JSON string in the same structure as UVCCamera#getSupportedSize returns
+	 * @param yuyvFrames number of frame descriptors of uncompressed format
+	 * @param mjpegFrames number of frame descriptors of MJPEG format
+	 * @return
+	 */
+	static String supportedSize(final int yuyvFrames, final int mjpegFrames) {
+		final StringBuilder sb = new StringBuilder();
+		sb.append("{\"formats\":[");
+		appendFormat(sb, 1, 4, yuyvFrames);
+		sb.append(',');
+		appendFormat(sb, 2, 6, mjpegFrames);
+		sb.append("]}");
+		return sb.toString();
+	}
+
+	/**
+	 * same formats as #supportedSize in the binary layout that native code fills
+	 * for UVCCamera#nativeGetSupportedSizeArray
+	 * @param yuyvFrames number of frame descriptors of uncompressed format
+	 * @param mjpegFrames number of frame descriptors of MJPEG format
+	 * @return
+	 */
+	static int[] supportedSizeArray(final int yuyvFrames, final int mjpegFrames) {
+		final int[] result = new int[1 + 2 * 4 + (yuyvFrames + mjpegFrames) * (9 + 4)];
+		result[0] = 2;
+		int n = appendFormat(result, 1, 1, 4, yuyvFrames);
+		appendFormat(result, n, 2, 6, mjpegFrames);
+		return result;
+	}
+
+	private static int appendFormat(final int[] values, int n,
+		final int index, final int subtype, final int frames) {
+
+		values[n++] = subtype;
+		values[n++] = index;
+		values[n++] = 1;
+		values[n++] = frames;
+		for (int i = 0; i < frames; i++) {
+			values[n++] = subtype + 1;
+			values[n++] = 160 * (frames - i);
+			values[n++] = 120 * (frames - i);
+			values[n++] = 30;
+			values[n++] = 4;
+			values[n++] = 0;
+			values[n++] = 0;
+			values[n++] = 0;
+			values[n++] = 4;
+			values[n++] = 30;
+			values[n++] = 25;
+			values[n++] = 15;
+			values[n++] = 10;
+		}
+		return n;
+	}
+
+	private static void appendFormat(final StringBuilder sb,
+		final int index, final int subtype, final int frames) {
+
+		sb.append("{\"bFormatIndex\":").append(index)
+			.append(",\"bDescriptorSubtype\":").append(subtype)
+			.append(",\"bDefaultFrameIndex\":1")
+			.append(",\"frame_descs\":[");
+		for (int i = 0; i < frames; i++) {
+			if (i > 0) sb.append(',');
+			// descending like most cameras report
+			final int width = 160 * (frames - i);
+			final int height = 120 * (frames - i);
+			sb.append("{\"bDescriptorSubtype\":").append(subtype + 1)
+				.append(",\"bFrameIndex\":").append(i + 1)
+				.append(",\"wWidth\":").append(width)
+				.append(",\"wHeight\":").append(height)
+				.append(",\"dwDefaultFrameInterval\":30")
+				.append(",\"bFrameIntervalType\":4")
+				.append(",\"intervals\":[30,25,15,10]}");
+		}
+		sb.append("]}");
+	}
+
+	/**
+	 * raw USB descriptors in the same structure as UsbControlBlock#getRawDescriptors returns
+	 * for a typical UVC camera, device descriptor, configuration descriptor, VideoControl interface
+	 * and VideoStreaming interface with alternate settings
+	 * @param yuyvFrames number of frame descriptors of uncompressed format
+	 * @param mjpegFrames number of frame descriptors of MJPEG format
+	 * @return
+	 */
+	static byte[] rawDescriptors(final int yuyvFrames, final int mjpegFrames) {
+		final ByteArrayOutputStream out = new ByteArrayOutputStream();
+		// device descriptor
+		write(out, 18, 0x01, 0x00, 0x02, 0xef, 0x02, 0x01, 0x40,
+			0x6d, 0x04, 0x25, 0x08, 0x10, 0x00, 0x00, 0x02, 0x01, 0x01);
+		final int configStart = out.size();
+		// configuration descriptor, wTotalLength is not checked
+		write(out, 9, 0x02, 0x00, 0x00, 0x02, 0x01, 0x00, 0x80, 0xfa);
+		// interface association descriptor
+		write(out, 8, 0x0b, 0x00, 0x02, 0x0e, 0x03, 0x00, 0x00);
+		// VideoControl interface, header, camera terminal, processing unit, output terminal, interrupt endpoint
+		write(out, 9, 0x04, 0x00, 0x00, 0x01, 0x0e, 0x01, 0x00, 0x00);
+		write(out, 13, 0x24, 0x01, 0x00, 0x01, 0x4d, 0x00, 0x80, 0xc3, 0xc9, 0x01, 0x01, 0x01);
+		write(out, 18, 0x24, 0x02, 0x01, 0x01, 0x02, 0x00, 0x00, 0x00, 0x00, 0x00, 0x00, 0x00, 0x00,
+			0x03, 0x00, 0x00, 0x00);
+		write(out, 11, 0x24, 0x05, 0x02, 0x01, 0x00, 0x00, 0x02, 0x7f, 0x17, 0x00);
+		write(out, 9, 0x24, 0x03, 0x03, 0x01, 0x01, 0x00, 0x02, 0x00);
+		write(out, 7, 0x05, 0x83, 0x03, 0x10, 0x00, 0x08);
+		write(out, 5, 0x25, 0x03, 0x10, 0x00);
+		// VideoStreaming interface, alternate setting 0
+		write(out, 9, 0x04, 0x01, 0x00, 0x00, 0x0e, 0x02, 0x00, 0x00);
+		write(out, 15, 0x24, 0x01, 0x02, 0x00, 0x00, 0x81, 0x00, 0x03, 0x00, 0x00, 0x00, 0x01, 0x00, 0x04);
+		writeFormat(out, 1, 0x04, yuyvFrames);
+		writeFormat(out, 2, 0x06, mjpegFrames);
+		// color matching descriptor
+		write(out, 6, 0x24, 0x0d, 0x01, 0x01, 0x04);
+		// alternate settings with isochronous endpoint
+		for (int i = 1; i <= 3; i++) {
+			write(out, 9, 0x04, 0x01, i, 0x01, 0x0e, 0x02, 0x00, 0x00);
+			write(out, 7, 0x05, 0x81, 0x05, 0x80, i * 0x04, 0x01);
+		}
+		final byte[] result = out.toByteArray();
+		final int total = result.length - configStart;
+		result[configStart + 2] = (byte)total;
+		result[configStart + 3] = (byte)(total >> 8);
+		return result;
+	}
+
+	private static void writeFormat(final ByteArrayOutputStream out,
+		final int index, final int subtype, final int frames) {
+
+		if (subtype == 0x04) {
+			// YUY2 guid
+			write(out, 27, 0x24, subtype, index, frames,
+				0x59, 0x55, 0x59, 0x32, 0x00, 0x00, 0x10, 0x00,
+				0x80, 0x00, 0x00, 0xaa, 0x00, 0x38, 0x9b, 0x71,
+				0x10, 0x01, 0x00, 0x00, 0x00, 0x00);
+		} else {
+			write(out, 11, 0x24, subtype, index, frames, 0x01, 0x01, 0x00, 0x00, 0x00, 0x00);
+		}
+		final int[] intervals = {333333, 400000, 666666, 1000000};
+		for (int i = 0; i < frames; i++) {
+			// descending like most cameras report
+			final int width = 160 * (frames - i);
+			final int height = 120 * (frames - i);
+			out.write(26 + intervals.length * 4);
+			out.write(0x24);
+			out.write(subtype + 1);
+			out.write(i + 1);
+			out.write(0x00);
+			writeShort(out, width);
+			writeShort(out, height);
+			writeInt(out, width * height * 16 * 10);
+			writeInt(out, width * height * 16 * 30);
+			writeInt(out, width * height * 2);
+			writeInt(out, intervals[0]);
+			out.write(intervals.length);
+			for (final int interval : intervals) {
+				writeInt(out, interval);
+			}
+		}
+	}
+
+	/**
+	 * @param length bLength, also number of bytes written
+	 * @param values following bytes
+	 */
+	private static void write(final ByteArrayOutputStream out, final int length, final int... values) {
+		if (values.length != length - 1) {
+			throw new IllegalArgumentException("wrong descriptor length " + length);
+		}
+		out.write(length);
+		for (final int v : values) {
+			out.write(v);
+		}
+	}
+
+	private static void writeShort(final ByteArrayOutputStream out, final int v) {
+		out.write(v);
+		out.write(v >> 8);
+	}
+
+	private static void writeInt(final ByteArrayOutputStream out, final int v) {
+		writeShort(out, v);
+		writeShort(out, v >> 16);
+	}
+
+	private static int clamp(final int v) {
+		return v >= 255 ? 255 : (v < 0 ? 0 : v);
+	}
+}
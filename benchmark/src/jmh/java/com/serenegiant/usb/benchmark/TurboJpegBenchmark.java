@@ -0,0 +1,165 @@
+/*
+ *  UVCCamera
+ *  library and sample to access to UVC web camera on non-rooted Android device
+ *
+ * Copyright (c) 2014-2017 saki t_saki@serenegiant.com
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ *
+ *  All files in the folder are under this Apache License, Version 2.0.
+ *  Files in the libjpeg-turbo, libusb, libuvc, rapidjson folder
+ *  may have a different license, see the respective files.
+ */
+
+package com.serenegiant.usb.benchmark;
+
+import com.serenegiant.usb.FrameConverter;
+import com.serenegiant.usb.TurboJpegPool;
+import com.serenegiant.usb.UVCCamera;
+
+import org.libjpegturbo.turbojpeg.TJ;
+import org.libjpegturbo.turbojpeg.TJCompressor;
+import org.libjpegturbo.turbojpeg.TJDecompressor;
+import org.libjpegturbo.turbojpeg.TJException;
+import org.libjpegturbo.turbojpeg.TJScalingFactor;
+import org.libjpegturbo.turbojpeg.YUVImage;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+/**
+ * TurboJPEG through its Java API, this needs libturbojpeg with JNI on java.library.path.
+ * Input is 4:2:2 like MJPEG frames from UVC cameras.
+ * decompressRGBXQuarter/Eighth decode with IDCT scaling same as UVCCamera#setFrameCallbackScale.
+ * compressNewInstance/compressPooled compare creating a TJCompressor per frame with TurboJpegPool.
+ */
+@State(Scope.Benchmark)
+public class TurboJpegBenchmark {
+	@Param({"640x480", "1280x720", "1920x1080"})
+	public String resolution;
+
+	@Param({"80"})
+	public int quality;
+
+	private int mWidth, mHeight;
+	private byte[] mRGBX;
+	private byte[] mJpeg;
+	private int mJpegSize;
+	private byte[] mDecoded;
+	private int mQuarterWidth, mQuarterHeight;
+	private int mEighthWidth, mEighthHeight;
+	private YUVImage mYUV;
+	private TJCompressor mCompressor;
+	private TJDecompressor mDecompressor;
+	private TurboJpegPool mPool;
+
+	@Setup(Level.Trial)
+	public void setup() throws TJException {
+		final int[] size = SyntheticFrames.parseResolution(resolution);
+		mWidth = size[0];
+		mHeight = size[1];
+		final ByteBuffer rgbx = ByteBuffer.allocateDirect(
+			FrameConverter.getFrameBytes(mWidth, mHeight, UVCCamera.PIXEL_FORMAT_RGBX))
+				.order(ByteOrder.nativeOrder());
+		FrameConverter.convert(SyntheticFrames.yuyv(mWidth, mHeight, 0),
+			mWidth, mHeight, UVCCamera.PIXEL_FORMAT_RGBX, rgbx);
+		mRGBX = new byte[rgbx.remaining()];
+		rgbx.get(mRGBX);
+
+		mCompressor = new TJCompressor(mRGBX, 0, 0, mWidth, 0, mHeight, TJ.PF_RGBX);
+		mCompressor.setSubsamp(TJ.SAMP_422);
+		mCompressor.setJPEGQuality(quality);
+		mJpeg = new byte[TJ.bufSize(mWidth, mHeight, TJ.SAMP_422)];
+		mCompressor.compress(mJpeg, 0);
+		mJpegSize = mCompressor.getCompressedSize();
+
+		mDecompressor = new TJDecompressor(mJpeg, mJpegSize);
+		mDecoded = new byte[mWidth * mHeight * 4];
+		final TJScalingFactor quarter = new TJScalingFactor(1, 4);
+		mQuarterWidth = quarter.getScaled(mWidth);
+		mQuarterHeight = quarter.getScaled(mHeight);
+		final TJScalingFactor eighth = new TJScalingFactor(1, 8);
+		mEighthWidth = eighth.getScaled(mWidth);
+		mEighthHeight = eighth.getScaled(mHeight);
+		mYUV = new YUVImage(mWidth, 4, mHeight, TJ.SAMP_422);
+		mPool = new TurboJpegPool();
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDown() throws TJException {
+		mCompressor.close();
+		mDecompressor.close();
+		mPool.release();
+	}
+
+	@Benchmark
+	public int compress() throws TJException {
+		mCompressor.compress(mJpeg, 0);
+		return mCompressor.getCompressedSize();
+	}
+
+	@Benchmark
+	public int compressNewInstance() throws TJException {
+		final TJCompressor compressor = new TJCompressor(mRGBX, 0, 0, mWidth, 0, mHeight, TJ.PF_RGBX);
+		try {
+			compressor.setSubsamp(TJ.SAMP_422);
+			compressor.setJPEGQuality(quality);
+			compressor.compress(new byte[TJ.bufSize(mWidth, mHeight, TJ.SAMP_422)], 0);
+			return compressor.getCompressedSize();
+		} finally {
+			compressor.close();
+		}
+	}
+
+	@Benchmark
+	public int compressPooled() throws TJException {
+		final TurboJpegPool.Lease<TJCompressor> lease = mPool.getThreadCompressor();
+		final TJCompressor compressor = lease.get();
+		compressor.setSourceImage(mRGBX, 0, 0, mWidth, 0, mHeight, TJ.PF_RGBX);
+		compressor.setSubsamp(TJ.SAMP_422);
+		compressor.setJPEGQuality(quality);
+		compressor.compress(lease.getJPEGBuffer(mWidth, mHeight, TJ.SAMP_422), 0);
+		return compressor.getCompressedSize();
+	}
+
+	@Benchmark
+	public byte[] decompressRGBX() throws TJException {
+		mDecompressor.decompress(mDecoded, 0, 0, mWidth, 0, mHeight, TJ.PF_RGBX, 0);
+		return mDecoded;
+	}
+
+	@Benchmark
+	public byte[] decompressRGBXQuarter() throws TJException {
+		mDecompressor.decompress(mDecoded, 0, 0, mQuarterWidth, 0, mQuarterHeight, TJ.PF_RGBX, 0);
+		return mDecoded;
+	}
+
+	@Benchmark
+	public byte[] decompressRGBXEighth() throws TJException {
+		mDecompressor.decompress(mDecoded, 0, 0, mEighthWidth, 0, mEighthHeight, TJ.PF_RGBX, 0);
+		return mDecoded;
+	}
+
+	@Benchmark
+	public YUVImage decompressToYUV() throws TJException {
+		mDecompressor.decompressToYUV(mYUV, 0);
+		return mYUV;
+	}
+}
@@ -0,0 +1,104 @@
+/*
+ *  UVCCamera
+ *  library and sample to access to UVC web camera on non-rooted Android device
+ *
+ * Copyright (c) 2014-2017 saki t_saki@serenegiant.com
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ *
+ *  All files in the folder are under this Apache License, Version 2.0.
+ *  Files in the libjpeg-turbo, libusb, libuvc, rapidjson folder
+ *  may have a different license, see the respective files.
+ */
+
+package com.serenegiant.usb.benchmark;
+
+import com.serenegiant.usb.FrameConverter;
+import com.serenegiant.usb.UVCCamera;
+
+import org.libjpegturbo.turbojpeg.TJ;
+import org.libjpegturbo.turbojpeg.TJCompressor;
+import org.libjpegturbo.turbojpeg.TJDecompressor;
+import org.libjpegturbo.turbojpeg.TJException;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+/**
+ * TurboJPEG reading and writing direct ByteBuffers like frames from native code,
+ * compare with compress/decompressRGBX of TurboJpegBenchmark.
+ * These overloads exist only in libturbojpeg built from libuvccamera/src/main/jni/libjpeg-turbo-1.5.0,
+ * so this runs only with -Pturbojpeg.direct=true(see build.gradle).
+ */
+@State(Scope.Benchmark)
+public class TurboJpegDirectBenchmark {
+	@Param({"640x480", "1280x720", "1920x1080"})
+	public String resolution;
+
+	@Param({"80"})
+	public int quality;
+
+	private int mWidth, mHeight;
+	private ByteBuffer mJpeg;
+	private ByteBuffer mDecoded;
+	private TJCompressor mCompressor;
+	private TJDecompressor mDecompressor;
+
+	@Setup(Level.Trial)
+	public void setup() throws TJException {
+		final int[] size = SyntheticFrames.parseResolution(resolution);
+		mWidth = size[0];
+		mHeight = size[1];
+		final ByteBuffer rgbx = ByteBuffer.allocateDirect(
+			FrameConverter.getFrameBytes(mWidth, mHeight, UVCCamera.PIXEL_FORMAT_RGBX))
+				.order(ByteOrder.nativeOrder());
+		FrameConverter.convert(SyntheticFrames.yuyv(mWidth, mHeight, 0),
+			mWidth, mHeight, UVCCamera.PIXEL_FORMAT_RGBX, rgbx);
+		rgbx.rewind();
+
+		mCompressor = new TJCompressor();
+		mCompressor.setSourceImage(rgbx, 0, 0, mWidth, 0, mHeight, TJ.PF_RGBX);
+		mCompressor.setSubsamp(TJ.SAMP_422);
+		mCompressor.setJPEGQuality(quality);
+		mJpeg = ByteBuffer.allocateDirect(TJ.bufSize(mWidth, mHeight, TJ.SAMP_422));
+		mCompressor.compress(mJpeg, 0);
+		mDecompressor = new TJDecompressor();
+		mDecompressor.setSourceImage(mJpeg, mJpeg.limit());
+		mDecoded = ByteBuffer.allocateDirect(mWidth * mHeight * 4);
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDown() throws TJException {
+		mCompressor.close();
+		mDecompressor.close();
+	}
+
+	@Benchmark
+	public int compress() throws TJException {
+		mCompressor.compress(mJpeg, 0);
+		return mCompressor.getCompressedSize();
+	}
+
+	@Benchmark
+	public ByteBuffer decompressRGBX() throws TJException {
+		mDecompressor.decompress(mDecoded, 0, 0, mWidth, 0, mHeight, TJ.PF_RGBX, 0);
+		return mDecoded;
+	}
+}
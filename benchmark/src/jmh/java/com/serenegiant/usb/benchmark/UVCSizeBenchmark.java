@@ -0,0 +1,100 @@
+/*
+ *  UVCCamera
+ *  library and sample to access to UVC web camera on non-rooted Android device
+ *
+ * Copyright (c) 2014-2017 saki t_saki@serenegiant.com
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ *
+ *  All files in the folder are under this Apache License, Version 2.0.
+ *  Files in the libjpeg-turbo, libusb, libuvc, rapidjson folder
+ *  may have a different license, see the respective files.
+ */
+
+package com.serenegiant.usb.benchmark;
+
+import com.serenegiant.usb.UVCDescriptorParser;
+import com.serenegiant.usb.UVCSize;
+import com.serenegiant.usb.UVCSizeCache;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+
+/**
+ * parsing supported size JSON from native code into UVCSize,
+ * building it from the binary catalog of native code or parsing raw USB descriptors on Java side,
+ * and reading it back from the disk cache of UVCSizeCache instead
+ */
+@State(Scope.Benchmark)
+public class UVCSizeBenchmark {
+	/**
+	 * number of frame descriptors for each of YUYV and MJPEG format
+	 */
+	@Param({"4", "16"})
+	public int frames;
+
+	private static final String KEY = UVCSizeCache.getKey(0x046d, 0x0825, "0123ABCD", "0.10");
+	private static final long HASH = 0x12345678L;
+
+	private String mJson;
+	private int[] mArray;
+	private byte[] mDescriptors;
+	private File mCacheDir;
+
+	@Setup(Level.Trial)
+	public void setup() throws IOException {
+		mJson = SyntheticFrames.supportedSize(frames, frames);
+		mArray = SyntheticFrames.supportedSizeArray(frames, frames);
+		mDescriptors = SyntheticFrames.rawDescriptors(frames, frames);
+		mCacheDir = Files.createTempDirectory("uvcsize").toFile();
+		new UVCSizeCache(mCacheDir).put(KEY, HASH, new UVCSize(mJson));
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDown() {
+		new UVCSizeCache(mCacheDir).clear();
+		mCacheDir.delete();
+	}
+
+	@Benchmark
+	public UVCSize parse() {
+		return new UVCSize(mJson);
+	}
+
+	@Benchmark
+	public UVCSize fromArray() {
+		return new UVCSize(mArray);
+	}
+
+	@Benchmark
+	public UVCSize fromDescriptors() {
+		return UVCDescriptorParser.parseSupportedSize(mDescriptors);
+	}
+
+	/**
+	 * reopening a known camera after process restart, the entry is not in memory yet
+	 */
+	@Benchmark
+	public UVCSize readCached() {
+		return new UVCSizeCache(mCacheDir).get(KEY, HASH);
+	}
+}
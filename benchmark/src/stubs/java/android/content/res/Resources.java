@@ -0,0 +1,63 @@
+/*
+ *  UVCCamera
+ *  library and sample to access to UVC web camera on non-rooted Android device
+ *
+ * Copyright (c) 2014-2017 saki t_saki@serenegiant.com
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ *
+ *  All files in the folder are under this Apache License, Version 2.0.
+ *  Files in the libjpeg-turbo, libusb, libuvc, rapidjson folder
+ *  may have a different license, see the respective files.
+ */
+
+package android.content.res;
+
+import org.xmlpull.v1.XmlPullParser;
+
+/**
+ * JVM stand-in for android.content.res.Resources, only for compiling DeviceFilter.
+ * Resource loading is not benchmarked.
+ */
+public class Resources {
+	public static class NotFoundException extends RuntimeException {
+		private static final long serialVersionUID = 1L;
+
+		public NotFoundException() {
+		}
+
+		public NotFoundException(final String name) {
+			super(name);
+		}
+	}
+
+	public XmlPullParser getXml(final int id) throws NotFoundException {
+		throw new NotFoundException();
+	}
+
+	public int getIdentifier(final String name, final String defType, final String defPackage) {
+		return 0;
+	}
+
+	public int getInteger(final int id) throws NotFoundException {
+		throw new NotFoundException();
+	}
+
+	public boolean getBoolean(final int id) throws NotFoundException {
+		throw new NotFoundException();
+	}
+
+	public String getString(final int id) throws NotFoundException {
+		throw new NotFoundException();
+	}
+}
@@ -0,0 +1,82 @@
+/*
+ *  UVCCamera
+ *  library and sample to access to UVC web camera on non-rooted Android device
+ *
+ * Copyright (c) 2014-2017 saki t_saki@serenegiant.com
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ *
+ *  All files in the folder are under this Apache License, Version 2.0.
+ *  Files in the libjpeg-turbo, libusb, libuvc, rapidjson folder
+ *  may have a different license, see the respective files.
+ */
+
+package android.hardware.usb;
+
+/**
+ * JVM stand-in for android.hardware.usb.UsbDevice,
+ * unlike the framework class this has a public constructor to make synthetic devices.
+ */
+public class UsbDevice {
+	private final String mName;
+	private final int mVendorId;
+	private final int mProductId;
+	private final int mClass;
+	private final int mSubclass;
+	private final int mProtocol;
+	private final UsbInterface[] mInterfaces;
+
+	public UsbDevice(final String name, final int vendorId, final int productId,
+		final int clasz, final int subclass, final int protocol, final UsbInterface[] interfaces) {
+
+		mName = name;
+		mVendorId = vendorId;
+		mProductId = productId;
+		mClass = clasz;
+		mSubclass = subclass;
+		mProtocol = protocol;
+		mInterfaces = interfaces;
+	}
+
+	public String getDeviceName() {
+		return mName;
+	}
+
+	public int getVendorId() {
+		return mVendorId;
+	}
+
+	public int getProductId() {
+		return mProductId;
+	}
+
+	public int getDeviceClass() {
+		return mClass;
+	}
+
+	public int getDeviceSubclass() {
+		return mSubclass;
+	}
+
+	public int getDeviceProtocol() {
+		return mProtocol;
+	}
+
+	public int getInterfaceCount() {
+		return mInterfaces.length;
+	}
+
+	public UsbInterface getInterface(final int index) {
+		return mInterfaces[index];
+	}
+}
@@ -0,0 +1,192 @@
+/*
+ *  UVCCamera
+ *  library and sample to access to UVC web camera on non-rooted Android device
+ *
+ * Copyright (c) 2014-2017 saki t_saki@serenegiant.com
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ *
+ *  All files in the folder are under this Apache License, Version 2.0.
+ *  Files in the libjpeg-turbo, libusb, libuvc, rapidjson folder
+ *  may have a different license, see the respective files.
+ */
+
+package com.serenegiant.usb;
+
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * base class of IPipeline that holds native pipeline object.
+ * Native code refers the next pipeline and the pipeline set to UVCCamera with raw pointers,
+ * so each of them is strongly referenced from Java side while it is set, and #release
+ * removes this pipeline from the camera and the pipelines that feed it before
+ * destroying its native object.
+ */
+public abstract class AbstractPipeline implements IPipeline {
+	static {
+		// make sure native library is loaded and the natives are registered
+		UVCCamera.loadLibrary();
+	}
+
+	// these fields are accessed from native code and do not change name and remove
+	protected long mNativePtr;
+	protected final int mType;
+	/**
+	 * next pipeline, strongly referenced while native pipeline refers it
+	 */
+	private IPipeline mNext;
+	/**
+	 * UVCCamera or AbstractPipeline that this pipeline is set to
+	 */
+	private final List<WeakReference<Object>> mOwners = new ArrayList<WeakReference<Object>>();
+
+	protected AbstractPipeline(final int type) {
+		mType = type;
+	}
+
+	@Override
+	public int getType() {
+		return mType;
+	}
+
+	@Override
+	public synchronized int getState() {
+		return mNativePtr != 0 ? nativeGetState(mNativePtr) : STATE_UNINITIALIZED;
+	}
+
+	@Override
+	public synchronized void setPipeline(final IPipeline pipeline) {
+		if (mNativePtr != 0) {
+			final int result = nativeSetPipeline(mNativePtr, pipeline);
+			if (result != 0)
+				throw new IllegalStateException("failed to set pipeline:" + result);
+			if (mNext != pipeline) {
+				removeOwner(mNext, this);
+				addOwner(pipeline, this);
+				mNext = pipeline;
+			}
+		}
+	}
+
+	@Override
+	public synchronized void start() {
+		if (mNativePtr != 0) {
+			nativeStart(mNativePtr);
+		}
+	}
+
+	@Override
+	public synchronized void stop() {
+		if (mNativePtr != 0) {
+			nativeStop(mNativePtr);
+		}
+	}
+
+	/**
+	 * remove this pipeline from the camera and the pipelines that feed it,
+	 * then destroy native pipeline
+	 */
+	@Override
+	public void release() {
+		// owners are not called while holding this monitor, they call back #addOwner/#removeOwner
+		final List<Object> owners = new ArrayList<Object>();
+		synchronized (mOwners) {
+			for (final WeakReference<Object> ref: mOwners) {
+				final Object owner = ref.get();
+				if (owner != null) {
+					owners.add(owner);
+				}
+			}
+			mOwners.clear();
+		}
+		for (final Object owner: owners) {
+			if (owner instanceof UVCCamera) {
+				((UVCCamera)owner).removePipeline(this);
+			} else if (owner instanceof AbstractPipeline) {
+				((AbstractPipeline)owner).removePipeline(this);
+			}
+		}
+		synchronized (this) {
+			if (mNativePtr != 0) {
+				nativeDestroy(mNativePtr);
+				mNativePtr = 0;
+			}
+			removeOwner(mNext, this);
+			mNext = null;
+		}
+	}
+
+	/**
+	 * remove the pipeline if it is set to this pipeline, called when it is released
+	 * @param pipeline
+	 */
+	/*package*/synchronized void removePipeline(final IPipeline pipeline) {
+		if ((mNext == pipeline) && (mNativePtr != 0)) {
+			nativeSetPipeline(mNativePtr, null);
+			removeOwner(mNext, this);
+			mNext = null;
+		}
+	}
+
+	/**
+	 * register owner(UVCCamera or AbstractPipeline) that the pipeline is set to
+	 * @param pipeline
+	 * @param owner
+	 */
+	/*package*/static void addOwner(final IPipeline pipeline, final Object owner) {
+		if (pipeline instanceof AbstractPipeline) {
+			final List<WeakReference<Object>> owners = ((AbstractPipeline)pipeline).mOwners;
+			synchronized (owners) {
+				owners.add(new WeakReference<Object>(owner));
+			}
+		}
+	}
+
+	/**
+	 * unregister owner that the pipeline was removed from
+	 * @param pipeline
+	 * @param owner
+	 */
+	/*package*/static void removeOwner(final IPipeline pipeline, final Object owner) {
+		if (pipeline instanceof AbstractPipeline) {
+			final List<WeakReference<Object>> owners = ((AbstractPipeline)pipeline).mOwners;
+			synchronized (owners) {
+				for (int i = owners.size() - 1; i >= 0; i--) {
+					final Object o = owners.get(i).get();
+					if ((o == null) || (o == owner)) {
+						owners.remove(i);
+						if (o == owner) break;
+					}
+				}
+			}
+		}
+	}
+
+	@Override
+	protected void finalize() throws Throwable {
+		try {
+			release();
+		} finally {
+			super.finalize();
+		}
+	}
+
+	// natives are registered to each subclass on native side
+	protected abstract void nativeDestroy(final long id_pipeline);
+	protected abstract int nativeGetState(final long id_pipeline);
+	protected abstract int nativeSetPipeline(final long id_pipeline, final IPipeline pipeline);
+	protected abstract int nativeStart(final long id_pipeline);
+	protected abstract int nativeStop(final long id_pipeline);
+}
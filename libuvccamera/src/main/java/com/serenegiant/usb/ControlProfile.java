@@ -0,0 +1,202 @@
+/*
+ *  UVCCamera
+ *  library and sample to access to UVC web camera on non-rooted Android device
+ *
+ * Copyright (c) 2014-2017 saki t_saki@serenegiant.com
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ *
+ *  All files in the folder are under this Apache License, Version 2.0.
+ *  Files in the libjpeg-turbo, libusb, libuvc, rapidjson folder
+ *  may have a different license, see the respective files.
+ */
+
+package com.serenegiant.usb;
+
+import android.os.Parcel;
+import android.os.Parcelable;
+import android.text.TextUtils;
+
+import java.util.Arrays;
+
+/**
+ * Snapshot of values of UVC controls(UVCControls.XXX) in the unit of the camera,
+ * capture it with UVCCamera#captureControlProfile and restore with UVCCamera#applyControlProfile,
+ * both run with one native call for all controls.
+ * #toCompactString makes a short string like "1,3ff,128,32,..." to persist it e.g. in SharedPreferences.
+ */
+public class ControlProfile implements Parcelable {
+	private static final int VERSION = 1;
+
+	/**
+	 * bit mask of controls that have a value in this profile
+	 */
+	private int mMask;
+	private final int[] mValues = new int[UVCControls.NUM_CONTROLS];
+
+	public ControlProfile() {
+	}
+
+	public ControlProfile(final ControlProfile src) {
+		mMask = src.mMask;
+		System.arraycopy(src.mValues, 0, mValues, 0, mValues.length);
+	}
+
+	protected ControlProfile(final Parcel in) {
+		mMask = in.readInt();
+		in.readIntArray(mValues);
+	}
+
+	public static final Creator<ControlProfile> CREATOR = new Creator<ControlProfile>() {
+		@Override
+		public ControlProfile createFromParcel(final Parcel in) {
+			return new ControlProfile(in);
+		}
+
+		@Override
+		public ControlProfile[] newArray(final int size) {
+			return new ControlProfile[size];
+		}
+	};
+
+	/**
+	 * whether this profile has a value of the control
+	 * @param control one of UVCControls.XXX
+	 * @return
+	 */
+	public boolean has(final int control) {
+		return (mMask & bit(control)) != 0;
+	}
+
+	/**
+	 * @param control one of UVCControls.XXX
+	 * @return value in the unit of the camera, 0 if this profile does not have it
+	 */
+	public int getValue(final int control) {
+		return has(control) ? mValues[control] : 0;
+	}
+
+	/**
+	 * @param control one of UVCControls.XXX
+	 * @param value in the unit of the camera
+	 */
+	public void setValue(final int control, final int value) {
+		mMask |= bit(control);
+		mValues[control] = value;
+	}
+
+	/**
+	 * remove the value of the control so applying this profile does not change it
+	 * @param control one of UVCControls.XXX
+	 */
+	public void remove(final int control) {
+		mMask &= ~bit(control);
+		mValues[control] = 0;
+	}
+
+	/**
+	 * @return bit mask of controls that have a value in this profile, bit n for UVCControls index n
+	 */
+	public int getMask() {
+		return mMask;
+	}
+
+	public boolean isEmpty() {
+		return mMask == 0;
+	}
+
+	/**
+	 * compact string to persist this profile, version, mask in hex and values of the controls in the mask
+	 * @return
+	 */
+	public String toCompactString() {
+		final StringBuilder sb = new StringBuilder();
+		sb.append(VERSION).append(',').append(Integer.toHexString(mMask));
+		for (int i = 0; i < UVCControls.NUM_CONTROLS; i++) {
+			if ((mMask & (1 << i)) != 0) {
+				sb.append(',').append(mValues[i]);
+			}
+		}
+		return sb.toString();
+	}
+
+	/**
+	 * restore the profile from the string of #toCompactString
+	 * @param str
+	 * @return null if str is empty
+	 * @throws IllegalArgumentException if str is broken or is of unknown version
+	 */
+	public static ControlProfile fromCompactString(final String str) {
+		if (TextUtils.isEmpty(str)) {
+			return null;
+		}
+		final String[] items = str.split(",");
+		try {
+			if ((items.length < 2) || (Integer.parseInt(items[0]) != VERSION)) {
+				throw new IllegalArgumentException("unknown control profile:" + str);
+			}
+			final ControlProfile result = new ControlProfile();
+			final int mask = Integer.parseInt(items[1], 16);
+			if ((mask & ~((1 << UVCControls.NUM_CONTROLS) - 1)) != 0) {
+				throw new IllegalArgumentException("unknown controls in profile:" + str);
+			}
+			int n = 2;
+			for (int i = 0; i < UVCControls.NUM_CONTROLS; i++) {
+				if ((mask & (1 << i)) != 0) {
+					result.setValue(i, Integer.parseInt(items[n++]));
+				}
+			}
+			if (n != items.length) {
+				throw new IllegalArgumentException("broken control profile:" + str);
+			}
+			return result;
+		} catch (final NumberFormatException | ArrayIndexOutOfBoundsException e) {
+			throw new IllegalArgumentException("broken control profile:" + str, e);
+		}
+	}
+
+	private static int bit(final int control) {
+		if ((control < 0) || (control >= UVCControls.NUM_CONTROLS))
+			throw new IllegalArgumentException("unknown control:" + control);
+		return 1 << control;
+	}
+
+	@Override
+	public boolean equals(final Object o) {
+		if (this == o) return true;
+		if (!(o instanceof ControlProfile)) return false;
+		final ControlProfile other = (ControlProfile)o;
+		return (mMask == other.mMask) && Arrays.equals(mValues, other.mValues);
+	}
+
+	@Override
+	public int hashCode() {
+		return 31 * mMask + Arrays.hashCode(mValues);
+	}
+
+	@Override
+	public String toString() {
+		return "ControlProfile{" + toCompactString() + '}';
+	}
+
+	@Override
+	public int describeContents() {
+		return 0;
+	}
+
+	@Override
+	public void writeToParcel(final Parcel dest, final int flags) {
+		dest.writeInt(mMask);
+		dest.writeIntArray(mValues);
+	}
+}
@@ -0,0 +1,94 @@
+/*
+ *  UVCCamera
+ *  library and sample to access to UVC web camera on non-rooted Android device
+ *
+ * Copyright (c) 2014-2017 saki t_saki@serenegiant.com
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ *
+ *  All files in the folder are under this Apache License, Version 2.0.
+ *  Files in the libjpeg-turbo, libusb, libuvc, rapidjson folder
+ *  may have a different license, see the respective files.
+ */
+
+package com.serenegiant.usb;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * pipeline that passes each frame to all added pipelines
+ */
+public class DistributePipeline extends AbstractPipeline {
+	/**
+	 * added pipelines, strongly referenced while native pipeline refers them
+	 */
+	private final List<IPipeline> mPipelines = new ArrayList<IPipeline>();
+
+	public DistributePipeline() {
+		super(PIPELINE_TYPE_DISTRIBUTE);
+		nativeCreate();
+	}
+
+	/**
+	 * add pipeline that receives frames
+	 * @param pipeline
+	 */
+	public synchronized void addPipeline(final IPipeline pipeline) {
+		if ((mNativePtr != 0) && (pipeline != null) && !mPipelines.contains(pipeline)) {
+			nativeAddPipeline(mNativePtr, pipeline);
+			mPipelines.add(pipeline);
+			addOwner(pipeline, this);
+		}
+	}
+
+	/**
+	 * remove pipeline
+	 * @param pipeline
+	 */
+	@Override
+	public synchronized void removePipeline(final IPipeline pipeline) {
+		super.removePipeline(pipeline);
+		if (mPipelines.remove(pipeline)) {
+			if (mNativePtr != 0) {
+				nativeRemovePipeline(mNativePtr, pipeline);
+			}
+			removeOwner(pipeline, this);
+		}
+	}
+
+	@Override
+	public void release() {
+		super.release();
+		synchronized (this) {
+			for (final IPipeline pipeline: mPipelines) {
+				removeOwner(pipeline, this);
+			}
+			mPipelines.clear();
+		}
+	}
+
+	private native long nativeCreate();
+	@Override
+	protected native void nativeDestroy(final long id_pipeline);
+	@Override
+	protected native int nativeGetState(final long id_pipeline);
+	@Override
+	protected native int nativeSetPipeline(final long id_pipeline, final IPipeline pipeline);
+	@Override
+	protected native int nativeStart(final long id_pipeline);
+	@Override
+	protected native int nativeStop(final long id_pipeline);
+	private native int nativeAddPipeline(final long id_pipeline, final IPipeline pipeline);
+	private native int nativeRemovePipeline(final long id_pipeline, final IPipeline pipeline);
+}
@@ -0,0 +1,191 @@
+/*
+ *  UVCCamera
+ *  library and sample to access to UVC web camera on non-rooted Android device
+ *
+ * Copyright (c) 2014-2017 saki t_saki@serenegiant.com
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ *
+ *  All files in the folder are under this Apache License, Version 2.0.
+ *  Files in the libjpeg-turbo, libusb, libuvc, rapidjson folder
+ *  may have a different license, see the respective files.
+ */
+
+package com.serenegiant.usb;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Fan-out of frames to multiple IFrameCallback like native DistributePipeline.
+ * This receives YUYV frames(UVCCamera.PIXEL_FORMAT_YUV) from native code,
+ * converts them once per distinct pixel format that the subscribers want on each frame
+ * and passes them to each subscriber through its own FrameDispatcher,
+ * so a slow subscriber does not stall others.
+ * Usually you don't need to use this directly, use UVCCamera#addFrameCallback instead.
+ */
+public class FrameBus implements IFrameCallback {
+	private static final int PIXEL_FORMAT_NUM = UVCCamera.PIXEL_FORMAT_NV21 + 1;
+
+	private static class Subscriber {
+		private final IFrameCallback mCallback;
+		private final int mPixelFormat;
+		private final int mDecimation;
+		private final FrameDispatcher mDispatcher;
+		private int mCount;
+
+		private Subscriber(final IFrameCallback callback,
+			final int pixelFormat, final int decimation, final int queueDepth) {
+
+			mCallback = callback;
+			mPixelFormat = pixelFormat;
+			mDecimation = decimation;
+			mDispatcher = new FrameDispatcher(callback, queueDepth, FrameDispatcher.OVERFLOW_DROP_OLDEST, 1);
+		}
+
+		/**
+		 * @return true if this subscriber should receive current frame
+		 */
+		private boolean next() {
+			final boolean result = mCount == 0;
+			if (++mCount >= mDecimation) {
+				mCount = 0;
+			}
+			return result;
+		}
+	}
+
+	private final List<Subscriber> mSubscribers = new CopyOnWriteArrayList<Subscriber>();
+	private final ByteBuffer[] mConverted = new ByteBuffer[PIXEL_FORMAT_NUM];
+	private final boolean[] mRequested = new boolean[PIXEL_FORMAT_NUM];
+	private volatile int mWidth, mHeight;
+
+	public FrameBus(final int width, final int height) {
+		setFrameSize(width, height);
+	}
+
+	/**
+	 * set size of incoming YUYV frames
+	 * @param width
+	 * @param height
+	 */
+	public void setFrameSize(final int width, final int height) {
+		if ((width <= 0) || (height <= 0))
+			throw new IllegalArgumentException("invalid frame size");
+		mWidth = width;
+		mHeight = height;
+	}
+
+	/**
+	 * add subscriber
+	 * @param callback
+	 * @param pixelFormat one of UVCCamera.PIXEL_FORMAT_XXX
+	 * @param decimation deliver every n-th frame, 1 means every frame
+	 * @param queueDepth max number of frames waiting for this subscriber, oldest one is discarded on overflow
+	 */
+	public void subscribe(final IFrameCallback callback,
+		final int pixelFormat, final int decimation, final int queueDepth) {
+
+		if (callback == null)
+			throw new NullPointerException("callback should not be null");
+		if ((pixelFormat < 0) || (pixelFormat >= PIXEL_FORMAT_NUM))
+			throw new IllegalArgumentException("unknown pixel format:" + pixelFormat);
+		if (decimation <= 0)
+			throw new IllegalArgumentException("decimation should be positive");
+		unsubscribe(callback);
+		mSubscribers.add(new Subscriber(callback, pixelFormat, decimation, queueDepth));
+	}
+
+	/**
+	 * remove subscriber
+	 * @param callback
+	 * @return true if the callback was subscribed
+	 */
+	public boolean unsubscribe(final IFrameCallback callback) {
+		for (final Subscriber subscriber: mSubscribers) {
+			if (subscriber.mCallback == callback) {
+				mSubscribers.remove(subscriber);
+				subscriber.mDispatcher.release();
+				return true;
+			}
+		}
+		return false;
+	}
+
+	public boolean isEmpty() {
+		return mSubscribers.isEmpty();
+	}
+
+	/**
+	 * get number of frames discarded for the subscriber
+	 * @param callback
+	 * @return
+	 */
+	public int getDroppedFrames(final IFrameCallback callback) {
+		for (final Subscriber subscriber: mSubscribers) {
+			if (subscriber.mCallback == callback) {
+				return subscriber.mDispatcher.getDroppedFrames();
+			}
+		}
+		return 0;
+	}
+
+	/**
+	 * remove all subscribers and stop their worker threads
+	 */
+	public void release() {
+		for (final Subscriber subscriber: mSubscribers) {
+			subscriber.mDispatcher.release();
+		}
+		mSubscribers.clear();
+	}
+
+	/**
+	 * called from the capture thread of native code with YUYV frame
+	 * @param frame
+	 */
+	@Override
+	public void onFrame(final ByteBuffer frame) {
+		final int width = mWidth;
+		final int height = mHeight;
+		if (frame.capacity() < width * height * 2) return;
+		for (int i = 0; i < PIXEL_FORMAT_NUM; i++) {
+			mRequested[i] = false;
+		}
+		for (final Subscriber subscriber: mSubscribers) {
+			if (subscriber.next()) {
+				final int pixelFormat = subscriber.mPixelFormat;
+				if (!mRequested[pixelFormat]) {
+					mRequested[pixelFormat] = true;
+					final ByteBuffer converted = obtain(pixelFormat, width, height);
+					FrameConverter.convert(frame, width, height, pixelFormat, converted);
+				}
+				final ByteBuffer converted = mConverted[pixelFormat];
+				converted.rewind();
+				subscriber.mDispatcher.onFrame(converted);
+			}
+		}
+	}
+
+	private ByteBuffer obtain(final int pixelFormat, final int width, final int height) {
+		final int bytes = FrameConverter.getFrameBytes(width, height, pixelFormat);
+		ByteBuffer result = mConverted[pixelFormat];
+		if ((result == null) || (result.capacity() < bytes)) {
+			result = mConverted[pixelFormat]
+				= ByteBuffer.allocateDirect(bytes).order(ByteOrder.nativeOrder());
+		}
+		return result;
+	}
+}
@@ -0,0 +1,176 @@
+/*
+ *  UVCCamera
+ *  library and sample to access to UVC web camera on non-rooted Android device
+ *
+ * Copyright (c) 2014-2017 saki t_saki@serenegiant.com
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ *
+ *  All files in the folder are under this Apache License, Version 2.0.
+ *  Files in the libjpeg-turbo, libusb, libuvc, rapidjson folder
+ *  may have a different license, see the respective files.
+ */
+
+package com.serenegiant.usb;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Java port of the YUYV conversions in libuvc/src/frame.c
+ * that UVCPreview uses for IFrameCallback, output is byte-compatible with native callback frames.
+ */
+public final class FrameConverter {
+
+	private FrameConverter() {
+		// static methods only
+	}
+
+	/**
+	 * get frame size in bytes for specific pixel format
+	 * @param width
+	 * @param height
+	 * @param pixelFormat one of UVCCamera.PIXEL_FORMAT_XXX
+	 * @return
+	 */
+	public static int getFrameBytes(final int width, final int height, final int pixelFormat) {
+		switch (pixelFormat) {
+		case UVCCamera.PIXEL_FORMAT_RGBX:
+			return width * height * 4;
+		case UVCCamera.PIXEL_FORMAT_YUV420SP:
+		case UVCCamera.PIXEL_FORMAT_NV21:
+			return (width * height * 3) / 2;
+		default:
+			// PIXEL_FORMAT_RAW, PIXEL_FORMAT_YUV, PIXEL_FORMAT_RGB565
+			return width * height * 2;
+		}
+	}
+
+	/**
+	 * convert YUYV frame into specific pixel format
+	 * @param yuyv source frame, from position 0 regardless of current position
+	 * @param width
+	 * @param height
+	 * @param pixelFormat one of UVCCamera.PIXEL_FORMAT_XXX
+	 * @param out destination, capacity should be #getFrameBytes or more.
+	 * 			position is 0 and limit is the frame size on return.
+	 */
+	public static void convert(final ByteBuffer yuyv, final int width, final int height,
+		final int pixelFormat, final ByteBuffer out) {
+
+		final int bytes = getFrameBytes(width, height, pixelFormat);
+		if (out.capacity() < bytes)
+			throw new IllegalArgumentException("output buffer is too small");
+		out.clear();
+		switch (pixelFormat) {
+		case UVCCamera.PIXEL_FORMAT_RGB565:
+			yuyv2rgb565(yuyv, width, height, out);
+			break;
+		case UVCCamera.PIXEL_FORMAT_RGBX:
+			yuyv2rgbx(yuyv, width, height, out);
+			break;
+		case UVCCamera.PIXEL_FORMAT_YUV420SP:
+			// same as uvc_yuyv2iyuv420SP
+			yuyv2yuv420SP(yuyv, width, height, out, true);
+			break;
+		case UVCCamera.PIXEL_FORMAT_NV21:
+			// same as uvc_yuyv2yuv420SP
+			yuyv2yuv420SP(yuyv, width, height, out, false);
+			break;
+		default:
+			// PIXEL_FORMAT_RAW, PIXEL_FORMAT_YUV
+			final int position = yuyv.position();
+			final int limit = yuyv.limit();
+			yuyv.clear();
+			yuyv.limit(bytes);
+			out.put(yuyv);
+			yuyv.limit(limit);
+			yuyv.position(position);
+			break;
+		}
+		out.limit(bytes);
+	}
+
+	private static int sat(final int v) {
+		return v >= 255 ? 255 : (v < 0 ? 0 : v);
+	}
+
+	private static void yuyv2rgbx(final ByteBuffer in, final int width, final int height, final ByteBuffer out) {
+		final int n = width * height * 2;
+		int dst = 0;
+		for (int src = 0; src < n; src += 4) {
+			final int y0 = in.get(src) & 0xff;
+			final int d1 = (in.get(src + 1) & 0xff) - 128;
+			final int y2 = in.get(src + 2) & 0xff;
+			final int d3 = (in.get(src + 3) & 0xff) - 128;
+			final int r = (22987 * d3) >> 14;
+			final int g = (-5636 * d1 - 11698 * d3) >> 14;
+			final int b = (29049 * d1) >> 14;
+			out.put(dst++, (byte)sat(y0 + r));
+			out.put(dst++, (byte)sat(y0 + g));
+			out.put(dst++, (byte)sat(y0 + b));
+			out.put(dst++, (byte)0xff);
+			out.put(dst++, (byte)sat(y2 + r));
+			out.put(dst++, (byte)sat(y2 + g));
+			out.put(dst++, (byte)sat(y2 + b));
+			out.put(dst++, (byte)0xff);
+		}
+	}
+
+	private static void yuyv2rgb565(final ByteBuffer in, final int width, final int height, final ByteBuffer out) {
+		final int n = width * height * 2;
+		int dst = 0;
+		for (int src = 0; src < n; src += 4) {
+			final int y0 = in.get(src) & 0xff;
+			final int d1 = (in.get(src + 1) & 0xff) - 128;
+			final int y2 = in.get(src + 2) & 0xff;
+			final int d3 = (in.get(src + 3) & 0xff) - 128;
+			final int r = (22987 * d3) >> 14;
+			final int g = (-5636 * d1 - 11698 * d3) >> 14;
+			final int b = (29049 * d1) >> 14;
+			dst = putRGB565(out, dst, sat(y0 + r), sat(y0 + g), sat(y0 + b));
+			dst = putRGB565(out, dst, sat(y2 + r), sat(y2 + g), sat(y2 + b));
+		}
+	}
+
+	private static int putRGB565(final ByteBuffer out, final int dst, final int r, final int g, final int b) {
+		out.put(dst, (byte)(((g << 3) & 0xe0) | ((b >> 3) & 0x1f)));
+		out.put(dst + 1, (byte)((r & 0xf8) | ((g >> 5) & 0x07)));
+		return dst + 2;
+	}
+
+	private static void yuyv2yuv420SP(final ByteBuffer in, final int width, final int height,
+		final ByteBuffer out, final boolean swapUV) {
+
+		final int stride = width * 2;
+		int uv = width * height;
+		for (int h = 0; h < height - 1; h += 2) {
+			int y0 = width * h;
+			int y1 = y0 + width;
+			int src = stride * h;
+			for (int w = 0; w < width; w += 2) {
+				out.put(y0++, in.get(src));
+				out.put(y0++, in.get(src + 2));
+				if (swapUV) {
+					out.put(uv++, in.get(src + 3));
+					out.put(uv++, in.get(src + 1));
+				} else {
+					out.put(uv++, in.get(src + 1));
+					out.put(uv++, in.get(src + 3));
+				}
+				out.put(y1++, in.get(src + stride));
+				out.put(y1++, in.get(src + stride + 2));
+				src += 4;
+			}
+		}
+	}
+}
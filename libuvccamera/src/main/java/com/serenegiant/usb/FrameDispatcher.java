@@ -0,0 +1,264 @@
+/*
+ *  UVCCamera
+ *  library and sample to access to UVC web camera on non-rooted Android device
+ *
+ * Copyright (c) 2014-2017 saki t_saki@serenegiant.com
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ *
+ *  All files in the folder are under this Apache License, Version 2.0.
+ *  Files in the libjpeg-turbo, libusb, libuvc, rapidjson folder
+ *  may have a different license, see the respective files.
+ */
+
+package com.serenegiant.usb;
+
+import android.util.Log;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * IFrameCallback wrapper that decouples the capture thread of native code from user work.
+ * Each frame is copied into a reusable buffer and put into a bounded queue,
+ * then worker threads call the wrapped IFrameCallback#onFrame.
+ * You can use this anywhere IFrameCallback is accepted, e.g.
+ * camera.setFrameCallback(new FrameDispatcher(callback, 2, FrameDispatcher.OVERFLOW_DROP_OLDEST, 1), pixelFormat)
+ * If you set workerCount more than 1, frames can be processed concurrently and out of order.
+ * You should call #release when you don't need this any more.
+ */
+public class FrameDispatcher implements IFrameCallback {
+	private static final boolean DEBUG = false;
+	private static final String TAG = FrameDispatcher.class.getSimpleName();
+
+	/**
+	 * discard the oldest queued frame when the queue is full
+	 */
+	public static final int OVERFLOW_DROP_OLDEST = 0;
+	/**
+	 * discard the incoming frame when the queue is full
+	 */
+	public static final int OVERFLOW_DROP_NEWEST = 1;
+	/**
+	 * block the capture thread until the queue has room
+	 */
+	public static final int OVERFLOW_BLOCK = 2;
+	/**
+	 * max time to wait at once with OVERFLOW_BLOCK before checking whether this is released
+	 */
+	private static final long BLOCK_WAIT_MS = 50;
+
+	private final IFrameCallback mCallback;
+	private final int mOverflowPolicy;
+	private final BlockingQueue<ByteBuffer> mQueue;
+	private final BlockingQueue<ByteBuffer> mPool;
+	private final Thread[] mWorkers;
+	private final AtomicInteger mDroppedFrames = new AtomicInteger();
+	private volatile boolean mIsRunning = true;
+
+	/**
+	 * constructor, queue depth is 1, OVERFLOW_DROP_OLDEST and single worker thread
+	 * @param callback
+	 */
+	public FrameDispatcher(final IFrameCallback callback) {
+		this(callback, 1, OVERFLOW_DROP_OLDEST, 1);
+	}
+
+	/**
+	 * constructor
+	 * @param callback IFrameCallback that is called on worker threads
+	 * @param queueDepth max number of frames waiting for workers, at least 1
+	 * @param overflowPolicy one of OVERFLOW_DROP_OLDEST, OVERFLOW_DROP_NEWEST, OVERFLOW_BLOCK
+	 * @param workerCount number of worker threads, at least 1
+	 */
+	public FrameDispatcher(final IFrameCallback callback,
+		final int queueDepth, final int overflowPolicy, final int workerCount) {
+
+		if (callback == null)
+			throw new NullPointerException("callback should not be null");
+		if ((queueDepth <= 0) || (workerCount <= 0))
+			throw new IllegalArgumentException("queueDepth and workerCount should be positive");
+		switch (overflowPolicy) {
+		case OVERFLOW_DROP_OLDEST:
+		case OVERFLOW_DROP_NEWEST:
+		case OVERFLOW_BLOCK:
+			break;
+		default:
+			throw new IllegalArgumentException("unknown overflow policy:" + overflowPolicy);
+		}
+		mCallback = callback;
+		mOverflowPolicy = overflowPolicy;
+		mQueue = new ArrayBlockingQueue<ByteBuffer>(queueDepth);
+		// enough buffers for queued frames, frames in process on each worker and the incoming one
+		final int poolSize = queueDepth + workerCount + 1;
+		mPool = new ArrayBlockingQueue<ByteBuffer>(poolSize);
+		for (int i = 0; i < poolSize; i++) {
+			mPool.offer(ByteBuffer.allocateDirect(0));
+		}
+		mWorkers = new Thread[workerCount];
+		for (int i = 0; i < workerCount; i++) {
+			mWorkers[i] = new Thread(mWorkerRunnable, TAG + "-" + i);
+			mWorkers[i].start();
+		}
+	}
+
+	/**
+	 * stop worker threads and discard queued frames,
+	 * the capture thread blocked with OVERFLOW_BLOCK returns within BLOCK_WAIT_MS
+	 */
+	public void release() {
+		mIsRunning = false;
+		for (final Thread worker: mWorkers) {
+			worker.interrupt();
+		}
+		// return queued buffers to the pool so the blocked capture thread can get one
+		ByteBuffer buf;
+		while ((buf = mQueue.poll()) != null) {
+			recycle(buf);
+		}
+	}
+
+	public int getOverflowPolicy() {
+		return mOverflowPolicy;
+	}
+
+	/**
+	 * get number of frames discarded by overflow policy
+	 * @return
+	 */
+	public int getDroppedFrames() {
+		return mDroppedFrames.get();
+	}
+
+	/**
+	 * get number of frames waiting for workers
+	 * @return
+	 */
+	public int getQueuedFrames() {
+		return mQueue.size();
+	}
+
+	/**
+	 * called from the capture thread of native code
+	 * @param frame
+	 */
+	@Override
+	public void onFrame(final ByteBuffer frame) {
+		if (!mIsRunning) return;
+		ByteBuffer buf = obtain();
+		if (buf == null) {
+			mDroppedFrames.incrementAndGet();
+			return;
+		}
+		final int bytes = frame.remaining();
+		if (buf.capacity() < bytes) {
+			buf = ByteBuffer.allocateDirect(bytes).order(ByteOrder.nativeOrder());
+		}
+		buf.clear();
+		buf.put(frame);
+		buf.flip();
+		enqueue(buf);
+	}
+
+	/**
+	 * get a free buffer, this may block the caller if OVERFLOW_BLOCK
+	 * @return null if no buffer is available
+	 */
+	private ByteBuffer obtain() {
+		ByteBuffer result = mPool.poll();
+		if (result == null) {
+			switch (mOverflowPolicy) {
+			case OVERFLOW_DROP_OLDEST:
+				result = mQueue.poll();
+				if (result != null) {
+					mDroppedFrames.incrementAndGet();
+				}
+				break;
+			case OVERFLOW_BLOCK:
+				try {
+					while (mIsRunning && (result == null)) {
+						result = mPool.poll(BLOCK_WAIT_MS, TimeUnit.MILLISECONDS);
+					}
+				} catch (final InterruptedException e) {
+					Thread.currentThread().interrupt();
+				}
+				break;
+			}
+		}
+		return result;
+	}
+
+	private void enqueue(final ByteBuffer buf) {
+		switch (mOverflowPolicy) {
+		case OVERFLOW_DROP_OLDEST:
+			while (!mQueue.offer(buf)) {
+				final ByteBuffer oldest = mQueue.poll();
+				if (oldest != null) {
+					mDroppedFrames.incrementAndGet();
+					recycle(oldest);
+				}
+			}
+			break;
+		case OVERFLOW_DROP_NEWEST:
+			if (!mQueue.offer(buf)) {
+				mDroppedFrames.incrementAndGet();
+				recycle(buf);
+			}
+			break;
+		case OVERFLOW_BLOCK:
+			try {
+				while (!mQueue.offer(buf, BLOCK_WAIT_MS, TimeUnit.MILLISECONDS)) {
+					if (!mIsRunning) {
+						recycle(buf);
+						return;
+					}
+				}
+			} catch (final InterruptedException e) {
+				Thread.currentThread().interrupt();
+				mDroppedFrames.incrementAndGet();
+				recycle(buf);
+			}
+			break;
+		}
+	}
+
+	private void recycle(final ByteBuffer buf) {
+		mPool.offer(buf);
+	}
+
+	private final Runnable mWorkerRunnable = new Runnable() {
+		@Override
+		public void run() {
+			for (; mIsRunning ;) {
+				final ByteBuffer buf;
+				try {
+					buf = mQueue.take();
+				} catch (final InterruptedException e) {
+					break;
+				}
+				try {
+					mCallback.onFrame(buf);
+				} catch (final Exception e) {
+					Log.w(TAG, e);
+				} finally {
+					recycle(buf);
+				}
+			}
+			if (DEBUG) Log.v(TAG, "worker finished");
+		}
+	};
+}
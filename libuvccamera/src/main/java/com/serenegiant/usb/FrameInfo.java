@@ -0,0 +1,151 @@
+/*
+ *  UVCCamera
+ *  library and sample to access to UVC web camera on non-rooted Android device
+ *
+ * Copyright (c) 2014-2017 saki t_saki@serenegiant.com
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ *
+ *  All files in the folder are under this Apache License, Version 2.0.
+ *  Files in the libjpeg-turbo, libusb, libuvc, rapidjson folder
+ *  may have a different license, see the respective files.
+ */
+
+package com.serenegiant.usb;
+
+import java.util.Locale;
+
+/**
+ * Metadata of a frame passed to IFrameInfoCallback together with the frame data.
+ * Same instance is reused for every frame and updated just before IFrameInfoCallback#onFrame,
+ * so you must copy the values if you need them after returning from the callback.
+ * pts/scr are raw values of the UVC payload header in device clock(usually dwClockFrequency of the device),
+ * they are 0 if the device does not send them.
+ */
+public final class FrameInfo {
+	private int mSequence;
+	private long mPts;
+	private long mScr;
+	private int mScrSof;
+	private long mCaptureTimeUs;
+	private long mReceiveTimeNs;
+	private int mWidth, mHeight;
+	private int mPixelFormat;
+	private int mBytes;
+
+	/*package*/FrameInfo() {
+	}
+
+	/**
+	 * get frame number that libuvc counted, this increases by 1 for each frame that the device sent,
+	 * so a skip means frames were dropped before reaching the callback.
+	 * @return
+	 */
+	public int getSequence() {
+		return mSequence;
+	}
+
+	/**
+	 * get presentation time stamp(32 bits unsigned) in the payload header
+	 * @return
+	 */
+	public long getPts() {
+		return mPts;
+	}
+
+	/**
+	 * get source time clock(32 bits unsigned) of the source clock reference in the payload header
+	 * @return
+	 */
+	public long getScr() {
+		return mScr;
+	}
+
+	/**
+	 * get 11 bits USB SOF token counter of the source clock reference in the payload header
+	 * @return
+	 */
+	public int getScrSof() {
+		return mScrSof;
+	}
+
+	/**
+	 * get host wall clock time in micro seconds(same as System#currentTimeMillis * 1000)
+	 * when libuvc finished receiving the frame
+	 * @return
+	 */
+	public long getCaptureTimeUs() {
+		return mCaptureTimeUs;
+	}
+
+	/**
+	 * get host monotonic time in nano seconds(same clock as System#nanoTime)
+	 * when UVCCamera received the frame from libuvc
+	 * @return
+	 */
+	public long getReceiveTimeNs() {
+		return mReceiveTimeNs;
+	}
+
+	public int getWidth() {
+		return mWidth;
+	}
+
+	public int getHeight() {
+		return mHeight;
+	}
+
+	/**
+	 * get pixel format of the frame data, one of UVCCamera.PIXEL_FORMAT_XXX
+	 * @return
+	 */
+	public int getPixelFormat() {
+		return mPixelFormat;
+	}
+
+	/**
+	 * get size of the frame data in bytes
+	 * @return
+	 */
+	public int getBytes() {
+		return mBytes;
+	}
+
+	/**
+	 * this method is called from native code on the capture thread just before IFrameInfoCallback#onFrame
+	 * do not change name and signature
+	 */
+	private void update(final int sequence, final long pts, final long scr, final int scrSof,
+		final long captureTimeUs, final long receiveTimeNs,
+		final int width, final int height, final int pixelFormat, final int bytes) {
+
+		mSequence = sequence;
+		mPts = pts;
+		mScr = scr;
+		mScrSof = scrSof;
+		mCaptureTimeUs = captureTimeUs;
+		mReceiveTimeNs = receiveTimeNs;
+		mWidth = width;
+		mHeight = height;
+		mPixelFormat = pixelFormat;
+		mBytes = bytes;
+	}
+
+	@Override
+	public String toString() {
+		return String.format(Locale.US,
+			"FrameInfo{seq=%d,pts=%d,scr=%d,sof=%d,capture=%d,receive=%d,%dx%d,format=%d,bytes=%d}",
+			mSequence, mPts, mScr, mScrSof, mCaptureTimeUs, mReceiveTimeNs,
+			mWidth, mHeight, mPixelFormat, mBytes);
+	}
+}
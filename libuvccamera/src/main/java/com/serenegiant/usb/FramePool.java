@@ -0,0 +1,244 @@
+/*
+ *  UVCCamera
+ *  library and sample to access to UVC web camera on non-rooted Android device
+ *
+ * Copyright (c) 2014-2017 saki t_saki@serenegiant.com
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ *
+ *  All files in the folder are under this Apache License, Version 2.0.
+ *  Files in the libjpeg-turbo, libusb, libuvc, rapidjson folder
+ *  may have a different license, see the respective files.
+ */
+
+package com.serenegiant.usb;
+
+import android.util.Log;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Fixed ring of reusable direct ByteBuffers for pooled frame delivery.
+ * Native code writes each frame directly into a free buffer and hands it to
+ * IFrameLeaseCallback as a Lease. The buffer is not reused until Lease#release is called,
+ * so no ByteBuffer is allocated while streaming.
+ * If no buffer is free when a frame arrives, that frame is dropped on the capture thread
+ * and counted by #getDroppedFrames.
+ * Create instance with UVCCamera#setFrameCallback(IFrameLeaseCallback, int, int)
+ */
+public final class FramePool {
+	private static final boolean DEBUG = false;
+	private static final String TAG = FramePool.class.getSimpleName();
+
+	/**
+	 * leased frame data, you must call #release when you finished using it.
+	 * The same Lease instance is handed out again for later frames in its slot,
+	 * #getSequence identifies each hand out.
+	 */
+	public static final class Lease {
+		private final FramePool mPool;
+		private final int mSlot;
+		private final ByteBuffer mBuffer;
+		private int mSize;
+		private int mGeneration;
+		/**
+		 * sequence number of the hand out << 1 | 1 while it is leased
+		 */
+		private final AtomicInteger mState = new AtomicInteger();
+
+		private Lease(final FramePool pool, final int slot, final ByteBuffer buffer) {
+			mPool = pool;
+			mSlot = slot;
+			mBuffer = buffer;
+		}
+
+		/**
+		 * get frame data, position is 0 and limit is the frame size
+		 * @return
+		 */
+		public ByteBuffer getBuffer() {
+			return mBuffer;
+		}
+
+		/**
+		 * get frame size in bytes
+		 * @return
+		 */
+		public int getSize() {
+			return mSize;
+		}
+
+		/**
+		 * get index of this buffer in the pool
+		 * @return
+		 */
+		public int getSlot() {
+			return mSlot;
+		}
+
+		/**
+		 * get sequence number of the current hand out of this lease, pass it to #release(int)
+		 * @return
+		 */
+		public int getSequence() {
+			return mState.get() >>> 1;
+		}
+
+		/**
+		 * return the buffer to the pool, the buffer must not be accessed after calling this.
+		 * calling this again is ignored until the lease is handed out for the next frame,
+		 * after that it releases the next frame. Use #release(int) if the reference
+		 * may be kept longer than the frame.
+		 */
+		public void release() {
+			final int state = mState.get();
+			if (((state & 1) != 0) && mState.compareAndSet(state, state & ~1)) {
+				mPool.release(this);
+			}
+		}
+
+		/**
+		 * return the buffer to the pool only if it is still the hand out of the sequence number,
+		 * calling this more than once or after the lease was handed out again is ignored.
+		 * @param sequence value of #getSequence when the frame was received
+		 */
+		public void release(final int sequence) {
+			if (mState.compareAndSet((sequence << 1) | 1, sequence << 1)) {
+				mPool.release(this);
+			}
+		}
+
+		private boolean isLeased() {
+			return (mState.get() & 1) != 0;
+		}
+	}
+
+	private final Object mSync = new Object();
+	private final IFrameLeaseCallback mCallback;
+	private final int mPixelFormat;
+	private final ByteBuffer[] mBuffers;
+	private final Lease[] mLeases;
+	private UVCCamera mCamera;
+	private int mGeneration;
+
+	/*package*/FramePool(final UVCCamera camera, final IFrameLeaseCallback callback,
+		final int pixelFormat, final int poolSize, final int bufferBytes) {
+
+		if ((poolSize <= 0) || (bufferBytes <= 0))
+			throw new IllegalArgumentException("invalid pool size");
+		mCamera = camera;
+		mCallback = callback;
+		mPixelFormat = pixelFormat;
+		mBuffers = new ByteBuffer[poolSize];
+		mLeases = new Lease[poolSize];
+		for (int i = 0; i < poolSize; i++) {
+			mBuffers[i] = ByteBuffer.allocateDirect(bufferBytes).order(ByteOrder.nativeOrder());
+			mLeases[i] = new Lease(this, i, mBuffers[i]);
+		}
+	}
+
+	/**
+	 * get pixel format of frames in this pool
+	 * @return
+	 */
+	public int getPixelFormat() {
+		return mPixelFormat;
+	}
+
+	/**
+	 * get number of buffers in this pool
+	 * @return
+	 */
+	public int getPoolSize() {
+		return mBuffers.length;
+	}
+
+	/**
+	 * get capacity of each buffer in bytes
+	 * @return
+	 */
+	public int getBufferBytes() {
+		return mBuffers[0].capacity();
+	}
+
+	/**
+	 * get number of frames dropped because all buffers were leased
+	 * @return
+	 */
+	public int getDroppedFrames() {
+		synchronized (mSync) {
+			return mCamera != null ? mCamera.getFramePoolDropped() : 0;
+		}
+	}
+
+	/**
+	 * get number of buffers currently leased to the callback
+	 * @return
+	 */
+	public int getLeasedCount() {
+		int result = 0;
+		for (final Lease lease: mLeases) {
+			if (lease.isLeased()) result++;
+		}
+		return result;
+	}
+
+	/*package*/ByteBuffer[] getBuffers() {
+		return mBuffers;
+	}
+
+	/**
+	 * called when this pool is detached from the camera,
+	 * leases outstanding at this point are invalidated and releasing them is ignored.
+	 */
+	/*package*/void detach() {
+		synchronized (mSync) {
+			mCamera = null;
+			mGeneration++;
+		}
+	}
+
+	private void release(final Lease lease) {
+		synchronized (mSync) {
+			if ((mCamera != null) && (lease.mGeneration == mGeneration)) {
+				mCamera.releaseFrameLease(lease.mSlot);
+			}
+		}
+	}
+
+	/**
+	 * this method is called from native code on the capture thread
+	 * do not change name and signature
+	 * @param slot
+	 * @param bytes
+	 */
+	private void onFrameLeased(final int slot, final int bytes) {
+		final Lease lease = mLeases[slot];
+		synchronized (mSync) {
+			lease.mGeneration = mGeneration;
+		}
+		lease.mSize = bytes;
+		lease.mBuffer.clear();
+		lease.mBuffer.limit(bytes);
+		// native code does not hand out the slot again until it is released
+		lease.mState.set(((lease.getSequence() + 1) << 1) | 1);
+		try {
+			mCallback.onFrame(lease);
+		} catch (final Exception e) {
+			if (DEBUG) Log.w(TAG, e);
+			lease.release();
+		}
+	}
+}
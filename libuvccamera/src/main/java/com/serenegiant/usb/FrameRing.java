@@ -0,0 +1,188 @@
+/*
+ *  UVCCamera
+ *  library and sample to access to UVC web camera on non-rooted Android device
+ *
+ * Copyright (c) 2014-2017 saki t_saki@serenegiant.com
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ *
+ *  All files in the folder are under this Apache License, Version 2.0.
+ *  Files in the libjpeg-turbo, libusb, libuvc, rapidjson folder
+ *  may have a different license, see the respective files.
+ */
+
+package com.serenegiant.usb;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Lock-free single producer/single consumer ring of preallocated direct ByteBuffers,
+ * Java counterpart of the native ring between the USB callback and the preview thread.
+ * The capture thread of native code calls #onFrame and the frame is copied into a free slot
+ * without taking any lock. One consumer thread gets the oldest frame with #peek or #take
+ * and returns the slot with #remove after using it, so no ByteBuffer is allocated while streaming.
+ * If all slots are in use, the incoming frame is dropped and counted by #getDroppedFrames.
+ * You can use this anywhere IFrameCallback is accepted, e.g.
+ * camera.setFrameCallback(new FrameRing(4, UVCCamera.getFrameBytes(...)), pixelFormat)
+ */
+public class FrameRing implements IFrameCallback {
+
+	private final ByteBuffer[] mSlots;
+	private final int mCapacity;
+	// positions are long so they never wrap around while streaming
+	private final AtomicLong mHead = new AtomicLong();	// next position to read, only consumer changes this
+	private final AtomicLong mTail = new AtomicLong();	// next position to write, only producer changes this
+	private final AtomicInteger mDroppedFrames = new AtomicInteger();
+	private volatile Thread mWaiter;
+
+	/**
+	 * constructor
+	 * @param capacity max number of frames in this ring, at least 1
+	 * @param frameBytes initial size of each slot, the slot is reallocated if a larger frame comes
+	 */
+	public FrameRing(final int capacity, final int frameBytes) {
+		if ((capacity <= 0) || (frameBytes < 0))
+			throw new IllegalArgumentException("invalid capacity or frame size");
+		mCapacity = capacity;
+		mSlots = new ByteBuffer[capacity];
+		for (int i = 0; i < capacity; i++) {
+			mSlots[i] = ByteBuffer.allocateDirect(frameBytes).order(ByteOrder.nativeOrder());
+		}
+	}
+
+	public int getCapacity() {
+		return mCapacity;
+	}
+
+	/**
+	 * get number of frames waiting for the consumer including the one that is being read
+	 * @return
+	 */
+	public int size() {
+		return (int)(mTail.get() - mHead.get());
+	}
+
+	/**
+	 * get number of frames discarded because the ring was full
+	 * @return
+	 */
+	public int getDroppedFrames() {
+		return mDroppedFrames.get();
+	}
+
+	/**
+	 * called from the capture thread of native code(producer)
+	 * @param frame
+	 */
+	@Override
+	public void onFrame(final ByteBuffer frame) {
+		if (!offer(frame)) {
+			mDroppedFrames.incrementAndGet();
+		}
+	}
+
+	/**
+	 * copy the frame into a free slot, call only from the producer thread
+	 * @param frame from current position to limit is copied
+	 * @return false if the ring is full, the frame is not counted as dropped
+	 */
+	public boolean offer(final ByteBuffer frame) {
+		final long tail = mTail.get();
+		if (tail - mHead.get() >= mCapacity) {
+			// the consumer may be reading the oldest one, so it can not be overwritten
+			return false;
+		}
+		final int ix = (int)(tail % mCapacity);
+		ByteBuffer buf = mSlots[ix];
+		final int bytes = frame.remaining();
+		if (buf.capacity() < bytes) {
+			buf = mSlots[ix] = ByteBuffer.allocateDirect(bytes).order(ByteOrder.nativeOrder());
+		}
+		buf.clear();
+		buf.put(frame);
+		buf.flip();
+		// volatile write, so the consumer sees the slot and this thread sees mWaiter set before it
+		mTail.set(tail + 1);
+		final Thread waiter = mWaiter;
+		if (waiter != null) {
+			LockSupport.unpark(waiter);
+		}
+		return true;
+	}
+
+	/**
+	 * get the oldest frame without removing it, call only from the consumer thread.
+	 * the frame stays in the ring and its slot is not reused until #remove is called.
+	 * @return null if empty, otherwise position is 0 and limit is the frame size
+	 */
+	public ByteBuffer peek() {
+		final long head = mHead.get();
+		return head != mTail.get() ? mSlots[(int)(head % mCapacity)] : null;
+	}
+
+	/**
+	 * get the oldest frame, if not exist, block and wait, call only from the consumer thread.
+	 * you should call #remove after using the frame like #peek.
+	 * @param timeout
+	 * @param unit
+	 * @return null if timeout
+	 * @throws InterruptedException
+	 */
+	public ByteBuffer take(final long timeout, final TimeUnit unit) throws InterruptedException {
+		ByteBuffer result = peek();
+		if (result == null) {
+			final long deadline = System.nanoTime() + unit.toNanos(timeout);
+			mWaiter = Thread.currentThread();
+			try {
+				for ( ; ; ) {
+					// check again after setting mWaiter not to miss the frame added just before
+					result = peek();
+					if (result != null) break;
+					final long remaining = deadline - System.nanoTime();
+					if (remaining <= 0) break;
+					LockSupport.parkNanos(this, remaining);
+					if (Thread.interrupted()) throw new InterruptedException();
+				}
+			} finally {
+				mWaiter = null;
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * remove the oldest frame and return its slot to the producer, call only from the consumer thread.
+	 * the ByteBuffer that #peek/#take returned must not be accessed after calling this.
+	 * @return false if empty
+	 */
+	public boolean remove() {
+		final long head = mHead.get();
+		if (head != mTail.get()) {
+			mHead.lazySet(head + 1);
+			return true;
+		}
+		return false;
+	}
+
+	/**
+	 * remove all frames, call only from the consumer thread
+	 */
+	public void clear() {
+		mHead.lazySet(mTail.get());
+	}
+}
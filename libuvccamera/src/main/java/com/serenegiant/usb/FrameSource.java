@@ -0,0 +1,78 @@
+/*
+ *  UVCCamera
+ *  library and sample to access to UVC web camera on non-rooted Android device
+ *
+ * Copyright (c) 2014-2017 saki t_saki@serenegiant.com
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ *
+ *  All files in the folder are under this Apache License, Version 2.0.
+ *  Files in the libjpeg-turbo, libusb, libuvc, rapidjson folder
+ *  may have a different license, see the respective files.
+ */
+
+package com.serenegiant.usb;
+
+/**
+ * Source of frames for the Java frame path(IFrameCallback, FrameBus, FrameDispatcher).
+ * UVCCamera is the real implementation and SyntheticFrameSource generates frames without camera,
+ * so code that only needs frames can be written against this interface
+ * and run headless for testing and load testing.
+ */
+public interface FrameSource {
+	/**
+	 * get width of frames
+	 * @return
+	 */
+	public int getWidth();
+
+	/**
+	 * get height of frames
+	 * @return
+	 */
+	public int getHeight();
+
+	/**
+	 * set frame callback, this replaces callbacks added by #addFrameCallback and vice versa
+	 * @param callback null to remove the callback
+	 * @param pixelFormat one of UVCCamera.PIXEL_FORMAT_XXX
+	 */
+	public void setFrameCallback(IFrameCallback callback, int pixelFormat);
+
+	/**
+	 * add frame callback, you can add multiple callbacks with different pixel format.
+	 * @param callback
+	 * @param pixelFormat one of UVCCamera.PIXEL_FORMAT_XXX
+	 * @param decimation call the callback every n-th frame, 1 means every frame
+	 * @param queueDepth max number of frames waiting for this callback, oldest one is discarded on overflow
+	 */
+	public void addFrameCallback(IFrameCallback callback, int pixelFormat, int decimation, int queueDepth);
+
+	/**
+	 * remove frame callback that was added by #addFrameCallback
+	 * @param callback
+	 */
+	public void removeFrameCallback(IFrameCallback callback);
+
+	public void startPreview();
+
+	/**
+	 * stop frames, callback set by #setFrameCallback is removed
+	 */
+	public void stopPreview();
+
+	/**
+	 * release all resources, you can not use this instance any more
+	 */
+	public void destroy();
+}
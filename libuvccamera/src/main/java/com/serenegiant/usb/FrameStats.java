@@ -0,0 +1,171 @@
+/*
+ *  UVCCamera
+ *  library and sample to access to UVC web camera on non-rooted Android device
+ *
+ * Copyright (c) 2014-2017 saki t_saki@serenegiant.com
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ *
+ *  All files in the folder are under this Apache License, Version 2.0.
+ *  Files in the libjpeg-turbo, libusb, libuvc, rapidjson folder
+ *  may have a different license, see the respective files.
+ */
+
+package com.serenegiant.usb;
+
+import java.util.Locale;
+
+/**
+ * Snapshot of per frame latency and drop counters of the frame path in native code.
+ * Get this with UVCCamera#getStats, taking a snapshot only copies the latest
+ * STAGE_SAMPLE_NUM samples of each stage and sorts them, so it is cheap enough to poll every second.
+ * Counters and samples are cleared when preview starts.
+ */
+public final class FrameStats {
+	/**
+	 * copying the frame in the libuvc callback(USB transfer thread)
+	 */
+	public static final int STAGE_RECEIVE = 0;
+	/**
+	 * from USB arrival until the preview thread picks up the frame from the preview queue
+	 */
+	public static final int STAGE_QUEUE = 1;
+	/**
+	 * MJPEG to YUYV decoding, no samples in YUYV mode
+	 */
+	public static final int STAGE_DECODE = 2;
+	/**
+	 * conversion to RGBX and copying to the preview Surface
+	 */
+	public static final int STAGE_DRAW = 3;
+	/**
+	 * conversion and IFrameCallback#onFrame(or FramePool) on the capture thread
+	 */
+	public static final int STAGE_CALLBACK = 4;
+	/**
+	 * from USB arrival until returning from IFrameCallback#onFrame
+	 */
+	public static final int STAGE_TOTAL = 5;
+	public static final int STAGE_NUM = 6;
+	/**
+	 * max number of latest samples that percentiles are computed from
+	 */
+	public static final int STAGE_SAMPLE_NUM = 256;
+
+	// same layout as FrameStats.h
+	private static final int COUNT_RECEIVED = 0;
+	private static final int COUNT_QUEUE_DROPPED = 1;
+	private static final int COUNT_CAPTURE_DROPPED = 2;
+	private static final int COUNT_POOL_MISS = 3;
+	private static final int COUNT_DELIVERED = 4;
+	private static final int COUNT_NUM = 5;
+	/*package*/static final int SNAPSHOT_SZ = COUNT_NUM + STAGE_NUM * 3;
+
+	private static final String[] STAGE_NAMES = {
+		"receive", "queue", "decode", "draw", "callback", "total",
+	};
+
+	private final long[] mValues;
+
+	/*package*/FrameStats(final long[] values) {
+		if (values.length < SNAPSHOT_SZ)
+			throw new IllegalArgumentException("invalid snapshot");
+		mValues = values;
+	}
+
+	/**
+	 * get number of frames received from the camera
+	 * @return
+	 */
+	public long getReceivedFrames() {
+		return mValues[COUNT_RECEIVED];
+	}
+
+	/**
+	 * get number of frames dropped because the preview queue was full
+	 * @return
+	 */
+	public long getQueueDroppedFrames() {
+		return mValues[COUNT_QUEUE_DROPPED];
+	}
+
+	/**
+	 * get number of frames overwritten by newer ones before the capture thread took them
+	 * @return
+	 */
+	public long getCaptureDroppedFrames() {
+		return mValues[COUNT_CAPTURE_DROPPED];
+	}
+
+	/**
+	 * get number of frame buffers newly allocated because the native frame pool was empty
+	 * @return
+	 */
+	public long getPoolMisses() {
+		return mValues[COUNT_POOL_MISS];
+	}
+
+	/**
+	 * get number of frames passed to IFrameCallback or FramePool
+	 * @return
+	 */
+	public long getDeliveredFrames() {
+		return mValues[COUNT_DELIVERED];
+	}
+
+	/**
+	 * get number of samples that the percentiles of the stage are computed from
+	 * @param stage one of STAGE_XXX
+	 * @return
+	 */
+	public int getSampleCount(final int stage) {
+		return (int)mValues[stageIndex(stage)];
+	}
+
+	/**
+	 * get median latency of the stage
+	 * @param stage one of STAGE_XXX
+	 * @return microseconds, 0 if no sample
+	 */
+	public long getLatencyP50Us(final int stage) {
+		return mValues[stageIndex(stage) + 1];
+	}
+
+	/**
+	 * get 99th percentile latency of the stage
+	 * @param stage one of STAGE_XXX
+	 * @return microseconds, 0 if no sample
+	 */
+	public long getLatencyP99Us(final int stage) {
+		return mValues[stageIndex(stage) + 2];
+	}
+
+	private static int stageIndex(final int stage) {
+		if ((stage < 0) || (stage >= STAGE_NUM))
+			throw new IllegalArgumentException("unknown stage:" + stage);
+		return COUNT_NUM + stage * 3;
+	}
+
+	@Override
+	public String toString() {
+		final StringBuilder sb = new StringBuilder();
+		sb.append(String.format(Locale.US, "FrameStats{received=%d,queueDropped=%d,captureDropped=%d,poolMiss=%d,delivered=%d",
+			getReceivedFrames(), getQueueDroppedFrames(), getCaptureDroppedFrames(),
+			getPoolMisses(), getDeliveredFrames()));
+		for (int i = 0; i < STAGE_NUM; i++) {
+			sb.append(String.format(Locale.US, ",%s=%d/%dus(n=%d)",
+				STAGE_NAMES[i], getLatencyP50Us(i), getLatencyP99Us(i), getSampleCount(i)));
+		}
+		return sb.append('}').toString();
+	}
+}
@@ -0,0 +1,38 @@
+/*
+ *  UVCCamera
+ *  library and sample to access to UVC web camera on non-rooted Android device
+ *
+ * Copyright (c) 2014-2017 saki t_saki@serenegiant.com
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ *
+ *  All files in the folder are under this Apache License, Version 2.0.
+ *  Files in the libjpeg-turbo, libusb, libuvc, rapidjson folder
+ *  may have a different license, see the respective files.
+ */
+
+package com.serenegiant.usb;
+
+import java.nio.ByteBuffer;
+
+public interface IFrameInfoCallback {
+	/**
+	 * This method is called from native library via JNI on the capture thread,
+	 * same as IFrameCallback#onFrame but also receives metadata of the frame.
+	 * Set this with UVCCamera#setFrameInfoCallback.
+	 * @param frame this is direct ByteBuffer from JNI layer and you should handle it's byte order and limitation.
+	 * @param info metadata of the frame, this instance is reused for every frame
+	 * 			and you must not keep it after returning from this method.
+	 */
+	public void onFrame(ByteBuffer frame, FrameInfo info);
+}
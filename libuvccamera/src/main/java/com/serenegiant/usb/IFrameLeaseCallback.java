@@ -0,0 +1,42 @@
+/*
+ *  UVCCamera
+ *  library and sample to access to UVC web camera on non-rooted Android device
+ *
+ * Copyright (c) 2014-2017 saki t_saki@serenegiant.com
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ *
+ *  All files in the folder are under this Apache License, Version 2.0.
+ *  Files in the libjpeg-turbo, libusb, libuvc, rapidjson folder
+ *  may have a different license, see the respective files.
+ */
+
+package com.serenegiant.usb;
+
+/**
+ * Callback interface for pooled frame delivery,
+ * you can use this callback interface with UVCCamera#setFrameCallback(IFrameLeaseCallback, int, int)
+ */
+public interface IFrameLeaseCallback {
+	/**
+	 * This method is called from native library via JNI on the capture thread.
+	 * The frame data is written directly into one of the reusable direct ByteBuffers owned by FramePool
+	 * and no ByteBuffer is allocated for each frame.
+	 * You must call FramePool.Lease#release when you finished using the frame data,
+	 * you can keep the lease and release it on other thread.
+	 * If all buffers in the pool are leased, incoming frames are dropped
+	 * and counted by FramePool#getDroppedFrames.
+	 * @param lease
+	 */
+	public void onFrame(FramePool.Lease lease);
+}
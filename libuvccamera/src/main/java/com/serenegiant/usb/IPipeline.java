@@ -0,0 +1,85 @@
+/*
+ *  UVCCamera
+ *  library and sample to access to UVC web camera on non-rooted Android device
+ *
+ * Copyright (c) 2014-2017 saki t_saki@serenegiant.com
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ *
+ *  All files in the folder are under this Apache License, Version 2.0.
+ *  Files in the libjpeg-turbo, libusb, libuvc, rapidjson folder
+ *  may have a different license, see the respective files.
+ */
+
+package com.serenegiant.usb;
+
+/**
+ * Java side of native IPipeline in jni/UVCCamera/pipeline.
+ * Pipelines process frames in native code without passing through JNI on each frame,
+ * you can connect them with #setPipeline and feed frames from UVCCamera#setPipeline.
+ * Only the classes in this package can implement this because native code reads
+ * mNativePtr and mType fields of AbstractPipeline.
+ */
+public interface IPipeline {
+	// pipeline_type_t in IPipeline.h
+	public static final int PIPELINE_TYPE_SIMPLE_BUFFERED = 0;
+	public static final int PIPELINE_TYPE_SQLITE_BUFFERED = 10;
+	public static final int PIPELINE_TYPE_UVC_CONTROL = 100;
+	public static final int PIPELINE_TYPE_CALLBACK = 200;
+	public static final int PIPELINE_TYPE_CONVERT = 300;
+	public static final int PIPELINE_TYPE_PREVIEW = 400;
+	public static final int PIPELINE_TYPE_PUBLISHER = 500;
+	public static final int PIPELINE_TYPE_DISTRIBUTE = 600;
+
+	// pipeline_state_t in IPipeline.h
+	public static final int STATE_UNINITIALIZED = 0;
+	public static final int STATE_RELEASING = 10;
+	public static final int STATE_INITIALIZED = 20;
+	public static final int STATE_STARTING = 30;
+	public static final int STATE_RUNNING = 40;
+	public static final int STATE_STOPPING = 50;
+
+	/**
+	 * get pipeline type
+	 * @return one of PIPELINE_TYPE_XXX
+	 */
+	public int getType();
+
+	/**
+	 * get current state of native pipeline
+	 * @return one of STATE_XXX
+	 */
+	public int getState();
+
+	/**
+	 * set next pipeline that receives frames from this pipeline
+	 * @param pipeline null to remove
+	 */
+	public void setPipeline(final IPipeline pipeline);
+
+	/**
+	 * start worker thread of native pipeline
+	 */
+	public void start();
+
+	/**
+	 * stop worker thread of native pipeline
+	 */
+	public void stop();
+
+	/**
+	 * stop and destroy native pipeline, you should remove this pipeline
+	 * from UVCCamera and other pipelines before calling this.
+	 */
+	public void release();
+}
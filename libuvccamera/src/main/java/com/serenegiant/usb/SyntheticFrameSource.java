@@ -0,0 +1,453 @@
+/*
+ *  UVCCamera
+ *  library and sample to access to UVC web camera on non-rooted Android device
+ *
+ * Copyright (c) 2014-2017 saki t_saki@serenegiant.com
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ *
+ *  All files in the folder are under this Apache License, Version 2.0.
+ *  Files in the libjpeg-turbo, libusb, libuvc, rapidjson folder
+ *  may have a different license, see the respective files.
+ */
+
+package com.serenegiant.usb;
+
+import android.util.Log;
+
+import org.libjpegturbo.turbojpeg.TJ;
+import org.libjpegturbo.turbojpeg.TJCompressor;
+import org.libjpegturbo.turbojpeg.TJDecompressor;
+import org.libjpegturbo.turbojpeg.TJException;
+import org.libjpegturbo.turbojpeg.YUVImage;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Random;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * FrameSource that generates test pattern frames without camera.
+ * Frames are delivered on its own capture thread at the configured frame rate
+ * with gaussian jitter on arrival time like frames through USB,
+ * if a callback takes longer than frame interval, frames are skipped as camera does
+ * and counted by #getDroppedFrames.
+ * With UVCCamera.FRAME_FORMAT_MJPEG, frames are encoded through TJCompressor in advance
+ * and decoded on every frame, so decoding cost is included as UVCCamera does.
+ * As UVCCamera, callbacks always receive frames converted from YUYV,
+ * PIXEL_FORMAT_RAW is same as PIXEL_FORMAT_YUV.
+ */
+public class SyntheticFrameSource implements FrameSource {
+	private static final boolean DEBUG = false;
+	private static final String TAG = SyntheticFrameSource.class.getSimpleName();
+
+	/**
+	 * 75% color bars with luminance ramp
+	 */
+	public static final int PATTERN_COLOR_BARS = 0;
+	/**
+	 * random noise, worst case for JPEG
+	 */
+	public static final int PATTERN_NOISE = 1;
+
+	/**
+	 * number of distinct frames that are generated in advance and delivered in turn
+	 */
+	private static final int FRAME_CACHE_SIZE = 8;
+	private static final int JPEG_QUALITY = 80;
+	private static final int DEFAULT_JITTER_US = 1000;
+
+	// Y, U, V of 75% color bars
+	private static final int[][] BARS = {
+		{ 180, 128, 128 },	// white
+		{ 162,  44, 142 },	// yellow
+		{ 131, 156,  44 },	// cyan
+		{ 112,  72,  58 },	// green
+		{  84, 184, 198 },	// magenta
+		{  65, 100, 212 },	// red
+		{  35, 212, 114 },	// blue
+		{  16, 128, 128 },	// black
+	};
+
+	private final Object mSync = new Object();
+	private final int mWidth, mHeight;
+	private final int mFrameFormat;
+	private final int mFps;
+	private final int mPattern;
+	private final long mJitterNs;
+	private final Random mRandom;
+	private IFrameCallback mFrameCallback;
+	private int mPixelFormat;
+	private FrameBus mFrameBus;
+	private boolean mFrameBusAttached;
+	private Thread mCaptureThread;
+	private volatile boolean mIsRunning;
+	private volatile int mFrameCount;
+	private volatile int mDroppedFrames;
+	/** arrival time of next frame without jitter, only accessed on the capture thread */
+	private long mNextFrameNs;
+
+	/**
+	 * constructor, color bars with 1 millisecond jitter
+	 * @param width should be even
+	 * @param height
+	 * @param frameFormat UVCCamera.FRAME_FORMAT_YUYV or UVCCamera.FRAME_FORMAT_MJPEG
+	 * @param fps
+	 */
+	public SyntheticFrameSource(final int width, final int height, final int frameFormat, final int fps) {
+		this(width, height, frameFormat, fps, PATTERN_COLOR_BARS, DEFAULT_JITTER_US, System.nanoTime());
+	}
+
+	/**
+	 * constructor
+	 * @param width should be even
+	 * @param height
+	 * @param frameFormat UVCCamera.FRAME_FORMAT_YUYV or UVCCamera.FRAME_FORMAT_MJPEG
+	 * @param fps
+	 * @param pattern PATTERN_COLOR_BARS or PATTERN_NOISE
+	 * @param jitterUs standard deviation of frame arrival time in microseconds, 0 means no jitter
+	 * @param seed seed for pattern and jitter to make runs reproducible
+	 */
+	public SyntheticFrameSource(final int width, final int height, final int frameFormat, final int fps,
+		final int pattern, final int jitterUs, final long seed) {
+
+		if ((width <= 0) || (height <= 0) || ((width & 1) != 0))
+			throw new IllegalArgumentException("invalid frame size");
+		if ((frameFormat != UVCCamera.FRAME_FORMAT_YUYV) && (frameFormat != UVCCamera.FRAME_FORMAT_MJPEG))
+			throw new IllegalArgumentException("unknown frame format:" + frameFormat);
+		if ((fps <= 0) || (jitterUs < 0))
+			throw new IllegalArgumentException("invalid fps or jitter");
+		mWidth = width;
+		mHeight = height;
+		mFrameFormat = frameFormat;
+		mFps = fps;
+		mPattern = pattern;
+		mJitterNs = jitterUs * 1000L;
+		mRandom = new Random(seed);
+	}
+
+	@Override
+	public int getWidth() {
+		return mWidth;
+	}
+
+	@Override
+	public int getHeight() {
+		return mHeight;
+	}
+
+	public int getFrameFormat() {
+		return mFrameFormat;
+	}
+
+	public int getFps() {
+		return mFps;
+	}
+
+	/**
+	 * get number of frames delivered since #startPreview
+	 * @return
+	 */
+	public int getFrameCount() {
+		return mFrameCount;
+	}
+
+	/**
+	 * get number of frames skipped because the capture thread was late
+	 * @return
+	 */
+	public int getDroppedFrames() {
+		return mDroppedFrames;
+	}
+
+	@Override
+	public void setFrameCallback(final IFrameCallback callback, final int pixelFormat) {
+		synchronized (mSync) {
+			if ((callback != null) && (mFrameBus != null) && (callback != mFrameBus)) {
+				// callbacks added by #addFrameCallback are replaced
+				mFrameBus.release();
+				mFrameBus = null;
+			}
+			mFrameBusAttached = (callback != null) && (callback == mFrameBus);
+			mFrameCallback = callback;
+			mPixelFormat = pixelFormat;
+		}
+	}
+
+	@Override
+	public void addFrameCallback(final IFrameCallback callback,
+		final int pixelFormat, final int decimation, final int queueDepth) {
+
+		synchronized (mSync) {
+			if (mFrameBus == null) {
+				mFrameBus = new FrameBus(mWidth, mHeight);
+			}
+			mFrameBus.subscribe(callback, pixelFormat, decimation, queueDepth);
+			if (!mFrameBusAttached) {
+				setFrameCallback(mFrameBus, UVCCamera.PIXEL_FORMAT_YUV);
+			}
+		}
+	}
+
+	@Override
+	public void removeFrameCallback(final IFrameCallback callback) {
+		synchronized (mSync) {
+			if ((mFrameBus != null) && mFrameBus.unsubscribe(callback) && mFrameBus.isEmpty()) {
+				setFrameCallback(null, 0);
+				mFrameBus.release();
+				mFrameBus = null;
+			}
+		}
+	}
+
+	@Override
+	public synchronized void startPreview() {
+		synchronized (mSync) {
+			if ((mFrameBus != null) && !mFrameBusAttached) {
+				setFrameCallback(mFrameBus, UVCCamera.PIXEL_FORMAT_YUV);
+			}
+		}
+		if (mCaptureThread == null) {
+			mFrameCount = mDroppedFrames = 0;
+			mNextFrameNs = 0;
+			mIsRunning = true;
+			mCaptureThread = new Thread(mCaptureRunnable, TAG);
+			mCaptureThread.start();
+		}
+	}
+
+	@Override
+	public synchronized void stopPreview() {
+		setFrameCallback(null, 0);
+		mIsRunning = false;
+		if (mCaptureThread != null) {
+			mCaptureThread.interrupt();
+			try {
+				mCaptureThread.join();
+			} catch (final InterruptedException e) {
+				// ignore
+			}
+			mCaptureThread = null;
+		}
+	}
+
+	@Override
+	public synchronized void destroy() {
+		stopPreview();
+		synchronized (mSync) {
+			if (mFrameBus != null) {
+				mFrameBus.release();
+				mFrameBus = null;
+			}
+		}
+	}
+
+	private final Runnable mCaptureRunnable = new Runnable() {
+		@Override
+		public void run() {
+			if (DEBUG) Log.v(TAG, "capture thread started");
+			try {
+				if (mFrameFormat == UVCCamera.FRAME_FORMAT_MJPEG) {
+					runMJPEG();
+				} else {
+					runYUYV();
+				}
+			} catch (final TJException e) {
+				Log.w(TAG, e);
+			}
+			if (DEBUG) Log.v(TAG, "capture thread finished");
+		}
+	};
+
+	private void runYUYV() {
+		final ByteBuffer[] frames = new ByteBuffer[FRAME_CACHE_SIZE];
+		final byte[] planar = new byte[mWidth * mHeight * 2];
+		for (int i = 0; i < FRAME_CACHE_SIZE; i++) {
+			generate(i, planar);
+			frames[i] = allocate(mWidth * mHeight * 2);
+			planarToYUYV(planar, frames[i]);
+		}
+		final Delivery delivery = new Delivery();
+		for (int n = 0; waitNextFrame(); n++) {
+			delivery.deliver(frames[n % FRAME_CACHE_SIZE]);
+		}
+	}
+
+	private void runMJPEG() throws TJException {
+		final byte[][] jpegs = new byte[FRAME_CACHE_SIZE][];
+		final int[] jpegSizes = new int[FRAME_CACHE_SIZE];
+		final byte[] planar = new byte[mWidth * mHeight * 2];
+		final YUVImage yuv = new YUVImage(planar, mWidth, 1, mHeight, TJ.SAMP_422);
+		final TJCompressor compressor = new TJCompressor();
+		try {
+			compressor.setJPEGQuality(JPEG_QUALITY);
+			for (int i = 0; i < FRAME_CACHE_SIZE; i++) {
+				generate(i, planar);
+				compressor.setSourceImage(yuv);
+				jpegs[i] = new byte[TJ.bufSize(mWidth, mHeight, TJ.SAMP_422)];
+				compressor.compress(jpegs[i], 0);
+				jpegSizes[i] = compressor.getCompressedSize();
+			}
+		} finally {
+			compressor.close();
+		}
+		final ByteBuffer frame = allocate(mWidth * mHeight * 2);
+		final TJDecompressor decompressor = new TJDecompressor();
+		try {
+			final Delivery delivery = new Delivery();
+			for (int n = 0; waitNextFrame(); n++) {
+				final int ix = n % FRAME_CACHE_SIZE;
+				// decode on every frame like UVCPreview does with uvc_mjpeg2yuyv
+				decompressor.setSourceImage(jpegs[ix], jpegSizes[ix]);
+				decompressor.decompressToYUV(yuv, 0);
+				planarToYUYV(planar, frame);
+				delivery.deliver(frame);
+			}
+		} finally {
+			decompressor.close();
+		}
+	}
+
+	/**
+	 * wait until arrival time of next frame, skips frames if the capture thread is late
+	 * @return false if preview is stopped
+	 */
+	private boolean waitNextFrame() {
+		final long interval = 1000000000L / mFps;
+		final long now = System.nanoTime();
+		if (mNextFrameNs == 0) {
+			mNextFrameNs = now;
+		} else {
+			mNextFrameNs += interval;
+		}
+		// skip frames that camera already sent while the callback was running
+		while (mNextFrameNs + interval < now) {
+			mNextFrameNs += interval;
+			mDroppedFrames++;
+		}
+		// jitter is limited so that frames never arrive out of order
+		long jitter = (long)(mRandom.nextGaussian() * mJitterNs);
+		jitter = Math.max(-interval / 2, Math.min(interval / 2, jitter));
+		final long arrival = mNextFrameNs + jitter;
+		for (long wait = arrival - System.nanoTime(); mIsRunning && (wait > 0); wait = arrival - System.nanoTime()) {
+			LockSupport.parkNanos(wait);
+		}
+		return mIsRunning;
+	}
+
+	/**
+	 * convert frames for the callback and call it on the capture thread
+	 */
+	private final class Delivery {
+		private ByteBuffer mConverted;
+
+		private void deliver(final ByteBuffer yuyv) {
+			final IFrameCallback callback;
+			final int pixelFormat;
+			synchronized (mSync) {
+				callback = mFrameCallback;
+				pixelFormat = mPixelFormat;
+			}
+			if (callback != null) {
+				final ByteBuffer frame;
+				if ((pixelFormat == UVCCamera.PIXEL_FORMAT_RAW) || (pixelFormat == UVCCamera.PIXEL_FORMAT_YUV)) {
+					frame = yuyv;
+					frame.clear();
+				} else {
+					final int bytes = FrameConverter.getFrameBytes(mWidth, mHeight, pixelFormat);
+					if ((mConverted == null) || (mConverted.capacity() < bytes)) {
+						mConverted = allocate(bytes);
+					}
+					FrameConverter.convert(yuyv, mWidth, mHeight, pixelFormat, mConverted);
+					frame = mConverted;
+				}
+				try {
+					callback.onFrame(frame);
+				} catch (final Exception e) {
+					Log.w(TAG, e);
+				}
+			}
+			mFrameCount++;
+		}
+	}
+
+	/**
+	 * generate test pattern into planar YUV 4:2:2 buffer(Y plane, U plane and V plane)
+	 * @param index frame index, position of the moving box
+	 * @param planar
+	 */
+	private void generate(final int index, final byte[] planar) {
+		final int width = mWidth, height = mHeight;
+		final int cw = width / 2;
+		final int uOffset = width * height;
+		final int vOffset = uOffset + cw * height;
+		final int barWidth = Math.max(width / BARS.length, 2);
+		final int rampTop = (height * 2) / 3;
+		final int box = Math.max(height / 8, 2);
+		final int boxX = ((width - box) * index) / FRAME_CACHE_SIZE;
+		final int boxY = (rampTop - box) / 2;
+		for (int y = 0; y < height; y++) {
+			for (int x = 0; x < width; x += 2) {
+				int y0, y1, u, v;
+				if (mPattern == PATTERN_NOISE) {
+					y0 = mRandom.nextInt(256);
+					y1 = mRandom.nextInt(256);
+					u = mRandom.nextInt(256);
+					v = mRandom.nextInt(256);
+				} else if (y < rampTop) {
+					final int[] bar = BARS[Math.min(x / barWidth, BARS.length - 1)];
+					y0 = y1 = bar[0];
+					u = bar[1];
+					v = bar[2];
+				} else {
+					y0 = 16 + (219 * x) / width;
+					y1 = 16 + (219 * (x + 1)) / width;
+					u = v = 128;
+				}
+				if ((y >= boxY) && (y < boxY + box) && (x >= boxX) && (x < boxX + box)) {
+					y0 = y1 = 235;
+					u = v = 128;
+				}
+				final int yp = y * width + x;
+				planar[yp] = (byte)y0;
+				planar[yp + 1] = (byte)y1;
+				planar[uOffset + y * cw + x / 2] = (byte)u;
+				planar[vOffset + y * cw + x / 2] = (byte)v;
+			}
+		}
+	}
+
+	/**
+	 * interleave planar YUV 4:2:2 into YUYV
+	 * @param planar
+	 * @param yuyv
+	 */
+	private void planarToYUYV(final byte[] planar, final ByteBuffer yuyv) {
+		final int cw = mWidth / 2;
+		final int uOffset = mWidth * mHeight;
+		final int vOffset = uOffset + cw * mHeight;
+		final int n = cw * mHeight;
+		yuyv.clear();
+		for (int i = 0; i < n; i++) {
+			yuyv.put(planar[i * 2]);
+			yuyv.put(planar[uOffset + i]);
+			yuyv.put(planar[i * 2 + 1]);
+			yuyv.put(planar[vOffset + i]);
+		}
+		yuyv.flip();
+	}
+
+	private static ByteBuffer allocate(final int bytes) {
+		return ByteBuffer.allocateDirect(bytes).order(ByteOrder.nativeOrder());
+	}
+}
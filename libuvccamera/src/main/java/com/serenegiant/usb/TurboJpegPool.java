@@ -0,0 +1,351 @@
+/*
+ *  UVCCamera
+ *  library and sample to access to UVC web camera on non-rooted Android device
+ *
+ * Copyright (c) 2014-2017 saki t_saki@serenegiant.com
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ *
+ *  All files in the folder are under this Apache License, Version 2.0.
+ *  Files in the libjpeg-turbo, libusb, libuvc, rapidjson folder
+ *  may have a different license, see the respective files.
+ */
+
+package com.serenegiant.usb;
+
+import android.util.Log;
+
+import org.libjpegturbo.turbojpeg.TJ;
+import org.libjpegturbo.turbojpeg.TJCompressor;
+import org.libjpegturbo.turbojpeg.TJDecompressor;
+import org.libjpegturbo.turbojpeg.TJException;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Pool of TJCompressor/TJDecompressor, so code that compresses or decompresses on every frame
+ * does not allocate and free a native TurboJPEG handle each time.
+ * Instances are handed out either per thread(#getThreadCompressor, #getThreadDecompressor),
+ * that is cheapest for a dedicated worker thread, or as leases(#obtainCompressor,
+ * #obtainDecompressor) that return to the pool with Lease#release.
+ * Each Lease also keeps destination buffers that are reused while they are large enough.
+ */
+public final class TurboJpegPool {
+	private static final boolean DEBUG = false;
+	private static final String TAG = TurboJpegPool.class.getSimpleName();
+
+	/**
+	 * default max number of idle leased instances kept in the pool for each type
+	 */
+	public static final int DEFAULT_MAX_IDLE = 4;
+
+	/**
+	 * TJCompressor or TJDecompressor handed out from the pool with its reusable buffers.
+	 * Leases from #obtainCompressor/#obtainDecompressor must be released with #release,
+	 * releasing a per thread lease is ignored. Do not close the instance yourself.
+	 * @param <T>
+	 */
+	public static final class Lease<T extends Closeable> {
+		private final TurboJpegPool mPool;
+		private final T mCodec;
+		/**
+		 * idle queue this lease returns to, null for a per thread lease
+		 */
+		private final ArrayDeque<Lease<T>> mIdle;
+		private byte[] mArray;
+		private ByteBuffer mDirect;
+		private boolean mLeased;
+
+		private Lease(final TurboJpegPool pool, final T codec, final ArrayDeque<Lease<T>> idle) {
+			mPool = pool;
+			mCodec = codec;
+			mIdle = idle;
+		}
+
+		/**
+		 * get TJCompressor or TJDecompressor of this lease
+		 * @return
+		 */
+		public T get() {
+			return mCodec;
+		}
+
+		/**
+		 * get reusable heap buffer, its contents are undefined
+		 * @param bytes minimum size in bytes
+		 * @return
+		 */
+		public byte[] getBuffer(final int bytes) {
+			if ((mArray == null) || (mArray.length < bytes)) {
+				mArray = new byte[bytes];
+			}
+			return mArray;
+		}
+
+		/**
+		 * get reusable direct buffer in native byte order, its contents are undefined
+		 * @param bytes minimum size in bytes
+		 * @return position is 0 and limit is its capacity
+		 */
+		public ByteBuffer getDirectBuffer(final int bytes) {
+			if ((mDirect == null) || (mDirect.capacity() < bytes)) {
+				mDirect = ByteBuffer.allocateDirect(bytes).order(ByteOrder.nativeOrder());
+			}
+			mDirect.clear();
+			return mDirect;
+		}
+
+		/**
+		 * get reusable heap buffer that can hold a JPEG image of the specified size
+		 * @param width
+		 * @param height
+		 * @param subsamp one of TJ.SAMP_XXX
+		 * @return
+		 * @throws TJException
+		 */
+		public byte[] getJPEGBuffer(final int width, final int height, final int subsamp)
+			throws TJException {
+
+			return getBuffer(TJ.bufSize(width, height, subsamp));
+		}
+
+		/**
+		 * get reusable direct buffer that can hold a JPEG image of the specified size
+		 * @param width
+		 * @param height
+		 * @param subsamp one of TJ.SAMP_XXX
+		 * @return
+		 * @throws TJException
+		 */
+		public ByteBuffer getDirectJPEGBuffer(final int width, final int height, final int subsamp)
+			throws TJException {
+
+			return getDirectBuffer(TJ.bufSize(width, height, subsamp));
+		}
+
+		/**
+		 * return this lease to the pool, the instance and buffers must not be accessed after calling this.
+		 * calling this more than once or on a per thread lease is ignored.
+		 */
+		public void release() {
+			if (mIdle != null) {
+				mPool.recycle(this);
+			}
+		}
+	}
+
+	private final Object mSync = new Object();
+	private final int mMaxIdle;
+	private final ArrayDeque<Lease<TJCompressor>> mIdleCompressors
+		= new ArrayDeque<Lease<TJCompressor>>();
+	private final ArrayDeque<Lease<TJDecompressor>> mIdleDecompressors
+		= new ArrayDeque<Lease<TJDecompressor>>();
+	/**
+	 * all per thread leases, to close them in #release
+	 */
+	private final List<Lease<?>> mThreadLeases = new ArrayList<Lease<?>>();
+	private final ThreadLocal<Lease<TJCompressor>> mThreadCompressor
+		= new ThreadLocal<Lease<TJCompressor>>();
+	private final ThreadLocal<Lease<TJDecompressor>> mThreadDecompressor
+		= new ThreadLocal<Lease<TJDecompressor>>();
+	private final AtomicLong mHits = new AtomicLong();
+	private final AtomicLong mMisses = new AtomicLong();
+	private volatile boolean mReleased;
+
+	public TurboJpegPool() {
+		this(DEFAULT_MAX_IDLE);
+	}
+
+	/**
+	 * @param maxIdle max number of idle leased instances kept in the pool for each type,
+	 * 			released leases over this are closed
+	 */
+	public TurboJpegPool(final int maxIdle) {
+		if (maxIdle < 0)
+			throw new IllegalArgumentException("maxIdle should not be negative");
+		mMaxIdle = maxIdle;
+	}
+
+	/**
+	 * get TJCompressor of the calling thread, it is created on the first call on each thread
+	 * and kept until #release, so use this only from long lived threads.
+	 * @return
+	 * @throws TJException
+	 */
+	public Lease<TJCompressor> getThreadCompressor() throws TJException {
+		checkReleased();
+		Lease<TJCompressor> result = mThreadCompressor.get();
+		if (result != null) {
+			mHits.incrementAndGet();
+		} else {
+			result = registerThreadLease(new Lease<TJCompressor>(this, new TJCompressor(), null));
+			mThreadCompressor.set(result);
+		}
+		return result;
+	}
+
+	/**
+	 * get TJDecompressor of the calling thread, it is created on the first call on each thread
+	 * and kept until #release, so use this only from long lived threads.
+	 * @return
+	 * @throws TJException
+	 */
+	public Lease<TJDecompressor> getThreadDecompressor() throws TJException {
+		checkReleased();
+		Lease<TJDecompressor> result = mThreadDecompressor.get();
+		if (result != null) {
+			mHits.incrementAndGet();
+		} else {
+			result = registerThreadLease(new Lease<TJDecompressor>(this, new TJDecompressor(), null));
+			mThreadDecompressor.set(result);
+		}
+		return result;
+	}
+
+	/**
+	 * lease TJCompressor, you must call Lease#release when you finished using it.
+	 * @return
+	 * @throws TJException
+	 */
+	public Lease<TJCompressor> obtainCompressor() throws TJException {
+		Lease<TJCompressor> result = poll(mIdleCompressors);
+		if (result == null) {
+			result = newLease(new TJCompressor(), mIdleCompressors);
+		}
+		return result;
+	}
+
+	/**
+	 * lease TJDecompressor, you must call Lease#release when you finished using it.
+	 * @return
+	 * @throws TJException
+	 */
+	public Lease<TJDecompressor> obtainDecompressor() throws TJException {
+		Lease<TJDecompressor> result = poll(mIdleDecompressors);
+		if (result == null) {
+			result = newLease(new TJDecompressor(), mIdleDecompressors);
+		}
+		return result;
+	}
+
+	/**
+	 * get number of requests that reused an existing instance
+	 * @return
+	 */
+	public long getHitCount() {
+		return mHits.get();
+	}
+
+	/**
+	 * get number of requests that created a new instance
+	 * @return
+	 */
+	public long getMissCount() {
+		return mMisses.get();
+	}
+
+	/**
+	 * get number of idle leased instances currently kept in the pool
+	 * @return
+	 */
+	public int getIdleCount() {
+		synchronized (mSync) {
+			return mIdleCompressors.size() + mIdleDecompressors.size();
+		}
+	}
+
+	/**
+	 * close all idle and per thread instances, leases released after this are closed immediately.
+	 * call this after all threads finished using instances from this pool.
+	 */
+	public void release() {
+		final List<Lease<?>> leases = new ArrayList<Lease<?>>();
+		synchronized (mSync) {
+			if (mReleased) return;
+			mReleased = true;
+			leases.addAll(mIdleCompressors);
+			leases.addAll(mIdleDecompressors);
+			leases.addAll(mThreadLeases);
+			mIdleCompressors.clear();
+			mIdleDecompressors.clear();
+			mThreadLeases.clear();
+		}
+		for (final Lease<?> lease: leases) {
+			close(lease);
+		}
+	}
+
+	private void checkReleased() {
+		if (mReleased)
+			throw new IllegalStateException("already released");
+	}
+
+	private <T extends Closeable> Lease<T> poll(final ArrayDeque<Lease<T>> idle) {
+		synchronized (mSync) {
+			checkReleased();
+			final Lease<T> result = idle.pollFirst();
+			if (result != null) {
+				result.mLeased = true;
+				mHits.incrementAndGet();
+			}
+			return result;
+		}
+	}
+
+	private <T extends Closeable> Lease<T> newLease(final T codec, final ArrayDeque<Lease<T>> idle) {
+		mMisses.incrementAndGet();
+		final Lease<T> result = new Lease<T>(this, codec, idle);
+		result.mLeased = true;
+		return result;
+	}
+
+	private <T extends Closeable> Lease<T> registerThreadLease(final Lease<T> lease) {
+		mMisses.incrementAndGet();
+		synchronized (mSync) {
+			if (!mReleased) {
+				mThreadLeases.add(lease);
+				return lease;
+			}
+		}
+		close(lease);
+		throw new IllegalStateException("already released");
+	}
+
+	private <T extends Closeable> void recycle(final Lease<T> lease) {
+		synchronized (mSync) {
+			if (!lease.mLeased) return;
+			lease.mLeased = false;
+			if (!mReleased && (lease.mIdle.size() < mMaxIdle)) {
+				// most recently used one is reused first
+				lease.mIdle.addFirst(lease);
+				return;
+			}
+		}
+		close(lease);
+	}
+
+	private static void close(final Lease<?> lease) {
+		try {
+			lease.mCodec.close();
+		} catch (final IOException e) {
+			if (DEBUG) Log.w(TAG, e);
+		}
+	}
+}
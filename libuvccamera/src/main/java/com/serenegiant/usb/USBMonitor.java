@@ -169,12 +169,15 @@ public final class USBMonitor {
 			if (context != null) {
 				mPermissionIntent = PendingIntent.getBroadcast(context, 0, new Intent(ACTION_USB_PERMISSION), 0);
 				final IntentFilter filter = new IntentFilter(ACTION_USB_PERMISSION);
-				// ACTION_USB_DEVICE_ATTACHED never comes on some devices so it should not be added here
+				// ACTION_USB_DEVICE_ATTACHED/DETACHED never come on some devices,
+				// mDeviceCheckRunnable keeps checking frequently until they are confirmed to come
+				filter.addAction(UsbManager.ACTION_USB_DEVICE_ATTACHED);
 				filter.addAction(UsbManager.ACTION_USB_DEVICE_DETACHED);
 				context.registerReceiver(mUsbReceiver, filter);
 			}
 			// start connection check
-			mDeviceCounts = 0;
+			mBroadcastReceived = false;
+			mDeviceCheckIntervalMs = DEVICE_CHECK_INTERVAL_MS;
 			mAsyncHandler.postDelayed(mDeviceCheckRunnable, 1000);
 		}
 	}
@@ -185,10 +188,13 @@ public final class USBMonitor {
 	 */
 	public synchronized void unregister() throws IllegalStateException {
 		// 接続チェック用Runnableを削除
-		mDeviceCounts = 0;
 		if (!destroyed) {
 			mAsyncHandler.removeCallbacks(mDeviceCheckRunnable);
 		}
+		synchronized (mAttachedDevices) {
+			mAttachedDevices.clear();
+			mDevicesSynced = false;
+		}
 		if (mPermissionIntent != null) {
 //			if (DEBUG) Log.i(TAG, "unregister:");
 			final Context context = mWeakContext.get();
@@ -216,6 +222,7 @@ public final class USBMonitor {
 		if (destroyed) throw new IllegalStateException("already destroyed");
 		mDeviceFilters.clear();
 		mDeviceFilters.add(filter);
+		requestDeviceCheck();
 	}
 
 	/**
@@ -226,6 +233,7 @@ public final class USBMonitor {
 	public void addDeviceFilter(final DeviceFilter filter) throws IllegalStateException {
 		if (destroyed) throw new IllegalStateException("already destroyed");
 		mDeviceFilters.add(filter);
+		requestDeviceCheck();
 	}
 
 	/**
@@ -236,6 +244,7 @@ public final class USBMonitor {
 	public void removeDeviceFilter(final DeviceFilter filter) throws IllegalStateException {
 		if (destroyed) throw new IllegalStateException("already destroyed");
 		mDeviceFilters.remove(filter);
+		requestDeviceCheck();
 	}
 
 	/**
@@ -247,6 +256,7 @@ public final class USBMonitor {
 		if (destroyed) throw new IllegalStateException("already destroyed");
 		mDeviceFilters.clear();
 		mDeviceFilters.addAll(filters);
+		requestDeviceCheck();
 	}
 
 	/**
@@ -257,6 +267,7 @@ public final class USBMonitor {
 	public void addDeviceFilter(final List<DeviceFilter> filters) throws IllegalStateException {
 		if (destroyed) throw new IllegalStateException("already destroyed");
 		mDeviceFilters.addAll(filters);
+		requestDeviceCheck();
 	}
 
 	/**
@@ -266,6 +277,7 @@ public final class USBMonitor {
 	public void removeDeviceFilter(final List<DeviceFilter> filters) throws IllegalStateException {
 		if (destroyed) throw new IllegalStateException("already destroyed");
 		mDeviceFilters.removeAll(filters);
+		requestDeviceCheck();
 	}
 
 	/**
@@ -303,14 +315,8 @@ public final class USBMonitor {
 				result.addAll(deviceList.values());
 			} else {
 				for (final UsbDevice device: deviceList.values() ) {
-					for (final DeviceFilter filter: filters) {
-						if ((filter != null) && filter.matches(device)) {
-							// when filter matches
-							if (!filter.isExclude) {
-								result.add(device);
-							}
-							break;
-						}
+					if (matches(filters, device)) {
+						result.add(device);
 					}
 				}
 			}
@@ -318,6 +324,23 @@ public final class USBMonitor {
 		return result;
 	}
 
+	/**
+	 * whether the device matches the first filter that matches it and the filter is not exclude one
+	 * @param filters
+	 * @param device
+	 * @return true if filters is null or empty
+	 */
+	private static boolean matches(final List<DeviceFilter> filters, final UsbDevice device) {
+		if ((filters == null) || filters.isEmpty()) return true;
+		for (final DeviceFilter filter: filters) {
+			if ((filter != null) && filter.matches(device)) {
+				// when filter matches
+				return !filter.isExclude;
+			}
+		}
+		return false;
+	}
+
 	/**
 	 * return device list, return empty list if no device matched
 	 * @param filter
@@ -488,62 +511,197 @@ public final class USBMonitor {
 				}
 			} else if (UsbManager.ACTION_USB_DEVICE_ATTACHED.equals(action)) {
 				final UsbDevice device = intent.getParcelableExtra(UsbManager.EXTRA_DEVICE);
-				updatePermission(device, hasPermission(device));
-				processAttach(device);
+				if (device != null) {
+					mBroadcastReceived = true;
+					mAsyncHandler.post(new Runnable() {
+						@Override
+						public void run() {
+							onDeviceAttached(device);
+						}
+					});
+				}
 			} else if (UsbManager.ACTION_USB_DEVICE_DETACHED.equals(action)) {
 				// when device removed
 				final UsbDevice device = intent.getParcelableExtra(UsbManager.EXTRA_DEVICE);
 				if (device != null) {
+					mBroadcastReceived = true;
 					UsbControlBlock ctrlBlock = mCtrlBlocks.remove(device);
 					if (ctrlBlock != null) {
 						// cleanup
 						ctrlBlock.close();
 					}
-					mDeviceCounts = 0;
-					processDettach(device);
+					mAsyncHandler.post(new Runnable() {
+						@Override
+						public void run() {
+							onDeviceDetached(device);
+						}
+					});
 				}
 			}
 		}
 	};
 
-	/** number of connected & detected devices */
-	private volatile int mDeviceCounts = 0;
 	/**
-	 * periodically check connected devices and if it changed, call onAttach
+	 * interval to check connected devices until attach/detach broadcasts are confirmed to come
+	 */
+	private static final long DEVICE_CHECK_INTERVAL_MS = 2000;
+	/**
+	 * max interval to check connected devices while broadcasts come
+	 */
+	private static final long DEVICE_CHECK_MAX_INTERVAL_MS = 30000;
+
+	/**
+	 * connected device and its state at the last check
+	 */
+	private static final class AttachedDevice {
+		private final UsbDevice device;
+		/** whether the device matched device filters, onAttach is called only for them */
+		private boolean matched;
+		private boolean hasPermission;
+		/** number of the last check that found this device */
+		private int checkCount;
+
+		private AttachedDevice(final UsbDevice device) {
+			this.device = device;
+		}
+	}
+
+	/**
+	 * connected devices, key is UsbDevice#getDeviceName same as UsbManager#getDeviceList.
+	 * getDeviceKey can not be used as key because it is same for devices of same product.
+	 * updated incrementally by attach/detach broadcasts, mDeviceCheckRunnable only diffs it
+	 * with UsbManager#getDeviceList to find devices that broadcasts missed
+	 */
+	private final HashMap<String, AttachedDevice> mAttachedDevices = new HashMap<String, AttachedDevice>();
+	/** false until the first check after #register */
+	private boolean mDevicesSynced;
+	private int mDeviceCheckCount;
+	private volatile boolean mBroadcastReceived;
+	private long mDeviceCheckIntervalMs = DEVICE_CHECK_INTERVAL_MS;
+
+	/**
+	 * periodically check connected devices in case broadcasts are missing,
+	 * the interval is doubled up to DEVICE_CHECK_MAX_INTERVAL_MS while broadcasts work,
+	 * i.e. an attach/detach broadcast came or the check found nothing that broadcasts missed,
+	 * and is reset only when the check found devices that broadcasts missed.
 	 */
 	private final Runnable mDeviceCheckRunnable = new Runnable() {
 		@Override
 		public void run() {
 			if (destroyed) return;
-			final List<UsbDevice> devices = getDeviceList();
-			final int n = devices.size();
-			final int hasPermissionCounts;
-			final int m;
-			synchronized (mHasPermissions) {
-				hasPermissionCounts = mHasPermissions.size();
-				mHasPermissions.clear();
-				for (final UsbDevice device: devices) {
-					hasPermission(device);
-				}
-				m = mHasPermissions.size();
+			final boolean synced;
+			synchronized (mAttachedDevices) {
+				synced = mDevicesSynced;
 			}
-			if ((n > mDeviceCounts) || (m > hasPermissionCounts)) {
-				mDeviceCounts = n;
-				if (mOnDeviceConnectListener != null) {
-					for (int i = 0; i < n; i++) {
-						final UsbDevice device = devices.get(i);
-						mAsyncHandler.post(new Runnable() {
-							@Override
-							public void run() {
-								mOnDeviceConnectListener.onAttach(device);
-							}
-						});
+			final boolean missed = checkDevices();
+			if (missed) {
+				mBroadcastReceived = false;
+				mDeviceCheckIntervalMs = DEVICE_CHECK_INTERVAL_MS;
+			} else if (synced || mBroadcastReceived) {
+				mDeviceCheckIntervalMs = Math.min(mDeviceCheckIntervalMs * 2, DEVICE_CHECK_MAX_INTERVAL_MS);
+			}
+			mAsyncHandler.postDelayed(this, mDeviceCheckIntervalMs);
+		}
+	};
+
+	/**
+	 * request to check connected devices now, e.g. when device filters changed
+	 */
+	private void requestDeviceCheck() {
+		if (isRegistered()) {
+			mAsyncHandler.removeCallbacks(mDeviceCheckRunnable);
+			mAsyncHandler.post(mDeviceCheckRunnable);
+		}
+	}
+
+	/**
+	 * diff connected devices with mAttachedDevices,
+	 * call onAttach for devices that were added, start matching device filters or got permission,
+	 * and onDettach for devices that were removed
+	 * @return true if devices were added or removed after the first check, i.e. broadcasts missed them
+	 */
+	private boolean checkDevices() {
+		synchronized (mAttachedDevices) {
+			final HashMap<String, UsbDevice> deviceList = mUsbManager.getDeviceList();
+			final int checkCount = ++mDeviceCheckCount;
+			boolean changed = false;
+			if (deviceList != null) {
+				for (final UsbDevice device: deviceList.values()) {
+					AttachedDevice attached = mAttachedDevices.get(device.getDeviceName());
+					if (attached == null) {
+						attached = new AttachedDevice(device);
+						mAttachedDevices.put(device.getDeviceName(), attached);
+						changed = true;
 					}
+					attached.checkCount = checkCount;
+					updateAttached(attached);
+				}
+			}
+			final Iterator<AttachedDevice> it = mAttachedDevices.values().iterator();
+			while (it.hasNext()) {
+				final AttachedDevice attached = it.next();
+				if (attached.checkCount != checkCount) {
+					it.remove();
+					changed = true;
+					updatePermission(attached.device, false);
+					processDettach(attached.device);
 				}
 			}
-			mAsyncHandler.postDelayed(this, 2000);	// confirm every 2 seconds
+			final boolean missed = changed && mDevicesSynced;
+			mDevicesSynced = true;
+			return missed;
 		}
-	};
+	}
+
+	/**
+	 * call onAttach if the device started matching device filters or got permission,
+	 * permission is checked only for matched devices that do not have it yet
+	 * @param attached
+	 */
+	private void updateAttached(final AttachedDevice attached) {
+		final boolean matched = matches(mDeviceFilters, attached.device);
+		final boolean hasPermission = matched
+			&& (attached.hasPermission || hasPermission(attached.device));
+		if (matched && (!attached.matched || (hasPermission && !attached.hasPermission))) {
+			processAttach(attached.device);
+		}
+		attached.matched = matched;
+		attached.hasPermission = hasPermission;
+	}
+
+	/**
+	 * add the device by ACTION_USB_DEVICE_ATTACHED
+	 * @param device
+	 */
+	private void onDeviceAttached(final UsbDevice device) {
+		if (!isRegistered()) return;
+		synchronized (mAttachedDevices) {
+			AttachedDevice attached = mAttachedDevices.get(device.getDeviceName());
+			if (attached == null) {
+				attached = new AttachedDevice(device);
+				attached.checkCount = mDeviceCheckCount;
+				mAttachedDevices.put(device.getDeviceName(), attached);
+			}
+			updateAttached(attached);
+		}
+	}
+
+	/**
+	 * remove the device by ACTION_USB_DEVICE_DETACHED,
+	 * onDettach is not called again if the device check already removed it
+	 * @param device
+	 */
+	private void onDeviceDetached(final UsbDevice device) {
+		if (!isRegistered()) return;
+		final AttachedDevice attached;
+		synchronized (mAttachedDevices) {
+			attached = mAttachedDevices.remove(device.getDeviceName());
+		}
+		if (attached != null) {
+			updatePermission(device, false);
+			processDettach(device);
+		}
+	}
 
 	/**
 	 * open specific USB device
@@ -23,6 +23,7 @@
 
 package com.serenegiant.usb;
 
+import android.graphics.Rect;
 import android.graphics.SurfaceTexture;
 import android.hardware.usb.UsbDevice;
 import android.text.TextUtils;
@@ -32,7 +33,11 @@ import android.view.SurfaceHolder;
 
 import com.serenegiant.usb.USBMonitor.UsbControlBlock;
 
-public class UVCCamera {
+import org.libjpegturbo.turbojpeg.TJScalingFactor;
+
+import java.nio.ByteBuffer;
+
+public class UVCCamera implements FrameSource {
 	private static final boolean DEBUG = false;	// TODO set false when releasing
 	private static final String TAG = UVCCamera.class.getSimpleName();
 	private static final String DEFAULT_USBFS = "/dev/bus/usb";
@@ -43,10 +48,38 @@ public class UVCCamera {
 	public static final int DEFAULT_PREVIEW_MIN_FPS = 1;
 	public static final int DEFAULT_PREVIEW_MAX_FPS = 30;
 	public static final float DEFAULT_BANDWIDTH = 1.0f;
+	public static final int DEFAULT_QUEUE_DEPTH = 4;
+	public static final int DEFAULT_POOL_SIZE = DEFAULT_QUEUE_DEPTH + 2;
+
+	/**
+	 * discard the incoming frame when the preview queue is full
+	 */
+	public static final int DROP_POLICY_NEWEST = 0;
+	/**
+	 * discard the oldest queued frame when the preview queue is full
+	 */
+	public static final int DROP_POLICY_OLDEST = 1;
 
 	public static final int FRAME_FORMAT_YUYV = 0;
 	public static final int FRAME_FORMAT_MJPEG = 1;
 
+	/**
+	 * orientation correction for mounted camera, see #setOrientation
+	 */
+	public static final int ORIENTATION_NORMAL = 0;
+	/** mirrored left and right */
+	public static final int ORIENTATION_HFLIP = 1;
+	/** mirrored top and bottom */
+	public static final int ORIENTATION_VFLIP = 2;
+	/** upside-down, same as ORIENTATION_HFLIP | ORIENTATION_VFLIP */
+	public static final int ORIENTATION_ROT180 = 3;
+
+	/**
+	 * frame data as sent by the camera without conversion.
+	 * on FRAME_FORMAT_MJPEG this is the compressed JPEG payload(limit of the ByteBuffer is its size)
+	 * and MJPEG frames are not decoded unless preview surface, capture surface or native pipeline needs them.
+	 * on FRAME_FORMAT_YUYV this is same as PIXEL_FORMAT_YUV.
+	 */
 	public static final int PIXEL_FORMAT_RAW = 0;
 	public static final int PIXEL_FORMAT_YUV = 1;
 	public static final int PIXEL_FORMAT_RGB565 = 2;
@@ -117,6 +150,29 @@ public class UVCCamera {
 		}
 	}
 
+	/**
+	 * load native libraries if they are not loaded yet
+	 * this does nothing other than static initialization of this class
+	 */
+	/*package*/static void loadLibrary() {
+	}
+
+	private static volatile UVCSizeCache sSupportedSizeCache = new UVCSizeCache(null);
+
+	/**
+	 * set cache of supported formats shared by all cameras,
+	 * pass UVCSizeCache with a directory(e.g. Context#getCacheDir) to keep it over process restarts.
+	 * the default cache keeps entries only in memory.
+	 * @param cache null to disable caching
+	 */
+	public static void setSupportedSizeCache(final UVCSizeCache cache) {
+		sSupportedSizeCache = cache;
+	}
+
+	public static UVCSizeCache getSupportedSizeCache() {
+		return sSupportedSizeCache;
+	}
+
 	private UsbControlBlock mCtrlBlock;
     protected long mControlSupports;			// カメラコントロールでサポートしている機能フラグ
     protected long mProcSupports;				// プロセッシングユニットでサポートしている機能フラグ
@@ -125,8 +181,41 @@ public class UVCCamera {
 	protected int mCurrentMinFps = DEFAULT_PREVIEW_MIN_FPS;
 	protected int mCurrentMaxFps = DEFAULT_PREVIEW_MAX_FPS;
 	protected float mCurrentBandwidthFactor = DEFAULT_BANDWIDTH;
+	protected int mCurrentOrientation = ORIENTATION_NORMAL;
     protected String mSupportedSize;
     protected UVCSize mCurrentSizeList;
+	private final Object mFramePoolSync = new Object();
+	private FramePool mFramePool;
+	/**
+	 * pipeline set with #setPipeline, native code refers it with raw pointer
+	 */
+	private IPipeline mPipeline;
+	private FrameBus mFrameBus;
+	private boolean mFrameBusAttached;
+	private final UVCControls mControls = new UVCControls();
+	private final int[] mControlValues = new int[UVCControls.NUM_CONTROLS * UVCControls.STRIDE];
+	private volatile IStatusCallback mStatusCallback;
+	private UVCControlWriter mControlWriter;
+	/**
+	 * held while #setControl transfers without the camera monitor,
+	 * nativeRelease/nativeDestroy also hold this so that they do not run during the transfer
+	 */
+	private final Object mControlSync = new Object();
+	/**
+	 * always set to native code to keep mControls fresh, and passes status to mStatusCallback
+	 */
+	private final IStatusCallback mControlStatusCallback = new IStatusCallback() {
+		@Override
+		public void onStatus(final int statusClass, final int event, final int selector,
+			final int statusAttribute, final ByteBuffer data) {
+
+			mControls.onStatus(statusClass, selector, statusAttribute, data);
+			final IStatusCallback callback = mStatusCallback;
+			if (callback != null) {
+				callback.onStatus(statusClass, event, selector, statusAttribute, data);
+			}
+		}
+	};
 	// these fields from here are accessed from native code and do not change name and remove
     protected long mNativePtr;
     protected int mScanningModeMin, mScanningModeMax, mScanningModeDef;
@@ -199,12 +288,53 @@ public class UVCCamera {
 		if (result != 0) {
 			throw new UnsupportedOperationException("open failed:result=" + result);
 		}
-		if (mNativePtr != 0 && TextUtils.isEmpty(mSupportedSize)) {
-			mSupportedSize = nativeGetSupportedSize(mNativePtr);
-			mCurrentSizeList = new UVCSize(mSupportedSize);
+		nativeSetStatusCallback(mNativePtr, mControlStatusCallback);
+		if (mNativePtr != 0 && (mCurrentSizeList == null)) {
+			mCurrentSizeList = loadSupportedSizeList();
 		}
 	}
 
+	/**
+	 * get supported formats from the cache, or parse raw descriptors and add them to the cache.
+	 * native code is used only when raw descriptors are not available or have no VideoStreaming format
+	 * @return
+	 */
+	private UVCSize loadSupportedSizeList() {
+		final UVCSizeCache cache = sSupportedSizeCache;
+		byte[] desc = null;
+		try {
+			desc = mCtrlBlock.getRawDescriptors();
+		} catch (final Exception e) {
+			Log.w(TAG, e);
+		}
+		String key = null;
+		long hash = 0;
+		if ((cache != null) && (desc != null)) {
+			key = UVCSizeCache.getKey(mCtrlBlock.getVenderId(), mCtrlBlock.getProductId(),
+				mCtrlBlock.getSerial(), mCtrlBlock.getVersion());
+			hash = UVCSizeCache.hashDescriptors(desc);
+			final UVCSize result = cache.get(key, hash);
+			if (result != null) {
+				return result;
+			}
+		}
+		UVCSize result = UVCDescriptorParser.parseSupportedSize(desc);
+		if (result.getFormatCount() == 0) {
+			// binary catalog avoids building and parsing JSON, JSON is built only when #getSupportedSize is called
+			final int[] values = nativeGetSupportedSizeArray(mNativePtr);
+			try {
+				result = new UVCSize(values != null ? values : new int[1]);
+			} catch (final IllegalArgumentException e) {
+				Log.w(TAG, e);
+				result = new UVCSize(getSupportedSize());
+			}
+		}
+		if ((key != null) && (result.getFormatCount() > 0)) {
+			cache.put(key, hash, result);
+		}
+		return result;
+	}
+
     public synchronized void initPreviewSize(final UVCCameraPrefs prefs) {
     	if (prefs == null) {
 			UVCSize.Format format = mCurrentSizeList.getFormat(0);
@@ -223,13 +353,16 @@ public class UVCCamera {
 					prefs.getFrameFormat(),
 					prefs.getFramerate()
 			);
+			setOrientation(prefs.getOrientation());
 		}
     }
 
+    @Override
     public synchronized int getWidth() {
 		return mCurrentWidth;
 	}
 
+	@Override
 	public synchronized int getHeight() {
     	return mCurrentHeight;
 	}
@@ -239,9 +372,7 @@ public class UVCCamera {
 	 * @param callback
 	 */
 	public void setStatusCallback(final IStatusCallback callback) {
-		if (mNativePtr != 0) {
-			nativeSetStatusCallback(mNativePtr, callback);
-		}
+		mStatusCallback = callback;
 	}
 
 	/**
@@ -257,21 +388,38 @@ public class UVCCamera {
     /**
      * close and release UVC camera
      */
-    public synchronized void close() {
-    	stopPreview();
-    	if (mNativePtr != 0) {
-    		nativeRelease(mNativePtr);
-//    		mNativePtr = 0;	// nativeDestroyを呼ぶのでここでクリアしちゃダメ
+    public void close() {
+    	// wait for the control writer without the camera monitor, its worker may be waiting for it
+    	final UVCControlWriter writer;
+    	synchronized (this) {
+    		writer = mControlWriter;
+    		mControlWriter = null;
     	}
-    	if (mCtrlBlock != null) {
-			mCtrlBlock.close();
-   			mCtrlBlock = null;
+		if (writer != null) {
+			writer.release();
+		}
+		synchronized (this) {
+	    	stopPreview();
+	    	if (mNativePtr != 0) {
+	    		synchronized (mControlSync) {
+	    			nativeRelease(mNativePtr);
+	    		}
+//	    		mNativePtr = 0;	// nativeDestroyを呼ぶのでここでクリアしちゃダメ
+	    	}
+	    	// native preview that referred the pipeline was released
+	    	AbstractPipeline.removeOwner(mPipeline, this);
+	    	mPipeline = null;
+	    	if (mCtrlBlock != null) {
+				mCtrlBlock.close();
+	   			mCtrlBlock = null;
+			}
+			mControlSupports = mProcSupports = 0;
+			mControls.reset();
+			mCurrentFrameFormat = -1;
+			mCurrentBandwidthFactor = 0;
+			mSupportedSize = null;
+			mCurrentSizeList = null;
 		}
-		mControlSupports = mProcSupports = 0;
-		mCurrentFrameFormat = -1;
-		mCurrentBandwidthFactor = 0;
-		mSupportedSize = null;
-		mCurrentSizeList = null;
     	if (DEBUG) Log.v(TAG, "close:finished");
     }
 
@@ -298,14 +446,17 @@ public class UVCCamera {
 	public synchronized UVCCameraPrefs getCameraPrefs() {
     	UsbDevice device = getDevice();
     	if(device != null) {
-			return new UVCCameraPrefs(
+			final UVCCameraPrefs prefs = new UVCCameraPrefs(
 					device.getVendorId(),
 					device.getProductId(),
 					mCurrentFrameFormat,
 					mCurrentWidth,
 					mCurrentHeight,
-					mCurrentMaxFps
+					mCurrentMaxFps,
+					mCurrentOrientation
 			);
+			prefs.setControlProfile(captureControlProfile());
+			return prefs;
 		}
     	else {
     		return null;
@@ -377,6 +528,11 @@ public class UVCCamera {
 			mCurrentMinFps = min_fps;
 			mCurrentMaxFps = max_fps;
 			mCurrentBandwidthFactor = bandwidthFactor;
+			synchronized (mFramePoolSync) {
+				if (mFrameBus != null) {
+					mFrameBus.setFrameSize(width, height);
+				}
+			}
 
 			Log.i("RAYMUNDTEST_PREFS", "mCurrentWidth = " + mCurrentWidth );
 			Log.i("RAYMUNDTEST_PREFS", "mCurrentHeight = " + mCurrentHeight );
@@ -387,6 +543,80 @@ public class UVCCamera {
 		}
 	}
 
+	/**
+	 * set buffering of native preview frames, this should be called while not previewing.
+	 * frames in the pool are preallocated with the negotiated frame size when preview starts,
+	 * you can get the allocated memory with #getFramePoolBytes.
+	 * @param queueDepth max number of received frames waiting for decoding/drawing, default is DEFAULT_QUEUE_DEPTH
+	 * @param poolSize number of frames kept for reuse, default is DEFAULT_POOL_SIZE
+	 * @param dropPolicy DROP_POLICY_NEWEST(default) or DROP_POLICY_OLDEST
+	 */
+	public synchronized void setBufferingPolicy(final int queueDepth, final int poolSize, final int dropPolicy) {
+		if ((queueDepth <= 0) || (poolSize <= 0))
+			throw new IllegalArgumentException("queueDepth and poolSize should be positive");
+		if ((dropPolicy != DROP_POLICY_NEWEST) && (dropPolicy != DROP_POLICY_OLDEST))
+			throw new IllegalArgumentException("unknown drop policy:" + dropPolicy);
+		if (mNativePtr != 0) {
+			final int result = nativeSetBufferingPolicy(mNativePtr, queueDepth, poolSize, dropPolicy);
+			if (result != 0)
+				throw new IllegalStateException("Failed to set buffering policy:" + result);
+		}
+	}
+
+	/**
+	 * decode MJPEG frames on worker threads in parallel, this should be called while not previewing.
+	 * decoded frames are re-ordered to the received order before drawing and IFrameCallback.
+	 * this has no effect on FRAME_FORMAT_YUYV.
+	 * @param threads number of decode threads, 0 to decode on the preview thread(default)
+	 * @param reorderWindow max number of frames in decoding or waiting for earlier frames,
+	 * 			should be threads or more, 0 means threads * 2
+	 */
+	public synchronized void setDecodeWorkers(final int threads, final int reorderWindow) {
+		if ((threads < 0) || (reorderWindow < 0))
+			throw new IllegalArgumentException("threads and reorderWindow should not be negative");
+		if ((threads > 0) && (reorderWindow > 0) && (reorderWindow < threads))
+			throw new IllegalArgumentException("reorderWindow should be threads or more");
+		if (mNativePtr != 0) {
+			final int result = nativeSetDecodeWorkers(mNativePtr, threads, reorderWindow);
+			if (result != 0)
+				throw new IllegalStateException("Failed to set decode workers:" + result);
+		}
+	}
+
+	/**
+	 * correct orientation of mounted camera, this can be called while previewing.
+	 * FRAME_FORMAT_YUYV frames are flipped while copying received data
+	 * and FRAME_FORMAT_MJPEG frames are flipped while decoding,
+	 * so preview, capture surface and frame callbacks receive corrected frames without extra rotation pass.
+	 * compressed frames of PIXEL_FORMAT_RAW are passed as is.
+	 * @param orientation one of ORIENTATION_XXX
+	 */
+	public synchronized void setOrientation(final int orientation) {
+		if ((orientation < ORIENTATION_NORMAL) || (orientation > ORIENTATION_ROT180))
+			throw new IllegalArgumentException("unknown orientation:" + orientation);
+		if (mNativePtr != 0) {
+			final int result = nativeSetOrientation(mNativePtr, orientation);
+			if (result != 0)
+				throw new IllegalStateException("Failed to set orientation:" + result);
+		}
+		mCurrentOrientation = orientation;
+	}
+
+	/**
+	 * @return one of ORIENTATION_XXX
+	 */
+	public synchronized int getOrientation() {
+		return mCurrentOrientation;
+	}
+
+	/**
+	 * get total bytes of frames preallocated in the native frame pool
+	 * @return 0 if preview has not started yet
+	 */
+	public synchronized long getFramePoolBytes() {
+		return mNativePtr != 0 ? nativeGetFramePoolBytes(mNativePtr) : 0;
+	}
+
     /**
      * set preview surface with SurfaceHolder</br>
      * you can use SurfaceHolder came from SurfaceView/GLSurfaceView
@@ -419,17 +649,347 @@ public class UVCCamera {
      * @param callback
      * @param pixelFormat
      */
+    @Override
     public void setFrameCallback(final IFrameCallback callback, final int pixelFormat) {
+    	setFrameCallback(callback, pixelFormat, new TJScalingFactor(1, 1), null);
+    }
+
+    /**
+     * set frame callback, its scaling factor and its region with one native call,
+     * so that no frame is passed to the callback before they are applied
+     * @param callback
+     * @param pixelFormat
+     * @param scalingFactor
+     * @param roi null means whole frame
+     */
+    private void setFrameCallback(final IFrameCallback callback, final int pixelFormat,
+    	final TJScalingFactor scalingFactor, final Rect roi) {
+
     	if (mNativePtr != 0) {
-        	nativeSetFrameCallback(mNativePtr, callback, pixelFormat);
+    		detachFramePool();
+    		synchronized (mFramePoolSync) {
+    			if ((callback != null) && (mFrameBus != null) && (callback != mFrameBus)) {
+    				// callbacks added by #addFrameCallback are replaced
+    				mFrameBus.release();
+    				mFrameBus = null;
+    			}
+    			mFrameBusAttached = (callback != null) && (callback == mFrameBus);
+    		}
+        	final boolean whole = (roi == null) || roi.isEmpty();
+        	nativeSetFrameCallback(mNativePtr, callback, pixelFormat,
+        		scalingFactor.getNum(), scalingFactor.getDenom(),
+        		whole ? 0 : roi.left, whole ? 0 : roi.top, whole ? 0 : roi.width(), whole ? 0 : roi.height());
     	}
     }
 
+    /**
+     * set frame callback that receives frames smaller than preview size.
+     * on FRAME_FORMAT_MJPEG each frame is decoded directly at the reduced size(IDCT scaling of libjpeg-turbo),
+     * this is several times cheaper than decoding full size frame and scaling it down.
+     * frame size is the smallest one that is width x height or larger, see #getScalingFactor.
+     * frames that are decoded anyway(FRAME_FORMAT_YUYV, capture surface or preview surface)
+     * are scaled down to the same size by picking the nearest pixels.
+     * the scaling factor is set together with the callback, so the callback never receives full size frames.
+     * @param callback
+     * @param pixelFormat
+     * @param width minimum width of frames
+     * @param height minimum height of frames
+     * @return scaling factor for current preview size
+     */
+    public TJScalingFactor setFrameCallback(final IFrameCallback callback, final int pixelFormat,
+    	final int width, final int height) {
+
+    	final TJScalingFactor result = getScalingFactor(mCurrentWidth, mCurrentHeight, width, height);
+    	setFrameCallback(callback, pixelFormat, result, null);
+    	return result;
+    }
+
+    /**
+     * set scaling factor of frames for the callback set with #setFrameCallback(IFrameCallback, int)
+     * or #setFrameInfoCallback, you need to call this after setting the callback
+     * because the scaling factor is reset to 1/1 when the callback is changed.
+     * frames that are passed before this call are full size,
+     * use #setFrameCallback(IFrameCallback, int, int, int) to set both at once.
+     * frames are passed at the smallest size of M/8(M=1...8) that is the scaling factor or larger
+     * and width of frames is rounded down to even number.
+     * MJPEG frames are decoded at that size, other frames are scaled down by picking the nearest pixels.
+     * @param scalingFactor null or 1/1 to decode at full size, should not be larger than 1/1
+     */
+    public synchronized void setFrameCallbackScale(final TJScalingFactor scalingFactor) {
+    	final int num = scalingFactor != null ? scalingFactor.getNum() : 1;
+    	final int denom = scalingFactor != null ? scalingFactor.getDenom() : 1;
+    	if (num > denom)
+    		throw new IllegalArgumentException("scaling factor should not be larger than 1/1");
+    	if (mNativePtr != 0) {
+    		final int result = nativeSetFrameCallbackScale(mNativePtr, num, denom);
+    		if (result != 0)
+    			throw new IllegalStateException("Failed to set scaling factor:" + result);
+    	}
+    }
+
+    /**
+     * set frame callback that receives only the region of frames.
+     * on FRAME_FORMAT_MJPEG only the MCU columns and rows that overlap the region are decoded,
+     * this is much cheaper than decoding full size frame and cropping it.
+     * frames that are decoded anyway(FRAME_FORMAT_YUYV, capture surface or preview surface)
+     * are cropped to the same region.
+     * the region is set together with the callback, so the callback never receives whole frames.
+     * @param callback
+     * @param pixelFormat
+     * @param roi region in preview size, null means whole frame
+     */
+    public void setFrameCallback(final IFrameCallback callback, final int pixelFormat, final Rect roi) {
+    	checkFrameCallbackRoi(roi);
+    	setFrameCallback(callback, pixelFormat, new TJScalingFactor(1, 1), roi);
+    }
+
+    /**
+     * set region of frames for the callback set with #setFrameCallback(IFrameCallback, int)
+     * or #setFrameInfoCallback, you need to call this after setting the callback
+     * because the region is reset when the callback is changed.
+     * frames that are passed before this call are whole frames,
+     * use #setFrameCallback(IFrameCallback, int, Rect) to set both at once.
+     * MJPEG frames are decoded only around the region, other frames are cropped.
+     * the region is scaled with #setFrameCallbackScale and its left and width are rounded down to even number,
+     * frames have the size of the region, not preview size.
+     * @param roi region in preview size, null or empty to decode whole frame
+     */
+    public synchronized void setFrameCallbackRoi(final Rect roi) {
+    	final boolean whole = checkFrameCallbackRoi(roi);
+    	if (mNativePtr != 0) {
+    		final int result = whole
+    			? nativeSetFrameCallbackRoi(mNativePtr, 0, 0, 0, 0)
+    			: nativeSetFrameCallbackRoi(mNativePtr, roi.left, roi.top, roi.width(), roi.height());
+    		if (result != 0)
+    			throw new IllegalStateException("Failed to set region:" + result);
+    	}
+    }
+
+    /**
+     * @return true if roi means whole frame
+     * @throws IllegalArgumentException if roi is not inside of preview size
+     */
+    private boolean checkFrameCallbackRoi(final Rect roi) {
+    	final boolean whole = (roi == null) || roi.isEmpty();
+    	if (!whole && ((roi.left < 0) || (roi.top < 0)
+    		|| (roi.right > mCurrentWidth) || (roi.bottom > mCurrentHeight)))
+    		throw new IllegalArgumentException("region should be inside of preview size:" + roi);
+    	return whole;
+    }
+
+    /**
+     * get scaling factor of M/8(M=1...8) to decode MJPEG frames
+     * that scales width x height to targetWidth x targetHeight or larger
+     * @param width
+     * @param height
+     * @param targetWidth
+     * @param targetHeight
+     * @return 1/1 if target size is same as or larger than width x height
+     */
+    public static TJScalingFactor getScalingFactor(final int width, final int height,
+    	final int targetWidth, final int targetHeight) {
+
+    	for (int num = 1; num < 8; num++) {
+    		final TJScalingFactor factor = new TJScalingFactor(num, 8);
+    		if ((factor.getScaled(width) >= targetWidth) && (factor.getScaled(height) >= targetHeight)) {
+    			return factor;
+    		}
+    	}
+    	return new TJScalingFactor(1, 1);
+    }
+
+    /**
+     * set frame callback that also receives metadata of each frame(sequence, PTS/SCR, timestamps).
+     * FrameInfo is allocated once here and reused for every frame, so this does not allocate while streaming.
+     * this replaces the callback set with #setFrameCallback and vice versa.
+     * @param callback null to remove the callback
+     * @param pixelFormat
+     */
+    public void setFrameInfoCallback(final IFrameInfoCallback callback, final int pixelFormat) {
+    	if (callback == null) {
+    		setFrameCallback(null, pixelFormat);
+    		return;
+    	}
+    	if (mNativePtr != 0) {
+    		detachFramePool();
+    		synchronized (mFramePoolSync) {
+    			if (mFrameBus != null) {
+    				// callbacks added by #addFrameCallback are replaced
+    				mFrameBus.release();
+    				mFrameBus = null;
+    			}
+    			mFrameBusAttached = false;
+    		}
+    		nativeSetFrameInfoCallback(mNativePtr, callback, new FrameInfo(), pixelFormat);
+    	}
+    }
+
+    /**
+     * add frame callback, you can add multiple callbacks with different pixel format.
+     * each distinct pixel format is converted only once per frame
+     * and each callback is called on its own worker thread.
+     * this replaces the callback set with #setFrameCallback and vice versa.
+     * callbacks are kept while preview is stopped and called again after #startPreview.
+     * @param callback
+     * @param pixelFormat
+     * @param decimation call the callback every n-th frame, 1 means every frame
+     * @param queueDepth max number of frames waiting for this callback, oldest one is discarded on overflow
+     */
+    @Override
+    public synchronized void addFrameCallback(final IFrameCallback callback,
+    	final int pixelFormat, final int decimation, final int queueDepth) {
+
+    	if (mNativePtr != 0) {
+    		synchronized (mFramePoolSync) {
+	    		if (mFrameBus == null) {
+	    			mFrameBus = new FrameBus(mCurrentWidth, mCurrentHeight);
+	    		} else {
+	    			mFrameBus.setFrameSize(mCurrentWidth, mCurrentHeight);
+	    		}
+	    		mFrameBus.subscribe(callback, pixelFormat, decimation, queueDepth);
+    		}
+    		attachFrameBus();
+    	}
+    }
+
+    /**
+     * remove frame callback that was added by #addFrameCallback
+     * @param callback
+     */
+    @Override
+    public synchronized void removeFrameCallback(final IFrameCallback callback) {
+    	synchronized (mFramePoolSync) {
+    		if ((mFrameBus == null) || !mFrameBus.unsubscribe(callback) || !mFrameBus.isEmpty()) {
+    			return;
+    		}
+    	}
+    	setFrameCallback(null, 0);
+    	synchronized (mFramePoolSync) {
+    		if ((mFrameBus != null) && mFrameBus.isEmpty()) {
+    			mFrameBus.release();
+    			mFrameBus = null;
+    		}
+    	}
+    }
+
+    private void attachFrameBus() {
+    	final FrameBus bus;
+    	synchronized (mFramePoolSync) {
+    		bus = !mFrameBusAttached ? mFrameBus : null;
+    	}
+    	if (bus != null) {
+    		setFrameCallback(bus, PIXEL_FORMAT_YUV);
+    	}
+    }
+
+    /**
+     * set frame callback with pooled frame delivery.
+     * frame data is written into one of poolSize reusable direct ByteBuffers
+     * and passed to the callback as FramePool.Lease, that you must release after using it.
+     * this replaces the callback set with #setFrameCallback(IFrameCallback, int) and vice versa.
+     * you need to call this after #setPreviewSize because buffer size depends on current preview size.
+     * @param callback null to remove the callback
+     * @param pixelFormat
+     * @param poolSize number of buffers, at least 1
+     * @return FramePool that is attached to this camera, null if callback is null or camera is already destroyed
+     */
+    public FramePool setFrameCallback(final IFrameLeaseCallback callback, final int pixelFormat, final int poolSize) {
+    	FramePool result = null;
+    	if (mNativePtr != 0) {
+    		synchronized (mFramePoolSync) {
+	    		detachFramePool();
+	    		if (callback != null) {
+	    			final FramePool pool = new FramePool(this, callback, pixelFormat, poolSize,
+	    				getFrameBytes(mCurrentWidth, mCurrentHeight, pixelFormat));
+	    			if (nativeSetFramePool(mNativePtr, pool, pool.getBuffers(), pixelFormat) != 0) {
+	    				pool.detach();
+	    				throw new IllegalStateException("failed to set frame pool");
+	    			}
+	    			mFramePool = result = pool;
+	    		}
+    		}
+    	}
+    	return result;
+    }
+
+    /**
+     * set native pipeline that receives each decoded frame(YUYV) in native code
+     * without passing through JNI.
+     * the pipeline is kept until it is replaced, this camera is closed or the pipeline is released.
+     * @param pipeline null to remove
+     */
+    public synchronized void setPipeline(final IPipeline pipeline) {
+    	if ((mNativePtr != 0) && (mPipeline != pipeline)) {
+    		nativeSetPipeline(mNativePtr, pipeline);
+    		AbstractPipeline.removeOwner(mPipeline, this);
+    		AbstractPipeline.addOwner(pipeline, this);
+    		mPipeline = pipeline;
+    	}
+    }
+
+    /**
+     * remove the pipeline if it is set to this camera, called when it is released
+     * @param pipeline
+     */
+    /*package*/synchronized void removePipeline(final IPipeline pipeline) {
+    	if (mPipeline == pipeline) {
+    		setPipeline(null);
+    	}
+    }
+
+    private void detachFramePool() {
+    	synchronized (mFramePoolSync) {
+    		if (mFramePool != null) {
+    			mFramePool.detach();
+    			mFramePool = null;
+    			nativeSetFramePool(mNativePtr, null, null, 0);
+    		}
+    	}
+    }
+
+    /*package*/void releaseFrameLease(final int slot) {
+    	if (mNativePtr != 0) {
+    		nativeReleaseFrameLease(mNativePtr, slot);
+    	}
+    }
+
+    /*package*/int getFramePoolDropped() {
+    	return mNativePtr != 0 ? nativeGetFramePoolDropped(mNativePtr) : 0;
+    }
+
+    /**
+     * get snapshot of per frame latency and drop counters of native code.
+     * this is cheap enough to call periodically(e.g. every second) while previewing.
+     * @return null if the camera is not opened
+     */
+    public synchronized FrameStats getStats() {
+    	if (mNativePtr != 0) {
+    		final long[] values = new long[FrameStats.SNAPSHOT_SZ];
+    		if (nativeGetStats(mNativePtr, values) == values.length) {
+    			return new FrameStats(values);
+    		}
+    	}
+    	return null;
+    }
+
+    /**
+     * get frame size in bytes for specific pixel format
+     * @param width
+     * @param height
+     * @param pixelFormat
+     * @return
+     */
+    public static int getFrameBytes(final int width, final int height, final int pixelFormat) {
+    	return FrameConverter.getFrameBytes(width, height, pixelFormat);
+    }
+
     /**
      * start preview
      */
+    @Override
     public synchronized void startPreview() {
     	if (mCtrlBlock != null) {
+    		attachFrameBus();
     		nativeStartPreview(mNativePtr);
     	}
     }
@@ -437,6 +997,7 @@ public class UVCCamera {
     /**
      * stop preview
      */
+    @Override
     public synchronized void stopPreview() {
     	setFrameCallback(null, 0);
     	if (mCtrlBlock != null) {
@@ -447,11 +1008,22 @@ public class UVCCamera {
     /**
      * destroy UVCCamera object
      */
-    public synchronized void destroy() {
+    @Override
+    public void destroy() {
     	close();
-    	if (mNativePtr != 0) {
-    		nativeDestroy(mNativePtr);
-    		mNativePtr = 0;
+    	synchronized (this) {
+	    	synchronized (mFramePoolSync) {
+	    		if (mFrameBus != null) {
+	    			mFrameBus.release();
+	    			mFrameBus = null;
+	    		}
+	    	}
+	    	if (mNativePtr != 0) {
+	    		synchronized (mControlSync) {
+	    			nativeDestroy(mNativePtr);
+	    			mNativePtr = 0;
+	    		}
+	    	}
     	}
     }
 
@@ -487,7 +1059,7 @@ public class UVCCamera {
     	if (mNativePtr != 0) {
  		   final float range = Math.abs(mFocusMax - mFocusMin);
  		   if (range > 0)
- 			   nativeSetFocus(mNativePtr, (int)(focus / 100.f * range) + mFocusMin);
+ 			   writeControl(UVCControls.FOCUS, (int)(focus / 100.f * range) + mFocusMin);
     	}
     }
 
@@ -498,7 +1070,7 @@ public class UVCCamera {
 	public synchronized int getFocus(final int focus_abs) {
 	   int result = 0;
 	   if (mNativePtr != 0) {
-		   nativeUpdateFocusLimit(mNativePtr);
+		   updateControlValues();
 		   final float range = Math.abs(mFocusMax - mFocusMin);
 		   if (range > 0) {
 			   result = (int)((focus_abs - mFocusMin) * 100.f / range);
@@ -511,12 +1083,12 @@ public class UVCCamera {
      * @return focus[%]
      */
 	public synchronized int getFocus() {
-    	return getFocus(nativeGetFocus(mNativePtr));
+    	return getFocus(getControlValue(UVCControls.FOCUS));
     }
 
 	public synchronized void resetFocus() {
     	if (mNativePtr != 0) {
-    		nativeSetFocus(mNativePtr, mFocusDef);
+    		writeControl(UVCControls.FOCUS, mFocusDef);
     	}
     }
 
@@ -543,7 +1115,7 @@ public class UVCCamera {
     	if (mNativePtr != 0) {
  		   final float range = Math.abs(mWhiteBlanceMax - mWhiteBlanceMin);
  		   if (range > 0)
- 			   nativeSetWhiteBlance(mNativePtr, (int)(whiteBlance / 100.f * range) + mWhiteBlanceMin);
+ 			   writeControl(UVCControls.WHITE_BLANCE, (int)(whiteBlance / 100.f * range) + mWhiteBlanceMin);
     	}
     }
 
@@ -554,7 +1126,7 @@ public class UVCCamera {
 	public synchronized int getWhiteBlance(final int whiteBlance_abs) {
 	   int result = 0;
 	   if (mNativePtr != 0) {
-		   nativeUpdateWhiteBlanceLimit(mNativePtr);
+		   updateControlValues();
 		   final float range = Math.abs(mWhiteBlanceMax - mWhiteBlanceMin);
 		   if (range > 0) {
 			   result = (int)((whiteBlance_abs - mWhiteBlanceMin) * 100.f / range);
@@ -567,12 +1139,12 @@ public class UVCCamera {
      * @return white blance[%]
      */
 	public synchronized int getWhiteBlance() {
-    	return getFocus(nativeGetWhiteBlance(mNativePtr));
+    	return getWhiteBlance(getControlValue(UVCControls.WHITE_BLANCE));
     }
 
 	public synchronized void resetWhiteBlance() {
     	if (mNativePtr != 0) {
-    		nativeSetWhiteBlance(mNativePtr, mWhiteBlanceDef);
+    		writeControl(UVCControls.WHITE_BLANCE, mWhiteBlanceDef);
     	}
     }
 //================================================================================
@@ -583,7 +1155,7 @@ public class UVCCamera {
     	if (mNativePtr != 0) {
  		   final float range = Math.abs(mBrightnessMax - mBrightnessMin);
  		   if (range > 0)
- 			   nativeSetBrightness(mNativePtr, (int)(brightness / 100.f * range) + mBrightnessMin);
+ 			   writeControl(UVCControls.BRIGHTNESS, (int)(brightness / 100.f * range) + mBrightnessMin);
     	}
     }
 
@@ -594,7 +1166,7 @@ public class UVCCamera {
 	public synchronized int getBrightness(final int brightness_abs) {
 	   int result = 0;
 	   if (mNativePtr != 0) {
-		   nativeUpdateBrightnessLimit(mNativePtr);
+		   updateControlValues();
 		   final float range = Math.abs(mBrightnessMax - mBrightnessMin);
 		   if (range > 0) {
 			   result = (int)((brightness_abs - mBrightnessMin) * 100.f / range);
@@ -607,12 +1179,12 @@ public class UVCCamera {
      * @return brightness[%]
      */
 	public synchronized int getBrightness() {
-    	return getBrightness(nativeGetBrightness(mNativePtr));
+    	return getBrightness(getControlValue(UVCControls.BRIGHTNESS));
     }
 
 	public synchronized void resetBrightness() {
     	if (mNativePtr != 0) {
-    		nativeSetBrightness(mNativePtr, mBrightnessDef);
+    		writeControl(UVCControls.BRIGHTNESS, mBrightnessDef);
     	}
     }
 
@@ -622,10 +1194,10 @@ public class UVCCamera {
      */
 	public synchronized void setContrast(final int contrast) {
     	if (mNativePtr != 0) {
-    		nativeUpdateContrastLimit(mNativePtr);
+    		updateControlValues();
 	    	final float range = Math.abs(mContrastMax - mContrastMin);
 	    	if (range > 0)
-	    		nativeSetContrast(mNativePtr, (int)(contrast / 100.f * range) + mContrastMin);
+	    		writeControl(UVCControls.CONTRAST, (int)(contrast / 100.f * range) + mContrastMin);
     	}
     }
 
@@ -636,6 +1208,7 @@ public class UVCCamera {
 	public synchronized int getContrast(final int contrast_abs) {
 	   int result = 0;
 	   if (mNativePtr != 0) {
+		   updateControlValues();
 		   final float range = Math.abs(mContrastMax - mContrastMin);
 		   if (range > 0) {
 			   result = (int)((contrast_abs - mContrastMin) * 100.f / range);
@@ -648,12 +1221,12 @@ public class UVCCamera {
      * @return contrast[%]
      */
 	public synchronized int getContrast() {
-    	return getContrast(nativeGetContrast(mNativePtr));
+    	return getContrast(getControlValue(UVCControls.CONTRAST));
     }
 
 	public synchronized void resetContrast() {
     	if (mNativePtr != 0) {
-    		nativeSetContrast(mNativePtr, mContrastDef);
+    		writeControl(UVCControls.CONTRAST, mContrastDef);
     	}
     }
 
@@ -665,7 +1238,7 @@ public class UVCCamera {
     	if (mNativePtr != 0) {
  		   final float range = Math.abs(mSharpnessMax - mSharpnessMin);
  		   if (range > 0)
- 			   nativeSetSharpness(mNativePtr, (int)(sharpness / 100.f * range) + mSharpnessMin);
+ 			   writeControl(UVCControls.SHARPNESS, (int)(sharpness / 100.f * range) + mSharpnessMin);
     	}
     }
 
@@ -676,7 +1249,7 @@ public class UVCCamera {
 	public synchronized int getSharpness(final int sharpness_abs) {
 	   int result = 0;
 	   if (mNativePtr != 0) {
-		   nativeUpdateSharpnessLimit(mNativePtr);
+		   updateControlValues();
 		   final float range = Math.abs(mSharpnessMax - mSharpnessMin);
 		   if (range > 0) {
 			   result = (int)((sharpness_abs - mSharpnessMin) * 100.f / range);
@@ -689,12 +1262,12 @@ public class UVCCamera {
      * @return sharpness[%]
      */
 	public synchronized int getSharpness() {
-    	return getSharpness(nativeGetSharpness(mNativePtr));
+    	return getSharpness(getControlValue(UVCControls.SHARPNESS));
     }
 
 	public synchronized void resetSharpness() {
     	if (mNativePtr != 0) {
-    		nativeSetSharpness(mNativePtr, mSharpnessDef);
+    		writeControl(UVCControls.SHARPNESS, mSharpnessDef);
     	}
     }
 //================================================================================
@@ -705,7 +1278,7 @@ public class UVCCamera {
     	if (mNativePtr != 0) {
  		   final float range = Math.abs(mGainMax - mGainMin);
  		   if (range > 0)
- 			   nativeSetGain(mNativePtr, (int)(gain / 100.f * range) + mGainMin);
+ 			   writeControl(UVCControls.GAIN, (int)(gain / 100.f * range) + mGainMin);
     	}
     }
 
@@ -716,7 +1289,7 @@ public class UVCCamera {
 	public synchronized int getGain(final int gain_abs) {
 	   int result = 0;
 	   if (mNativePtr != 0) {
-		   nativeUpdateGainLimit(mNativePtr);
+		   updateControlValues();
 		   final float range = Math.abs(mGainMax - mGainMin);
 		   if (range > 0) {
 			   result = (int)((gain_abs - mGainMin) * 100.f / range);
@@ -729,12 +1302,12 @@ public class UVCCamera {
      * @return gain[%]
      */
 	public synchronized int getGain() {
-    	return getGain(nativeGetGain(mNativePtr));
+    	return getGain(getControlValue(UVCControls.GAIN));
     }
 
 	public synchronized void resetGain() {
     	if (mNativePtr != 0) {
-    		nativeSetGain(mNativePtr, mGainDef);
+    		writeControl(UVCControls.GAIN, mGainDef);
     	}
     }
 
@@ -746,7 +1319,7 @@ public class UVCCamera {
     	if (mNativePtr != 0) {
  		   final float range = Math.abs(mGammaMax - mGammaMin);
  		   if (range > 0)
- 			   nativeSetGamma(mNativePtr, (int)(gamma / 100.f * range) + mGammaMin);
+ 			   writeControl(UVCControls.GAMMA, (int)(gamma / 100.f * range) + mGammaMin);
     	}
     }
 
@@ -757,7 +1330,7 @@ public class UVCCamera {
 	public synchronized int getGamma(final int gamma_abs) {
 	   int result = 0;
 	   if (mNativePtr != 0) {
-		   nativeUpdateGammaLimit(mNativePtr);
+		   updateControlValues();
 		   final float range = Math.abs(mGammaMax - mGammaMin);
 		   if (range > 0) {
 			   result = (int)((gamma_abs - mGammaMin) * 100.f / range);
@@ -770,12 +1343,12 @@ public class UVCCamera {
      * @return gamma[%]
      */
 	public synchronized int getGamma() {
-    	return getGamma(nativeGetGamma(mNativePtr));
+    	return getGamma(getControlValue(UVCControls.GAMMA));
     }
 
 	public synchronized void resetGamma() {
     	if (mNativePtr != 0) {
-    		nativeSetGamma(mNativePtr, mGammaDef);
+    		writeControl(UVCControls.GAMMA, mGammaDef);
     	}
     }
 
@@ -787,7 +1360,7 @@ public class UVCCamera {
     	if (mNativePtr != 0) {
  		   final float range = Math.abs(mSaturationMax - mSaturationMin);
  		   if (range > 0)
- 			   nativeSetSaturation(mNativePtr, (int)(saturation / 100.f * range) + mSaturationMin);
+ 			   writeControl(UVCControls.SATURATION, (int)(saturation / 100.f * range) + mSaturationMin);
     	}
     }
 
@@ -798,7 +1371,7 @@ public class UVCCamera {
 	public synchronized int getSaturation(final int saturation_abs) {
 	   int result = 0;
 	   if (mNativePtr != 0) {
-		   nativeUpdateSaturationLimit(mNativePtr);
+		   updateControlValues();
 		   final float range = Math.abs(mSaturationMax - mSaturationMin);
 		   if (range > 0) {
 			   result = (int)((saturation_abs - mSaturationMin) * 100.f / range);
@@ -811,12 +1384,12 @@ public class UVCCamera {
      * @return saturation[%]
      */
 	public synchronized int getSaturation() {
-    	return getSaturation(nativeGetSaturation(mNativePtr));
+    	return getSaturation(getControlValue(UVCControls.SATURATION));
     }
 
 	public synchronized void resetSaturation() {
     	if (mNativePtr != 0) {
-    		nativeSetSaturation(mNativePtr, mSaturationDef);
+    		writeControl(UVCControls.SATURATION, mSaturationDef);
     	}
     }
 //================================================================================
@@ -827,7 +1400,7 @@ public class UVCCamera {
     	if (mNativePtr != 0) {
  		   final float range = Math.abs(mHueMax - mHueMin);
  		   if (range > 0)
- 			   nativeSetHue(mNativePtr, (int)(hue / 100.f * range) + mHueMin);
+ 			   writeControl(UVCControls.HUE, (int)(hue / 100.f * range) + mHueMin);
     	}
     }
 
@@ -838,7 +1411,7 @@ public class UVCCamera {
 	public synchronized int getHue(final int hue_abs) {
 	   int result = 0;
 	   if (mNativePtr != 0) {
-		   nativeUpdateHueLimit(mNativePtr);
+		   updateControlValues();
 		   final float range = Math.abs(mHueMax - mHueMin);
 		   if (range > 0) {
 			   result = (int)((hue_abs - mHueMin) * 100.f / range);
@@ -851,12 +1424,12 @@ public class UVCCamera {
      * @return hue[%]
      */
 	public synchronized int getHue() {
-    	return getHue(nativeGetHue(mNativePtr));
+    	return getHue(getControlValue(UVCControls.HUE));
     }
 
 	public synchronized void resetHue() {
     	if (mNativePtr != 0) {
-    		nativeSetHue(mNativePtr, mSaturationDef);
+    		writeControl(UVCControls.HUE, mHueDef);
     	}
     }
 
@@ -881,7 +1454,7 @@ public class UVCCamera {
  		   if (range > 0) {
  			   final int z = (int)(zoom / 100.f * range) + mZoomMin;
 // 			   Log.d(TAG, "setZoom:zoom=" + zoom + " ,value=" + z);
- 			   nativeSetZoom(mNativePtr, z);
+ 			   writeControl(UVCControls.ZOOM, z);
  		   }
     	}
     }
@@ -893,7 +1466,7 @@ public class UVCCamera {
 	public synchronized int getZoom(final int zoom_abs) {
 	   int result = 0;
 	   if (mNativePtr != 0) {
-		   nativeUpdateZoomLimit(mNativePtr);
+		   updateControlValues();
 		   final float range = Math.abs(mZoomMax - mZoomMin);
 		   if (range > 0) {
 			   result = (int)((zoom_abs - mZoomMin) * 100.f / range);
@@ -906,12 +1479,12 @@ public class UVCCamera {
      * @return zoom[%]
      */
 	public synchronized int getZoom() {
-    	return getZoom(nativeGetZoom(mNativePtr));
+    	return getZoom(getControlValue(UVCControls.ZOOM));
     }
 
 	public synchronized void resetZoom() {
     	if (mNativePtr != 0) {
-    		nativeSetZoom(mNativePtr, mZoomDef);
+    		writeControl(UVCControls.ZOOM, mZoomDef);
     	}
     }
 
@@ -926,16 +1499,7 @@ public class UVCCamera {
     				mProcSupports = nativeGetProcSupports(mNativePtr);
     	    	// 設定値を取得
     	    	if ((mControlSupports != 0) && (mProcSupports != 0)) {
-	    	    	nativeUpdateBrightnessLimit(mNativePtr);
-	    	    	nativeUpdateContrastLimit(mNativePtr);
-	    	    	nativeUpdateSharpnessLimit(mNativePtr);
-	    	    	nativeUpdateGainLimit(mNativePtr);
-	    	    	nativeUpdateGammaLimit(mNativePtr);
-	    	    	nativeUpdateSaturationLimit(mNativePtr);
-	    	    	nativeUpdateHueLimit(mNativePtr);
-	    	    	nativeUpdateZoomLimit(mNativePtr);
-	    	    	nativeUpdateWhiteBlanceLimit(mNativePtr);
-	    	    	nativeUpdateFocusLimit(mNativePtr);
+	    	    	updateControlValues();
     	    	}
     	    	if (DEBUG) {
 					dumpControls(mControlSupports);
@@ -951,12 +1515,230 @@ public class UVCCamera {
 					Log.v(TAG, String.format("WhiteBlance:min=%d,max=%d,def=%d", mWhiteBlanceMin, mWhiteBlanceMax, mWhiteBlanceDef));
 					Log.v(TAG, String.format("Focus:min=%d,max=%d,def=%d", mFocusMin, mFocusMax, mFocusDef));
 				}
+			} else {
+				// limits invalidated by status interrupt are read again
+				updateControlValues();
 			}
     	} else {
     		mControlSupports = mProcSupports = 0;
     	}
     }
 
+	/**
+	 * get the model of limits and current values of controls,
+	 * they are read by #updateCameraParams and getters of each control
+	 * @return
+	 */
+	public UVCControls getControls() {
+		return mControls;
+	}
+
+	/**
+	 * get asynchronous writer of controls for this camera, its worker thread is started on the first call.
+	 * the writer is released when this camera is closed.
+	 * @return
+	 */
+	public synchronized UVCControlWriter getControlWriter() {
+		if (mControlWriter == null) {
+			mControlWriter = new UVCControlWriter(this, UVCControlWriter.DEFAULT_MIN_INTERVAL_MS);
+		}
+		return mControlWriter;
+	}
+
+	/**
+	 * set value of the control, same as #setBrightness etc. but reports the result
+	 * and keeps the value in UVCControls
+	 * the control transfer runs without the camera monitor so that it does not block other calls.
+	 * @param control one of UVCControls.XXX
+	 * @param value [%]
+	 * @return true if the value was written
+	 */
+	public boolean setControl(final int control, final int value) {
+		final int abs;
+		synchronized (this) {
+			if (mNativePtr == 0) return false;
+			updateControlValues();
+			if (!mControls.isSupported(control)) return false;
+			final int min = mControls.getMin(control);
+			final float range = Math.abs(mControls.getMax(control) - min);
+			if (range <= 0) return false;
+			abs = (int)(value / 100.f * range) + min;
+		}
+		synchronized (mControlSync) {
+			// destroy may have run while the limits were read
+			if (mNativePtr == 0) return false;
+			return writeControl(control, abs) == 0;
+		}
+	}
+
+	/**
+	 * write the value of the control and keep it in UVCControls, or invalidate it when writing failed
+	 * @param control one of UVCControls.XXX
+	 * @param value value in the unit of the camera
+	 * @return 0 if the value was written
+	 */
+	private int writeControl(final int control, final int value) {
+		final int result;
+		switch (control) {
+		case UVCControls.BRIGHTNESS:	result = nativeSetBrightness(mNativePtr, value); break;
+		case UVCControls.CONTRAST:		result = nativeSetContrast(mNativePtr, value); break;
+		case UVCControls.SHARPNESS:		result = nativeSetSharpness(mNativePtr, value); break;
+		case UVCControls.GAIN:			result = nativeSetGain(mNativePtr, value); break;
+		case UVCControls.GAMMA:			result = nativeSetGamma(mNativePtr, value); break;
+		case UVCControls.SATURATION:	result = nativeSetSaturation(mNativePtr, value); break;
+		case UVCControls.HUE:			result = nativeSetHue(mNativePtr, value); break;
+		case UVCControls.ZOOM:			result = nativeSetZoom(mNativePtr, value); break;
+		case UVCControls.WHITE_BLANCE:	result = nativeSetWhiteBlance(mNativePtr, value); break;
+		case UVCControls.FOCUS:			result = nativeSetFocus(mNativePtr, value); break;
+		default:
+			throw new IllegalArgumentException("unknown control:" + control);
+		}
+		if (result == 0) {
+			mControls.setCurrent(control, value);
+		} else {
+			mControls.invalidate(control);
+		}
+		return result;
+	}
+
+	/**
+	 * get current value of the control from UVCControls without USB transfer when it is valid,
+	 * otherwise read it from the camera. all current values are read again
+	 * when the camera does not send status interrupts and the verify interval passed.
+	 * @param control one of UVCControls.XXX
+	 * @return value in the unit of the camera
+	 */
+	private int getControlValue(final int control) {
+		if (mNativePtr == 0) return 0;
+		updateControlValues(mControls.needsVerify());
+		if (mControls.isCurrentValid(control)) {
+			return mControls.getCurrent(control);
+		}
+		mControls.beginUpdate();
+		final int result;
+		switch (control) {
+		case UVCControls.BRIGHTNESS:	result = nativeGetBrightness(mNativePtr); break;
+		case UVCControls.CONTRAST:		result = nativeGetContrast(mNativePtr); break;
+		case UVCControls.SHARPNESS:		result = nativeGetSharpness(mNativePtr); break;
+		case UVCControls.GAIN:			result = nativeGetGain(mNativePtr); break;
+		case UVCControls.GAMMA:			result = nativeGetGamma(mNativePtr); break;
+		case UVCControls.SATURATION:	result = nativeGetSaturation(mNativePtr); break;
+		case UVCControls.HUE:			result = nativeGetHue(mNativePtr); break;
+		case UVCControls.ZOOM:			result = nativeGetZoom(mNativePtr); break;
+		case UVCControls.WHITE_BLANCE:	result = nativeGetWhiteBlance(mNativePtr); break;
+		case UVCControls.FOCUS:			result = nativeGetFocus(mNativePtr); break;
+		default:
+			throw new IllegalArgumentException("unknown control:" + control);
+		}
+		mControls.updateCurrent(control, result);
+		return result;
+	}
+
+	/**
+	 * capture current values of all supported controls(UVCControls.XXX) as a profile,
+	 * they are read from the camera with one native call
+	 * @return empty profile if the camera is not opened
+	 */
+	public synchronized ControlProfile captureControlProfile() {
+		final ControlProfile result = new ControlProfile();
+		updateControlValues(true);
+		if (mNativePtr != 0) {
+			for (int i = 0; i < UVCControls.NUM_CONTROLS; i++) {
+				if (mControls.isSupported(i) && mControls.isCurrentValid(i)) {
+					result.setValue(i, mControls.getCurrent(i));
+				}
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * apply values of the profile with one native call,
+	 * controls that are not supported by this camera or are already at the value are skipped.
+	 * values are clamped to the limits of this camera.
+	 * @param profile
+	 * @return number of controls written, negative value on error
+	 */
+	public synchronized int applyControlProfile(final ControlProfile profile) {
+		if (mNativePtr == 0) return -1;
+		updateControlValues();
+		int mask = 0;
+		for (int i = 0; i < UVCControls.NUM_CONTROLS; i++) {
+			if (profile.has(i) && mControls.isSupported(i)) {
+				final int value = Math.max(Math.min(mControls.getMin(i), mControls.getMax(i)),
+					Math.min(profile.getValue(i), Math.max(mControls.getMin(i), mControls.getMax(i))));
+				if (!mControls.isCurrentValid(i) || (mControls.getCurrent(i) != value)) {
+					mControlValues[i * UVCControls.STRIDE + UVCControls.STRIDE - 1] = value;
+					mask |= (1 << i);
+				}
+			}
+		}
+		if (mask == 0) return 0;
+		final int result = nativeSetControlValues(mNativePtr, mControlValues, mask);
+		for (int i = 0; i < UVCControls.NUM_CONTROLS; i++) {
+			if ((mask & (1 << i)) != 0) {
+				final int ix = i * UVCControls.STRIDE;
+				if ((result >= 0) && (mControlValues[ix] >= 0)) {
+					// written or was already at the value
+					mControls.setCurrent(i, mControlValues[ix + UVCControls.STRIDE - 1]);
+				} else {
+					mControls.invalidate(i);
+				}
+			}
+		}
+		return result;
+	}
+
+	private void updateControlValues() {
+		updateControlValues(false);
+	}
+
+	/**
+	 * read limits and current values of all controls with one native call
+	 * when limits of any control are not valid, and copy the limits to mXXXMin/mXXXMax/mXXXDef.
+	 * this does nothing until status interrupt invalidates them unless force is true.
+	 * @param force read current values even if all limits are valid
+	 */
+	private void updateControlValues(final boolean force) {
+		if ((mNativePtr != 0) && (force || mControls.hasInvalidLimits())) {
+			final int reloadLimits = mControls.beginUpdate();
+			final int n = nativeGetControlValues(mNativePtr, mControlValues, reloadLimits);
+			if (n > 0) {
+				mControls.endUpdate(mControlValues, n);
+				mBrightnessMin = mControls.getMin(UVCControls.BRIGHTNESS);
+				mBrightnessMax = mControls.getMax(UVCControls.BRIGHTNESS);
+				mBrightnessDef = mControls.getDef(UVCControls.BRIGHTNESS);
+				mContrastMin = mControls.getMin(UVCControls.CONTRAST);
+				mContrastMax = mControls.getMax(UVCControls.CONTRAST);
+				mContrastDef = mControls.getDef(UVCControls.CONTRAST);
+				mSharpnessMin = mControls.getMin(UVCControls.SHARPNESS);
+				mSharpnessMax = mControls.getMax(UVCControls.SHARPNESS);
+				mSharpnessDef = mControls.getDef(UVCControls.SHARPNESS);
+				mGainMin = mControls.getMin(UVCControls.GAIN);
+				mGainMax = mControls.getMax(UVCControls.GAIN);
+				mGainDef = mControls.getDef(UVCControls.GAIN);
+				mGammaMin = mControls.getMin(UVCControls.GAMMA);
+				mGammaMax = mControls.getMax(UVCControls.GAMMA);
+				mGammaDef = mControls.getDef(UVCControls.GAMMA);
+				mSaturationMin = mControls.getMin(UVCControls.SATURATION);
+				mSaturationMax = mControls.getMax(UVCControls.SATURATION);
+				mSaturationDef = mControls.getDef(UVCControls.SATURATION);
+				mHueMin = mControls.getMin(UVCControls.HUE);
+				mHueMax = mControls.getMax(UVCControls.HUE);
+				mHueDef = mControls.getDef(UVCControls.HUE);
+				mZoomMin = mControls.getMin(UVCControls.ZOOM);
+				mZoomMax = mControls.getMax(UVCControls.ZOOM);
+				mZoomDef = mControls.getDef(UVCControls.ZOOM);
+				mWhiteBlanceMin = mControls.getMin(UVCControls.WHITE_BLANCE);
+				mWhiteBlanceMax = mControls.getMax(UVCControls.WHITE_BLANCE);
+				mWhiteBlanceDef = mControls.getDef(UVCControls.WHITE_BLANCE);
+				mFocusMin = mControls.getMin(UVCControls.FOCUS);
+				mFocusMax = mControls.getMax(UVCControls.FOCUS);
+				mFocusDef = mControls.getDef(UVCControls.FOCUS);
+			}
+		}
+	}
+
     private static final String[] SUPPORTS_CTRL = {
     	"D0:  Scanning Mode",
     	"D1:  Auto-Exposure Mode",
@@ -1049,15 +1831,31 @@ public class UVCCamera {
     private final native int nativeConnect(long id_camera, int venderId, int productId, int fileDescriptor, int busNum, int devAddr, String usbfs);
     private static final native int nativeRelease(final long id_camera);
 
+	private static final native int nativeGetControlValues(final long id_camera, final int[] values, final int reloadLimits);
+	private static final native int nativeSetControlValues(final long id_camera, final int[] values, final int mask);
 	private static final native int nativeSetStatusCallback(final long mNativePtr, final IStatusCallback callback);
 	private static final native int nativeSetButtonCallback(final long mNativePtr, final IButtonCallback callback);
 
     private static final native int nativeSetPreviewSize(final long id_camera, final int width, final int height, final int min_fps, final int max_fps, final int mode, final float bandwidth);
     private static final native String nativeGetSupportedSize(final long id_camera);
+    private static final native int[] nativeGetSupportedSizeArray(final long id_camera);
     private static final native int nativeStartPreview(final long id_camera);
     private static final native int nativeStopPreview(final long id_camera);
     private static final native int nativeSetPreviewDisplay(final long id_camera, final Surface surface);
-    private static final native int nativeSetFrameCallback(final long mNativePtr, final IFrameCallback callback, final int pixelFormat);
+    private static final native int nativeSetBufferingPolicy(final long id_camera, final int queueDepth, final int poolSize, final int dropPolicy);
+    private static final native long nativeGetFramePoolBytes(final long id_camera);
+    private static final native int nativeSetDecodeWorkers(final long id_camera, final int threads, final int reorderWindow);
+    private static final native int nativeSetOrientation(final long id_camera, final int orientation);
+    private static final native int nativeSetFrameCallback(final long mNativePtr, final IFrameCallback callback, final int pixelFormat, final int scaleNum, final int scaleDenom,
+    	final int roiX, final int roiY, final int roiWidth, final int roiHeight);
+    private static final native int nativeSetFrameInfoCallback(final long mNativePtr, final IFrameInfoCallback callback, final FrameInfo info, final int pixelFormat);
+    private static final native int nativeSetFrameCallbackScale(final long mNativePtr, final int scaleNum, final int scaleDenom);
+    private static final native int nativeSetFrameCallbackRoi(final long mNativePtr, final int x, final int y, final int width, final int height);
+    private static final native int nativeSetFramePool(final long mNativePtr, final FramePool pool, final ByteBuffer[] buffers, final int pixelFormat);
+    private static final native int nativeSetPipeline(final long mNativePtr, final IPipeline pipeline);
+    private static final native int nativeReleaseFrameLease(final long mNativePtr, final int slot);
+    private static final native int nativeGetFramePoolDropped(final long mNativePtr);
+    private static final native int nativeGetStats(final long mNativePtr, final long[] stats);
 
 //**********************************************************************
     /**
@@ -10,6 +10,8 @@ public class UVCCameraPrefs implements Parcelable {
     private int mWidth;
     private int mHeight;
     private int mFramerate;
+    private int mOrientation;   // one of UVCCamera.ORIENTATION_XXX, missing in old prefs means normal
+    private String mControlProfile;   // ControlProfile#toCompactString, missing in old prefs means none
 
     UVCCameraPrefs(
             int _vendorId,
@@ -18,6 +20,18 @@ public class UVCCameraPrefs implements Parcelable {
             int _width,
             int _height,
             int _framerate
+    ) {
+        this(_vendorId, _productId, _frameFormat, _width, _height, _framerate, UVCCamera.ORIENTATION_NORMAL);
+    }
+
+    UVCCameraPrefs(
+            int _vendorId,
+            int _productId,
+            int _frameFormat,
+            int _width,
+            int _height,
+            int _framerate,
+            int _orientation
     ) {
         mVendorId = _vendorId;
         mProductId = _productId;
@@ -25,6 +39,7 @@ public class UVCCameraPrefs implements Parcelable {
         mWidth = _width;
         mHeight = _height;
         mFramerate = _framerate;
+        mOrientation = _orientation;
     }
 
     UVCCameraPrefs(
@@ -48,6 +63,8 @@ public class UVCCameraPrefs implements Parcelable {
         mWidth = in.readInt();
         mHeight = in.readInt();
         mFramerate = in.readInt();
+        mOrientation = in.readInt();
+        mControlProfile = in.readString();
     }
 
     public void setVendorId(int vendorId) {
@@ -88,6 +105,18 @@ public class UVCCameraPrefs implements Parcelable {
         mFramerate = Integer.parseInt(framerate);
     }
 
+    public void setOrientation(int orientation) {
+        mOrientation = orientation;
+    }
+
+    public void setOrientation(String orientation) {
+        mOrientation = Integer.parseInt(orientation);
+    }
+
+    public void setControlProfile(ControlProfile profile) {
+        mControlProfile = (profile != null) && !profile.isEmpty() ? profile.toCompactString() : null;
+    }
+
     public int getVendorId() {
         return mVendorId;
     }
@@ -112,6 +141,21 @@ public class UVCCameraPrefs implements Parcelable {
         return mFramerate;
     }
 
+    public int getOrientation() {
+        return mOrientation;
+    }
+
+    /**
+     * @return null if no profile was saved or the saved one is broken
+     */
+    public ControlProfile getControlProfile() {
+        try {
+            return ControlProfile.fromCompactString(mControlProfile);
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+
     public String getFrameFormatString() {
         return UVCSize.Format.getTypeString(mFrameFormat);
     }
@@ -124,6 +168,10 @@ public class UVCCameraPrefs implements Parcelable {
         return Integer.toString(mFramerate);
     }
 
+    public String getOrientationString() {
+        return Integer.toString(mOrientation);
+    }
+
     public String getPrefsFile(){
         return (getVendorId() + "-" + getProductId());
     }
@@ -153,5 +201,7 @@ public class UVCCameraPrefs implements Parcelable {
         dest.writeInt(mWidth);
         dest.writeInt(mHeight);
         dest.writeInt(mFramerate);
+        dest.writeInt(mOrientation);
+        dest.writeString(mControlProfile);
     }
 }
\ No newline at end of file
@@ -0,0 +1,266 @@
+/*
+ *  UVCCamera
+ *  library and sample to access to UVC web camera on non-rooted Android device
+ *
+ * Copyright (c) 2014-2017 saki t_saki@serenegiant.com
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ *
+ *  All files in the folder are under this Apache License, Version 2.0.
+ *  Files in the libjpeg-turbo, libusb, libuvc, rapidjson folder
+ *  may have a different license, see the respective files.
+ */
+
+package com.serenegiant.usb;
+
+import android.util.Log;
+
+import java.util.Arrays;
+
+/**
+ * Asynchronous writer of UVC controls with one control-worker thread for each camera,
+ * so dragging a slider does not run a blocking control transfer on the UI thread for every step.
+ * Pending writes to the same control are coalesced(latest wins), and each control is written
+ * at most once in the minimum interval. Get the instance with UVCCamera#getControlWriter,
+ * it is released when the camera is closed.
+ * Writes run through UVCCamera#setControl, which does not hold the camera monitor during the transfer.
+ */
+public class UVCControlWriter {
+	private static final boolean DEBUG = false;
+	private static final String TAG = UVCControlWriter.class.getSimpleName();
+
+	/**
+	 * default minimum interval between writes to the same control [ms]
+	 */
+	public static final long DEFAULT_MIN_INTERVAL_MS = 33;
+
+	/**
+	 * the value was written
+	 */
+	public static final int RESULT_WRITTEN = 0;
+	/**
+	 * writing the value failed, e.g. the control is not supported
+	 */
+	public static final int RESULT_FAILED = 1;
+	/**
+	 * the value was not written because newer value for the same control was set before it
+	 */
+	public static final int RESULT_SUPERSEDED = 2;
+	/**
+	 * the value was not written because the writer was released
+	 */
+	public static final int RESULT_CANCELED = 3;
+
+	private final UVCCamera mCamera;
+	private final long mMinIntervalMs;
+	private final Object mSync = new Object();
+	// pending writes, guarded by mSync
+	private final int[] mPendingValues = new int[UVCControls.NUM_CONTROLS];
+	private final IControlWriteCallback[] mPendingCallbacks = new IControlWriteCallback[UVCControls.NUM_CONTROLS];
+	private int mPendingMask;
+	private int mCoalescedCount;
+	private int mWriteCount;
+	private boolean mReleased;
+	/**
+	 * time of the last write of each control, accessed only on the worker thread
+	 */
+	private final long[] mLastWriteMs = new long[UVCControls.NUM_CONTROLS];
+	private final Thread mWorker;
+
+	/**
+	 * @param camera
+	 * @param minIntervalMs minimum interval between writes to the same control [ms]
+	 */
+	/*package*/UVCControlWriter(final UVCCamera camera, final long minIntervalMs) {
+		if (minIntervalMs < 0)
+			throw new IllegalArgumentException("minIntervalMs should not be negative");
+		mCamera = camera;
+		mMinIntervalMs = minIntervalMs;
+		for (int i = 0; i < UVCControls.NUM_CONTROLS; i++) {
+			mLastWriteMs[i] = Long.MIN_VALUE / 2;
+		}
+		mWorker = new Thread(mWorkerRunnable, TAG);
+		mWorker.start();
+	}
+
+	/**
+	 * request to write the value of the control
+	 * @param control one of UVCControls.XXX
+	 * @param value [%], same as UVCCamera#setBrightness etc.
+	 */
+	public void set(final int control, final int value) {
+		set(control, value, null);
+	}
+
+	/**
+	 * request to write the value of the control
+	 * @param control one of UVCControls.XXX
+	 * @param value [%], same as UVCCamera#setBrightness etc.
+	 * @param callback called when the value was written or not, can be null
+	 */
+	public void set(final int control, final int value, final IControlWriteCallback callback) {
+		if ((control < 0) || (control >= UVCControls.NUM_CONTROLS))
+			throw new IllegalArgumentException("unknown control:" + control);
+		final int bit = 1 << control;
+		IControlWriteCallback superseded = null;
+		int supersededValue = 0;
+		boolean canceled = false;
+		synchronized (mSync) {
+			if (mReleased) {
+				canceled = true;
+			} else {
+				if ((mPendingMask & bit) != 0) {
+					mCoalescedCount++;
+					superseded = mPendingCallbacks[control];
+					supersededValue = mPendingValues[control];
+				}
+				mPendingValues[control] = value;
+				mPendingCallbacks[control] = callback;
+				mPendingMask |= bit;
+				mSync.notifyAll();
+			}
+		}
+		if (superseded != null) {
+			superseded.onComplete(control, supersededValue, RESULT_SUPERSEDED);
+		}
+		if (canceled && (callback != null)) {
+			callback.onComplete(control, value, RESULT_CANCELED);
+		}
+	}
+
+	/**
+	 * whether any write is waiting for the worker thread
+	 * @return
+	 */
+	public boolean hasPending() {
+		synchronized (mSync) {
+			return mPendingMask != 0;
+		}
+	}
+
+	/**
+	 * get number of writes that were discarded because newer value was set
+	 * @return
+	 */
+	public int getCoalescedCount() {
+		synchronized (mSync) {
+			return mCoalescedCount;
+		}
+	}
+
+	/**
+	 * get number of writes executed on the worker thread
+	 * @return
+	 */
+	public int getWriteCount() {
+		synchronized (mSync) {
+			return mWriteCount;
+		}
+	}
+
+	/**
+	 * stop the worker thread, pending writes are canceled.
+	 * this waits for the write in progress, so no write runs after this returns
+	 * unless this is called on the worker thread, e.g. from IControlWriteCallback
+	 */
+	public void release() {
+		final int[] values = new int[UVCControls.NUM_CONTROLS];
+		final IControlWriteCallback[] callbacks = new IControlWriteCallback[UVCControls.NUM_CONTROLS];
+		int mask;
+		synchronized (mSync) {
+			if (mReleased) return;
+			mReleased = true;
+			mask = mPendingMask;
+			mPendingMask = 0;
+			System.arraycopy(mPendingValues, 0, values, 0, values.length);
+			System.arraycopy(mPendingCallbacks, 0, callbacks, 0, callbacks.length);
+			Arrays.fill(mPendingCallbacks, null);
+			mSync.notifyAll();
+		}
+		for (int i = 0; i < UVCControls.NUM_CONTROLS; i++) {
+			if (((mask & (1 << i)) != 0) && (callbacks[i] != null)) {
+				callbacks[i].onComplete(i, values[i], RESULT_CANCELED);
+			}
+		}
+		if (Thread.currentThread() != mWorker) {
+			try {
+				mWorker.join();
+			} catch (final InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+		}
+	}
+
+	private final Runnable mWorkerRunnable = new Runnable() {
+		@Override
+		public void run() {
+			if (DEBUG) Log.v(TAG, "worker:start");
+			for (; ; ) {
+				final int control;
+				final int value;
+				final IControlWriteCallback callback;
+				synchronized (mSync) {
+					if (mReleased) break;
+					if (mPendingMask == 0) {
+						try {
+							mSync.wait();
+						} catch (final InterruptedException e) {
+							break;
+						}
+						continue;
+					}
+					// pick the pending control that can be written earliest
+					final long now = System.nanoTime() / 1000000L;
+					int next = -1;
+					long nextTime = Long.MAX_VALUE;
+					for (int i = 0; i < UVCControls.NUM_CONTROLS; i++) {
+						if ((mPendingMask & (1 << i)) != 0) {
+							final long t = mLastWriteMs[i] + mMinIntervalMs;
+							if (t < nextTime) {
+								nextTime = t;
+								next = i;
+							}
+						}
+					}
+					if (nextTime > now) {
+						// rate limited, newer values may come while waiting
+						try {
+							mSync.wait(nextTime - now);
+						} catch (final InterruptedException e) {
+							break;
+						}
+						continue;
+					}
+					control = next;
+					value = mPendingValues[control];
+					callback = mPendingCallbacks[control];
+					mPendingCallbacks[control] = null;
+					mPendingMask &= ~(1 << control);
+					mWriteCount++;
+				}
+				// control transfer without holding mSync so that #set never blocks
+				final boolean written = mCamera.setControl(control, value);
+				mLastWriteMs[control] = System.nanoTime() / 1000000L;
+				if (DEBUG) Log.v(TAG, "worker:control=" + control + ",value=" + value + ",written=" + written);
+				if (callback != null) {
+					try {
+						callback.onComplete(control, value, written ? RESULT_WRITTEN : RESULT_FAILED);
+					} catch (final Exception e) {
+						Log.w(TAG, e);
+					}
+				}
+			}
+			if (DEBUG) Log.v(TAG, "worker:finished");
+		}
+	};
+}
@@ -0,0 +1,383 @@
+/*
+ *  UVCCamera
+ *  library and sample to access to UVC web camera on non-rooted Android device
+ *
+ * Copyright (c) 2014-2017 saki t_saki@serenegiant.com
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ *
+ *  All files in the folder are under this Apache License, Version 2.0.
+ *  Files in the libjpeg-turbo, libusb, libuvc, rapidjson folder
+ *  may have a different license, see the respective files.
+ */
+
+package com.serenegiant.usb;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Java side model of limits(min/max/def) and current values of UVC controls.
+ * UVCCamera fills this with one native call(nativeGetControlValues) for all controls
+ * instead of nativeUpdateXXXLimit for each control, and keeps the values until
+ * a status interrupt(IStatusCallback) tells the value or the limits of a control changed.
+ * Value change interrupts with the new value update the current value without reading it from the camera.
+ * Cameras that never send status interrupts get their current values verified
+ * every #setVerifyInterval on the next access instead.
+ * Status interrupts come on a native thread, so all methods are thread safe.
+ */
+public final class UVCControls {
+	// index of controls, same order as UVCCamera::getControlValues in native code
+	public static final int BRIGHTNESS = 0;
+	public static final int CONTRAST = 1;
+	public static final int SHARPNESS = 2;
+	public static final int GAIN = 3;
+	public static final int GAMMA = 4;
+	public static final int SATURATION = 5;
+	public static final int HUE = 6;
+	public static final int ZOOM = 7;
+	public static final int WHITE_BLANCE = 8;
+	public static final int FOCUS = 9;
+	public static final int NUM_CONTROLS = 10;
+
+	/**
+	 * number of values of each control filled by native code, [result, min, max, def, current]
+	 */
+	/*package*/static final int STRIDE = 5;
+	private static final int RESULT = 0;
+	private static final int MIN = 1;
+	private static final int MAX = 2;
+	private static final int DEF = 3;
+	private static final int CURRENT = 4;
+
+	private static final int ALL = (1 << NUM_CONTROLS) - 1;
+	/**
+	 * controls whose value is a signed 16 bit integer, others are unsigned
+	 */
+	private static final int SIGNED = (1 << BRIGHTNESS) | (1 << HUE);
+	/**
+	 * default interval to verify current values of cameras that do not send status interrupts
+	 */
+	public static final long DEFAULT_VERIFY_INTERVAL_MS = 1000;
+
+	// control selectors of camera terminal
+	private static final int CT_FOCUS_ABSOLUTE_CONTROL = 0x06;
+	private static final int CT_FOCUS_AUTO_CONTROL = 0x08;
+	private static final int CT_ZOOM_ABSOLUTE_CONTROL = 0x0b;
+	// control selectors of processing unit
+	private static final int PU_BRIGHTNESS_CONTROL = 0x02;
+	private static final int PU_CONTRAST_CONTROL = 0x03;
+	private static final int PU_GAIN_CONTROL = 0x04;
+	private static final int PU_HUE_CONTROL = 0x06;
+	private static final int PU_SATURATION_CONTROL = 0x07;
+	private static final int PU_SHARPNESS_CONTROL = 0x08;
+	private static final int PU_GAMMA_CONTROL = 0x09;
+	private static final int PU_WHITE_BALANCE_TEMPERATURE_CONTROL = 0x0a;
+	private static final int PU_WHITE_BALANCE_TEMPERATURE_AUTO_CONTROL = 0x0b;
+	private static final int PU_HUE_AUTO_CONTROL = 0x10;
+	private static final int PU_CONTRAST_AUTO_CONTROL = 0x13;
+
+	private final int[] mValues = new int[NUM_CONTROLS * STRIDE];
+	/**
+	 * bit mask of controls whose limits/current value in mValues are valid
+	 */
+	private int mValidLimits, mValidCurrent;
+	/**
+	 * bit mask of controls whose limits native code should read from the camera again
+	 */
+	private int mReloadLimits;
+	/**
+	 * bit mask of controls invalidated after #beginUpdate,
+	 * values read before the status interrupt must not be marked as valid
+	 */
+	private int mInvalidatedOnUpdate;
+	/**
+	 * whether the camera sent any status interrupt since it was opened
+	 */
+	private boolean mStatusReceived;
+	private long mVerifyIntervalMs = DEFAULT_VERIFY_INTERVAL_MS;
+	/**
+	 * time of the last #endUpdate in milliseconds of System.nanoTime
+	 */
+	private long mVerifiedAtMs;
+
+	/*package*/UVCControls() {
+	}
+
+	/**
+	 * get index of the control that the status interrupt is for
+	 * @param statusClass one of UVCCamera.STATUS_CLASS_XXX
+	 * @param selector control selector
+	 * @return index of the control, -1 if it is not in this model
+	 */
+	public static int getIndex(final int statusClass, final int selector) {
+		switch (statusClass) {
+		case UVCCamera.STATUS_CLASS_CONTROL_CAMERA:
+			switch (selector) {
+			case CT_FOCUS_ABSOLUTE_CONTROL:
+			case CT_FOCUS_AUTO_CONTROL:
+				return FOCUS;
+			case CT_ZOOM_ABSOLUTE_CONTROL:
+				return ZOOM;
+			default:
+				return -1;
+			}
+		case UVCCamera.STATUS_CLASS_CONTROL_PROCESSING:
+			switch (selector) {
+			case PU_BRIGHTNESS_CONTROL:
+				return BRIGHTNESS;
+			case PU_CONTRAST_CONTROL:
+			case PU_CONTRAST_AUTO_CONTROL:
+				return CONTRAST;
+			case PU_GAIN_CONTROL:
+				return GAIN;
+			case PU_HUE_CONTROL:
+			case PU_HUE_AUTO_CONTROL:
+				return HUE;
+			case PU_SATURATION_CONTROL:
+				return SATURATION;
+			case PU_SHARPNESS_CONTROL:
+				return SHARPNESS;
+			case PU_GAMMA_CONTROL:
+				return GAMMA;
+			case PU_WHITE_BALANCE_TEMPERATURE_CONTROL:
+			case PU_WHITE_BALANCE_TEMPERATURE_AUTO_CONTROL:
+				return WHITE_BLANCE;
+			default:
+				return -1;
+			}
+		default:
+			return -1;
+		}
+	}
+
+	/**
+	 * whether the selector is the value of the control itself, not its auto mode
+	 * @param statusClass
+	 * @param selector
+	 * @return
+	 */
+	private static boolean isValueSelector(final int statusClass, final int selector) {
+		if (statusClass == UVCCamera.STATUS_CLASS_CONTROL_CAMERA) {
+			return selector != CT_FOCUS_AUTO_CONTROL;
+		}
+		switch (selector) {
+		case PU_CONTRAST_AUTO_CONTROL:
+		case PU_HUE_AUTO_CONTROL:
+		case PU_WHITE_BALANCE_TEMPERATURE_AUTO_CONTROL:
+			return false;
+		default:
+			return true;
+		}
+	}
+
+	/**
+	 * invalidate values of the control by status interrupt, same as #onStatus(int, int, int, ByteBuffer)
+	 * without the value
+	 * @param statusClass
+	 * @param selector
+	 * @param statusAttribute one of UVCCamera.STATUS_ATTRIBUTE_XXX
+	 * @return index of the invalidated control, -1 if nothing was invalidated
+	 */
+	public int onStatus(final int statusClass, final int selector, final int statusAttribute) {
+		return onStatus(statusClass, selector, statusAttribute, null);
+	}
+
+	/**
+	 * update or invalidate values of the control by status interrupt.
+	 * value change with the new value in data updates the current value,
+	 * value change without it(and change of its auto mode) invalidates the current value,
+	 * info change also invalidates the limits so they are read from the camera again.
+	 * @param statusClass
+	 * @param selector
+	 * @param statusAttribute one of UVCCamera.STATUS_ATTRIBUTE_XXX
+	 * @param data new value in little endian, it is read in this call, can be null
+	 * @return index of the updated or invalidated control, -1 if nothing was changed
+	 */
+	public synchronized int onStatus(final int statusClass, final int selector,
+		final int statusAttribute, final ByteBuffer data) {
+
+		mStatusReceived = true;
+		final int index = getIndex(statusClass, selector);
+		if (index >= 0) {
+			final int bit = 1 << index;
+			switch (statusAttribute) {
+			case UVCCamera.STATUS_ATTRIBUTE_VALUE_CHANGE:
+				if ((data != null) && (data.remaining() >= 2)
+					&& isValueSelector(statusClass, selector)) {
+
+					final int pos = data.position();
+					final int value = (data.get(pos) & 0xff)
+						| (((SIGNED & bit) != 0 ? data.get(pos + 1) : (data.get(pos + 1) & 0xff)) << 8);
+					mValues[index * STRIDE + CURRENT] = value;
+					mValidCurrent |= bit;
+					// value read by the running update may be older than this
+					mInvalidatedOnUpdate |= bit;
+					return index;
+				}
+				// pass through
+			case UVCCamera.STATUS_ATTRIBUTE_FAILURE_CHANGE:
+				mValidCurrent &= ~bit;
+				mInvalidatedOnUpdate |= bit;
+				return index;
+			case UVCCamera.STATUS_ATTRIBUTE_INFO_CHANGE:
+				mValidLimits &= ~bit;
+				mReloadLimits |= bit;
+				mValidCurrent &= ~bit;
+				mInvalidatedOnUpdate |= bit;
+				return index;
+			default:
+				break;
+			}
+		}
+		return -1;
+	}
+
+	/**
+	 * set interval to verify current values of cameras that do not send status interrupts
+	 * @param intervalMs 0 to disable verification
+	 */
+	public synchronized void setVerifyInterval(final long intervalMs) {
+		if (intervalMs < 0)
+			throw new IllegalArgumentException("interval should not be negative");
+		mVerifyIntervalMs = intervalMs;
+	}
+
+	/**
+	 * whether current values should be read from the camera again,
+	 * true when the camera never sent status interrupts and the verify interval passed
+	 * @return
+	 */
+	/*package*/synchronized boolean needsVerify() {
+		return !mStatusReceived && (mVerifyIntervalMs > 0)
+			&& (System.nanoTime() / 1000000L - mVerifiedAtMs >= mVerifyIntervalMs);
+	}
+
+	/**
+	 * whether limits of any control are not read yet or were invalidated
+	 * @return
+	 */
+	public synchronized boolean hasInvalidLimits() {
+		return mValidLimits != ALL;
+	}
+
+	public synchronized boolean isLimitsValid(final int index) {
+		return (mValidLimits & (1 << index)) != 0;
+	}
+
+	public synchronized boolean isCurrentValid(final int index) {
+		return (mValidCurrent & (1 << index)) != 0;
+	}
+
+	/**
+	 * whether the camera supports the control, false until values are read
+	 * @param index
+	 * @return
+	 */
+	public synchronized boolean isSupported(final int index) {
+		return isLimitsValid(index) && (mValues[index * STRIDE + RESULT] == 0);
+	}
+
+	public synchronized int getMin(final int index) {
+		return mValues[index * STRIDE + MIN];
+	}
+
+	public synchronized int getMax(final int index) {
+		return mValues[index * STRIDE + MAX];
+	}
+
+	public synchronized int getDef(final int index) {
+		return mValues[index * STRIDE + DEF];
+	}
+
+	/**
+	 * get current value, this is the last value read from or written to the camera,
+	 * check #isCurrentValid whether it may have changed since then
+	 * @param index
+	 * @return
+	 */
+	public synchronized int getCurrent(final int index) {
+		return mValues[index * STRIDE + CURRENT];
+	}
+
+	/**
+	 * set current value that was read from or written to the camera
+	 * @param index
+	 * @param value
+	 */
+	/*package*/synchronized void setCurrent(final int index, final int value) {
+		mValues[index * STRIDE + CURRENT] = value;
+		mValidCurrent |= (1 << index);
+	}
+
+	/**
+	 * set current value read from the camera after #beginUpdate,
+	 * it is ignored if the control was invalidated or updated by status interrupt in the meantime
+	 * @param index
+	 * @param value
+	 */
+	/*package*/synchronized void updateCurrent(final int index, final int value) {
+		if ((mInvalidatedOnUpdate & (1 << index)) == 0) {
+			setCurrent(index, value);
+		}
+	}
+
+	/**
+	 * invalidate the current value of the control, e.g. when writing it failed
+	 * @param index
+	 */
+	/*package*/synchronized void invalidate(final int index) {
+		mValidCurrent &= ~(1 << index);
+		mInvalidatedOnUpdate |= (1 << index);
+	}
+
+	/**
+	 * call before reading values with UVCCamera#nativeGetControlValues
+	 * @return bit mask of controls whose limits should be read from the camera again
+	 */
+	/*package*/synchronized int beginUpdate() {
+		mInvalidatedOnUpdate = 0;
+		return mReloadLimits;
+	}
+
+	/**
+	 * set values read by UVCCamera#nativeGetControlValues,
+	 * values of controls that were invalidated after #beginUpdate are ignored
+	 * @param values [result, min, max, def, current] for each control
+	 * @param n number of controls in values
+	 */
+	/*package*/synchronized void endUpdate(final int[] values, final int n) {
+		final int num = Math.min(n, NUM_CONTROLS);
+		for (int i = 0; i < num; i++) {
+			final int bit = 1 << i;
+			if ((mInvalidatedOnUpdate & bit) == 0) {
+				System.arraycopy(values, i * STRIDE, mValues, i * STRIDE, STRIDE);
+				mValidLimits |= bit;
+				mValidCurrent |= bit;
+				mReloadLimits &= ~bit;
+			}
+		}
+		mVerifiedAtMs = System.nanoTime() / 1000000L;
+	}
+
+	/**
+	 * invalidate all values, call when the camera is closed
+	 */
+	/*package*/synchronized void reset() {
+		mValidLimits = mValidCurrent = 0;
+		// native code clears its cached limits when the camera is released
+		mReloadLimits = 0;
+		mInvalidatedOnUpdate = ALL;
+		mStatusReceived = false;
+		mVerifiedAtMs = 0;
+	}
+}
@@ -0,0 +1,213 @@
+/*
+ *  UVCCamera
+ *  library and sample to access to UVC web camera on non-rooted Android device
+ *
+ * Copyright (c) 2014-2017 saki t_saki@serenegiant.com
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ *
+ *  All files in the folder are under this Apache License, Version 2.0.
+ *  Files in the libjpeg-turbo, libusb, libuvc, rapidjson folder
+ *  may have a different license, see the respective files.
+ */
+
+package com.serenegiant.usb;
+
+/**
+ * Parser of VideoStreaming interface descriptors in raw USB descriptors(UsbControlBlock#getRawDescriptors),
+ * this builds the same catalog as native code(UVCCamera#nativeGetSupportedSizeArray) without native library,
+ * so supported formats are available before the camera is opened.
+ * This walks the descriptors in place and allocates only the result array.
+ * Format/frame descriptors are handled in the same way as libuvc(device.c),
+ * still image and color matching descriptors are skipped as libuvc does.
+ */
+public final class UVCDescriptorParser {
+	// descriptor types
+	private static final int USB_DT_CONFIG = 0x02;
+	private static final int USB_DT_INTERFACE = 0x04;
+	private static final int USB_DT_CS_INTERFACE = 0x24;
+	// interface class/subclass of VideoStreaming interface
+	private static final int USB_CLASS_VIDEO = 0x0e;
+	private static final int UVC_SC_VIDEOSTREAMING = 0x02;
+	// VideoStreaming descriptor subtypes
+	private static final int UVC_VS_FORMAT_UNCOMPRESSED = 0x04;
+	private static final int UVC_VS_FRAME_UNCOMPRESSED = 0x05;
+	private static final int UVC_VS_FORMAT_MJPEG = 0x06;
+	private static final int UVC_VS_FRAME_MJPEG = 0x07;
+	private static final int UVC_VS_FORMAT_FRAME_BASED = 0x10;
+	private static final int UVC_VS_FRAME_FRAME_BASED = 0x11;
+
+	private UVCDescriptorParser() {
+		// never be instantiated
+	}
+
+	/**
+	 * parse supported formats
+	 * @param desc raw USB descriptors, device descriptor followed by configuration descriptor
+	 * @return formats other than YUYV and MJPEG are removed, no format if desc is null or has no VideoStreaming interface
+	 */
+	public static UVCSize parseSupportedSize(final byte[] desc) {
+		return new UVCSize(parse(desc));
+	}
+
+	/**
+	 * parse supported formats into the binary layout of UVCSize(see UVCSize(int[]))
+	 * @param desc raw USB descriptors, device descriptor followed by configuration descriptor
+	 * @return
+	 */
+	public static int[] parse(final byte[] desc) {
+		if (desc == null) {
+			return new int[1];
+		}
+		// count values first not to reallocate
+		final int[] result = new int[walk(desc, null)];
+		walk(desc, result);
+		return result;
+	}
+
+	/**
+	 * walk the descriptors
+	 * @param desc
+	 * @param out values are written when this is not null
+	 * @return number of values
+	 */
+	private static int walk(final byte[] desc, final int[] out) {
+		int n = 1;
+		int formatCount = 0;
+		int format = -1;	// offset of the format header that following frames belong to
+		int configCount = 0;
+		boolean isStreaming = false;
+		final int length = desc.length;
+		for (int p = 0; p + 2 <= length; ) {
+			final int bLength = desc[p] & 0xff;
+			if ((bLength < 2) || (p + bLength > length)) {
+				// broken descriptor, formats parsed so far are used
+				break;
+			}
+			switch (desc[p + 1] & 0xff) {
+			case USB_DT_CONFIG:
+				// only the first(active) configuration
+				if (++configCount > 1) {
+					p = length;
+					continue;
+				}
+				break;
+			case USB_DT_INTERFACE:
+				isStreaming = (bLength >= 9)
+					&& ((desc[p + 5] & 0xff) == USB_CLASS_VIDEO)
+					&& ((desc[p + 6] & 0xff) == UVC_SC_VIDEOSTREAMING);
+				format = -1;
+				break;
+			case USB_DT_CS_INTERFACE:
+				if (!isStreaming || (bLength < 3)) break;
+				final int subtype = desc[p + 2] & 0xff;
+				switch (subtype) {
+				case UVC_VS_FORMAT_UNCOMPRESSED:
+				case UVC_VS_FORMAT_FRAME_BASED:
+				case UVC_VS_FORMAT_MJPEG:
+				{
+					final int defaultOffset = subtype == UVC_VS_FORMAT_MJPEG ? 6 : 22;
+					if (bLength <= defaultOffset) break;
+					if (out != null) {
+						out[n] = subtype;
+						out[n + 1] = desc[p + 3] & 0xff;
+						out[n + 2] = desc[p + defaultOffset] & 0xff;
+						out[n + 3] = 0;
+					}
+					format = n;
+					n += 4;
+					formatCount++;
+					break;
+				}
+				case UVC_VS_FRAME_UNCOMPRESSED:
+				case UVC_VS_FRAME_MJPEG:
+				case UVC_VS_FRAME_FRAME_BASED:
+				{
+					if ((format < 0) || (bLength < 26)) break;
+					// frame based descriptor has dwBytesPerLine after bFrameIntervalType
+					// instead of dwMaxVideoFrameBufferSize before dwDefaultFrameInterval
+					final boolean isFrameBased = subtype == UVC_VS_FRAME_FRAME_BASED;
+					final int intervalType = desc[p + (isFrameBased ? 21 : 25)] & 0xff;
+					if (bLength < 26 + (intervalType > 0 ? intervalType * 4 : 12)) break;
+					if (out != null) {
+						writeFrame(desc, p, subtype, intervalType,
+							toInt(desc, p + (isFrameBased ? 17 : 21)), out, n);
+						out[format + 3]++;
+					}
+					n += 9 + intervalType;
+					break;
+				}
+				default:
+					break;
+				}
+				break;
+			default:
+				break;
+			}
+			p += bLength;
+		}
+		if (out != null) {
+			out[0] = formatCount;
+		}
+		return n;
+	}
+
+	private static void writeFrame(final byte[] desc, final int p,
+		final int subtype, final int intervalType, long defaultInterval,
+		final int[] out, final int n) {
+
+		out[n] = subtype;
+		out[n + 1] = toShort(desc, p + 5);
+		out[n + 2] = toShort(desc, p + 7);
+		out[n + 4] = intervalType;
+		out[n + 8] = intervalType;
+		if (intervalType > 0) {
+			long first = 0, last = 0;
+			for (int i = 0; i < intervalType; i++) {
+				long interval = toInt(desc, p + 26 + i * 4);
+				if (interval == 0) {
+					interval = 1;
+				}
+				if (i == 0) first = interval;
+				last = interval;
+				out[n + 9 + i] = toFps(interval);
+			}
+			// same as libuvc, default interval is clamped into intervals
+			defaultInterval = Math.min(last, Math.max(first, defaultInterval));
+		} else {
+			out[n + 5] = (int)toInt(desc, p + 26);
+			out[n + 6] = (int)toInt(desc, p + 30);
+			out[n + 7] = (int)toInt(desc, p + 34);
+		}
+		out[n + 3] = toFps(defaultInterval);
+	}
+
+	/**
+	 * convert frame interval in 100ns unit into fps
+	 */
+	private static int toFps(final long interval) {
+		return interval > 0 ? (int)(10000000L / interval) : 0;
+	}
+
+	private static int toShort(final byte[] desc, final int p) {
+		return (desc[p] & 0xff) | ((desc[p + 1] & 0xff) << 8);
+	}
+
+	/**
+	 * @return unsigned 32bit value in little endian
+	 */
+	private static long toInt(final byte[] desc, final int p) {
+		return (desc[p] & 0xffL) | ((desc[p + 1] & 0xffL) << 8)
+			| ((desc[p + 2] & 0xffL) << 16) | ((desc[p + 3] & 0xffL) << 24);
+	}
+}
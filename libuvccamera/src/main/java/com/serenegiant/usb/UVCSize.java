@@ -7,54 +7,58 @@ import android.text.TextUtils;
 import org.json.JSONArray;
 import org.json.JSONObject;
 
-import java.util.ArrayList;
-import java.util.Collections;
-import java.util.Comparator;
-
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.Arrays;
+
+/**
+ * Supported formats of the camera.
+ * All values are kept in one int array in the same layout as native code fills
+ * (UVCDiags::getSupportedSizeArray), Format and Frame are views on the array,
+ * so building this allocates only the array and a few small views.
+ * [format count]
+ * each format: [bDescriptorSubtype, bFormatIndex, bDefaultFrameIndex, frame count]
+ * each frame: [bDescriptorSubtype, wWidth, wHeight, dwDefaultFrameInterval, bFrameIntervalType,
+ *      dwMinFrameInterval, dwMaxFrameInterval, dwFrameIntervalStep, interval count, intervals...]
+ * Only YUYV and MJPEG formats are kept, frames are sorted by size and intervals are sorted ascending.
+ */
 public class UVCSize implements Parcelable {
     private static final int FORMAT_DESC_TYPE_UNCOMPRESSED = 4;
     private static final int FORMAT_DESC_TYPE_MJPEG = 6;
+    // upper limits of counts in binary catalog to reject broken data
+    private static final int MAX_BINARY_COUNT = 1024;
+    private static final int MAX_BINARY_LENGTH = 1024 * 1024;
+
+    // offsets in format header
+    private static final int FORMAT_SUBTYPE = 0;
+    private static final int FORMAT_INDEX = 1;
+    private static final int FORMAT_DEFAULT_FRAME_INDEX = 2;
+    private static final int FORMAT_FRAME_COUNT = 3;
+    private static final int FORMAT_HEADER = 4;
+    // offsets in frame header
+    private static final int FRAME_SUBTYPE = 0;
+    private static final int FRAME_WIDTH = 1;
+    private static final int FRAME_HEIGHT = 2;
+    private static final int FRAME_DEFAULT_INTERVAL = 3;
+    private static final int FRAME_INTERVAL_TYPE = 4;
+    private static final int FRAME_MIN_INTERVAL = 5;
+    private static final int FRAME_MAX_INTERVAL = 6;
+    private static final int FRAME_INTERVAL_STEP = 7;
+    private static final int FRAME_INTERVAL_COUNT = 8;
+    private static final int FRAME_HEADER = 9;
 
     public static class Frame implements Parcelable, Comparable {
-        private int bDescriptorSubtype;
-        private int wWidth;
-        private int wHeight;
-        private int dwDefaultFrameInterval;
-        private int bFrameIntervalType;
-        private int dwMinFrameInterval;
-        private int dwMaxFrameInterval;
-        private int dwFrameIntervalStep;
-        private ArrayList<Integer> intervals;
-
-        public Frame(
-                int _bDescriptorSubtype,
-                int _wWidth,
-                int _wHeight,
-                int _dwDefaultFrameInterval,
-                int _bFrameIntervalType,
-                int _dwMinFrameInterval,
-                int _dwMaxFrameInterval,
-                int _dwFrameIntervalStep) {
-            bDescriptorSubtype = _bDescriptorSubtype;
-            wWidth = _wWidth;
-            wHeight = _wHeight;
-            dwDefaultFrameInterval = _dwDefaultFrameInterval;
-            bFrameIntervalType = _bFrameIntervalType;
-            dwMinFrameInterval = _dwMinFrameInterval;
-            dwMaxFrameInterval = _dwMaxFrameInterval;
-            dwFrameIntervalStep = _dwFrameIntervalStep;
+        private final int[] mData;
+        private final int mOffset;
+
+        private Frame(int[] data, int offset) {
+            mData = data;
+            mOffset = offset;
         }
 
         public Frame(Parcel parcel) {
-            bDescriptorSubtype = parcel.readInt();
-            wWidth = parcel.readInt();
-            wHeight = parcel.readInt();
-            dwDefaultFrameInterval = parcel.readInt();
-            bFrameIntervalType = parcel.readInt();
-            dwMinFrameInterval = parcel.readInt();
-            dwMaxFrameInterval = parcel.readInt();
-            dwFrameIntervalStep = parcel.readInt();
-            intervals = parcel.readArrayList(Integer.class.getClassLoader());
+            this(checkFrameArray(parcel.createIntArray()), 0);
         }
 
         public static final Creator<Frame> CREATOR = new Creator<Frame>() {
@@ -70,47 +74,61 @@ public class UVCSize implements Parcelable {
         };
 
         public int getDescriptorSubtype() {
-            return bDescriptorSubtype;
+            return mData[mOffset + FRAME_SUBTYPE];
         }
 
         public int getWidth() {
-            return wWidth;
+            return mData[mOffset + FRAME_WIDTH];
         }
 
         public int getHeight() {
-            return wHeight;
+            return mData[mOffset + FRAME_HEIGHT];
         }
 
         public int getDefaultFrameInterval() {
-            return dwDefaultFrameInterval;
+            return mData[mOffset + FRAME_DEFAULT_INTERVAL];
         }
 
         public int getFrameIntervalType() {
-            return bFrameIntervalType;
+            return mData[mOffset + FRAME_INTERVAL_TYPE];
         }
 
         public int getMinFrameInterval() {
-            return dwMinFrameInterval;
+            return mData[mOffset + FRAME_MIN_INTERVAL];
         }
 
         public int getMaxFrameInterval() {
-            return dwMaxFrameInterval;
+            return mData[mOffset + FRAME_MAX_INTERVAL];
         }
 
         public int getFrameIntervalStep() {
-            return dwFrameIntervalStep;
+            return mData[mOffset + FRAME_INTERVAL_STEP];
+        }
+
+        public int getIntervalCount() {
+            return mData[mOffset + FRAME_INTERVAL_COUNT];
         }
 
         public int getInterval(int index) {
-            if (index < intervals.size()) {
-                return intervals.get(index);
+            if ((index >= 0) && (index < getIntervalCount())) {
+                return mData[mOffset + FRAME_HEADER + index];
             } else {
                 throw new IndexOutOfBoundsException();
             }
         }
 
+        /**
+         * copy intervals into the array
+         * @param intervals should have getIntervalCount() elements or more
+         * @return intervals
+         */
+        public int[] getIntervals(int[] intervals) {
+            System.arraycopy(mData, mOffset + FRAME_HEADER, intervals, 0, getIntervalCount());
+            return intervals;
+        }
+
         public String getResolutionString() {
-            return getResolutionString(wWidth, wHeight);
+            return getResolutionString(getWidth(), getHeight());
         }
 
         public static String getResolutionString(int width, int height) {
@@ -118,37 +136,42 @@ public class UVCSize implements Parcelable {
         }
 
         public CharSequence[] getIntervalCharSeq() {
-            int size = intervals.size();
+            int size = getIntervalCount();
             CharSequence[] result = new CharSequence[size];
 
             for (int i = 0; i < size; i++) {
-                result[i] = intervals.get(i).toString();
+                result[i] = Integer.toString(mData[mOffset + FRAME_HEADER + i]);
             }
 
             return result;
         }
 
         public int findInterval(int framerate) {
-            for (int i = 0; i < intervals.size(); i++) {
-                if (framerate == intervals.get(i)) {
+            final int size = getIntervalCount();
+            for (int i = 0; i < size; i++) {
+                if (framerate == mData[mOffset + FRAME_HEADER + i]) {
                     return i;
                 }
             }
             return 0;
         }
 
+        private int getLength() {
+            return FRAME_HEADER + getIntervalCount();
+        }
+
         @Override
         public String toString() {
             return "Frame{" +
-                    "bDescriptorSubtype=" + bDescriptorSubtype +
-                    ", wWidth=" + wWidth +
-                    ", wHeight=" + wHeight +
-                    ", dwDefaultFrameInterval=" + dwDefaultFrameInterval +
-                    ", bFrameIntervalType=" + bFrameIntervalType +
-                    ", dwMinFrameInterval=" + dwMinFrameInterval +
-                    ", dwMaxFrameInterval=" + dwMaxFrameInterval +
-                    ", dwFrameIntervalStep=" + dwFrameIntervalStep +
-                    ", intervals=" + intervals +
+                    "bDescriptorSubtype=" + getDescriptorSubtype() +
+                    ", wWidth=" + getWidth() +
+                    ", wHeight=" + getHeight() +
+                    ", dwDefaultFrameInterval=" + getDefaultFrameInterval() +
+                    ", bFrameIntervalType=" + getFrameIntervalType() +
+                    ", dwMinFrameInterval=" + getMinFrameInterval() +
+                    ", dwMaxFrameInterval=" + getMaxFrameInterval() +
+                    ", dwFrameIntervalStep=" + getFrameIntervalStep() +
+                    ", intervals=" + Arrays.toString(getIntervals(new int[getIntervalCount()])) +
                     '}';
         }
 
@@ -159,23 +182,15 @@ public class UVCSize implements Parcelable {
 
         @Override
         public void writeToParcel(Parcel dest, int flags) {
-            dest.writeInt(bDescriptorSubtype);
-            dest.writeInt(wWidth);
-            dest.writeInt(wHeight);
-            dest.writeInt(dwDefaultFrameInterval);
-            dest.writeInt(bFrameIntervalType);
-            dest.writeInt(dwMinFrameInterval);
-            dest.writeInt(dwMaxFrameInterval);
-            dest.writeInt(dwFrameIntervalStep);
-            dest.writeArray(intervals.toArray());
+            dest.writeIntArray(Arrays.copyOfRange(mData, mOffset, mOffset + getLength()));
         }
 
         @Override
         public int compareTo(Object o) {
-            int result = Integer.compare(wWidth, ((Frame) o).wWidth);
+            int result = Integer.compare(getWidth(), ((Frame) o).getWidth());
 
             if (result == 0) {
-                return Integer.compare(wHeight, ((Frame) o).wHeight);
+                return Integer.compare(getHeight(), ((Frame) o).getHeight());
             } else {
                 return result;
             }
@@ -183,22 +198,25 @@ public class UVCSize implements Parcelable {
     }
 
     public static class Format implements Parcelable, Comparable {
-        private int bDescriptorSubtype;
-        private int bFormatIndex;
-        private int bDefaultFrameIndex;
-        private ArrayList<Frame> frameDescs;
-
-        public Format(int _bDescriptorSubtype, int _bFormatIndex, int _bDefaultFrameIndex) {
-            bDescriptorSubtype = _bDescriptorSubtype;
-            bFormatIndex = _bFormatIndex;
-            bDefaultFrameIndex = _bDefaultFrameIndex;
+        private final int[] mData;
+        private final int mOffset;
+        private final Frame[] mFrames;
+        private final int mLength;
+
+        private Format(int[] data, int offset) {
+            mData = data;
+            mOffset = offset;
+            mFrames = new Frame[data[offset + FORMAT_FRAME_COUNT]];
+            int p = offset + FORMAT_HEADER;
+            for (int i = 0; i < mFrames.length; i++) {
+                mFrames[i] = new Frame(data, p);
+                p += mFrames[i].getLength();
+            }
+            mLength = p - offset;
         }
 
         public Format(Parcel parcel) {
-            bDescriptorSubtype = parcel.readInt();
-            bFormatIndex = parcel.readInt();
-            bDefaultFrameIndex = parcel.readInt();
-            frameDescs = parcel.readArrayList(Frame.class.getClassLoader());
+            this(checkFormatArray(parcel.createIntArray()), 0);
         }
 
         public static final Creator<Format> CREATOR = new Creator<Format>() {
@@ -214,11 +232,11 @@ public class UVCSize implements Parcelable {
         };
 
         public int getDescriptorSubtype() {
-            return bDescriptorSubtype;
+            return mData[mOffset + FORMAT_SUBTYPE];
         }
 
         public int getFrameFormat() {
-            switch (bDescriptorSubtype) {
+            switch (getDescriptorSubtype()) {
                 case FORMAT_DESC_TYPE_UNCOMPRESSED:
                     return UVCCamera.FRAME_FORMAT_YUYV;
                 case FORMAT_DESC_TYPE_MJPEG:
@@ -239,7 +257,7 @@ public class UVCSize implements Parcelable {
         }
 
         public String getTypeString() {
-            switch (bDescriptorSubtype) {
+            switch (getDescriptorSubtype()) {
                 case FORMAT_DESC_TYPE_UNCOMPRESSED:
                     return "YUYV";
                 case FORMAT_DESC_TYPE_MJPEG:
@@ -261,36 +279,39 @@ public class UVCSize implements Parcelable {
         }
 
         public int getFormatIndex() {
-            return bFormatIndex;
+            return mData[mOffset + FORMAT_INDEX];
         }
 
         public int getDefaultFrameIndex() {
-            return bDefaultFrameIndex;
+            return mData[mOffset + FORMAT_DEFAULT_FRAME_INDEX];
+        }
+
+        public int getFrameCount() {
+            return mFrames.length;
         }
 
         public Frame getFrame(int index) {
-            if (index < frameDescs.size()) {
-                return frameDescs.get(index);
+            if ((index >= 0) && (index < mFrames.length)) {
+                return mFrames[index];
             } else {
                 throw new IndexOutOfBoundsException();
             }
         }
 
         public CharSequence[] getFrameResCharSeq() {
-            int size = frameDescs.size();
+            int size = mFrames.length;
             CharSequence[] result = new CharSequence[size];
 
             for (int i = 0; i < size; i++) {
-                Frame frame = frameDescs.get(i);
-                result[i] = frame.getResolutionString();
+                result[i] = mFrames[i].getResolutionString();
             }
 
             return result;
         }
 
         public int findFrame(String resolution) {
-            for (int i = 0; i < frameDescs.size(); i++) {
-                if (resolution.equals(frameDescs.get(i).getResolutionString())) {
+            for (int i = 0; i < mFrames.length; i++) {
+                if (resolution.equals(mFrames[i].getResolutionString())) {
                     return i;
                 }
             }
@@ -300,10 +321,10 @@ public class UVCSize implements Parcelable {
         @Override
         public String toString() {
             return "Format{" +
-                    "bDescriptorSubtype=" + bDescriptorSubtype +
-                    ", bFormatIndex=" + bFormatIndex +
-                    ", bDefaultFrameIndex=" + bDefaultFrameIndex +
-                    ", frameDescs=" + frameDescs +
+                    "bDescriptorSubtype=" + getDescriptorSubtype() +
+                    ", bFormatIndex=" + getFormatIndex() +
+                    ", bDefaultFrameIndex=" + getDefaultFrameIndex() +
+                    ", frameDescs=" + Arrays.toString(mFrames) +
                     '}';
         }
 
@@ -314,32 +335,53 @@ public class UVCSize implements Parcelable {
 
         @Override
         public void writeToParcel(Parcel dest, int flags) {
-            dest.writeInt(bDescriptorSubtype);
-            dest.writeInt(bFormatIndex);
-            dest.writeInt(bDefaultFrameIndex);
-            dest.writeArray(frameDescs.toArray());
+            dest.writeIntArray(Arrays.copyOfRange(mData, mOffset, mOffset + mLength));
         }
 
         @Override
         public int compareTo(Object o) {
-            return (Integer.compare(bFormatIndex, ((Format) o).bFormatIndex));
+            return (Integer.compare(getFormatIndex(), ((Format) o).getFormatIndex()));
         }
 
     }
 
-    private ArrayList<Format> mFormats;
+    private final int[] mData;
+    private final Format[] mFormats;
 
+    /**
+     * @param jsonString JSON string of UVCCamera#getSupportedSize
+     */
     public UVCSize(String jsonString) {
-        mFormats = new ArrayList<Format>();
+        this(normalize(parseJson(jsonString)), true);
+    }
 
-        if (!TextUtils.isEmpty(jsonString)) {
-            try {
-                final JSONObject json = new JSONObject(jsonString);
-                final JSONArray formats = json.getJSONArray("formats");
-                mFormats.addAll(parseFormat(formats));
-            } catch (Exception e) {
-                e.printStackTrace();
-            }
+    /**
+     * @param values values in the binary layout that native code fills,
+     *          formats other than YUYV and MJPEG are removed and frames/intervals are sorted
+     * @throws IllegalArgumentException if the values are broken
+     */
+    public UVCSize(int[] values) {
+        this(normalize(values), true);
+    }
+
+    public UVCSize(Parcel parcel) {
+        this(parcel.createIntArray(), true);
+    }
+
+    /**
+     * @param data normalized values
+     * @param check whether check the values are in the range of the array
+     */
+    private UVCSize(int[] data, boolean check) {
+        if (check) {
+            checkSize(data);
+        }
+        mData = data;
+        mFormats = new Format[data[0]];
+        int p = 1;
+        for (int i = 0; i < mFormats.length; i++) {
+            mFormats[i] = new Format(data, p);
+            p += mFormats[i].mLength;
         }
     }
 
@@ -355,85 +397,244 @@ public class UVCSize implements Parcelable {
         }
     };
 
-    private boolean isSupportedSubType(int type) {
+    private static boolean isSupportedSubType(int type) {
         return (type == FORMAT_DESC_TYPE_UNCOMPRESSED || type == FORMAT_DESC_TYPE_MJPEG);
     }
 
-    private ArrayList<Format> parseFormat(JSONArray formats) {
-        ArrayList<Format> result = new ArrayList<Format>();
+    /**
+     * convert JSON string into the binary layout, formats that failed to parse are skipped
+     */
+    private static int[] parseJson(String jsonString) {
+        int[] result = new int[256];
+        int n = 1;
+        int formatCount = 0;
 
-        try {
-            for (int i = 0; i < formats.length(); i++) {
-                JSONObject jsonFormat = formats.getJSONObject(i);
-
-                if (isSupportedSubType(jsonFormat.getInt("bDescriptorSubtype"))) {
-                    JSONArray jsonFrames = jsonFormat.getJSONArray("frame_descs");
-                    Format format = new Format(
-                            jsonFormat.getInt("bDescriptorSubtype"),
-                            jsonFormat.getInt("bFormatIndex"),
-                            jsonFormat.getInt("bDefaultFrameIndex")
-                    );
-                    format.frameDescs = new ArrayList<Frame>(parseFrame(jsonFrames));
-                    Collections.sort(format.frameDescs);
-                    result.add(format);
+        if (!TextUtils.isEmpty(jsonString)) {
+            try {
+                final JSONArray formats = new JSONObject(jsonString).getJSONArray("formats");
+                for (int i = 0; i < formats.length(); i++) {
+                    final int start = n;
+                    try {
+                        final JSONObject jsonFormat = formats.getJSONObject(i);
+                        final JSONArray jsonFrames = jsonFormat.getJSONArray("frame_descs");
+                        result = ensure(result, n + FORMAT_HEADER);
+                        result[n + FORMAT_SUBTYPE] = jsonFormat.getInt("bDescriptorSubtype");
+                        result[n + FORMAT_INDEX] = jsonFormat.getInt("bFormatIndex");
+                        result[n + FORMAT_DEFAULT_FRAME_INDEX] = jsonFormat.getInt("bDefaultFrameIndex");
+                        result[n + FORMAT_FRAME_COUNT] = jsonFrames.length();
+                        n += FORMAT_HEADER;
+                        for (int j = 0; j < jsonFrames.length(); j++) {
+                            final JSONObject jsonFrame = jsonFrames.getJSONObject(j);
+                            final int intervalType = jsonFrame.getInt("bFrameIntervalType");
+                            final boolean isDiscreteInterval = intervalType > 0;
+                            final JSONArray jsonIntervals = isDiscreteInterval
+                                    ? jsonFrame.getJSONArray("intervals") : null;
+                            final int intervalCount = isDiscreteInterval ? intervalType : 0;
+                            result = ensure(result, n + FRAME_HEADER + intervalCount);
+                            result[n + FRAME_SUBTYPE] = jsonFrame.getInt("bDescriptorSubtype");
+                            result[n + FRAME_WIDTH] = jsonFrame.getInt("wWidth");
+                            result[n + FRAME_HEIGHT] = jsonFrame.getInt("wHeight");
+                            result[n + FRAME_DEFAULT_INTERVAL] = jsonFrame.getInt("dwDefaultFrameInterval");
+                            result[n + FRAME_INTERVAL_TYPE] = intervalType;
+                            result[n + FRAME_MIN_INTERVAL] = isDiscreteInterval ? 0 : jsonFrame.getInt("dwMinFrameInterval");
+                            result[n + FRAME_MAX_INTERVAL] = isDiscreteInterval ? 0 : jsonFrame.getInt("dwMaxFrameInterval");
+                            result[n + FRAME_INTERVAL_STEP] = isDiscreteInterval ? 0 : jsonFrame.getInt("dwFrameIntervalStep");
+                            result[n + FRAME_INTERVAL_COUNT] = intervalCount;
+                            for (int k = 0; k < intervalCount; k++) {
+                                result[n + FRAME_HEADER + k] = jsonIntervals.getInt(k);
+                            }
+                            n += FRAME_HEADER + intervalCount;
+                        }
+                        formatCount++;
+                    } catch (Exception e) {
+                        e.printStackTrace();
+                        n = start;
+                    }
                 }
+            } catch (Exception e) {
+                e.printStackTrace();
             }
-        } catch (Exception e) {
-            e.printStackTrace();
         }
+        result[0] = formatCount;
 
         return result;
     }
 
-    private ArrayList<Frame> parseFrame(JSONArray frames) {
-        ArrayList<Frame> result = new ArrayList<Frame>();
+    private static int[] ensure(int[] array, int length) {
+        return length <= array.length ? array : Arrays.copyOf(array, Math.max(length, array.length * 2));
+    }
 
-        try {
-            for (int i = 0; i < frames.length(); i++) {
-                JSONObject jsonFrame = frames.getJSONObject(i);
-                JSONArray jsonIntervals = jsonFrame.getJSONArray("intervals");
-                Boolean isDiscreteInterval = (jsonFrame.getInt("bFrameIntervalType") > 0);
-                Frame frame = new Frame(
-                        jsonFrame.getInt("bDescriptorSubtype"),
-                        jsonFrame.getInt("wWidth"),
-                        jsonFrame.getInt("wHeight"),
-                        jsonFrame.getInt("dwDefaultFrameInterval"),
-                        jsonFrame.getInt("bFrameIntervalType"),
-                        (isDiscreteInterval) ? 0 : jsonFrame.getInt("dwMinFrameInterval"),
-                        (isDiscreteInterval) ? 0 : jsonFrame.getInt("dwMaxFrameInterval"),
-                        (isDiscreteInterval) ? 0 : jsonFrame.getInt("dwFrameIntervalStep")
-                );
-                frame.intervals = new ArrayList<Integer>();
-                if (isDiscreteInterval) {
-                    for (int j = 0; j < frame.bFrameIntervalType; j++) {
-                        frame.intervals.add(jsonIntervals.getInt(j));
-                    }
-                    Collections.sort(frame.intervals);
-                }
-                result.add(frame);
+    /**
+     * remove unsupported formats, sort frames by size and sort intervals ascending
+     * @param values
+     * @return new array
+     * @throws IllegalArgumentException if the values are broken
+     */
+    private static int[] normalize(int[] values) {
+        checkSize(values);
+        final int[] result = new int[values.length];
+        int n = 1;
+        int formatCount = 0;
+        int p = 1;
+
+        for (int i = 0; i < values[0]; i++) {
+            final int format = p;
+            final int[] frames = new int[values[format + FORMAT_FRAME_COUNT]];
+            p += FORMAT_HEADER;
+            for (int j = 0; j < frames.length; j++) {
+                frames[j] = p;
+                p += FRAME_HEADER + values[p + FRAME_INTERVAL_COUNT];
+            }
+            if (!isSupportedSubType(values[format + FORMAT_SUBTYPE])) {
+                continue;
             }
-        } catch (Exception e) {
-            e.printStackTrace();
+            sortFrames(values, frames);
+            System.arraycopy(values, format, result, n, FORMAT_HEADER);
+            n += FORMAT_HEADER;
+            for (int offset : frames) {
+                final int length = FRAME_HEADER + values[offset + FRAME_INTERVAL_COUNT];
+                System.arraycopy(values, offset, result, n, length);
+                Arrays.sort(result, n + FRAME_HEADER, n + length);
+                n += length;
+            }
+            formatCount++;
         }
+        result[0] = formatCount;
 
-        return result;
+        return n < result.length ? Arrays.copyOf(result, n) : result;
     }
 
-    public UVCSize(Parcel parcel) {
-        mFormats = parcel.readArrayList(Format.class.getClassLoader());
+    /**
+     * stable insertion sort of frame offsets by width and height, number of frames is small
+     */
+    private static void sortFrames(int[] values, int[] frames) {
+        for (int i = 1; i < frames.length; i++) {
+            final int offset = frames[i];
+            int j = i - 1;
+            for (; (j >= 0) && (compareFrame(values, frames[j], offset) > 0); j--) {
+                frames[j + 1] = frames[j];
+            }
+            frames[j + 1] = offset;
+        }
+    }
+
+    private static int compareFrame(int[] values, int a, int b) {
+        final int result = Integer.compare(values[a + FRAME_WIDTH], values[b + FRAME_WIDTH]);
+        return result != 0 ? result : Integer.compare(values[a + FRAME_HEIGHT], values[b + FRAME_HEIGHT]);
+    }
+
+    /**
+     * check all formats and frames are in the range of the array
+     * @return values
+     * @throws IllegalArgumentException if the values are broken
+     */
+    private static int[] checkSize(int[] values) {
+        if ((values == null) || (values.length < 1)) {
+            throw new IllegalArgumentException("broken catalog:empty");
+        }
+        final int formatCount = checkCount(values[0]);
+        int p = 1;
+        for (int i = 0; i < formatCount; i++) {
+            p = checkFormat(values, p);
+        }
+        return values;
+    }
+
+    /**
+     * @return offset of the next format
+     */
+    private static int checkFormat(int[] values, int offset) {
+        if ((values == null) || (offset + FORMAT_HEADER > values.length)) {
+            throw new IllegalArgumentException("broken catalog:format");
+        }
+        final int frameCount = checkCount(values[offset + FORMAT_FRAME_COUNT]);
+        int p = offset + FORMAT_HEADER;
+        for (int j = 0; j < frameCount; j++) {
+            p = checkFrame(values, p);
+        }
+        return p;
+    }
+
+    /**
+     * @return offset of the next frame
+     */
+    private static int checkFrame(int[] values, int offset) {
+        if ((values == null) || (offset + FRAME_HEADER > values.length)) {
+            throw new IllegalArgumentException("broken catalog:frame");
+        }
+        final int next = offset + FRAME_HEADER + checkCount(values[offset + FRAME_INTERVAL_COUNT]);
+        if (next > values.length) {
+            throw new IllegalArgumentException("broken catalog:intervals");
+        }
+        return next;
+    }
+
+    private static int[] checkFormatArray(int[] values) {
+        checkFormat(values, 0);
+        return values;
+    }
+
+    private static int[] checkFrameArray(int[] values) {
+        checkFrame(values, 0);
+        return values;
+    }
+
+    private static int checkCount(int count) {
+        if ((count < 0) || (count > MAX_BINARY_COUNT)) {
+            throw new IllegalArgumentException("broken catalog:count=" + count);
+        }
+        return count;
+    }
+
+    /**
+     * write this catalog in binary, this is read back by #read without JSON parsing
+     * @param out
+     * @throws IOException
+     */
+    void write(DataOutput out) throws IOException {
+        out.writeInt(mData.length);
+        for (int value : mData) {
+            out.writeInt(value);
+        }
+    }
+
+    /**
+     * read catalog written by #write
+     * @param in
+     * @return
+     * @throws IOException if the data is broken
+     */
+    static UVCSize read(DataInput in) throws IOException {
+        final int length = in.readInt();
+        if ((length < 1) || (length > MAX_BINARY_LENGTH)) {
+            throw new IOException("broken catalog:length=" + length);
+        }
+        final int[] data = new int[length];
+        for (int i = 0; i < length; i++) {
+            data[i] = in.readInt();
+        }
+        try {
+            return new UVCSize(data, true);
+        } catch (IllegalArgumentException e) {
+            throw new IOException(e.getMessage());
+        }
+    }
+
+    public int getFormatCount() {
+        return mFormats.length;
     }
 
     public Format getFormat(int index) {
-        if (index < mFormats.size()) {
-            return mFormats.get(index);
+        if ((index >= 0) && (index < mFormats.length)) {
+            return mFormats[index];
         } else {
             throw new IndexOutOfBoundsException();
         }
     }
 
     public int findFrameFormat(int frameFormat) {
-        for (int i = 0; i < mFormats.size(); i++) {
-            if (frameFormat == mFormats.get(i).getFrameFormat()) {
+        for (int i = 0; i < mFormats.length; i++) {
+            if (frameFormat == mFormats[i].getFrameFormat()) {
                 return i;
             }
         }
@@ -441,11 +642,11 @@ public class UVCSize implements Parcelable {
     }
 
     public CharSequence[] getFormatCharSeq() {
-        int size = mFormats.size();
+        int size = mFormats.length;
         CharSequence[] result = new CharSequence[size];
 
         for (int i = 0; i < size; i++) {
-            result[i] = mFormats.get(i).getTypeString();
+            result[i] = mFormats[i].getTypeString();
         }
 
         return result;
@@ -454,7 +655,7 @@ public class UVCSize implements Parcelable {
     @Override
     public String toString() {
         return "UVCSize{" +
-                "mFormats=" + mFormats +
+                "mFormats=" + Arrays.toString(mFormats) +
                 '}';
     }
 
@@ -465,6 +666,6 @@ public class UVCSize implements Parcelable {
 
     @Override
     public void writeToParcel(Parcel dest, int flags) {
-        dest.writeArray(mFormats.toArray());
+        dest.writeIntArray(mData);
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,232 @@
+/*
+ *  UVCCamera
+ *  library and sample to access to UVC web camera on non-rooted Android device
+ *
+ * Copyright (c) 2014-2017 saki t_saki@serenegiant.com
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ *
+ *  All files in the folder are under this Apache License, Version 2.0.
+ *  Files in the libjpeg-turbo, libusb, libuvc, rapidjson folder
+ *  may have a different license, see the respective files.
+ */
+
+package com.serenegiant.usb;
+
+import android.text.TextUtils;
+import android.util.Log;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.zip.CRC32;
+
+/**
+ * Cache of supported formats(UVCSize) for each device, in memory and optionally on disk,
+ * so reopening a known camera skips building the catalog in native code and parsing its JSON.
+ * Entries are keyed by vendor id, product id, serial number and bcdDevice
+ * and are valid only while the hash of raw USB descriptors matches,
+ * so a firmware update or a different configuration re-creates the entry.
+ * Set an instance with UVCCamera#setSupportedSizeCache, by default it is kept in memory only.
+ */
+public class UVCSizeCache {
+	private static final boolean DEBUG = false;
+	private static final String TAG = UVCSizeCache.class.getSimpleName();
+
+	private static final int FILE_MAGIC = 0x55565343;	// "UVSC"
+	private static final int FILE_VERSION = 2;
+	private static final String FILE_EXT = ".bin";
+
+	private static class Entry {
+		private final long mHash;
+		private final UVCSize mSize;
+
+		private Entry(final long hash, final UVCSize size) {
+			mHash = hash;
+			mSize = size;
+		}
+	}
+
+	private final Map<String, Entry> mEntries = new HashMap<String, Entry>();
+	private final File mCacheDir;
+	private int mHitCount, mMissCount;
+
+	/**
+	 * @param cacheDir directory to keep entries over process restarts, null to keep them only in memory
+	 */
+	public UVCSizeCache(final File cacheDir) {
+		mCacheDir = cacheDir;
+	}
+
+	/**
+	 * get key of the device
+	 * @param vendorId
+	 * @param productId
+	 * @param serial serial number, can be null
+	 * @param version bcdDevice as string, can be null
+	 * @return
+	 */
+	public static String getKey(final int vendorId, final int productId,
+		final String serial, final String version) {
+
+		return String.format(Locale.US, "%04x-%04x-%s-%s", vendorId, productId,
+			TextUtils.isEmpty(serial) ? "" : serial, TextUtils.isEmpty(version) ? "" : version);
+	}
+
+	/**
+	 * get hash of raw USB descriptors(UsbDeviceConnection#getRawDescriptors)
+	 * @param rawDescriptors
+	 * @return
+	 */
+	public static long hashDescriptors(final byte[] rawDescriptors) {
+		final CRC32 crc = new CRC32();
+		crc.update(rawDescriptors, 0, rawDescriptors.length);
+		return ((long)rawDescriptors.length << 32) | crc.getValue();
+	}
+
+	/**
+	 * get cached catalog, this reads it from disk if it is not in memory yet
+	 * @param key
+	 * @param hash hash of raw descriptors
+	 * @return null if not cached or the descriptors changed
+	 */
+	public synchronized UVCSize get(final String key, final long hash) {
+		Entry entry = mEntries.get(key);
+		if ((entry == null) && (mCacheDir != null)) {
+			entry = load(key);
+			if (entry != null) {
+				mEntries.put(key, entry);
+			}
+		}
+		if ((entry != null) && (entry.mHash == hash)) {
+			mHitCount++;
+			return entry.mSize;
+		}
+		mMissCount++;
+		return null;
+	}
+
+	/**
+	 * add catalog to the cache and write it to disk
+	 * @param key
+	 * @param hash hash of raw descriptors
+	 * @param size
+	 */
+	public synchronized void put(final String key, final long hash, final UVCSize size) {
+		if (size == null) throw new NullPointerException("size should not be null");
+		mEntries.put(key, new Entry(hash, size));
+		if (mCacheDir != null) {
+			save(key, hash, size);
+		}
+	}
+
+	/**
+	 * remove the entry from memory and disk
+	 * @param key
+	 */
+	public synchronized void remove(final String key) {
+		mEntries.remove(key);
+		if (mCacheDir != null) {
+			getFile(key).delete();
+		}
+	}
+
+	/**
+	 * remove all entries from memory and disk
+	 */
+	public synchronized void clear() {
+		mEntries.clear();
+		final File[] files = mCacheDir != null ? mCacheDir.listFiles() : null;
+		if (files != null) {
+			for (final File file: files) {
+				if (file.getName().endsWith(FILE_EXT)) {
+					file.delete();
+				}
+			}
+		}
+	}
+
+	public synchronized int getHitCount() {
+		return mHitCount;
+	}
+
+	public synchronized int getMissCount() {
+		return mMissCount;
+	}
+
+	private File getFile(final String key) {
+		// serial number may contain any character
+		return new File(mCacheDir, key.replaceAll("[^A-Za-z0-9._-]", "_") + FILE_EXT);
+	}
+
+	private Entry load(final String key) {
+		final File file = getFile(key);
+		if (!file.isFile()) return null;
+		try {
+			final DataInputStream in = new DataInputStream(
+				new BufferedInputStream(new FileInputStream(file)));
+			try {
+				if ((in.readInt() != FILE_MAGIC) || (in.readInt() != FILE_VERSION)
+					|| !key.equals(in.readUTF())) {
+
+					return null;
+				}
+				final long hash = in.readLong();
+				return new Entry(hash, UVCSize.read(in));
+			} finally {
+				in.close();
+			}
+		} catch (final IOException e) {
+			if (DEBUG) Log.w(TAG, e);
+			file.delete();
+		}
+		return null;
+	}
+
+	private void save(final String key, final long hash, final UVCSize size) {
+		if (!mCacheDir.isDirectory() && !mCacheDir.mkdirs()) {
+			Log.w(TAG, "could not create cache directory:" + mCacheDir);
+			return;
+		}
+		final File file = getFile(key);
+		// write to temporary file and rename it not to leave broken entry
+		final File temp = new File(mCacheDir, file.getName() + ".tmp");
+		try {
+			final DataOutputStream out = new DataOutputStream(
+				new BufferedOutputStream(new FileOutputStream(temp)));
+			try {
+				out.writeInt(FILE_MAGIC);
+				out.writeInt(FILE_VERSION);
+				out.writeUTF(key);
+				out.writeLong(hash);
+				size.write(out);
+			} finally {
+				out.close();
+			}
+			if (!temp.renameTo(file)) {
+				throw new IOException("could not rename to " + file);
+			}
+		} catch (final IOException e) {
+			Log.w(TAG, e);
+			temp.delete();
+		}
+	}
+}
@@ -35,6 +35,7 @@ CFLAGS := -Werror
 
 LOCAL_C_INCLUDES := \
 		$(LOCAL_PATH)/ \
+		$(LOCAL_PATH)/pipeline \
 		$(LOCAL_PATH)/../ \
 		$(LOCAL_PATH)/../rapidjson/include \
 
@@ -57,10 +58,22 @@ LOCAL_SRC_FILES := \
 		utilbase.cpp \
 		UVCCamera.cpp \
 		UVCPreview.cpp \
+		FrameStats.cpp \
+		DecodeWorkers.cpp \
 		UVCButtonCallback.cpp \
 		UVCStatusCallback.cpp \
 		Parameters.cpp \
-		serenegiant_usb_UVCCamera.cpp
+		serenegiant_usb_UVCCamera.cpp \
+		pipeline/common_utils.cpp \
+		pipeline/pipeline_helper.cpp \
+		pipeline/IPipeline.cpp \
+		pipeline/AbstractBufferedPipeline.cpp \
+		pipeline/CaptureBasePipeline.cpp \
+		pipeline/SimpleBufferedPipeline.cpp \
+		pipeline/CallbackPipeline.cpp \
+		pipeline/ConvertPipeline.cpp \
+		pipeline/PreviewPipeline.cpp \
+		pipeline/DistributePipeline.cpp
 
 LOCAL_MODULE    := UVCCamera
 include $(BUILD_SHARED_LIBRARY)
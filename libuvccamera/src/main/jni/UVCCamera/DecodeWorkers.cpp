@@ -0,0 +1,275 @@
+/*
+ * UVCCamera
+ * library and sample to access to UVC web camera on non-rooted Android device
+ *
+ * Copyright (c) 2014-2017 saki t_saki@serenegiant.com
+ *
+ * File name: DecodeWorkers.cpp
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ * All files in the folder are under this Apache License, Version 2.0.
+ * Files in the jni/libjpeg, jni/libusb, jin/libuvc, jni/rapidjson folder may have a different license, see the respective files.
+*/
+
+#include <stdlib.h>
+
+#if 1	// set 1 if you don't need debug log
+	#ifndef LOG_NDEBUG
+		#define	LOG_NDEBUG		// w/o LOGV/LOGD/MARK
+	#endif
+	#undef USE_LOGALL
+#else
+	#define USE_LOGALL
+	#undef LOG_NDEBUG
+//	#undef NDEBUG
+#endif
+
+#include "utilbase.h"
+#include "DecodeWorkers.h"
+#include "UVCPreview.h"
+
+DecodeWorkers::DecodeWorkers(UVCPreview *parent)
+:	mParent(parent),
+	mThreads(NULL),
+	mThreadNum(0),
+	mSlots(NULL),
+	mWindow(0),
+	mNextTicket(0),
+	mNextJob(0),
+	mNextOutput(0),
+	mIsRunning(false) {
+
+	ENTER();
+	pthread_mutex_init(&mMutex, NULL);
+	pthread_cond_init(&mJobSync, NULL);
+	pthread_cond_init(&mDoneSync, NULL);
+	EXIT();
+}
+
+DecodeWorkers::~DecodeWorkers() {
+	ENTER();
+	stop();
+	pthread_cond_destroy(&mDoneSync);
+	pthread_cond_destroy(&mJobSync);
+	pthread_mutex_destroy(&mMutex);
+	EXIT();
+}
+
+/**
+ * start worker threads
+ * @param threads number of decode threads, at least 1
+ * @param window max number of frames in flight including decoded frames not returned yet,
+ * 			at least threads
+ */
+int DecodeWorkers::start(const int threads, const int window) {
+	ENTER();
+
+	if (UNLIKELY(mIsRunning || (threads <= 0) || (window < threads))) {
+		RETURN(UVC_ERROR_INVALID_PARAM, int);
+	}
+	mWindow = window;
+	mSlots = new slot_t[window];
+	for (int i = 0; i < window; i++) {
+		mSlots[i].in = mSlots[i].out = NULL;
+		mSlots[i].state = SLOT_EMPTY;
+	}
+	mNextTicket = mNextJob = mNextOutput = 0;
+	mIsRunning = true;
+	mThreads = new pthread_t[threads];
+	mThreadNum = 0;
+	for (int i = 0; i < threads; i++) {
+		if (UNLIKELY(pthread_create(&mThreads[i], NULL, worker_thread_func, (void *)this))) {
+			LOGW("failed to create decode thread:%d/%d", i, threads);
+			break;
+		}
+		mThreadNum++;
+	}
+	if (UNLIKELY(!mThreadNum)) {
+		stop();
+		RETURN(UVC_ERROR_OTHER, int);
+	}
+	RETURN(0, int);
+}
+
+/**
+ * stop worker threads and recycle the frames in flight
+ */
+void DecodeWorkers::stop() {
+	ENTER();
+
+	pthread_mutex_lock(&mMutex);
+	{
+		mIsRunning = false;
+		pthread_cond_broadcast(&mJobSync);
+		pthread_cond_broadcast(&mDoneSync);
+	}
+	pthread_mutex_unlock(&mMutex);
+	for (int i = 0; i < mThreadNum; i++) {
+		if (pthread_join(mThreads[i], NULL) != EXIT_SUCCESS) {
+			LOGW("DecodeWorkers::terminate decode thread: pthread_join failed");
+		}
+	}
+	mThreadNum = 0;
+	SAFE_DELETE_ARRAY(mThreads);
+	if (mSlots) {
+		for (int i = 0; i < mWindow; i++) {
+			if (mSlots[i].in) mParent->recycle_frame(mSlots[i].in);
+			if (mSlots[i].out) mParent->recycle_frame(mSlots[i].out);
+		}
+		SAFE_DELETE_ARRAY(mSlots);
+	}
+	mWindow = 0;
+	EXIT();
+}
+
+/**
+ * pass MJPEG frame to workers, caller should confirm #isFull is false
+ * the frame is recycled by workers
+ */
+int DecodeWorkers::submit(uvc_frame_t *frame) {
+	int result = -1;
+	pthread_mutex_lock(&mMutex);
+	{
+		if (LIKELY(mIsRunning && !isFull())) {
+			slot_t *slot = &mSlots[mNextTicket % mWindow];
+			slot->in = frame;
+			slot->out = NULL;
+			slot->state = SLOT_QUEUED;
+			mNextTicket++;
+			frame = NULL;
+			result = 0;
+			pthread_cond_signal(&mJobSync);
+		}
+	}
+	pthread_mutex_unlock(&mMutex);
+	if (UNLIKELY(frame)) {
+		mParent->recycle_frame(frame);
+	}
+	return result;
+}
+
+/**
+ * whether the next frame in order is ready, this does not block
+ */
+bool DecodeWorkers::hasOutput() const {
+	if (mNextOutput != mNextTicket) {
+		const int state = __atomic_load_n(&mSlots[mNextOutput % mWindow].state, __ATOMIC_ACQUIRE);
+		return (state == SLOT_DONE) || (state == SLOT_FAILED);
+	}
+	return false;
+}
+
+/**
+ * get the next decoded frame in order, this does not block
+ * frames that failed to decode are skipped
+ * @return NULL if the next frame is not ready yet
+ */
+uvc_frame_t *DecodeWorkers::pollNext() {
+	uvc_frame_t *result = NULL;
+	pthread_mutex_lock(&mMutex);
+	for ( ; mNextOutput != mNextTicket ; ) {
+		slot_t *slot = &mSlots[mNextOutput % mWindow];
+		if (slot->state == SLOT_DONE) {
+			result = slot->out;
+		} else if (slot->state != SLOT_FAILED) {
+			break;
+		}
+		slot->out = NULL;
+		slot->state = SLOT_EMPTY;
+		mNextOutput++;
+		if (result) break;
+	}
+	pthread_mutex_unlock(&mMutex);
+	return result;
+}
+
+/**
+ * block until the next frame in order is decoded
+ */
+void DecodeWorkers::waitNext() {
+	pthread_mutex_lock(&mMutex);
+	{
+		if (mIsRunning && (mNextOutput != mNextTicket)) {
+			slot_t *slot = &mSlots[mNextOutput % mWindow];
+			if ((slot->state != SLOT_DONE) && (slot->state != SLOT_FAILED)) {
+				pthread_cond_wait(&mDoneSync, &mMutex);
+			}
+		}
+	}
+	pthread_mutex_unlock(&mMutex);
+}
+
+// static
+void *DecodeWorkers::worker_thread_func(void *vptr_args) {
+	ENTER();
+	DecodeWorkers *workers = reinterpret_cast<DecodeWorkers *>(vptr_args);
+	if (LIKELY(workers)) {
+		workers->do_decode();
+	}
+	PRE_EXIT();
+	pthread_exit(NULL);
+}
+
+void DecodeWorkers::do_decode() {
+	ENTER();
+
+	for ( ; ; ) {
+		slot_t *slot = NULL;
+		pthread_mutex_lock(&mMutex);
+		{
+			for ( ; mIsRunning && (mNextJob == mNextTicket) ; ) {
+				pthread_cond_wait(&mJobSync, &mMutex);
+			}
+			if (LIKELY(mIsRunning)) {
+				slot = &mSlots[mNextJob % mWindow];
+				slot->state = SLOT_DECODING;
+				mNextJob++;
+			}
+		}
+		pthread_mutex_unlock(&mMutex);
+		if (UNLIKELY(!slot)) break;
+
+		const nsecs_t start = systemTime();
+		uvc_frame_t *in = slot->in;
+		uvc_frame_t *out = mParent->get_frame(in->width * in->height * 2);
+		const int orientation = mParent->mOrientation;
+		uvc_error_t r = out
+			? (orientation
+				? uvc_mjpeg2yuyv_roi(in, out, 0, 0, 0, 0, 1, 1, orientation)	// MJPEG => yuyv with orientation
+				: uvc_mjpeg2yuyv(in, out))	// MJPEG => yuyv
+			: UVC_ERROR_NO_MEM;
+		if (LIKELY(out)) {
+			out->receive_time = in->receive_time;
+		}
+		mParent->recycle_frame(in);
+		if (UNLIKELY(r && out)) {
+			mParent->recycle_frame(out);
+			out = NULL;
+		}
+		pthread_mutex_lock(&mMutex);
+		{
+			// record under the mutex because FrameStats expects single writer for each stage
+			mParent->mStats.record(STATS_STAGE_DECODE, systemTime() - start);
+			slot->in = NULL;
+			slot->out = out;
+			__atomic_store_n(&slot->state, out ? SLOT_DONE : SLOT_FAILED, __ATOMIC_RELEASE);
+			pthread_cond_broadcast(&mDoneSync);
+		}
+		pthread_mutex_unlock(&mMutex);
+		// wake up the preview thread if it is waiting for the next received frame
+		mParent->wakePreview();
+	}
+
+	EXIT();
+}
@@ -0,0 +1,85 @@
+/*
+ * UVCCamera
+ * library and sample to access to UVC web camera on non-rooted Android device
+ *
+ * Copyright (c) 2014-2017 saki t_saki@serenegiant.com
+ *
+ * File name: DecodeWorkers.h
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ * All files in the folder are under this Apache License, Version 2.0.
+ * Files in the jni/libjpeg, jni/libusb, jin/libuvc, jni/rapidjson folder may have a different license, see the respective files.
+*/
+
+#ifndef DECODEWORKERS_H_
+#define DECODEWORKERS_H_
+
+#include "libUVCCamera.h"
+#include <pthread.h>
+
+#pragma interface
+
+class UVCPreview;
+
+/**
+ * pool of threads that decode MJPEG frames into YUYV in parallel for UVCPreview.
+ * frames are numbered in the order they are submitted and decoded frames are returned
+ * in the same order regardless of which worker finished first.
+ * #submit, #pollNext, #waitNext and #hasOutput should be called only from the preview thread.
+ */
+class DecodeWorkers {
+private:
+	typedef enum {
+		SLOT_EMPTY = 0,
+		SLOT_QUEUED,
+		SLOT_DECODING,
+		SLOT_DONE,
+		SLOT_FAILED,
+	} slot_state_t;
+	typedef struct {
+		uvc_frame_t *in;
+		uvc_frame_t *out;
+		volatile int state;
+	} slot_t;
+
+	UVCPreview *mParent;
+	pthread_mutex_t mMutex;
+	pthread_cond_t mJobSync;		// signaled when a frame is submitted
+	pthread_cond_t mDoneSync;		// signaled when a frame is decoded
+	pthread_t *mThreads;
+	int mThreadNum;
+	slot_t *mSlots;
+	int mWindow;					// max number of frames in flight
+	uint32_t mNextTicket;			// ticket of the next submitted frame
+	uint32_t mNextJob;				// ticket of the next frame that a worker takes
+	uint32_t mNextOutput;			// ticket of the next frame to return
+	volatile bool mIsRunning;
+
+	static void *worker_thread_func(void *vptr_args);
+	void do_decode();
+public:
+	DecodeWorkers(UVCPreview *parent);
+	~DecodeWorkers();
+
+	int start(const int threads, const int window);
+	void stop();
+	inline bool isFull() const { return mNextTicket - mNextOutput >= (uint32_t)mWindow; }
+	inline bool isEmpty() const { return mNextTicket == mNextOutput; }
+	bool hasOutput() const;
+	int submit(uvc_frame_t *frame);
+	uvc_frame_t *pollNext();
+	void waitNext();
+};
+
+#endif /* DECODEWORKERS_H_ */
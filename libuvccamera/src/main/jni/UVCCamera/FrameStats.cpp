@@ -0,0 +1,83 @@
+/*
+ * UVCCamera
+ * library and sample to access to UVC web camera on non-rooted Android device
+ *
+ * Copyright (c) 2014-2017 saki t_saki@serenegiant.com
+ *
+ * File name: FrameStats.cpp
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ * All files in the folder are under this Apache License, Version 2.0.
+ * Files in the jni/libjpeg, jni/libusb, jin/libuvc, jni/rapidjson folder may have a different license, see the respective files.
+*/
+
+#include <stdlib.h>
+#include <string.h>
+
+#include "utilbase.h"
+#include "FrameStats.h"
+
+FrameStats::FrameStats() {
+	reset();
+}
+
+FrameStats::~FrameStats() {
+}
+
+/**
+ * clear all counters and samples, samples recorded concurrently may remain
+ */
+void FrameStats::reset() {
+	for (int i = 0; i < STATS_COUNT_NUM; i++) {
+		mCounts[i] = 0;
+	}
+	for (int i = 0; i < STATS_STAGE_NUM; i++) {
+		mSampleIx[i] = 0;
+	}
+}
+
+static int compare_samples(const void *a, const void *b) {
+	const uint32_t _a = *(const uint32_t *)a;
+	const uint32_t _b = *(const uint32_t *)b;
+	return _a < _b ? -1 : (_a > _b ? 1 : 0);
+}
+
+/**
+ * take a snapshot, see STATS_SNAPSHOT_SZ for the layout
+ * @param snapshot
+ * @param n number of elements of snapshot
+ * @return number of elements written
+ */
+int FrameStats::getStats(int64_t *snapshot, const int n) {
+	int64_t values[STATS_SNAPSHOT_SZ];
+	uint32_t work[STATS_SAMPLE_NUM];
+
+	int ix = 0;
+	for (int i = 0; i < STATS_COUNT_NUM; i++) {
+		values[ix++] = mCounts[i];
+	}
+	for (int i = 0; i < STATS_STAGE_NUM; i++) {
+		const uint32_t recorded = mSampleIx[i];
+		const int num = recorded < STATS_SAMPLE_NUM ? recorded : STATS_SAMPLE_NUM;
+		// the samples may be overwritten while copying, but that is harmless for statistics
+		memcpy(work, mSamples[i], sizeof(uint32_t) * num);
+		qsort(work, num, sizeof(uint32_t), compare_samples);
+		values[ix++] = num;
+		values[ix++] = num ? work[(num - 1) / 2] : 0;
+		values[ix++] = num ? work[((num - 1) * 99) / 100] : 0;
+	}
+	const int result = n < STATS_SNAPSHOT_SZ ? n : STATS_SNAPSHOT_SZ;
+	memcpy(snapshot, values, sizeof(int64_t) * result);
+	return result;
+}
@@ -0,0 +1,88 @@
+/*
+ * UVCCamera
+ * library and sample to access to UVC web camera on non-rooted Android device
+ *
+ * Copyright (c) 2014-2017 saki t_saki@serenegiant.com
+ *
+ * File name: FrameStats.h
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ * All files in the folder are under this Apache License, Version 2.0.
+ * Files in the jni/libjpeg, jni/libusb, jin/libuvc, jni/rapidjson folder may have a different license, see the respective files.
+*/
+
+#ifndef FRAMESTATS_H_
+#define FRAMESTATS_H_
+
+#include <stdint.h>
+#include "Timers.h"
+
+#pragma interface
+
+// stages of the frame path, keep same order as FrameStats.java
+#define STATS_STAGE_RECEIVE 0		// copying the frame in the libuvc callback
+#define STATS_STAGE_QUEUE 1			// USB arrival => picked up by the preview thread
+#define STATS_STAGE_DECODE 2		// MJPEG => YUYV decoding, only in MJPEG mode
+#define STATS_STAGE_DRAW 3			// conversion and copying to the preview Surface
+#define STATS_STAGE_CALLBACK 4		// conversion and IFrameCallback#onFrame/FramePool
+#define STATS_STAGE_TOTAL 5			// USB arrival => returning from the callback
+#define STATS_STAGE_NUM 6
+
+// counters, keep same order as FrameStats.java
+#define STATS_COUNT_RECEIVED 0		// frames received from libuvc
+#define STATS_COUNT_QUEUE_DROPPED 1	// frames dropped because the preview queue is full
+#define STATS_COUNT_CAPTURE_DROPPED 2	// frames overwritten before the capture thread took them
+#define STATS_COUNT_POOL_MISS 3		// frame buffers allocated because the frame pool is empty
+#define STATS_COUNT_DELIVERED 4		// frames passed to the callback
+#define STATS_COUNT_NUM 5
+
+// number of latest samples kept for each stage
+#define STATS_SAMPLE_NUM 256
+
+// layout of the snapshot written by #getStats
+// counters first, then [sample count, p50, p99] in microseconds for each stage
+#define STATS_SNAPSHOT_SZ (STATS_COUNT_NUM + STATS_STAGE_NUM * 3)
+
+/**
+ * per frame latency and drop counters of UVCPreview
+ * recording is lock free and costs an atomic increment and a store,
+ * decode stage is recorded from several decode workers, so each sample takes
+ * its own slot by incrementing the index atomically.
+ * percentiles are computed only when taking a snapshot.
+ */
+class FrameStats {
+private:
+	volatile uint32_t mCounts[STATS_COUNT_NUM];
+	volatile uint32_t mSampleIx[STATS_STAGE_NUM];
+	uint32_t mSamples[STATS_STAGE_NUM][STATS_SAMPLE_NUM];	// microseconds
+public:
+	FrameStats();
+	~FrameStats();
+
+	void reset();
+	inline void count(const int counter) {
+		__sync_fetch_and_add(&mCounts[counter], 1);
+	}
+	/**
+	 * @param stage one of STATS_STAGE_XXX
+	 * @param elapsed nanoseconds
+	 */
+	inline void record(const int stage, const nsecs_t elapsed) {
+		const uint32_t ix = __sync_fetch_and_add(&mSampleIx[stage], 1);
+		mSamples[stage][ix % STATS_SAMPLE_NUM] = elapsed > 0 ? (uint32_t)(elapsed / 1000) : 0;
+	}
+	int getStats(int64_t *snapshot, const int n);
+};
+
+#endif /* FRAMESTATS_H_ */
@@ -409,3 +409,66 @@ char *UVCDiags::getSupportedSize(const uvc_device_handle_t *deviceHandle) {
 	writer.EndObject();
 	RETURN(strdup(buffer.GetString()), char *);
 }
+
+/**
+ * supported formats in the binary layout of com.serenegiant.usb.UVCSize,
+ * this is much cheaper than building JSON and parsing it on Java side.
+ * [format count]
+ * each format: [bDescriptorSubtype, bFormatIndex, bDefaultFrameIndex, frame count]
+ * each frame: [bDescriptorSubtype, wWidth, wHeight, default fps, bFrameIntervalType,
+ * 		dwMinFrameInterval, dwMaxFrameInterval, dwFrameIntervalStep, interval count, fps of each interval...]
+ * min/max/step are 0 for discrete intervals and interval count is 0 for continuous intervals.
+ * @param len number of int32_t in the result
+ * @return should be freed by caller, NULL if failed
+ */
+int32_t *UVCDiags::getSupportedSizeArray(const uvc_device_handle_t *deviceHandle, int *len) {
+	ENTER();
+	uvc_streaming_interface_t *stream_if;
+	uvc_format_desc_t *fmt_desc;
+	uvc_frame_desc_t *frame_desc;
+	// count ints first not to reallocate
+	int n = 1;
+	DL_FOREACH(deviceHandle->info->stream_ifs, stream_if) {
+		DL_FOREACH(stream_if->format_descs, fmt_desc) {
+			n += 4;
+			DL_FOREACH(fmt_desc->frame_descs, frame_desc) {
+				n += 9 + frame_desc->bFrameIntervalType;
+			}
+		}
+	}
+	int32_t *result = (int32_t *)malloc(n * sizeof(int32_t));
+	if (UNLIKELY(!result)) {
+		RETURN(NULL, int32_t *);
+	}
+	int32_t *p = result;
+	int32_t *format_count = p++;
+	*format_count = 0;
+	DL_FOREACH(deviceHandle->info->stream_ifs, stream_if) {
+		DL_FOREACH(stream_if->format_descs, fmt_desc) {
+			(*format_count)++;
+			*p++ = fmt_desc->bDescriptorSubtype;
+			*p++ = fmt_desc->bFormatIndex;
+			*p++ = fmt_desc->bDefaultFrameIndex;
+			int32_t *frame_count = p++;
+			*frame_count = 0;
+			DL_FOREACH(fmt_desc->frame_descs, frame_desc) {
+				const uint8_t intervalType = frame_desc->bFrameIntervalType;
+				(*frame_count)++;
+				*p++ = frame_desc->bDescriptorSubtype;
+				*p++ = frame_desc->wWidth;
+				*p++ = frame_desc->wHeight;
+				*p++ = CONVERT_TO_FPS(frame_desc->dwDefaultFrameInterval);
+				*p++ = intervalType;
+				*p++ = intervalType ? 0 : frame_desc->dwMinFrameInterval;
+				*p++ = intervalType ? 0 : frame_desc->dwMaxFrameInterval;
+				*p++ = intervalType ? 0 : frame_desc->dwFrameIntervalStep;
+				*p++ = intervalType;
+				for (uint8_t i = 0; i < intervalType; i++) {
+					*p++ = CONVERT_TO_FPS(frame_desc->intervals[i]);
+				}
+			}
+		}
+	}
+	*len = n;
+	RETURN(result, int32_t *);
+}
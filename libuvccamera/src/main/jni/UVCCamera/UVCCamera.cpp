@@ -246,6 +246,15 @@ char *UVCCamera::getSupportedSize() {
 	RETURN(NULL, char *);
 }
 
+int32_t *UVCCamera::getSupportedSizeArray(int *len) {
+	ENTER();
+	if (mDeviceHandle) {
+		UVCDiags params;
+		RETURN(params.getSupportedSizeArray(mDeviceHandle, len), int32_t *)
+	}
+	RETURN(NULL, int32_t *);
+}
+
 int UVCCamera::setPreviewSize(int width, int height, int min_fps, int max_fps, int mode, float bandwidth) {
 	ENTER();
 	int result = EXIT_FAILURE;
@@ -264,15 +273,115 @@ int UVCCamera::setPreviewDisplay(ANativeWindow *preview_window) {
 	RETURN(result, int);
 }
 
-int UVCCamera::setFrameCallback(JNIEnv *env, jobject frame_callback_obj, int pixel_format) {
+int UVCCamera::setBufferingPolicy(int queue_depth, int pool_size, int drop_policy) {
+	ENTER();
+	int result = EXIT_FAILURE;
+	if (mPreview) {
+		result = mPreview->setBufferingPolicy(queue_depth, pool_size, drop_policy);
+	}
+	RETURN(result, int);
+}
+
+int UVCCamera::setDecodeWorkers(int threads, int reorder_window) {
+	ENTER();
+	int result = EXIT_FAILURE;
+	if (mPreview) {
+		result = mPreview->setDecodeWorkers(threads, reorder_window);
+	}
+	RETURN(result, int);
+}
+
+int UVCCamera::setOrientation(int orientation) {
+	ENTER();
+	int result = EXIT_FAILURE;
+	if (mPreview) {
+		result = mPreview->setOrientation(orientation);
+	}
+	RETURN(result, int);
+}
+
+int64_t UVCCamera::getFramePoolBytes() {
+	int64_t result = 0;
+	if (LIKELY(mPreview)) {
+		result = (int64_t)mPreview->getFramePoolBytes();
+	}
+	return result;
+}
+
+int UVCCamera::setFrameCallback(JNIEnv *env, jobject frame_callback_obj, int pixel_format, jobject frame_info_obj,
+	int scale_num, int scale_denom, int roi_x, int roi_y, int roi_width, int roi_height) {
+
+	ENTER();
+	int result = EXIT_FAILURE;
+	if (mPreview) {
+		result = mPreview->setFrameCallback(env, frame_callback_obj, pixel_format, frame_info_obj,
+			scale_num, scale_denom, roi_x, roi_y, roi_width, roi_height);
+	}
+	RETURN(result, int);
+}
+
+int UVCCamera::setFrameCallbackScale(int scale_num, int scale_denom) {
+	ENTER();
+	int result = EXIT_FAILURE;
+	if (mPreview) {
+		result = mPreview->setFrameCallbackScale(scale_num, scale_denom);
+	}
+	RETURN(result, int);
+}
+
+int UVCCamera::setFrameCallbackRoi(int x, int y, int width, int height) {
+	ENTER();
+	int result = EXIT_FAILURE;
+	if (mPreview) {
+		result = mPreview->setFrameCallbackRoi(x, y, width, height);
+	}
+	RETURN(result, int);
+}
+
+int UVCCamera::setFramePool(JNIEnv *env, jobject frame_pool_obj, jobjectArray buffers, int pixel_format) {
+	ENTER();
+	int result = EXIT_FAILURE;
+	if (mPreview) {
+		result = mPreview->setFramePool(env, frame_pool_obj, buffers, pixel_format);
+	} else if (frame_pool_obj) {
+		env->DeleteGlobalRef(frame_pool_obj);
+	}
+	RETURN(result, int);
+}
+
+int UVCCamera::setPipeline(IPipeline *pipeline) {
 	ENTER();
 	int result = EXIT_FAILURE;
 	if (mPreview) {
-		result = mPreview->setFrameCallback(env, frame_callback_obj, pixel_format);
+		result = mPreview->setPipeline(pipeline);
 	}
 	RETURN(result, int);
 }
 
+int UVCCamera::releaseFrameLease(int slot) {
+	int result = EXIT_FAILURE;
+	if (LIKELY(mPreview)) {
+		result = mPreview->releaseFrameLease(slot);
+	}
+	return result;
+}
+
+int UVCCamera::getFramePoolDropped() {
+	int result = 0;
+	if (LIKELY(mPreview)) {
+		result = (int)mPreview->getFramePoolDropped();
+	}
+	return result;
+}
+
+int UVCCamera::getStats(int64_t *snapshot, const int n) {
+	int result = 0;
+	if (LIKELY(mPreview)) {
+		result = mPreview->getStats(snapshot, n);
+	}
+	return result;
+}
+
 int UVCCamera::startPreview() {
 	ENTER();
 
@@ -352,6 +461,118 @@ int UVCCamera::getProcSupports(uint64_t *supports) {
 	RETURN(ret, int);
 }
 
+const control_funcs_t UVCCamera::CONTROL_FUNCS[CONTROL_VALUES_NUM] = {
+	{ &UVCCamera::mBrightness, &UVCCamera::updateBrightnessLimit, &UVCCamera::getBrightness },
+	{ &UVCCamera::mContrast, &UVCCamera::updateContrastLimit, &UVCCamera::getContrast },
+	{ &UVCCamera::mSharpness, &UVCCamera::updateSharpnessLimit, &UVCCamera::getSharpness },
+	{ &UVCCamera::mGain, &UVCCamera::updateGainLimit, &UVCCamera::getGain },
+	{ &UVCCamera::mGamma, &UVCCamera::updateGammaLimit, &UVCCamera::getGamma },
+	{ &UVCCamera::mSaturation, &UVCCamera::updateSaturationLimit, &UVCCamera::getSaturation },
+	{ &UVCCamera::mHue, &UVCCamera::updateHueLimit, &UVCCamera::getHue },
+	{ &UVCCamera::mZoom, &UVCCamera::updateZoomLimit, &UVCCamera::getZoom },
+	{ &UVCCamera::mWhiteBlance, &UVCCamera::updateWhiteBlanceLimit, &UVCCamera::getWhiteBlance },
+	{ &UVCCamera::mFocus, &UVCCamera::updateFocusLimit, &UVCCamera::getFocus },
+};
+
+/**
+ * get limits and current values of controls at once instead of calling update*Limit/get* for each control
+ * @param values [result, min, max, def, current] for each control in the order of CONTROL_FUNCS,
+ * 			result is 0 when the control is supported and its values are valid
+ * @param len number of values
+ * @param reload_limits bit mask of controls to read min/max/def from the camera again
+ * 			instead of cached ones, e.g. after INFO_CHANGE status interrupt
+ * @return number of controls written
+ */
+int UVCCamera::getControlValues(int32_t *values, int len, uint32_t reload_limits) {
+	ENTER();
+	if (UNLIKELY(!mDeviceHandle || !values)) {
+		RETURN(0, int);
+	}
+	int n = len / CONTROL_VALUES_STRIDE;
+	if (n > CONTROL_VALUES_NUM) n = CONTROL_VALUES_NUM;
+	for (int i = 0; i < n; i++) {
+		const control_funcs_t &funcs = CONTROL_FUNCS[i];
+		int32_t *p = &values[i * CONTROL_VALUES_STRIDE];
+		if (reload_limits & (1 << i)) {
+			// update_ctrl_values reads limits from the camera only when both min and max are 0
+			(this->*funcs.value).min = (this->*funcs.value).max = 0;
+		}
+		int min = 0, max = 0, def = 0;
+		const int ret = (this->*funcs.update_limit)(min, max, def);
+		p[0] = ret;
+		p[1] = min;
+		p[2] = max;
+		p[3] = def;
+		// unsupported controls return without control transfer
+		p[4] = ret ? 0 : (this->*funcs.get_value)();
+	}
+	RETURN(n, int);
+}
+
+/**
+ * set values of controls at once, controls that are already at the target value are not written
+ * @param values [result, min, max, def, current] for each control in the order of CONTROL_FUNCS,
+ * 			current is the target value(clamped into min/max) and result is set to 0 when it was written,
+ * 			CONTROL_VALUE_SKIPPED when it was already at the target value, or negative error code.
+ * 			values of controls not in mask are not changed.
+ * @param len number of values
+ * @param mask bit mask of controls to set
+ * @return number of controls written
+ */
+int UVCCamera::setControlValues(int32_t *values, int len, uint32_t mask) {
+	ENTER();
+	if (UNLIKELY(!values)) {
+		RETURN(UVC_ERROR_INVALID_PARAM, int);
+	}
+	if (UNLIKELY(!mDeviceHandle)) {
+		RETURN(UVC_ERROR_NO_DEVICE, int);
+	}
+	int n = len / CONTROL_VALUES_STRIDE;
+	if (n > CONTROL_VALUES_NUM) n = CONTROL_VALUES_NUM;
+	int written = 0;
+	for (int i = 0; i < n; i++) {
+		if (!(mask & (1 << i))) continue;
+		const control_funcs_t &funcs = CONTROL_FUNCS[i];
+		int32_t *p = &values[i * CONTROL_VALUES_STRIDE];
+		int min = 0, max = 0, def = 0;
+		int ret = (this->*funcs.update_limit)(min, max, def);
+		if (LIKELY(!ret)) {
+			const int target = p[4] < min ? min : (p[4] > max ? max : p[4]);
+			if ((this->*funcs.get_value)() == target) {
+				ret = CONTROL_VALUE_SKIPPED;
+			} else {
+				ret = setControlValue(i, target);
+				if (LIKELY(!ret)) written++;
+			}
+			p[1] = min;
+			p[2] = max;
+			p[3] = def;
+			p[4] = target;
+		}
+		p[0] = ret;
+	}
+	RETURN(written, int);
+}
+
+/**
+ * set value of the control by index of CONTROL_FUNCS
+ */
+int UVCCamera::setControlValue(int index, int value) {
+	switch (index) {
+	case 0: return setBrightness(value);
+	case 1: return setContrast(value);
+	case 2: return setSharpness(value);
+	case 3: return setGain(value);
+	case 4: return setGamma(value);
+	case 5: return setSaturation(value);
+	case 6: return setHue(value);
+	case 7: return setZoom(value);
+	case 8: return setWhiteBlance(value);
+	case 9: return setFocus(value);
+	default: return UVC_ERROR_INVALID_PARAM;
+	}
+}
+
 //======================================================================
 #define CTRL_BRIGHTNESS		0
 #define CTRL_CONTRAST		1
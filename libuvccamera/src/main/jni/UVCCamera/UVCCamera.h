@@ -77,6 +77,13 @@
 #define PU_AVIDEO_LOCK		0x020000	// D17: Analog Video Lock Status
 #define PU_CONTRAST_AUTO	0x040000	// D18: Contrast, Auto
 
+// controls in the result of UVCCamera::getControlValues, same order as com.serenegiant.usb.UVCControls
+#define CONTROL_VALUES_NUM		10
+// [result, min, max, def, current] for each control
+#define CONTROL_VALUES_STRIDE	5
+// result of setControlValues when the control was already at the target value
+#define CONTROL_VALUE_SKIPPED	1
+
 typedef struct control_value {
 	int res;	// unused
 	int min;
@@ -107,7 +114,19 @@ typedef uvc_error_t (*paramset_func_i8u8)(uvc_device_handle_t *devh, int8_t valu
 typedef uvc_error_t (*paramset_func_i8u8u8)(uvc_device_handle_t *devh, int8_t value1, uint8_t value2, uint8_t value3);
 typedef uvc_error_t (*paramset_func_i32i32)(uvc_device_handle_t *devh, int32_t value1, int32_t value2);
 
+class UVCCamera;
+typedef int (UVCCamera::*update_limit_func)(int &min, int &max, int &def);
+typedef int (UVCCamera::*get_value_func)();
+
+// functions of each control for getControlValues/setControlValues
+typedef struct control_funcs {
+	control_value_t UVCCamera::*value;
+	update_limit_func update_limit;
+	get_value_func get_value;
+} control_funcs_t;
+
 class UVCCamera {
+	static const control_funcs_t CONTROL_FUNCS[CONTROL_VALUES_NUM];
 	char *mUsbFs;
 	uvc_context_t *mContext;
 	int mFd;
@@ -159,6 +178,7 @@ class UVCCamera {
 	control_value_t mAnalogVideoLockState;
 
 	void clearCameraParams();
+	int setControlValue(int index, int value);
 	int internalSetCtrlValue(control_value_t &values, int8_t value,
 		paramget_func_i8 get_func, paramset_func_i8 set_func);
 	int internalSetCtrlValue(control_value_t &values, uint8_t value,
@@ -188,15 +208,30 @@ public:
 	int setButtonCallback(JNIEnv *env, jobject button_callback_obj);
 
 	char *getSupportedSize();
+	int32_t *getSupportedSizeArray(int *len);
 	int setPreviewSize(int width, int height, int min_fps, int max_fps, int mode, float bandwidth = DEFAULT_BANDWIDTH);
 	int setPreviewDisplay(ANativeWindow *preview_window);
-	int setFrameCallback(JNIEnv *env, jobject frame_callback_obj, int pixel_format);
+	int setBufferingPolicy(int queue_depth, int pool_size, int drop_policy);
+	int setDecodeWorkers(int threads, int reorder_window);
+	int setOrientation(int orientation);
+	int64_t getFramePoolBytes();
+	int setFrameCallback(JNIEnv *env, jobject frame_callback_obj, int pixel_format, jobject frame_info_obj = NULL,
+		int scale_num = 1, int scale_denom = 1, int roi_x = 0, int roi_y = 0, int roi_width = 0, int roi_height = 0);
+	int setFrameCallbackScale(int scale_num, int scale_denom);
+	int setFrameCallbackRoi(int x, int y, int width, int height);
+	int setFramePool(JNIEnv *env, jobject frame_pool_obj, jobjectArray buffers, int pixel_format);
+	int setPipeline(IPipeline *pipeline);
+	int releaseFrameLease(int slot);
+	int getFramePoolDropped();
+	int getStats(int64_t *snapshot, const int n);
 	int startPreview();
 	int stopPreview();
 	int setCaptureDisplay(ANativeWindow *capture_window);
 
 	int getCtrlSupports(uint64_t *supports);
 	int getProcSupports(uint64_t *supports);
+	int getControlValues(int32_t *values, int len, uint32_t reload_limits);
+	int setControlValues(int32_t *values, int len, uint32_t mask);
 
 	int updateScanningModeLimit(int &min, int &max, int &def);
 	int setScanningMode(int mode);
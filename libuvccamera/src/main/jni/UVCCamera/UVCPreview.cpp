@@ -40,11 +40,11 @@
 #include "utilbase.h"
 #include "UVCPreview.h"
 #include "libuvc_internal.h"
+#include "IPipeline.h"
+#include "DecodeWorkers.h"
 
 #define	LOCAL_DEBUG 0
-#define MAX_FRAME 4
 #define PREVIEW_PIXEL_BYTES 4	// RGBA/RGBX
-#define FRAME_POOL_SZ MAX_FRAME + 2
 
 UVCPreview::UVCPreview(uvc_device_handle_t *devh)
 :	mPreviewWindow(NULL),
@@ -62,12 +62,35 @@ UVCPreview::UVCPreview(uvc_device_handle_t *devh)
 	frameMode(0),
 	previewBytes(DEFAULT_PREVIEW_WIDTH * DEFAULT_PREVIEW_HEIGHT * PREVIEW_PIXEL_BYTES),
 	previewFormat(WINDOW_FORMAT_RGBA_8888),
+	previewFrames(DEFAULT_QUEUE_DEPTH),
+	mPreviewWaiting(false),
+	mDropPolicy(DROP_POLICY_NEWEST),
+	mDecodeThreads(0),
+	mReorderWindow(0),
+	mDecoder(NULL),
+	mOrientation(UVC_ORIENTATION_NORMAL),
+	mFramePool(DEFAULT_POOL_SIZE),
+	mPoolBytes(0),
 	mIsRunning(false),
 	mIsCapturing(false),
 	captureQueu(NULL),
+	mPipeline(NULL),
 	mFrameCallbackObj(NULL),
 	mFrameCallbackFunc(NULL),
-	callbackPixelBytes(2) {
+	mFrameInfoObj(NULL),
+	callbackPixelBytes(2),
+	mCallbackScaleNum(1),
+	mCallbackScaleDenom(1),
+	mCallbackRoiX(0),
+	mCallbackRoiY(0),
+	mCallbackRoiWidth(0),
+	mCallbackRoiHeight(0),
+	mFramePoolObj(NULL),
+	mLeaseCount(0),
+	mLeaseCapacity(0),
+	mLeaseBuffers(NULL),
+	mLeaseInUse(NULL),
+	mLeaseDropped(0) {
 
 	ENTER();
 	pthread_cond_init(&preview_sync, NULL);
@@ -75,8 +98,6 @@ UVCPreview::UVCPreview(uvc_device_handle_t *devh)
 //
 	pthread_cond_init(&capture_sync, NULL);
 	pthread_mutex_init(&capture_mutex, NULL);
-//	
-	pthread_mutex_init(&pool_mutex, NULL);
 	EXIT();
 }
 
@@ -92,11 +113,18 @@ UVCPreview::~UVCPreview() {
 	clearPreviewFrame();
 	clearCaptureFrame();
 	clear_pool();
+	if (mLeaseBuffers) {
+		delete [] mLeaseBuffers;
+		mLeaseBuffers = NULL;
+	}
+	if (mLeaseInUse) {
+		delete [] mLeaseInUse;
+		mLeaseInUse = NULL;
+	}
 	pthread_mutex_destroy(&preview_mutex);
 	pthread_cond_destroy(&preview_sync);
 	pthread_mutex_destroy(&capture_mutex);
 	pthread_cond_destroy(&capture_sync);
-	pthread_mutex_destroy(&pool_mutex);
 	EXIT();
 }
 
@@ -107,45 +135,42 @@ UVCPreview::~UVCPreview() {
  * and you may need to confirm the size
  */
 uvc_frame_t *UVCPreview::get_frame(size_t data_bytes) {
-	uvc_frame_t *frame = NULL;
-	pthread_mutex_lock(&pool_mutex);
-	{
-		if (!mFramePool.isEmpty()) {
-			frame = mFramePool.last();
-		}
-	}
-	pthread_mutex_unlock(&pool_mutex);
+	uvc_frame_t *frame = mFramePool.pop();
 	if UNLIKELY(!frame) {
 		LOGW("allocate new frame");
+		mStats.count(STATS_COUNT_POOL_MISS);
 		frame = uvc_allocate_frame(data_bytes);
 	}
 	return frame;
 }
 
 void UVCPreview::recycle_frame(uvc_frame_t *frame) {
-	pthread_mutex_lock(&pool_mutex);
-	if (LIKELY(mFramePool.size() < FRAME_POOL_SZ)) {
-		mFramePool.put(frame);
-		frame = NULL;
-	}
-	pthread_mutex_unlock(&pool_mutex);
-	if (UNLIKELY(frame)) {
+	if (UNLIKELY(!mFramePool.push(frame))) {
 		uvc_free_frame(frame);
 	}
 }
 
 
+/**
+ * preallocate frames of the pool
+ * @param data_bytes buffer size of each frame
+ */
 void UVCPreview::init_pool(size_t data_bytes) {
 	ENTER();
 
 	clear_pool();
-	pthread_mutex_lock(&pool_mutex);
-	{
-		for (int i = 0; i < FRAME_POOL_SZ; i++) {
-			mFramePool.put(uvc_allocate_frame(data_bytes));
+	const int n = mFramePool.limit();
+	size_t bytes = 0;
+	for (int i = 0; i < n; i++) {
+		uvc_frame_t *frame = uvc_allocate_frame(data_bytes);
+		if (UNLIKELY(!frame)) {
+			LOGW("failed to preallocate frame:%d/%d", i, n);
+			break;
 		}
+		mFramePool.push(frame);
+		bytes += data_bytes;
 	}
-	pthread_mutex_unlock(&pool_mutex);
+	mPoolBytes = bytes;
 
 	EXIT();
 }
@@ -153,20 +178,33 @@ void UVCPreview::init_pool(size_t data_bytes) {
 void UVCPreview::clear_pool() {
 	ENTER();
 
-	pthread_mutex_lock(&pool_mutex);
-	{
-		const int n = mFramePool.size();
-		for (int i = 0; i < n; i++) {
-			uvc_free_frame(mFramePool[i]);
-		}
-		mFramePool.clear();
+	uvc_frame_t *frame;
+	for ( ; (frame = mFramePool.pop()) ; ) {
+		uvc_free_frame(frame);
 	}
-	pthread_mutex_unlock(&pool_mutex);
+	mPoolBytes = 0;
 	EXIT();
 }
 
 inline const bool UVCPreview::isRunning() const {return mIsRunning; }
 
+/**
+ * whether the capture thread should receive MJPEG frames as is without capture surface,
+ * for PIXEL_FORMAT_RAW callback or IFrameCallback that decodes frames with scaling or region
+ */
+inline const bool UVCPreview::isPassthrough() const {
+	return !mCaptureWindow
+		&& (((mFrameCallbackObj || mFramePoolObj) && (mPixelFormat == PIXEL_FORMAT_RAW))
+			|| (mFrameCallbackObj && ((mCallbackScaleNum < mCallbackScaleDenom) || mCallbackRoiWidth)));
+}
+
+/**
+ * whether the preview thread needs decoded frames for preview surface or native pipeline
+ */
+inline const bool UVCPreview::needPreviewDecode() const {
+	return mPreviewWindow || mPipeline;
+}
+
 int UVCPreview::setPreviewSize(int width, int height, int min_fps, int max_fps, int mode, float bandwidth) {
 	ENTER();
 	
@@ -188,6 +226,81 @@ int UVCPreview::setPreviewSize(int width, int height, int min_fps, int max_fps,
 	RETURN(result, int);
 }
 
+/**
+ * set queue depth of preview frames, number of frames in the frame pool
+ * and what to do when the queue is full. this can be changed only while not previewing.
+ * the pool is preallocated with the negotiated frame size when preview starts.
+ * @param queue_depth max number of frames waiting for the preview thread, at least 1
+ * @param pool_size max number of frames kept for reuse, at least 1
+ * @param drop_policy DROP_POLICY_NEWEST or DROP_POLICY_OLDEST
+ */
+int UVCPreview::setBufferingPolicy(int queue_depth, int pool_size, int drop_policy) {
+	ENTER();
+
+	if (UNLIKELY((queue_depth <= 0) || (pool_size <= 0)
+		|| ((drop_policy != DROP_POLICY_NEWEST) && (drop_policy != DROP_POLICY_OLDEST)))) {
+
+		RETURN(UVC_ERROR_INVALID_PARAM, int);
+	}
+	if (UNLIKELY(isRunning())) {
+		RETURN(UVC_ERROR_BUSY, int);
+	}
+	// the ring and the pool are not used while not previewing
+	clearPreviewFrame();
+	previewFrames.setLimit(queue_depth);
+	mDropPolicy = drop_policy;
+	clear_pool();
+	mFramePool.setLimit(pool_size);
+	RETURN(0, int);
+}
+
+/**
+ * set number of threads that decode MJPEG frames in parallel,
+ * this can be changed only while not previewing.
+ * decoded frames are re-ordered to the received order before drawing and callback.
+ * @param threads 0 to decode on the preview thread(default)
+ * @param reorder_window max number of frames in decoding or waiting for earlier frames,
+ * 			should be threads or more, 0 means threads * 2
+ */
+int UVCPreview::setDecodeWorkers(int threads, int reorder_window) {
+	ENTER();
+
+	if (UNLIKELY((threads < 0) || (reorder_window < 0)
+		|| (threads && reorder_window && (reorder_window < threads)))) {
+
+		RETURN(UVC_ERROR_INVALID_PARAM, int);
+	}
+	if (UNLIKELY(isRunning())) {
+		RETURN(UVC_ERROR_BUSY, int);
+	}
+	mDecodeThreads = threads;
+	mReorderWindow = reorder_window ? reorder_window : threads * 2;
+	RETURN(0, int);
+}
+
+/**
+ * set orientation correction for mounted camera, this can be changed while streaming.
+ * YUYV frames are flipped while copying received data and MJPEG frames are flipped while decoding,
+ * so all of preview, capture surface and frame callbacks receive corrected frames without extra pass.
+ * compressed frames for PIXEL_FORMAT_RAW are passed as is.
+ * @param orientation one of uvc_orientation
+ */
+int UVCPreview::setOrientation(int orientation) {
+	ENTER();
+	if (UNLIKELY((orientation < UVC_ORIENTATION_NORMAL) || (orientation > UVC_ORIENTATION_ROT180))) {
+		RETURN(UVC_ERROR_INVALID_PARAM, int);
+	}
+	mOrientation = orientation;
+	RETURN(0, int);
+}
+
+/**
+ * get total bytes of frames preallocated in the frame pool
+ */
+size_t UVCPreview::getFramePoolBytes() {
+	return mPoolBytes;
+}
+
 int UVCPreview::setPreviewDisplay(ANativeWindow *preview_window) {
 	ENTER();
 	pthread_mutex_lock(&preview_mutex);
@@ -206,39 +319,89 @@ int UVCPreview::setPreviewDisplay(ANativeWindow *preview_window) {
 	RETURN(0, int);
 }
 
-int UVCPreview::setFrameCallback(JNIEnv *env, jobject frame_callback_obj, int pixel_format) {
+/**
+ * set IFrameCallback, or IFrameInfoCallback if frame_info_obj is not NULL
+ * @param frame_callback_obj global reference of IFrameCallback/IFrameInfoCallback, this takes its ownership
+ * @param frame_info_obj global reference of FrameInfo, this takes its ownership
+ * @param scale_num, scale_denom scaling factor for the callback
+ * @param roi_x, roi_y, roi_width, roi_height region for the callback, see setFrameCallbackRoi
+ * 			the scaling factor and the region are set together with the callback
+ * 			so that no frame is passed to the new callback at the previous size
+ */
+int UVCPreview::setFrameCallback(JNIEnv *env, jobject frame_callback_obj, int pixel_format, jobject frame_info_obj,
+	int scale_num, int scale_denom, int roi_x, int roi_y, int roi_width, int roi_height) {
 	
 	ENTER();
+	if (UNLIKELY((scale_num <= 0) || (scale_denom <= 0) || (scale_num > scale_denom)
+		|| (roi_x < 0) || (roi_y < 0) || (roi_width < 0) || (roi_height < 0) || (!roi_width != !roi_height))) {
+		if (frame_callback_obj) env->DeleteGlobalRef(frame_callback_obj);
+		if (frame_info_obj) env->DeleteGlobalRef(frame_info_obj);
+		RETURN(UVC_ERROR_INVALID_PARAM, int);
+	}
 	pthread_mutex_lock(&capture_mutex);
 	{
 		if (isRunning() && isCapturing()) {
 			mIsCapturing = false;
-			if (mFrameCallbackObj) {
+			if (mFrameCallbackObj || mFramePoolObj) {
 				pthread_cond_signal(&capture_sync);
 				pthread_cond_wait(&capture_sync, &capture_mutex);	// wait finishing capturing
 			}
 		}
-		if (!env->IsSameObject(mFrameCallbackObj, frame_callback_obj))	{
+		if (frame_callback_obj) {
+			// IFrameCallback and FramePool are exclusive
+			clearFramePool(env);
+		}
+		mCallbackScaleNum = scale_num;
+		mCallbackScaleDenom = scale_denom;
+		mCallbackRoiX = roi_width ? roi_x : 0;
+		mCallbackRoiY = roi_height ? roi_y : 0;
+		mCallbackRoiWidth = roi_width;
+		mCallbackRoiHeight = roi_height;
+		// onFrame has different signature for IFrameInfoCallback, so look up again when either has FrameInfo
+		if (frame_info_obj || mFrameInfoObj
+			|| !env->IsSameObject(mFrameCallbackObj, frame_callback_obj))	{
+
 			iframecallback_fields.onFrame = NULL;
+			frameinfo_fields.update = NULL;
 			if (mFrameCallbackObj) {
 				env->DeleteGlobalRef(mFrameCallbackObj);
 			}
+			if (mFrameInfoObj) {
+				env->DeleteGlobalRef(mFrameInfoObj);
+			}
 			mFrameCallbackObj = frame_callback_obj;
+			mFrameInfoObj = frame_callback_obj ? frame_info_obj : NULL;
 			if (frame_callback_obj) {
 				// get method IDs of Java object for callback
 				jclass clazz = env->GetObjectClass(frame_callback_obj);
 				if (LIKELY(clazz)) {
 					iframecallback_fields.onFrame = env->GetMethodID(clazz,
-						"onFrame",	"(Ljava/nio/ByteBuffer;)V");
+						"onFrame", frame_info_obj
+							? "(Ljava/nio/ByteBuffer;Lcom/serenegiant/usb/FrameInfo;)V"
+							: "(Ljava/nio/ByteBuffer;)V");
 				} else {
 					LOGW("failed to get object class");
 				}
 				env->ExceptionClear();
-				if (!iframecallback_fields.onFrame) {
-					LOGE("Can't find IFrameCallback#onFrame");
+				if (frame_info_obj) {
+					clazz = env->GetObjectClass(frame_info_obj);
+					if (LIKELY(clazz)) {
+						frameinfo_fields.update = env->GetMethodID(clazz,
+							"update", "(IJJIJJIIII)V");
+					}
+					env->ExceptionClear();
+				}
+				if (!iframecallback_fields.onFrame || (frame_info_obj && !frameinfo_fields.update)) {
+					LOGE("Can't find IFrameCallback#onFrame or FrameInfo#update");
 					env->DeleteGlobalRef(frame_callback_obj);
 					mFrameCallbackObj = frame_callback_obj = NULL;
+					if (mFrameInfoObj) {
+						env->DeleteGlobalRef(mFrameInfoObj);
+						mFrameInfoObj = NULL;
+					}
 				}
+			} else if (frame_info_obj) {
+				env->DeleteGlobalRef(frame_info_obj);
 			}
 		}
 		if (frame_callback_obj) {
@@ -250,6 +413,182 @@ int UVCPreview::setFrameCallback(JNIEnv *env, jobject frame_callback_obj, int pi
 	RETURN(0, int);
 }
 
+/**
+ * set scaling factor of frames for IFrameCallback/IFrameInfoCallback,
+ * frames are passed at the smallest size of M/8 that is scale_num/scale_denom or larger.
+ * MJPEG frames are decoded at that size, frames that are already decoded
+ * (YUYV mode, capture surface or preview surface) are scaled down with uvc_yuyv_scaled.
+ * this is reset to 1/1 when the callback is changed.
+ */
+int UVCPreview::setFrameCallbackScale(int scale_num, int scale_denom) {
+	ENTER();
+	if (UNLIKELY((scale_num <= 0) || (scale_denom <= 0) || (scale_num > scale_denom))) {
+		RETURN(UVC_ERROR_INVALID_PARAM, int);
+	}
+	pthread_mutex_lock(&capture_mutex);
+	{
+		mCallbackScaleNum = scale_num;
+		mCallbackScaleDenom = scale_denom;
+	}
+	pthread_mutex_unlock(&capture_mutex);
+	RETURN(0, int);
+}
+
+/**
+ * set region of frames to decode for IFrameCallback/IFrameInfoCallback in preview coordinates,
+ * only the MCU columns and rows that overlap the region are decoded and only the region is passed to the callback.
+ * frames that are already decoded(YUYV mode, capture surface or preview surface) are cropped with uvc_yuyv_roi.
+ * the region is scaled with the scaling factor of setFrameCallbackScale.
+ * the region is clipped to the frame, frames are dropped if the region is outside of them.
+ * width/height=0 means whole frame. this is reset when the callback is changed.
+ */
+int UVCPreview::setFrameCallbackRoi(int x, int y, int width, int height) {
+	ENTER();
+	if (UNLIKELY((x < 0) || (y < 0) || (width < 0) || (height < 0) || (!width != !height))) {
+		RETURN(UVC_ERROR_INVALID_PARAM, int);
+	}
+	pthread_mutex_lock(&capture_mutex);
+	{
+		mCallbackRoiX = width ? x : 0;
+		mCallbackRoiY = height ? y : 0;
+		mCallbackRoiWidth = width;
+		mCallbackRoiHeight = height;
+	}
+	pthread_mutex_unlock(&capture_mutex);
+	RETURN(0, int);
+}
+
+/**
+ * set FramePool for pooled frame delivery
+ * frame data is written directly into the direct ByteBuffers of FramePool
+ * and FramePool#onFrameLeased is called with the index of the buffer.
+ * The buffer is not reused until #releaseFrameLease is called with that index.
+ * @param frame_pool_obj global reference of FramePool, NULL to clear
+ * @param buffers array of direct ByteBuffer owned by frame_pool_obj
+ */
+int UVCPreview::setFramePool(JNIEnv *env, jobject frame_pool_obj, jobjectArray buffers, int pixel_format) {
+
+	ENTER();
+	int result = 0;
+	pthread_mutex_lock(&capture_mutex);
+	{
+		if (isRunning() && isCapturing()) {
+			mIsCapturing = false;
+			if (mFrameCallbackObj || mFramePoolObj) {
+				pthread_cond_signal(&capture_sync);
+				pthread_cond_wait(&capture_sync, &capture_mutex);	// wait finishing capturing
+			}
+		}
+		clearFramePool(env);
+		if (frame_pool_obj) {
+			// IFrameCallback and FramePool are exclusive
+			if (mFrameCallbackObj) {
+				env->DeleteGlobalRef(mFrameCallbackObj);
+				mFrameCallbackObj = NULL;
+			}
+			if (mFrameInfoObj) {
+				env->DeleteGlobalRef(mFrameInfoObj);
+				mFrameInfoObj = NULL;
+			}
+			jclass clazz = env->GetObjectClass(frame_pool_obj);
+			if (LIKELY(clazz)) {
+				framepool_fields.onFrameLeased = env->GetMethodID(clazz,
+					"onFrameLeased", "(II)V");
+			} else {
+				LOGW("failed to get object class");
+			}
+			env->ExceptionClear();
+			const int n = buffers ? env->GetArrayLength(buffers) : 0;
+			if (UNLIKELY(!framepool_fields.onFrameLeased || (n <= 0))) {
+				LOGE("Can't find FramePool#onFrameLeased or buffers are empty");
+				env->DeleteGlobalRef(frame_pool_obj);
+				result = -1;
+			} else {
+				mLeaseBuffers = new uint8_t *[n];
+				mLeaseInUse = new int32_t[n];
+				mLeaseCapacity = 0;
+				for (int i = 0; i < n; i++) {
+					jobject buf = env->GetObjectArrayElement(buffers, i);
+					mLeaseBuffers[i] = buf ? (uint8_t *)env->GetDirectBufferAddress(buf) : NULL;
+					const size_t capacity = buf ? (size_t)env->GetDirectBufferCapacity(buf) : 0;
+					if (!i || (capacity < mLeaseCapacity)) {
+						mLeaseCapacity = capacity;
+					}
+					mLeaseInUse[i] = 0;
+					env->DeleteLocalRef(buf);
+					if (UNLIKELY(!mLeaseBuffers[i])) {
+						result = -1;
+					}
+				}
+				mLeaseCount = n;
+				mLeaseDropped = 0;
+				mFramePoolObj = frame_pool_obj;
+				if (UNLIKELY(result)) {
+					LOGE("FramePool buffers should be direct ByteBuffer");
+					clearFramePool(env);
+				} else {
+					mPixelFormat = pixel_format;
+					callbackPixelFormatChanged();
+				}
+			}
+		}
+	}
+	pthread_mutex_unlock(&capture_mutex);
+	RETURN(result, int);
+}
+
+/**
+ * release FramePool and lease slots, you should call this while holding capture_mutex
+ */
+void UVCPreview::clearFramePool(JNIEnv *env) {
+	if (mFramePoolObj) {
+		env->DeleteGlobalRef(mFramePoolObj);
+		mFramePoolObj = NULL;
+	}
+	framepool_fields.onFrameLeased = NULL;
+	mLeaseCount = 0;
+	mLeaseCapacity = 0;
+	if (mLeaseBuffers) {
+		delete [] mLeaseBuffers;
+		mLeaseBuffers = NULL;
+	}
+	if (mLeaseInUse) {
+		delete [] mLeaseInUse;
+		mLeaseInUse = NULL;
+	}
+}
+
+/**
+ * return the buffer leased to Java to the pool
+ * this may be called from any thread
+ */
+int UVCPreview::releaseFrameLease(int slot) {
+	int result = -1;
+	pthread_mutex_lock(&capture_mutex);
+	{
+		if (LIKELY(mLeaseInUse && (slot >= 0) && (slot < mLeaseCount))) {
+			__sync_lock_release(&mLeaseInUse[slot]);
+			result = 0;
+		}
+	}
+	pthread_mutex_unlock(&capture_mutex);
+	return result;
+}
+
+uint32_t UVCPreview::getFramePoolDropped() {
+	return mLeaseDropped;
+}
+
+/**
+ * get latency and drop statistics, this can be called from any thread
+ * @param snapshot see STATS_SNAPSHOT_SZ in FrameStats.h for the layout
+ * @param n number of elements of snapshot
+ * @return number of elements written
+ */
+int UVCPreview::getStats(int64_t *snapshot, const int n) {
+	return mStats.getStats(snapshot, n);
+}
+
 void UVCPreview::callbackPixelFormatChanged() {
 	mFrameCallbackFunc = NULL;
 	const size_t sz = requestWidth * requestHeight;
@@ -331,6 +670,7 @@ int UVCPreview::startPreview() {
 	int result = EXIT_FAILURE;
 	if (!isRunning()) {
 		mIsRunning = true;
+		mStats.reset();
 		pthread_mutex_lock(&preview_mutex);
 		{
 			if (LIKELY(mPreviewWindow)) {
@@ -356,7 +696,11 @@ int UVCPreview::stopPreview() {
 	bool b = isRunning();
 	if (LIKELY(b)) {
 		mIsRunning = false;
-		pthread_cond_signal(&preview_sync);
+		pthread_mutex_lock(&preview_mutex);
+		{
+			pthread_cond_signal(&preview_sync);
+		}
+		pthread_mutex_unlock(&preview_mutex);
 		pthread_cond_signal(&capture_sync);
 		if (pthread_join(capture_thread, NULL) != EXIT_SUCCESS) {
 			LOGW("UVCPreview::terminate capture thread: pthread_join failed");
@@ -387,6 +731,7 @@ int UVCPreview::stopPreview() {
 //
 //**********************************************************************
 void UVCPreview::uvc_preview_frame_callback(uvc_frame_t *frame, void *vptr_args) {
+	const nsecs_t receive_time = systemTime();
 	UVCPreview *preview = reinterpret_cast<UVCPreview *>(vptr_args);
 	if UNLIKELY(!preview->isRunning() || !frame || !frame->frame_format || !frame->data || !frame->data_bytes) return;
 	if (UNLIKELY(
@@ -408,52 +753,95 @@ void UVCPreview::uvc_preview_frame_callback(uvc_frame_t *frame, void *vptr_args)
 #endif
 			return;
 		}
-		uvc_error_t ret = uvc_duplicate_frame(frame, copy);
+		uvc_error_t ret = uvc_duplicate_frame_oriented(frame, copy, preview->mOrientation);
 		if (UNLIKELY(ret)) {
 			preview->recycle_frame(copy);
 			return;
 		}
+		copy->receive_time = receive_time;
+		preview->mStats.count(STATS_COUNT_RECEIVED);
+		preview->mStats.record(STATS_STAGE_RECEIVE, systemTime() - receive_time);
 		preview->addPreviewFrame(copy);
 	}
 }
 
+/**
+ * pass the frame to the preview thread, this is called only from the USB callback.
+ * previewFrames is lock-free and preview_mutex is taken only when the preview thread is sleeping.
+ */
 void UVCPreview::addPreviewFrame(uvc_frame_t *frame) {
 
-	pthread_mutex_lock(&preview_mutex);
-	if (isRunning() && (previewFrames.size() < MAX_FRAME)) {
-		previewFrames.put(frame);
-		frame = NULL;
-		pthread_cond_signal(&preview_sync);
+	if (LIKELY(isRunning())) {
+		if (mDropPolicy == DROP_POLICY_OLDEST) {
+			frame = previewFrames.offerDropOldest(frame);
+		} else if (previewFrames.offer(frame)) {
+			frame = NULL;
+		}
+		wakePreview();
 	}
-	pthread_mutex_unlock(&preview_mutex);
 	if (frame) {
+		mStats.count(STATS_COUNT_QUEUE_DROPPED);
 		recycle_frame(frame);
 	}
 }
 
+/**
+ * wake up the preview thread if it is sleeping in #waitPreviewFrame
+ * this is called after adding a received frame or finishing decoding a frame
+ */
+void UVCPreview::wakePreview() {
+	// pairs with the barrier in #waitPreviewFrame so that either side sees the other
+	__sync_synchronize();
+	if (mPreviewWaiting) {
+		pthread_mutex_lock(&preview_mutex);
+		pthread_cond_signal(&preview_sync);
+		pthread_mutex_unlock(&preview_mutex);
+	}
+}
+
+/**
+ * get the oldest received frame, if not exist, block and wait
+ * this also returns NULL when the decode workers have the next decoded frame
+ * this is called only from the preview thread
+ */
 uvc_frame_t *UVCPreview::waitPreviewFrame() {
-	uvc_frame_t *frame = NULL;
-	pthread_mutex_lock(&preview_mutex);
-	{
-		if (!previewFrames.size()) {
-			pthread_cond_wait(&preview_sync, &preview_mutex);
+	uvc_frame_t *frame = previewFrames.poll();
+	if (!frame) {
+		pthread_mutex_lock(&preview_mutex);
+		{
+			mPreviewWaiting = true;
+			__sync_synchronize();
+			// check again not to miss the frame added just before setting mPreviewWaiting
+			frame = previewFrames.poll();
+			if (!frame && isRunning() && (!mDecoder || !mDecoder->hasOutput())) {
+				pthread_cond_wait(&preview_sync, &preview_mutex);
+			}
+			mPreviewWaiting = false;
 		}
-		if (LIKELY(isRunning() && previewFrames.size() > 0)) {
-			frame = previewFrames.remove(0);
+		pthread_mutex_unlock(&preview_mutex);
+		if (!frame) {
+			frame = previewFrames.poll();
 		}
 	}
-	pthread_mutex_unlock(&preview_mutex);
+	if (UNLIKELY(frame && !isRunning())) {
+		recycle_frame(frame);
+		frame = NULL;
+	}
+	if (LIKELY(frame)) {
+		mStats.record(STATS_STAGE_QUEUE, systemTime() - frame->receive_time);
+	}
 	return frame;
 }
 
+/**
+ * discard received frames, this should be called from the preview thread
+ * or while the preview thread is not running
+ */
 void UVCPreview::clearPreviewFrame() {
-	pthread_mutex_lock(&preview_mutex);
-	{
-		for (int i = 0; i < previewFrames.size(); i++)
-			recycle_frame(previewFrames[i]);
-		previewFrames.clear();
+	uvc_frame_t *frame;
+	for ( ; (frame = previewFrames.poll()) ; ) {
+		recycle_frame(frame);
 	}
-	pthread_mutex_unlock(&preview_mutex);
 }
 
 void *UVCPreview::preview_thread_func(void *vptr_args) {
@@ -503,6 +891,9 @@ int UVCPreview::prepare_preview(uvc_stream_ctrl_t *ctrl) {
 		frameMode = requestMode;
 		frameBytes = frameWidth * frameHeight * (!requestMode ? 2 : 4);
 		previewBytes = frameWidth * frameHeight * PREVIEW_PIXEL_BYTES;
+		// frames in the pool are used for received, decoded and RGBX converted frames,
+		// so preallocate them with the largest size not to reallocate while streaming
+		init_pool(previewBytes > frameBytes ? previewBytes : frameBytes);
 	} else {
 		LOGE("could not negotiate with camera:err=%d", result);
 	}
@@ -513,7 +904,6 @@ void UVCPreview::do_preview(uvc_stream_ctrl_t *ctrl) {
 	ENTER();
 
 	uvc_frame_t *frame = NULL;
-	uvc_frame_t *frame_mjpeg = NULL;
 	uvc_error_t result = uvc_start_streaming_bandwidth(
 		mDeviceHandle, ctrl, uvc_preview_frame_callback, (void *)this, requestBandwidth, 0);
 
@@ -524,22 +914,12 @@ void UVCPreview::do_preview(uvc_stream_ctrl_t *ctrl) {
 #if LOCAL_DEBUG
 		LOGI("Streaming...");
 #endif
-		if (frameMode) {
+		if (frameMode && (mDecodeThreads > 0)) {
+			// MJPEG mode with decode workers
+			do_preview_mjpeg_parallel();
+		} else if (frameMode) {
 			// MJPEG mode
-			for ( ; LIKELY(isRunning()) ; ) {
-				frame_mjpeg = waitPreviewFrame();
-				if (LIKELY(frame_mjpeg)) {
-					frame = get_frame(frame_mjpeg->width * frame_mjpeg->height * 2);
-					result = uvc_mjpeg2yuyv(frame_mjpeg, frame);   // MJPEG => yuyv
-					recycle_frame(frame_mjpeg);
-					if (LIKELY(!result)) {
-						frame = draw_preview_one(frame, &mPreviewWindow, uvc_any2rgbx, 4);
-						addCaptureFrame(frame);
-					} else {
-						recycle_frame(frame);
-					}
-				}
-			}
+			do_preview_mjpeg();
 		} else {
 			// yuvyv mode
 			for ( ; LIKELY(isRunning()) ; ) {
@@ -565,6 +945,182 @@ void UVCPreview::do_preview(uvc_stream_ctrl_t *ctrl) {
 	EXIT();
 }
 
+/**
+ * decode MJPEG frames on the preview thread
+ */
+void UVCPreview::do_preview_mjpeg() {
+	ENTER();
+
+	uvc_frame_t *frame, *frame_mjpeg;
+	for ( ; LIKELY(isRunning()) ; ) {
+		frame_mjpeg = waitPreviewFrame();
+		if (LIKELY(frame_mjpeg)) {
+			const bool passthrough = isPassthrough();
+			frame_mjpeg = route_mjpeg_frame(frame_mjpeg, passthrough);
+			if (frame_mjpeg && (frame = decode_frame(frame_mjpeg))) {
+				output_preview_frame(frame, passthrough);
+			}
+		}
+	}
+
+	EXIT();
+}
+
+/**
+ * decode MJPEG frames on DecodeWorkers, frames are drawn in received order
+ * if the workers can not start, fall back to decoding on the preview thread
+ */
+void UVCPreview::do_preview_mjpeg_parallel() {
+	ENTER();
+
+	uvc_frame_t *frame, *decoded;
+	DecodeWorkers *decoder = new DecodeWorkers(this);
+	if (UNLIKELY(decoder->start(mDecodeThreads, mReorderWindow))) {
+		LOGE("failed to start decode workers, decode on the preview thread instead");
+		SAFE_DELETE(decoder);
+		do_preview_mjpeg();
+		EXIT();
+	}
+	mDecoder = decoder;
+	for ( ; LIKELY(isRunning()) ; ) {
+		frame = waitPreviewFrame();
+		if (LIKELY(frame)) {
+			if (!needPreviewDecode()) {
+				// pass frames still in decoding before passing this frame without decoding
+				for ( ; isRunning() && !decoder->isEmpty() ; ) {
+					decoder->waitNext();
+					for ( ; (decoded = decoder->pollNext()) ; ) {
+						output_preview_frame(decoded, isPassthrough());
+					}
+				}
+			}
+			frame = route_mjpeg_frame(frame, isPassthrough());
+		}
+		if (frame) {
+			// if the window is full, wait for the oldest frame and pass it before submitting
+			for ( ; isRunning() && decoder->isFull() ; ) {
+				decoder->waitNext();
+				for ( ; (decoded = decoder->pollNext()) ; ) {
+					output_preview_frame(decoded, isPassthrough());
+				}
+			}
+			decoder->submit(frame);
+		}
+		for ( ; (decoded = decoder->pollNext()) ; ) {
+			output_preview_frame(decoded, isPassthrough());
+		}
+	}
+	mDecoder = NULL;
+	decoder->stop();
+	SAFE_DELETE(decoder);
+
+	EXIT();
+}
+
+/**
+ * draw decoded frame and pass it to the capture thread
+ * @param passthrough if true, the capture thread already received the compressed frame
+ * 			and the decoded frame is used only for preview surface and native pipeline
+ */
+void UVCPreview::output_preview_frame(uvc_frame_t *frame, const bool passthrough) {
+	frame = draw_preview_one(frame, &mPreviewWindow, uvc_any2rgbx, 4);
+	if (passthrough) {
+		pthread_mutex_lock(&capture_mutex);
+		if (mPipeline) {
+			// pipeline duplicates the frame into its own buffer
+			mPipeline->queueFrame(frame);
+		}
+		pthread_mutex_unlock(&capture_mutex);
+		recycle_frame(frame);
+	} else {
+		addCaptureFrame(frame);
+	}
+}
+
+/**
+ * pass MJPEG frame to the capture thread without decoding when the preview thread does not need pixels,
+ * the capture thread decodes it lazily only if its consumer needs pixels,
+ * so nothing is decoded for PIXEL_FORMAT_RAW callback or frames that are overwritten in the capture queue.
+ * @param passthrough if true, a copy of the compressed frame is passed to the capture thread
+ * 			even if the preview thread decodes the frame
+ * @return frame to decode on the preview thread, NULL if the frame was passed as is
+ */
+uvc_frame_t *UVCPreview::route_mjpeg_frame(uvc_frame_t *frame_mjpeg, const bool passthrough) {
+	if (!needPreviewDecode()) {
+		addCaptureFrame(frame_mjpeg);
+		return NULL;
+	}
+	if (passthrough) {
+		uvc_frame_t *copy = get_frame(frame_mjpeg->data_bytes);
+		if (LIKELY(copy)) {
+			if (LIKELY(!uvc_duplicate_frame(frame_mjpeg, copy))) {
+				addCaptureFrame(copy);
+			} else {
+				recycle_frame(copy);
+			}
+		}
+	}
+	return frame_mjpeg;
+}
+
+/**
+ * decode MJPEG frame into YUYV frame, frame_mjpeg is recycled
+ * @param scale_num, scale_denom scaling factor while decoding
+ * @param with_roi decode only the region for IFrameCallback
+ * @return NULL if failed
+ */
+uvc_frame_t *UVCPreview::decode_frame(uvc_frame_t *frame_mjpeg,
+	const int scale_num, const int scale_denom, const bool with_roi) {
+
+	const nsecs_t start = systemTime();
+	const int orientation = mOrientation;
+	const bool roi = with_roi && mCallbackRoiWidth;
+	uvc_frame_t *frame = get_frame(frame_mjpeg->width * frame_mjpeg->height * 2);
+	uvc_error_t result = frame
+		? (roi || orientation
+			? uvc_mjpeg2yuyv_roi(frame_mjpeg, frame,
+				roi ? mCallbackRoiX : 0, roi ? mCallbackRoiY : 0,
+				roi ? mCallbackRoiWidth : 0, roi ? mCallbackRoiHeight : 0,
+				scale_num, scale_denom, orientation)	// region of MJPEG => yuyv with orientation
+			: uvc_mjpeg2yuyv_scaled(frame_mjpeg, frame, scale_num, scale_denom))	// MJPEG => yuyv
+		: UVC_ERROR_NO_MEM;
+	if (LIKELY(frame)) {
+		frame->receive_time = frame_mjpeg->receive_time;
+	}
+	recycle_frame(frame_mjpeg);
+	mStats.record(STATS_STAGE_DECODE, systemTime() - start);
+	if (UNLIKELY(result && frame)) {
+		recycle_frame(frame);
+		frame = NULL;
+	}
+	return frame;
+}
+
+/**
+ * scale down decoded frame for IFrameCallback to the same size as decode_frame, frame is recycled
+ * @param with_roi crop the region for IFrameCallback
+ * @return NULL if failed
+ */
+uvc_frame_t *UVCPreview::resize_frame(uvc_frame_t *frame,
+	const int scale_num, const int scale_denom, const bool with_roi) {
+
+	const bool roi = with_roi && mCallbackRoiWidth;
+	uvc_frame_t *resized = get_frame(frame->width * frame->height * 2);
+	uvc_error_t result = resized
+		? (roi
+			? uvc_yuyv_roi(frame, resized,
+				mCallbackRoiX, mCallbackRoiY, mCallbackRoiWidth, mCallbackRoiHeight,
+				scale_num, scale_denom)
+			: uvc_yuyv_scaled(frame, resized, scale_num, scale_denom))
+		: UVC_ERROR_NO_MEM;
+	recycle_frame(frame);
+	if (UNLIKELY(result && resized)) {
+		recycle_frame(resized);
+		resized = NULL;
+	}
+	return resized;
+}
+
 static void copyFrame(const uint8_t *src, uint8_t *dest, const int width, int height, const int stride_src, const int stride_dest) {
 	const int h8 = height % 8;
 	for (int i = 0; i < h8; i++) {
@@ -634,6 +1190,7 @@ uvc_frame_t *UVCPreview::draw_preview_one(uvc_frame_t *frame, ANativeWindow **wi
 	}
 	pthread_mutex_unlock(&preview_mutex);
 	if (LIKELY(b)) {
+		const nsecs_t start = systemTime();
 		uvc_frame_t *converted;
 		if (convert_func) {
 			converted = get_frame(frame->width * frame->height * pixcelBytes);
@@ -653,6 +1210,7 @@ uvc_frame_t *UVCPreview::draw_preview_one(uvc_frame_t *frame, ANativeWindow **wi
 			copyToSurface(frame, window);
 			pthread_mutex_unlock(&preview_mutex);
 		}
+		mStats.record(STATS_STAGE_DRAW, systemTime() - start);
 	}
 	return frame; //RETURN(frame, uvc_frame_t *);
 }
@@ -698,15 +1256,37 @@ int UVCPreview::setCaptureDisplay(ANativeWindow *capture_window) {
 	RETURN(0, int);
 }
 
+/**
+ * set native pipeline that receives copy of each decoded(YUYV) frame
+ * the pipeline is not owned by UVCPreview, you should remove it before destroying it.
+ * @param pipeline NULL to remove
+ */
+int UVCPreview::setPipeline(IPipeline *pipeline) {
+	ENTER();
+	pthread_mutex_lock(&capture_mutex);
+	{
+		mPipeline = pipeline;
+	}
+	pthread_mutex_unlock(&capture_mutex);
+	RETURN(0, int);
+}
+
 void UVCPreview::addCaptureFrame(uvc_frame_t *frame) {
 	pthread_mutex_lock(&capture_mutex);
 	if (LIKELY(isRunning())) {
+		if (mPipeline && (frame->frame_format != UVC_FRAME_FORMAT_MJPEG)) {
+			// pipeline duplicates the frame into its own buffer
+			mPipeline->queueFrame(frame);
+		}
 		// keep only latest one
 		if (captureQueu) {
+			mStats.count(STATS_COUNT_CAPTURE_DROPPED);
 			recycle_frame(captureQueu);
 		}
 		captureQueu = frame;
 		pthread_cond_broadcast(&capture_sync);
+	} else {
+		recycle_frame(frame);
 	}
 	pthread_mutex_unlock(&capture_mutex);
 }
@@ -811,8 +1391,12 @@ void UVCPreview::do_capture_surface(JNIEnv *env) {
 
 	for (; isRunning() && isCapturing() ;) {
 		frame = waitCaptureFrame();
+		if (LIKELY(frame && (frame->frame_format == UVC_FRAME_FORMAT_MJPEG))) {
+			// MJPEG frame that the preview thread did not decode
+			frame = decode_frame(frame);
+		}
 		if (LIKELY(frame)) {
-			// frame data is always YUYV format.
+			// frame data is always YUYV format here.
 			if LIKELY(isCapturing()) {
 				if (UNLIKELY(!converted)) {
 					converted = get_frame(previewBytes);
@@ -846,7 +1430,40 @@ void UVCPreview::do_capture_surface(JNIEnv *env) {
 void UVCPreview::do_capture_callback(JNIEnv *env, uvc_frame_t *frame) {
 	ENTER();
 
+	if (LIKELY(frame && (frame->frame_format == UVC_FRAME_FORMAT_MJPEG))) {
+		// MJPEG frame that is not decoded yet, decode it only when the callback needs pixels
+		if (!mFrameCallbackObj && !mFramePoolObj) {
+			recycle_frame(frame);
+			EXIT();
+		} else if (mPixelFormat != PIXEL_FORMAT_RAW) {
+			frame = mFrameCallbackObj
+				? decode_frame(frame, mCallbackScaleNum, mCallbackScaleDenom, true)
+				: decode_frame(frame);
+		}
+	} else if (frame && mFrameCallbackObj && (mPixelFormat != PIXEL_FORMAT_RAW)
+		&& ((mCallbackScaleNum < mCallbackScaleDenom) || mCallbackRoiWidth)) {
+		// frame was decoded at full size for preview/capture surface or came as YUYV
+		frame = resize_frame(frame, mCallbackScaleNum, mCallbackScaleDenom, true);
+	}
 	if (LIKELY(frame)) {
+		const nsecs_t receive_time = frame->receive_time;
+		const nsecs_t start = systemTime();
+		// PIXEL_FORMAT_RAW on MJPEG mode passes the compressed data as is
+		size_t bytes = frame->frame_format == UVC_FRAME_FORMAT_MJPEG
+			? frame->actual_bytes : callbackPixelBytes;
+		const size_t pixels = frame->width * frame->height;
+		if (UNLIKELY((frame->frame_format != UVC_FRAME_FORMAT_MJPEG)
+			&& (pixels != (size_t)(requestWidth * requestHeight)))) {
+
+			// decoded with scaling or region
+			bytes = (size_t)((uint64_t)callbackPixelBytes * pixels / (requestWidth * requestHeight));
+		}
+		if (mFramePoolObj) {
+			if (do_capture_lease(env, frame)) {
+				recordCallback(receive_time, start);
+			}
+			EXIT();
+		}
 		uvc_frame_t *callback_frame = frame;
 		if (mFrameCallbackObj) {
 			if (mFrameCallbackFunc) {
@@ -864,13 +1481,85 @@ void UVCPreview::do_capture_callback(JNIEnv *env, uvc_frame_t *frame) {
 					goto SKIP;
 				}
 			}
-			jobject buf = env->NewDirectByteBuffer(callback_frame->data, callbackPixelBytes);
-			env->CallVoidMethod(mFrameCallbackObj, iframecallback_fields.onFrame, buf);
+			jobject buf = env->NewDirectByteBuffer(callback_frame->data, bytes);
+			if (mFrameInfoObj) {
+				// conversion functions keep sequence/pts/scr/capture_time of the source frame
+				env->CallVoidMethod(mFrameInfoObj, frameinfo_fields.update,
+					(jint)callback_frame->sequence, (jlong)callback_frame->pts,
+					(jlong)callback_frame->scr, (jint)callback_frame->scr_sof,
+					(jlong)callback_frame->capture_time.tv_sec * 1000000LL + callback_frame->capture_time.tv_usec,
+					(jlong)receive_time,
+					(jint)callback_frame->width, (jint)callback_frame->height,
+					(jint)mPixelFormat, (jint)bytes);
+				env->CallVoidMethod(mFrameCallbackObj, iframecallback_fields.onFrame, buf, mFrameInfoObj);
+			} else {
+				env->CallVoidMethod(mFrameCallbackObj, iframecallback_fields.onFrame, buf);
+			}
 			env->ExceptionClear();
 			env->DeleteLocalRef(buf);
+			recordCallback(receive_time, start);
 		}
  SKIP:
 		recycle_frame(callback_frame);
 	}
 	EXIT();
 }
+
+void UVCPreview::recordCallback(const nsecs_t receive_time, const nsecs_t start) {
+	const nsecs_t now = systemTime();
+	mStats.count(STATS_COUNT_DELIVERED);
+	mStats.record(STATS_STAGE_CALLBACK, now - start);
+	mStats.record(STATS_STAGE_TOTAL, now - receive_time);
+}
+
+/**
+ * write frame data into a free buffer of FramePool and call FramePool#onFrameLeased
+ * if all buffers are leased, the frame is dropped and counted
+ * @return true if the frame was passed to FramePool
+ */
+bool UVCPreview::do_capture_lease(JNIEnv *env, uvc_frame_t *frame) {
+	int slot = -1;
+	for (int i = 0; i < mLeaseCount; i++) {
+		if (__sync_bool_compare_and_swap(&mLeaseInUse[i], 0, 1)) {
+			slot = i;
+			break;
+		}
+	}
+	if (UNLIKELY(slot < 0)) {
+		__sync_fetch_and_add(&mLeaseDropped, 1);
+		recycle_frame(frame);
+		return false;
+	}
+	uint8_t *dest = mLeaseBuffers[slot];
+	size_t bytes = frame->frame_format == UVC_FRAME_FORMAT_MJPEG
+		? frame->actual_bytes : callbackPixelBytes;
+	int b = 0;
+	if (mFrameCallbackFunc) {
+		// convert directly into the leased buffer
+		uvc_frame_t out;
+		memset(&out, 0, sizeof(out));
+		out.data = dest;
+		out.data_bytes = mLeaseCapacity;
+		out.library_owns_data = 0;
+		b = mFrameCallbackFunc(frame, &out);
+	} else {
+		if (bytes > frame->data_bytes) {
+			bytes = frame->data_bytes;
+		}
+		if (LIKELY(bytes <= mLeaseCapacity)) {
+			memcpy(dest, frame->data, bytes);
+		} else {
+			b = -1;
+		}
+	}
+	recycle_frame(frame);
+	if (UNLIKELY(b || (bytes > mLeaseCapacity))) {
+		LOGW("failed to write frame into FramePool buffer:err=%d,bytes=%d/%d", b, (int)bytes, (int)mLeaseCapacity);
+		__sync_fetch_and_add(&mLeaseDropped, 1);
+		__sync_lock_release(&mLeaseInUse[slot]);
+		return false;
+	}
+	env->CallVoidMethod(mFramePoolObj, framepool_fields.onFrameLeased, slot, (jint)bytes);
+	env->ExceptionClear();
+	return true;
+}
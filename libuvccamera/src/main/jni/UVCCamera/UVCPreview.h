@@ -29,19 +29,30 @@
 #include <pthread.h>
 #include <android/native_window.h>
 #include "objectarray.h"
+#include "framering.h"
+#include "FrameStats.h"
 
 #pragma interface
 
+class IPipeline;
+class DecodeWorkers;
+
 #define DEFAULT_PREVIEW_WIDTH 640
 #define DEFAULT_PREVIEW_HEIGHT 480
 #define DEFAULT_PREVIEW_FPS_MIN 1
 #define DEFAULT_PREVIEW_FPS_MAX 30
 #define DEFAULT_PREVIEW_MODE 0
 #define DEFAULT_BANDWIDTH 1.0f
+#define DEFAULT_QUEUE_DEPTH 4
+#define DEFAULT_POOL_SIZE (DEFAULT_QUEUE_DEPTH + 2)
+
+// what to do when the preview queue is full
+#define DROP_POLICY_NEWEST 0	// discard the incoming frame
+#define DROP_POLICY_OLDEST 1	// discard the oldest queued frame
 
 typedef uvc_error_t (*convFunc_t)(uvc_frame_t *in, uvc_frame_t *out);
 
-#define PIXEL_FORMAT_RAW 0		// same as PIXEL_FORMAT_YUV
+#define PIXEL_FORMAT_RAW 0		// MJPEG payload on MJPEG mode, same as PIXEL_FORMAT_YUV on YUYV mode
 #define PIXEL_FORMAT_YUV 1
 #define PIXEL_FORMAT_RGB565 2
 #define PIXEL_FORMAT_RGBX 3
@@ -53,7 +64,18 @@ typedef struct {
 	jmethodID onFrame;
 } Fields_iframecallback;
 
+// for FrameInfo that is passed to IFrameInfoCallback
+typedef struct {
+	jmethodID update;
+} Fields_frameinfo;
+
+// for pooled frame delivery to FramePool
+typedef struct {
+	jmethodID onFrameLeased;
+} Fields_framepool;
+
 class UVCPreview {
+	friend class DecodeWorkers;
 private:
 	uvc_device_handle_t *mDeviceHandle;
 	ANativeWindow *mPreviewWindow;
@@ -67,7 +89,14 @@ private:
 	pthread_t preview_thread;
 	pthread_mutex_t preview_mutex;
 	pthread_cond_t preview_sync;
-	ObjectArray<uvc_frame_t *> previewFrames;
+	FrameRing<uvc_frame_t *> previewFrames;	// USB callback => preview thread
+	volatile bool mPreviewWaiting;			// preview thread is waiting on preview_sync
+	int mDropPolicy;
+	int mDecodeThreads;						// 0: decode MJPEG on the preview thread
+	int mReorderWindow;
+	DecodeWorkers *mDecoder;				// only accessed from the preview thread
+	volatile int mOrientation;				// uvc_orientation, corrected while copying YUYV or decoding MJPEG
+	void wakePreview();
 	int previewFormat;
 	size_t previewBytes;
 //
@@ -77,14 +106,29 @@ private:
 	pthread_mutex_t capture_mutex;
 	pthread_cond_t capture_sync;
 	uvc_frame_t *captureQueu;			// keep latest frame
+	IPipeline *mPipeline;				// optional native pipeline that receives decoded frames
 	jobject mFrameCallbackObj;
 	convFunc_t mFrameCallbackFunc;
 	Fields_iframecallback iframecallback_fields;
+	jobject mFrameInfoObj;				// FrameInfo for IFrameInfoCallback, NULL for IFrameCallback
+	Fields_frameinfo frameinfo_fields;
 	int mPixelFormat;
 	size_t callbackPixelBytes;
+	int mCallbackScaleNum, mCallbackScaleDenom;	// scaling factor to decode MJPEG frames for IFrameCallback
+	int mCallbackRoiX, mCallbackRoiY, mCallbackRoiWidth, mCallbackRoiHeight;	// region to decode for IFrameCallback, width=0 means whole frame
+// pooled frame delivery, buffers are owned by Java FramePool
+	jobject mFramePoolObj;
+	Fields_framepool framepool_fields;
+	int mLeaseCount;
+	size_t mLeaseCapacity;
+	uint8_t **mLeaseBuffers;
+	volatile int32_t *mLeaseInUse;
+	volatile uint32_t mLeaseDropped;
+	void clearFramePool(JNIEnv *env);
+	bool do_capture_lease(JNIEnv *env, uvc_frame_t *frame);
 // improve performance by reducing memory allocation
-	pthread_mutex_t pool_mutex;
-	ObjectArray<uvc_frame_t *> mFramePool;
+	FreeList<uvc_frame_t *> mFramePool;
+	volatile size_t mPoolBytes;		// total bytes preallocated by #init_pool
 	uvc_frame_t *get_frame(size_t data_bytes);
 	void recycle_frame(uvc_frame_t *frame);
 	void init_pool(size_t data_bytes);
@@ -95,9 +139,18 @@ private:
 	void addPreviewFrame(uvc_frame_t *frame);
 	uvc_frame_t *waitPreviewFrame();
 	void clearPreviewFrame();
+	FrameStats mStats;
 	static void *preview_thread_func(void *vptr_args);
 	int prepare_preview(uvc_stream_ctrl_t *ctrl);
 	void do_preview(uvc_stream_ctrl_t *ctrl);
+	void do_preview_mjpeg();
+	void do_preview_mjpeg_parallel();
+	void output_preview_frame(uvc_frame_t *frame, const bool passthrough);
+	uvc_frame_t *decode_frame(uvc_frame_t *frame_mjpeg, const int scale_num = 1, const int scale_denom = 1, const bool with_roi = false);
+	uvc_frame_t *resize_frame(uvc_frame_t *frame, const int scale_num, const int scale_denom, const bool with_roi = false);
+	inline const bool isPassthrough() const;
+	inline const bool needPreviewDecode() const;
+	uvc_frame_t *route_mjpeg_frame(uvc_frame_t *frame_mjpeg, const bool passthrough);
 	uvc_frame_t *draw_preview_one(uvc_frame_t *frame, ANativeWindow **window, convFunc_t func, int pixelBytes);
 //
 	void addCaptureFrame(uvc_frame_t *frame);
@@ -108,6 +161,7 @@ private:
 	void do_capture_surface(JNIEnv *env);
 	void do_capture_idle_loop(JNIEnv *env);
 	void do_capture_callback(JNIEnv *env, uvc_frame_t *frame);
+	void recordCallback(const nsecs_t receive_time, const nsecs_t start);
 	void callbackPixelFormatChanged();
 public:
 	UVCPreview(uvc_device_handle_t *devh);
@@ -116,11 +170,23 @@ public:
 	inline const bool isRunning() const;
 	int setPreviewSize(int width, int height, int min_fps, int max_fps, int mode, float bandwidth = 1.0f);
 	int setPreviewDisplay(ANativeWindow *preview_window);
-	int setFrameCallback(JNIEnv *env, jobject frame_callback_obj, int pixel_format);
+	int setBufferingPolicy(int queue_depth, int pool_size, int drop_policy);
+	int setDecodeWorkers(int threads, int reorder_window);
+	int setOrientation(int orientation);
+	size_t getFramePoolBytes();
+	int setFrameCallback(JNIEnv *env, jobject frame_callback_obj, int pixel_format, jobject frame_info_obj = NULL,
+		int scale_num = 1, int scale_denom = 1, int roi_x = 0, int roi_y = 0, int roi_width = 0, int roi_height = 0);
+	int setFrameCallbackScale(int scale_num, int scale_denom);
+	int setFrameCallbackRoi(int x, int y, int width, int height);
+	int setFramePool(JNIEnv *env, jobject frame_pool_obj, jobjectArray buffers, int pixel_format);
+	int releaseFrameLease(int slot);
+	uint32_t getFramePoolDropped();
+	int getStats(int64_t *snapshot, const int n);
 	int startPreview();
 	int stopPreview();
 	inline const bool isCapturing() const;
 	int setCaptureDisplay(ANativeWindow *capture_window);
+	int setPipeline(IPipeline *pipeline);
 };
 
 #endif /* UVCPREVIEW_H_ */
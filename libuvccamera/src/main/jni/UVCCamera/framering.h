@@ -0,0 +1,264 @@
+/*
+ * UVCCamera
+ * library and sample to access to UVC web camera on non-rooted Android device
+ *
+ * Copyright (c) 2014-2017 saki t_saki@serenegiant.com
+ *
+ * File name: framering.h
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ * All files in the folder are under this Apache License, Version 2.0.
+ * Files in the jni/libjpeg, jni/libusb, jin/libuvc, jni/rapidjson folder may have a different license, see the respective files.
+*/
+
+#ifndef FRAMERING_H_
+#define FRAMERING_H_
+
+#include <stdint.h>
+#include "utilbase.h"
+
+static inline uint32_t ring_capacity(const uint32_t n) {
+	// round up to power of 2 so that positions can wrap around safely
+	uint32_t result = 1;
+	while (result < n) {
+		result <<= 1;
+	}
+	return result;
+}
+
+/**
+ * lock-free bounded ring for single producer and single consumer.
+ * the producer can also discard the oldest element when the ring is full(#offerDropOldest),
+ * so the read position is advanced by CAS while the write position is owned by the producer.
+ * T should be pointer type, NULL is used as empty.
+ * #setLimit and destructor should not be called while producer/consumer are using this.
+ */
+template <class T>
+class FrameRing {
+private:
+	T *m_slots;
+	uint32_t m_mask;
+	uint32_t m_limit;
+	volatile uint32_t m_head;	// next position to read
+	volatile uint32_t m_tail;	// next position to write, only producer changes this
+public:
+	FrameRing(const int limit = 4)
+	:	m_slots(NULL), m_mask(0), m_limit(0), m_head(0), m_tail(0) {
+		setLimit(limit);
+	}
+
+	~FrameRing() {
+		SAFE_DELETE_ARRAY(m_slots);
+	}
+
+	/**
+	 * set max number of elements, the elements that remain in the ring are discarded
+	 * and you need to retrieve them with #poll beforehand
+	 */
+	void setLimit(const int limit) {
+		const uint32_t capacity = ring_capacity(limit > 0 ? limit : 1);
+		if (capacity != m_mask + 1 || !m_slots) {
+			SAFE_DELETE_ARRAY(m_slots);
+			m_slots = new T[capacity];
+			m_mask = capacity - 1;
+		}
+		m_limit = limit > 0 ? limit : 1;
+		m_head = m_tail = 0;
+	}
+
+	inline int limit() const { return m_limit; }
+
+	/**
+	 * approximate number of elements
+	 */
+	inline int size() const {
+		return (int)(__atomic_load_n(&m_tail, __ATOMIC_ACQUIRE) - __atomic_load_n(&m_head, __ATOMIC_ACQUIRE));
+	}
+
+	/**
+	 * add element from the producer thread
+	 * @return false if the ring is full
+	 */
+	bool offer(T object) {
+		const uint32_t tail = m_tail;
+		if (UNLIKELY(tail - __atomic_load_n(&m_head, __ATOMIC_ACQUIRE) >= m_limit)) {
+			return false;
+		}
+		__atomic_store_n(&m_slots[tail & m_mask], object, __ATOMIC_RELAXED);
+		__atomic_store_n(&m_tail, tail + 1, __ATOMIC_RELEASE);
+		return true;
+	}
+
+	/**
+	 * add element from the producer thread, if the ring is full the oldest element is removed
+	 * @return removed element or NULL
+	 */
+	T offerDropOldest(T object) {
+		T result = NULL;
+		const uint32_t tail = m_tail;
+		for ( ; ; ) {
+			uint32_t head = __atomic_load_n(&m_head, __ATOMIC_ACQUIRE);
+			if (LIKELY(tail - head < m_limit)) break;
+			// the slot can not be overwritten until m_head is advanced, so it is safe to read it here
+			T oldest = __atomic_load_n(&m_slots[head & m_mask], __ATOMIC_RELAXED);
+			if (__atomic_compare_exchange_n(&m_head, &head, head + 1,
+				false, __ATOMIC_ACQ_REL, __ATOMIC_ACQUIRE)) {
+
+				result = oldest;
+				break;
+			}
+			// the consumer took it, retry
+		}
+		__atomic_store_n(&m_slots[tail & m_mask], object, __ATOMIC_RELAXED);
+		__atomic_store_n(&m_tail, tail + 1, __ATOMIC_RELEASE);
+		return result;
+	}
+
+	/**
+	 * remove the oldest element from the consumer thread
+	 * @return NULL if the ring is empty
+	 */
+	T poll() {
+		uint32_t head = __atomic_load_n(&m_head, __ATOMIC_ACQUIRE);
+		for ( ; ; ) {
+			if (head == __atomic_load_n(&m_tail, __ATOMIC_ACQUIRE)) {
+				return NULL;
+			}
+			// the slot may be overwritten by the producer after reading,
+			// but then CAS fails and the value is discarded
+			T result = __atomic_load_n(&m_slots[head & m_mask], __ATOMIC_RELAXED);
+			// fails only when the producer discarded this element, head is updated then
+			if (LIKELY(__atomic_compare_exchange_n(&m_head, &head, head + 1,
+				false, __ATOMIC_ACQ_REL, __ATOMIC_ACQUIRE))) {
+
+				return result;
+			}
+		}
+	}
+};
+
+/**
+ * lock-free bounded free-list for any number of producers and consumers
+ * (bounded MPMC queue by Dmitry Vyukov), used to reuse the buffers without mutex.
+ * T should be pointer type, NULL is used as empty.
+ * #setLimit and destructor should not be called while other threads are using this.
+ */
+template <class T>
+class FreeList {
+private:
+	typedef struct {
+		volatile uint32_t sequence;
+		T object;
+	} cell_t;
+	cell_t *m_cells;
+	uint32_t m_mask;
+	int m_limit;
+	volatile int m_count;
+	volatile uint32_t m_enqueue_pos;
+	volatile uint32_t m_dequeue_pos;
+public:
+	FreeList(const int limit = 8)
+	:	m_cells(NULL), m_mask(0), m_limit(0), m_count(0),
+		m_enqueue_pos(0), m_dequeue_pos(0) {
+		setLimit(limit);
+	}
+
+	~FreeList() {
+		SAFE_DELETE_ARRAY(m_cells);
+	}
+
+	/**
+	 * set max number of elements, the elements that remain are discarded
+	 * and you need to retrieve them with #pop beforehand
+	 */
+	void setLimit(const int limit) {
+		const uint32_t capacity = ring_capacity(limit > 0 ? limit : 1);
+		if (capacity != m_mask + 1 || !m_cells) {
+			SAFE_DELETE_ARRAY(m_cells);
+			m_cells = new cell_t[capacity];
+			m_mask = capacity - 1;
+		}
+		for (uint32_t i = 0; i < capacity; i++) {
+			m_cells[i].sequence = i;
+			m_cells[i].object = NULL;
+		}
+		m_limit = limit > 0 ? limit : 1;
+		m_count = 0;
+		m_enqueue_pos = m_dequeue_pos = 0;
+	}
+
+	inline int limit() const { return m_limit; }
+
+	/**
+	 * approximate number of elements
+	 */
+	inline int size() const { return __atomic_load_n(&m_count, __ATOMIC_RELAXED); }
+
+	/**
+	 * @return false if the list already has #limit elements
+	 */
+	bool push(T object) {
+		if (UNLIKELY(__atomic_add_fetch(&m_count, 1, __ATOMIC_RELAXED) > m_limit)) {
+			__atomic_sub_fetch(&m_count, 1, __ATOMIC_RELAXED);
+			return false;
+		}
+		cell_t *cell;
+		uint32_t pos = __atomic_load_n(&m_enqueue_pos, __ATOMIC_RELAXED);
+		for ( ; ; ) {
+			cell = &m_cells[pos & m_mask];
+			const int32_t diff = (int32_t)(__atomic_load_n(&cell->sequence, __ATOMIC_ACQUIRE) - pos);
+			if (diff == 0) {
+				if (__atomic_compare_exchange_n(&m_enqueue_pos, &pos, pos + 1,
+					true, __ATOMIC_RELAXED, __ATOMIC_RELAXED)) {
+					break;
+				}
+			} else {
+				// diff < 0 means the consumer of the previous lap has not released this cell yet,
+				// room is already reserved by m_count so just retry
+				pos = __atomic_load_n(&m_enqueue_pos, __ATOMIC_RELAXED);
+			}
+		}
+		cell->object = object;
+		__atomic_store_n(&cell->sequence, pos + 1, __ATOMIC_RELEASE);
+		return true;
+	}
+
+	/**
+	 * @return NULL if empty
+	 */
+	T pop() {
+		cell_t *cell;
+		uint32_t pos = __atomic_load_n(&m_dequeue_pos, __ATOMIC_RELAXED);
+		for ( ; ; ) {
+			cell = &m_cells[pos & m_mask];
+			const int32_t diff = (int32_t)(__atomic_load_n(&cell->sequence, __ATOMIC_ACQUIRE) - (pos + 1));
+			if (diff == 0) {
+				if (__atomic_compare_exchange_n(&m_dequeue_pos, &pos, pos + 1,
+					true, __ATOMIC_RELAXED, __ATOMIC_RELAXED)) {
+					break;
+				}
+			} else if (diff < 0) {
+				return NULL;
+			} else {
+				pos = __atomic_load_n(&m_dequeue_pos, __ATOMIC_RELAXED);
+			}
+		}
+		T result = cell->object;
+		__atomic_store_n(&cell->sequence, pos + m_mask + 1, __ATOMIC_RELEASE);
+		__atomic_sub_fetch(&m_count, 1, __ATOMIC_RELAXED);
+		return result;
+	}
+};
+
+#endif /* FRAMERING_H_ */
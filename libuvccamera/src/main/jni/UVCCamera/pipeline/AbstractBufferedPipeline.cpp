@@ -256,7 +256,7 @@ int AbstractBufferedPipeline::add_frame(uvc_frame_t *frame) {
 			// erase old frames
 			int cnt = 0;
 			for (auto iter = frame_buffers.begin();
-				 (iter != frame_buffers.end()) && (cnt < 5); iter++, cnt++) {
+				 (iter != frame_buffers.end()) && (cnt < 5); cnt++) {
 				recycle_frame(*iter);
 				iter = frame_buffers.erase(iter);
 			}
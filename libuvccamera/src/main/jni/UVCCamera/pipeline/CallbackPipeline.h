@@ -6,6 +6,7 @@
 #define PUPILMOBILE_CALLBACKPIPELINE_H
 
 #include "libUVCCamera.h"
+#include "UVCPreview.h"
 #include "CaptureBasePipeline.h"
 
 class CallbackPipeline : virtual public CaptureBasePipeline {
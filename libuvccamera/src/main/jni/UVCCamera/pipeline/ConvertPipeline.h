@@ -6,6 +6,7 @@
 #define PUPILMOBILE_CONVERTPIPELINE_H
 
 #include "libUVCCamera.h"
+#include "UVCPreview.h"
 #include "AbstractBufferedPipeline.h"
 
 class ConvertPipeline : virtual public AbstractBufferedPipeline {
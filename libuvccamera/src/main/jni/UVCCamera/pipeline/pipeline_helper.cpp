@@ -4,13 +4,11 @@
 
 #include "utilbase.h"
 #include "Timers.h"
+#include "common_utils.h"
 #include "SimpleBufferedPipeline.h"
-#include "SQLiteBufferedPipeline.h"
-#include "UVCCameraControl.h"
 #include "CallbackPipeline.h"
 #include "ConvertPipeline.h"
 #include "PreviewPipeline.h"
-#include "PublisherPipeline.h"
 #include "DistributePipeline.h"
 #include "pipeline_helper.h"
 
@@ -26,12 +24,6 @@ IPipeline *getPipeline(JNIEnv *env, jobject pipeline_obj) {
 		case PIPELINE_TYPE_SIMPLE_BUFFERED:
 			result = reinterpret_cast<SimpleBufferedPipeline *>(id_pipeline);
 			break;
-		case PIPELINE_TYPE_SQLITE_BUFFERED:
-			result = reinterpret_cast<SQLiteBufferedPipeline *>(id_pipeline);
-			break;
-		case PIPELINE_TYPE_UVC_CONTROL:
-			result = reinterpret_cast<UVCCameraControl *>(id_pipeline);
-			break;
 		case PIPELINE_TYPE_CALLBACK:
 			result = reinterpret_cast<CallbackPipeline *>(id_pipeline);
 			break;
@@ -41,9 +33,8 @@ IPipeline *getPipeline(JNIEnv *env, jobject pipeline_obj) {
 		case PIPELINE_TYPE_PREVIEW:
 			result = reinterpret_cast<PreviewPipeline *>(id_pipeline);
 			break;
-		case PIPELINE_TYPE_PUBLISHER:
-			result = reinterpret_cast<PublisherPipeline *>(id_pipeline);
-			break;
+		// SQLiteBufferedPipeline, UVCCameraControl and PublisherPipeline are not built
+		// because they need sqlite3pp/zmq that this library does not contain.
 		case PIPELINE_TYPE_DISTRIBUTE:
 			result = reinterpret_cast<DistributePipeline *>(id_pipeline);
 			break;
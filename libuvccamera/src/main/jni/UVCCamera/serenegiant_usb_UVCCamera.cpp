@@ -39,6 +39,9 @@
 #include "libUVCCamera.h"
 #include "UVCCamera.h"
 
+// defined in pipeline/pipeline_helper.cpp
+extern IPipeline *getPipeline(JNIEnv *env, jobject pipeline_obj);
+
 /**
  * set the value into the long field
  * @param env: this param should not be null
@@ -213,6 +216,26 @@ static jobject nativeGetSupportedSize(JNIEnv *env, jobject thiz,
 	RETURN(result, jobject);
 }
 
+static jintArray nativeGetSupportedSizeArray(JNIEnv *env, jobject thiz,
+	ID_TYPE id_camera) {
+
+	ENTER();
+	jintArray result = NULL;
+	UVCCamera *camera = reinterpret_cast<UVCCamera *>(id_camera);
+	if (LIKELY(camera)) {
+		int len = 0;
+		int32_t *values = camera->getSupportedSizeArray(&len);
+		if (LIKELY(values)) {
+			result = env->NewIntArray(len);
+			if (LIKELY(result)) {
+				env->SetIntArrayRegion(result, 0, len, (const jint *)values);
+			}
+			free(values);
+		}
+	}
+	RETURN(result, jintArray);
+}
+
 //======================================================================
 // プレビュー画面の大きさをセット
 static jint nativeSetPreviewSize(JNIEnv *env, jobject thiz,
@@ -263,19 +286,170 @@ static jint nativeSetPreviewDisplay(JNIEnv *env, jobject thiz,
 	RETURN(result, jint);
 }
 
+static jint nativeSetBufferingPolicy(JNIEnv *env, jobject thiz,
+	ID_TYPE id_camera, jint queue_depth, jint pool_size, jint drop_policy) {
+
+	jint result = JNI_ERR;
+	ENTER();
+	UVCCamera *camera = reinterpret_cast<UVCCamera *>(id_camera);
+	if (LIKELY(camera)) {
+		result = camera->setBufferingPolicy(queue_depth, pool_size, drop_policy);
+	}
+	RETURN(result, jint);
+}
+
+static jint nativeSetDecodeWorkers(JNIEnv *env, jobject thiz,
+	ID_TYPE id_camera, jint threads, jint reorder_window) {
+
+	jint result = JNI_ERR;
+	ENTER();
+	UVCCamera *camera = reinterpret_cast<UVCCamera *>(id_camera);
+	if (LIKELY(camera)) {
+		result = camera->setDecodeWorkers(threads, reorder_window);
+	}
+	RETURN(result, jint);
+}
+
+static jint nativeSetOrientation(JNIEnv *env, jobject thiz,
+	ID_TYPE id_camera, jint orientation) {
+
+	jint result = JNI_ERR;
+	ENTER();
+	UVCCamera *camera = reinterpret_cast<UVCCamera *>(id_camera);
+	if (LIKELY(camera)) {
+		result = camera->setOrientation(orientation);
+	}
+	RETURN(result, jint);
+}
+
+static jlong nativeGetFramePoolBytes(JNIEnv *env, jobject thiz,
+	ID_TYPE id_camera) {
+
+	jlong result = 0;
+	UVCCamera *camera = reinterpret_cast<UVCCamera *>(id_camera);
+	if (LIKELY(camera)) {
+		result = camera->getFramePoolBytes();
+	}
+	return result;
+}
+
 static jint nativeSetFrameCallback(JNIEnv *env, jobject thiz,
-	ID_TYPE id_camera, jobject jIFrameCallback, jint pixel_format) {
+	ID_TYPE id_camera, jobject jIFrameCallback, jint pixel_format, jint scale_num, jint scale_denom,
+	jint roi_x, jint roi_y, jint roi_width, jint roi_height) {
 
 	jint result = JNI_ERR;
 	ENTER();
 	UVCCamera *camera = reinterpret_cast<UVCCamera *>(id_camera);
 	if (LIKELY(camera)) {
 		jobject frame_callback_obj = env->NewGlobalRef(jIFrameCallback);
-		result = camera->setFrameCallback(env, frame_callback_obj, pixel_format);
+		result = camera->setFrameCallback(env, frame_callback_obj, pixel_format, NULL,
+			scale_num, scale_denom, roi_x, roi_y, roi_width, roi_height);
+	}
+	RETURN(result, jint);
+}
+
+static jint nativeSetFrameInfoCallback(JNIEnv *env, jobject thiz,
+	ID_TYPE id_camera, jobject jIFrameInfoCallback, jobject jFrameInfo, jint pixel_format) {
+
+	jint result = JNI_ERR;
+	ENTER();
+	UVCCamera *camera = reinterpret_cast<UVCCamera *>(id_camera);
+	if (LIKELY(camera && jIFrameInfoCallback && jFrameInfo)) {
+		jobject frame_callback_obj = env->NewGlobalRef(jIFrameInfoCallback);
+		jobject frame_info_obj = env->NewGlobalRef(jFrameInfo);
+		result = camera->setFrameCallback(env, frame_callback_obj, pixel_format, frame_info_obj);
 	}
 	RETURN(result, jint);
 }
 
+static jint nativeSetFrameCallbackScale(JNIEnv *env, jobject thiz,
+	ID_TYPE id_camera, jint scale_num, jint scale_denom) {
+
+	jint result = JNI_ERR;
+	ENTER();
+	UVCCamera *camera = reinterpret_cast<UVCCamera *>(id_camera);
+	if (LIKELY(camera)) {
+		result = camera->setFrameCallbackScale(scale_num, scale_denom);
+	}
+	RETURN(result, jint);
+}
+
+static jint nativeSetFrameCallbackRoi(JNIEnv *env, jobject thiz,
+	ID_TYPE id_camera, jint x, jint y, jint width, jint height) {
+
+	jint result = JNI_ERR;
+	ENTER();
+	UVCCamera *camera = reinterpret_cast<UVCCamera *>(id_camera);
+	if (LIKELY(camera)) {
+		result = camera->setFrameCallbackRoi(x, y, width, height);
+	}
+	RETURN(result, jint);
+}
+
+static jint nativeSetFramePool(JNIEnv *env, jobject thiz,
+	ID_TYPE id_camera, jobject jFramePool, jobjectArray jBuffers, jint pixel_format) {
+
+	jint result = JNI_ERR;
+	ENTER();
+	UVCCamera *camera = reinterpret_cast<UVCCamera *>(id_camera);
+	if (LIKELY(camera)) {
+		jobject frame_pool_obj = jFramePool ? env->NewGlobalRef(jFramePool) : NULL;
+		result = camera->setFramePool(env, frame_pool_obj, jBuffers, pixel_format);
+	}
+	RETURN(result, jint);
+}
+
+static jint nativeSetPipeline(JNIEnv *env, jobject thiz,
+	ID_TYPE id_camera, jobject pipeline_obj) {
+
+	jint result = JNI_ERR;
+	ENTER();
+	UVCCamera *camera = reinterpret_cast<UVCCamera *>(id_camera);
+	if (LIKELY(camera)) {
+		IPipeline *pipeline = getPipeline(env, pipeline_obj);
+		result = camera->setPipeline(pipeline);
+	}
+	RETURN(result, jint);
+}
+
+static jint nativeReleaseFrameLease(JNIEnv *env, jobject thiz,
+	ID_TYPE id_camera, jint slot) {
+
+	jint result = JNI_ERR;
+	UVCCamera *camera = reinterpret_cast<UVCCamera *>(id_camera);
+	if (LIKELY(camera)) {
+		result = camera->releaseFrameLease(slot);
+	}
+	return result;
+}
+
+static jint nativeGetFramePoolDropped(JNIEnv *env, jobject thiz,
+	ID_TYPE id_camera) {
+
+	jint result = 0;
+	UVCCamera *camera = reinterpret_cast<UVCCamera *>(id_camera);
+	if (LIKELY(camera)) {
+		result = camera->getFramePoolDropped();
+	}
+	return result;
+}
+
+static jint nativeGetStats(JNIEnv *env, jobject thiz,
+	ID_TYPE id_camera, jlongArray stats) {
+
+	jint result = 0;
+	UVCCamera *camera = reinterpret_cast<UVCCamera *>(id_camera);
+	if (LIKELY(camera && stats)) {
+		int64_t snapshot[STATS_SNAPSHOT_SZ];
+		const int n = env->GetArrayLength(stats);
+		result = camera->getStats(snapshot, n);
+		if (LIKELY(result > 0)) {
+			env->SetLongArrayRegion(stats, 0, result, (const jlong *)snapshot);
+		}
+	}
+	return result;
+}
+
 static jint nativeSetCaptureDisplay(JNIEnv *env, jobject thiz,
 	ID_TYPE id_camera, jobject jSurface) {
 
@@ -322,6 +496,52 @@ static jlong nativeGetProcSupports(JNIEnv *env, jobject thiz,
 	RETURN(result, jlong);
 }
 
+/**
+ * get limits and current values of controls at once
+ * @param values [result, min, max, def, current] for each control
+ * @param reload_limits bit mask of controls to read limits from the camera again
+ * @return number of controls written, or JNI_ERR
+ */
+static jint nativeGetControlValues(JNIEnv *env, jobject thiz,
+	ID_TYPE id_camera, jintArray values, jint reload_limits) {
+
+	jint result = JNI_ERR;
+	ENTER();
+	UVCCamera *camera = reinterpret_cast<UVCCamera *>(id_camera);
+	if (LIKELY(camera && values)) {
+		const jsize len = env->GetArrayLength(values);
+		jint *buf = env->GetIntArrayElements(values, NULL);
+		if (LIKELY(buf)) {
+			result = camera->getControlValues((int32_t *)buf, len, (uint32_t)reload_limits);
+			env->ReleaseIntArrayElements(values, buf, 0);
+		}
+	}
+	RETURN(result, jint);
+}
+
+/**
+ * set values of controls at once, controls already at the target value are skipped
+ * @param values [result, min, max, def, target] for each control
+ * @param mask bit mask of controls to set
+ * @return number of controls written, or JNI_ERR
+ */
+static jint nativeSetControlValues(JNIEnv *env, jobject thiz,
+	ID_TYPE id_camera, jintArray values, jint mask) {
+
+	jint result = JNI_ERR;
+	ENTER();
+	UVCCamera *camera = reinterpret_cast<UVCCamera *>(id_camera);
+	if (LIKELY(camera && values)) {
+		const jsize len = env->GetArrayLength(values);
+		jint *buf = env->GetIntArrayElements(values, NULL);
+		if (LIKELY(buf)) {
+			result = camera->setControlValues((int32_t *)buf, len, (uint32_t)mask);
+			env->ReleaseIntArrayElements(values, buf, 0);
+		}
+	}
+	RETURN(result, jint);
+}
+
 //======================================================================
 // Java mnethod correspond to this function should not be a static mathod
 static jint nativeUpdateScanningModeLimit(JNIEnv *env, jobject thiz,
@@ -2023,16 +2243,31 @@ static JNINativeMethod methods[] = {
 	{ "nativeSetButtonCallback",		"(JLcom/serenegiant/usb/IButtonCallback;)I", (void *) nativeSetButtonCallback },
 
 	{ "nativeGetSupportedSize",			"(J)Ljava/lang/String;", (void *) nativeGetSupportedSize },
+	{ "nativeGetSupportedSizeArray",	"(J)[I", (void *) nativeGetSupportedSizeArray },
 	{ "nativeSetPreviewSize",			"(JIIIIIF)I", (void *) nativeSetPreviewSize },
 	{ "nativeStartPreview",				"(J)I", (void *) nativeStartPreview },
 	{ "nativeStopPreview",				"(J)I", (void *) nativeStopPreview },
 	{ "nativeSetPreviewDisplay",		"(JLandroid/view/Surface;)I", (void *) nativeSetPreviewDisplay },
-	{ "nativeSetFrameCallback",			"(JLcom/serenegiant/usb/IFrameCallback;I)I", (void *) nativeSetFrameCallback },
+	{ "nativeSetBufferingPolicy",		"(JIII)I", (void *) nativeSetBufferingPolicy },
+	{ "nativeGetFramePoolBytes",		"(J)J", (void *) nativeGetFramePoolBytes },
+	{ "nativeSetDecodeWorkers",			"(JII)I", (void *) nativeSetDecodeWorkers },
+	{ "nativeSetOrientation",			"(JI)I", (void *) nativeSetOrientation },
+	{ "nativeSetFrameCallback",			"(JLcom/serenegiant/usb/IFrameCallback;IIIIIII)I", (void *) nativeSetFrameCallback },
+	{ "nativeSetFrameInfoCallback",		"(JLcom/serenegiant/usb/IFrameInfoCallback;Lcom/serenegiant/usb/FrameInfo;I)I", (void *) nativeSetFrameInfoCallback },
+	{ "nativeSetFrameCallbackScale",	"(JII)I", (void *) nativeSetFrameCallbackScale },
+	{ "nativeSetFrameCallbackRoi",		"(JIIII)I", (void *) nativeSetFrameCallbackRoi },
+	{ "nativeSetFramePool",				"(JLcom/serenegiant/usb/FramePool;[Ljava/nio/ByteBuffer;I)I", (void *) nativeSetFramePool },
+	{ "nativeSetPipeline",				"(JLcom/serenegiant/usb/IPipeline;)I", (void *) nativeSetPipeline },
+	{ "nativeReleaseFrameLease",		"(JI)I", (void *) nativeReleaseFrameLease },
+	{ "nativeGetFramePoolDropped",		"(J)I", (void *) nativeGetFramePoolDropped },
+	{ "nativeGetStats",					"(J[J)I", (void *) nativeGetStats },
 
 	{ "nativeSetCaptureDisplay",		"(JLandroid/view/Surface;)I", (void *) nativeSetCaptureDisplay },
 
 	{ "nativeGetCtrlSupports",			"(J)J", (void *) nativeGetCtrlSupports },
 	{ "nativeGetProcSupports",			"(J)J", (void *) nativeGetProcSupports },
+	{ "nativeGetControlValues",			"(J[II)I", (void *) nativeGetControlValues },
+	{ "nativeSetControlValues",			"(J[II)I", (void *) nativeSetControlValues },
 
 	{ "nativeUpdateScanningModeLimit",	"(J)I", (void *) nativeUpdateScanningModeLimit },
 	{ "nativeSetScanningMode",			"(JI)I", (void *) nativeSetScanningMode },
@@ -263,6 +263,9 @@ LOCAL_LDLIBS := -L$(SYSROOT)/usr/lib -ldl	# to avoid NDK issue(no need for stati
 
 LOCAL_WHOLE_STATIC_LIBRARIES = jpeg-turbo1500_static
 
+# JNI functions for TurboJPEG Java API(org.libjpegturbo.turbojpeg)
+LOCAL_SRC_FILES := turbojpeg-jni.c
+
 LOCAL_MODULE := jpeg-turbo1500
 include $(BUILD_SHARED_LIBRARY)
 
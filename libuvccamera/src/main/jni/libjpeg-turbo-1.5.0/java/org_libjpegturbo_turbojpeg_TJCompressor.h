@@ -95,6 +95,54 @@ JNIEXPORT void JNICALL Java_org_libjpegturbo_turbojpeg_TJCompressor_encodeYUV___
 JNIEXPORT void JNICALL Java_org_libjpegturbo_turbojpeg_TJCompressor_encodeYUV___3IIIIIII_3_3B_3I_3III
   (JNIEnv *, jobject, jintArray, jint, jint, jint, jint, jint, jint, jobjectArray, jintArray, jintArray, jint, jint);
 
+/*
+ * Class:     org_libjpegturbo_turbojpeg_TJCompressor
+ * Method:    compress
+ * Signature: (Ljava/nio/ByteBuffer;IIIIII[BIII)I
+ */
+JNIEXPORT jint JNICALL Java_org_libjpegturbo_turbojpeg_TJCompressor_compress__Ljava_nio_ByteBuffer_2IIIIII_3BIII
+  (JNIEnv *, jobject, jobject, jint, jint, jint, jint, jint, jint, jbyteArray, jint, jint, jint);
+
+/*
+ * Class:     org_libjpegturbo_turbojpeg_TJCompressor
+ * Method:    compress
+ * Signature: ([BIIIIIILjava/nio/ByteBuffer;III)I
+ */
+JNIEXPORT jint JNICALL Java_org_libjpegturbo_turbojpeg_TJCompressor_compress___3BIIIIIILjava_nio_ByteBuffer_2III
+  (JNIEnv *, jobject, jbyteArray, jint, jint, jint, jint, jint, jint, jobject, jint, jint, jint);
+
+/*
+ * Class:     org_libjpegturbo_turbojpeg_TJCompressor
+ * Method:    compress
+ * Signature: (Ljava/nio/ByteBuffer;IIIIIILjava/nio/ByteBuffer;III)I
+ */
+JNIEXPORT jint JNICALL Java_org_libjpegturbo_turbojpeg_TJCompressor_compress__Ljava_nio_ByteBuffer_2IIIIIILjava_nio_ByteBuffer_2III
+  (JNIEnv *, jobject, jobject, jint, jint, jint, jint, jint, jint, jobject, jint, jint, jint);
+
+/*
+ * Class:     org_libjpegturbo_turbojpeg_TJCompressor
+ * Method:    encodeYUV
+ * Signature: (Ljava/nio/ByteBuffer;IIIIII[BIII)V
+ */
+JNIEXPORT void JNICALL Java_org_libjpegturbo_turbojpeg_TJCompressor_encodeYUV__Ljava_nio_ByteBuffer_2IIIIII_3BIII
+  (JNIEnv *, jobject, jobject, jint, jint, jint, jint, jint, jint, jbyteArray, jint, jint, jint);
+
+/*
+ * Class:     org_libjpegturbo_turbojpeg_TJCompressor
+ * Method:    encodeYUV
+ * Signature: ([BIIIIIILjava/nio/ByteBuffer;III)V
+ */
+JNIEXPORT void JNICALL Java_org_libjpegturbo_turbojpeg_TJCompressor_encodeYUV___3BIIIIIILjava_nio_ByteBuffer_2III
+  (JNIEnv *, jobject, jbyteArray, jint, jint, jint, jint, jint, jint, jobject, jint, jint, jint);
+
+/*
+ * Class:     org_libjpegturbo_turbojpeg_TJCompressor
+ * Method:    encodeYUV
+ * Signature: (Ljava/nio/ByteBuffer;IIIIIILjava/nio/ByteBuffer;III)V
+ */
+JNIEXPORT void JNICALL Java_org_libjpegturbo_turbojpeg_TJCompressor_encodeYUV__Ljava_nio_ByteBuffer_2IIIIIILjava_nio_ByteBuffer_2III
+  (JNIEnv *, jobject, jobject, jint, jint, jint, jint, jint, jint, jobject, jint, jint, jint);
+
 #ifdef __cplusplus
 }
 #endif
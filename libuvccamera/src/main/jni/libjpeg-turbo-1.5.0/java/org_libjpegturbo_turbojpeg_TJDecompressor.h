@@ -28,7 +28,7 @@ JNIEXPORT void JNICALL Java_org_libjpegturbo_turbojpeg_TJDecompressor_destroy
  * Method:    decompressHeader
  * Signature: ([BI)V
  */
-JNIEXPORT void JNICALL Java_org_libjpegturbo_turbojpeg_TJDecompressor_decompressHeader
+JNIEXPORT void JNICALL Java_org_libjpegturbo_turbojpeg_TJDecompressor_decompressHeader___3BI
   (JNIEnv *, jobject, jbyteArray, jint);
 
 /*
@@ -95,6 +95,62 @@ JNIEXPORT void JNICALL Java_org_libjpegturbo_turbojpeg_TJDecompressor_decodeYUV_
 JNIEXPORT void JNICALL Java_org_libjpegturbo_turbojpeg_TJDecompressor_decodeYUV___3_3B_3I_3II_3IIIIIIII
   (JNIEnv *, jobject, jobjectArray, jintArray, jintArray, jint, jintArray, jint, jint, jint, jint, jint, jint, jint);
 
+/*
+ * Class:     org_libjpegturbo_turbojpeg_TJDecompressor
+ * Method:    decompressHeader
+ * Signature: (Ljava/nio/ByteBuffer;I)V
+ */
+JNIEXPORT void JNICALL Java_org_libjpegturbo_turbojpeg_TJDecompressor_decompressHeader__Ljava_nio_ByteBuffer_2I
+  (JNIEnv *, jobject, jobject, jint);
+
+/*
+ * Class:     org_libjpegturbo_turbojpeg_TJDecompressor
+ * Method:    decompress
+ * Signature: (Ljava/nio/ByteBuffer;I[BIIIIIII)V
+ */
+JNIEXPORT void JNICALL Java_org_libjpegturbo_turbojpeg_TJDecompressor_decompress__Ljava_nio_ByteBuffer_2I_3BIIIIIII
+  (JNIEnv *, jobject, jobject, jint, jbyteArray, jint, jint, jint, jint, jint, jint, jint);
+
+/*
+ * Class:     org_libjpegturbo_turbojpeg_TJDecompressor
+ * Method:    decompress
+ * Signature: ([BILjava/nio/ByteBuffer;IIIIIII)V
+ */
+JNIEXPORT void JNICALL Java_org_libjpegturbo_turbojpeg_TJDecompressor_decompress___3BILjava_nio_ByteBuffer_2IIIIIII
+  (JNIEnv *, jobject, jbyteArray, jint, jobject, jint, jint, jint, jint, jint, jint, jint);
+
+/*
+ * Class:     org_libjpegturbo_turbojpeg_TJDecompressor
+ * Method:    decompress
+ * Signature: (Ljava/nio/ByteBuffer;ILjava/nio/ByteBuffer;IIIIIII)V
+ */
+JNIEXPORT void JNICALL Java_org_libjpegturbo_turbojpeg_TJDecompressor_decompress__Ljava_nio_ByteBuffer_2ILjava_nio_ByteBuffer_2IIIIIII
+  (JNIEnv *, jobject, jobject, jint, jobject, jint, jint, jint, jint, jint, jint, jint);
+
+/*
+ * Class:     org_libjpegturbo_turbojpeg_TJDecompressor
+ * Method:    decompressToYUV
+ * Signature: (Ljava/nio/ByteBuffer;I[BIIII)V
+ */
+JNIEXPORT void JNICALL Java_org_libjpegturbo_turbojpeg_TJDecompressor_decompressToYUV__Ljava_nio_ByteBuffer_2I_3BIIII
+  (JNIEnv *, jobject, jobject, jint, jbyteArray, jint, jint, jint, jint);
+
+/*
+ * Class:     org_libjpegturbo_turbojpeg_TJDecompressor
+ * Method:    decompressToYUV
+ * Signature: ([BILjava/nio/ByteBuffer;IIII)V
+ */
+JNIEXPORT void JNICALL Java_org_libjpegturbo_turbojpeg_TJDecompressor_decompressToYUV___3BILjava_nio_ByteBuffer_2IIII
+  (JNIEnv *, jobject, jbyteArray, jint, jobject, jint, jint, jint, jint);
+
+/*
+ * Class:     org_libjpegturbo_turbojpeg_TJDecompressor
+ * Method:    decompressToYUV
+ * Signature: (Ljava/nio/ByteBuffer;ILjava/nio/ByteBuffer;IIII)V
+ */
+JNIEXPORT void JNICALL Java_org_libjpegturbo_turbojpeg_TJDecompressor_decompressToYUV__Ljava_nio_ByteBuffer_2ILjava_nio_ByteBuffer_2IIII
+  (JNIEnv *, jobject, jobject, jint, jobject, jint, jint, jint, jint);
+
 #ifdef __cplusplus
 }
 #endif
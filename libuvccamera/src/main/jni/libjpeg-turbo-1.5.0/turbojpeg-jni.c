@@ -63,6 +63,29 @@
 	bailif0(_fid=(*env)->GetFieldID(env, _cls, "handle", "J"));  \
 	handle=(tjhandle)(size_t)(*env)->GetLongField(env, obj, _fid);  \
 
+/* XXX UVCCamera: a buffer argument is either a Java array or a direct
+   ByteBuffer.  Direct buffers have to be resolved before any array is pinned
+   with GetPrimitiveArrayCritical, because no other JNI call is allowed until
+   the array is released. */
+#define getbufsize(buf, direct, elementSize)  \
+	((direct)? (*env)->GetDirectBufferCapacity(env, buf):  \
+		(jlong)(*env)->GetArrayLength(env, (jarray)(buf))*(elementSize))
+
+#define getdirectbuf(buf, direct, ptr) {if(direct) {  \
+	if(((ptr)=(*env)->GetDirectBufferAddress(env, buf))==NULL)  \
+		_throwarg("Buffer is not a direct buffer");  \
+}}
+
+/* ExceptionCheck is a JNI call too, so only NULL is checked after pinning */
+#define pinbuf(buf, direct, ptr) {if(!(direct)) {  \
+	if(((ptr)=(*env)->GetPrimitiveArrayCritical(env, buf, 0))==NULL)  \
+		goto bailout;  \
+}}
+
+#define releasebuf(buf, direct, ptr) {if((ptr) && !(direct)) {  \
+	(*env)->ReleasePrimitiveArrayCritical(env, buf, ptr, 0);  \
+}}
+
 #ifdef _WIN32
 #define setenv(envvar, value, dummy) _putenv_s(envvar, value)
 #endif
@@ -185,9 +208,10 @@ JNIEXPORT void JNICALL Java_org_libjpegturbo_turbojpeg_TJCompressor_init
 }
 
 static jint TJCompressor_compress
-	(JNIEnv *env, jobject obj, jarray src, jint srcElementSize, jint x, jint y,
-		jint width, jint pitch, jint height, jint pf, jbyteArray dst,
-		jint jpegSubsamp, jint jpegQual, jint flags)
+	(JNIEnv *env, jobject obj, jobject src, jboolean srcDirect,
+		jint srcElementSize, jint x, jint y, jint width, jint pitch, jint height,
+		jint pf, jobject dst, jboolean dstDirect, jint jpegSubsamp, jint jpegQual,
+		jint flags)
 {
 	tjhandle handle=0;
 	unsigned long jpegSize=0;
@@ -204,25 +228,27 @@ static jint TJCompressor_compress
 
 	actualPitch=(pitch==0)? width*tjPixelSize[pf]:pitch;
 	arraySize=(y+height-1)*actualPitch + (x+width)*tjPixelSize[pf];
-	if((*env)->GetArrayLength(env, src)*srcElementSize<arraySize)
+	if(getbufsize(src, srcDirect, srcElementSize)<arraySize)
 		_throwarg("Source buffer is not large enough");
 	jpegSize=tjBufSize(width, height, jpegSubsamp);
-	if((*env)->GetArrayLength(env, dst)<(jsize)jpegSize)
+	if(getbufsize(dst, dstDirect, 1)<(jsize)jpegSize)
 		_throwarg("Destination buffer is not large enough");
 
-	bailif0(srcBuf=(*env)->GetPrimitiveArrayCritical(env, src, 0));
-	bailif0(jpegBuf=(*env)->GetPrimitiveArrayCritical(env, dst, 0));
-
 	if(ProcessSystemProperties(env)<0) goto bailout;
 
+	getdirectbuf(src, srcDirect, srcBuf);
+	getdirectbuf(dst, dstDirect, jpegBuf);
+	pinbuf(src, srcDirect, srcBuf);
+	pinbuf(dst, dstDirect, jpegBuf);
+
 	if(tjCompress2(handle, &srcBuf[y*actualPitch + x*tjPixelSize[pf]], width,
 		pitch, height, pf, &jpegBuf, &jpegSize, jpegSubsamp, jpegQual,
 		flags|TJFLAG_NOREALLOC)==-1)
 		_throwtj();
 
 	bailout:
-	if(jpegBuf) (*env)->ReleasePrimitiveArrayCritical(env, dst, jpegBuf, 0);
-	if(srcBuf) (*env)->ReleasePrimitiveArrayCritical(env, src, srcBuf, 0);
+	releasebuf(dst, dstDirect, jpegBuf);
+	releasebuf(src, srcDirect, srcBuf);
 	return (jint)jpegSize;
 }
 
@@ -232,8 +258,8 @@ JNIEXPORT jint JNICALL Java_org_libjpegturbo_turbojpeg_TJCompressor_compress___3
 		jint pitch, jint height, jint pf, jbyteArray dst, jint jpegSubsamp,
 		jint jpegQual, jint flags)
 {
-	return TJCompressor_compress(env, obj, src, 1, x, y, width, pitch, height,
-		pf, dst, jpegSubsamp, jpegQual, flags);
+	return TJCompressor_compress(env, obj, src, JNI_FALSE, 1, x, y, width,
+		pitch, height, pf, dst, JNI_FALSE, jpegSubsamp, jpegQual, flags);
 }
 
 /* TurboJPEG 1.2.x: TJCompressor::compress() byte source */
@@ -242,8 +268,8 @@ JNIEXPORT jint JNICALL Java_org_libjpegturbo_turbojpeg_TJCompressor_compress___3
 		jint height, jint pf, jbyteArray dst, jint jpegSubsamp, jint jpegQual,
 		jint flags)
 {
-	return TJCompressor_compress(env, obj, src, 1, 0, 0, width, pitch, height,
-		pf, dst, jpegSubsamp, jpegQual, flags);
+	return TJCompressor_compress(env, obj, src, JNI_FALSE, 1, 0, 0, width,
+		pitch, height, pf, dst, JNI_FALSE, jpegSubsamp, jpegQual, flags);
 }
 
 /* TurboJPEG 1.3.x: TJCompressor::compress() int source */
@@ -257,8 +283,9 @@ JNIEXPORT jint JNICALL Java_org_libjpegturbo_turbojpeg_TJCompressor_compress___3
 	if(tjPixelSize[pf]!=sizeof(jint))
 		_throwarg("Pixel format must be 32-bit when compressing from an integer buffer.");
 
-	return TJCompressor_compress(env, obj, src, sizeof(jint), x, y, width,
-		stride*sizeof(jint), height, pf, dst, jpegSubsamp, jpegQual, flags);
+	return TJCompressor_compress(env, obj, src, JNI_FALSE, sizeof(jint), x, y,
+		width, stride*sizeof(jint), height, pf, dst, JNI_FALSE, jpegSubsamp,
+		jpegQual, flags);
 
 	bailout:
 	return 0;
@@ -275,13 +302,45 @@ JNIEXPORT jint JNICALL Java_org_libjpegturbo_turbojpeg_TJCompressor_compress___3
 	if(tjPixelSize[pf]!=sizeof(jint))
 		_throwarg("Pixel format must be 32-bit when compressing from an integer buffer.");
 
-	return TJCompressor_compress(env, obj, src, sizeof(jint), 0, 0, width,
-		stride*sizeof(jint), height, pf, dst, jpegSubsamp, jpegQual, flags);
+	return TJCompressor_compress(env, obj, src, JNI_FALSE, sizeof(jint), 0, 0,
+		width, stride*sizeof(jint), height, pf, dst, JNI_FALSE, jpegSubsamp,
+		jpegQual, flags);
 
 	bailout:
 	return 0;
 }
 
+/* XXX UVCCamera: TJCompressor::compress() direct ByteBuffer source */
+JNIEXPORT jint JNICALL Java_org_libjpegturbo_turbojpeg_TJCompressor_compress__Ljava_nio_ByteBuffer_2IIIIII_3BIII
+	(JNIEnv *env, jobject obj, jobject src, jint x, jint y, jint width,
+		jint pitch, jint height, jint pf, jbyteArray dst, jint jpegSubsamp,
+		jint jpegQual, jint flags)
+{
+	return TJCompressor_compress(env, obj, src, JNI_TRUE, 1, x, y, width,
+		pitch, height, pf, dst, JNI_FALSE, jpegSubsamp, jpegQual, flags);
+}
+
+/* XXX UVCCamera: TJCompressor::compress() direct ByteBuffer destination */
+JNIEXPORT jint JNICALL Java_org_libjpegturbo_turbojpeg_TJCompressor_compress___3BIIIIIILjava_nio_ByteBuffer_2III
+	(JNIEnv *env, jobject obj, jbyteArray src, jint x, jint y, jint width,
+		jint pitch, jint height, jint pf, jobject dst, jint jpegSubsamp,
+		jint jpegQual, jint flags)
+{
+	return TJCompressor_compress(env, obj, src, JNI_FALSE, 1, x, y, width,
+		pitch, height, pf, dst, JNI_TRUE, jpegSubsamp, jpegQual, flags);
+}
+
+/* XXX UVCCamera: TJCompressor::compress() direct ByteBuffer source and
+   destination */
+JNIEXPORT jint JNICALL Java_org_libjpegturbo_turbojpeg_TJCompressor_compress__Ljava_nio_ByteBuffer_2IIIIIILjava_nio_ByteBuffer_2III
+	(JNIEnv *env, jobject obj, jobject src, jint x, jint y, jint width,
+		jint pitch, jint height, jint pf, jobject dst, jint jpegSubsamp,
+		jint jpegQual, jint flags)
+{
+	return TJCompressor_compress(env, obj, src, JNI_TRUE, 1, x, y, width,
+		pitch, height, pf, dst, JNI_TRUE, jpegSubsamp, jpegQual, flags);
+}
+
 /* TurboJPEG 1.4.x: TJCompressor::compressFromYUV() */
 JNIEXPORT jint JNICALL Java_org_libjpegturbo_turbojpeg_TJCompressor_compressFromYUV___3_3B_3II_3III_3BII
 	(JNIEnv *env, jobject obj, jobjectArray srcobjs, jintArray jSrcOffsets,
@@ -528,6 +587,83 @@ JNIEXPORT void JNICALL Java_org_libjpegturbo_turbojpeg_TJCompressor_encodeYUV___
 	return;
 }
 
+/* XXX UVCCamera: encode into a unified YUV buffer, either of the buffers can
+   be a direct ByteBuffer */
+static void TJCompressor_encodeYUVUnified
+	(JNIEnv *env, jobject obj, jobject src, jboolean srcDirect, jint x, jint y,
+		jint width, jint pitch, jint height, jint pf, jobject dst,
+		jboolean dstDirect, jint pad, jint subsamp, jint flags)
+{
+	tjhandle handle=0;
+	jsize arraySize=0, actualPitch;
+	unsigned long yuvSize=0;
+	unsigned char *srcBuf=NULL, *dstBuf=NULL;
+
+	gethandle();
+
+	if(pf<0 || pf>=org_libjpegturbo_turbojpeg_TJ_NUMPF || width<1 || height<1
+		|| pitch<0 || x<0 || y<0 || subsamp<0
+		|| subsamp>=org_libjpegturbo_turbojpeg_TJ_NUMSAMP)
+		_throwarg("Invalid argument in encodeYUV()");
+	if(org_libjpegturbo_turbojpeg_TJ_NUMPF!=TJ_NUMPF
+		|| org_libjpegturbo_turbojpeg_TJ_NUMSAMP!=TJ_NUMSAMP)
+		_throwarg("Mismatch between Java and C API");
+
+	actualPitch=(pitch==0)? width*tjPixelSize[pf]:pitch;
+	arraySize=(y+height-1)*actualPitch + (x+width)*tjPixelSize[pf];
+	if(getbufsize(src, srcDirect, 1)<arraySize)
+		_throwarg("Source buffer is not large enough");
+	if((yuvSize=tjBufSizeYUV2(width, pad, height, subsamp))==(unsigned long)-1)
+		_throwarg(tjGetErrorStr());
+	if(getbufsize(dst, dstDirect, 1)<(jlong)yuvSize)
+		_throwarg("Destination buffer is not large enough");
+
+	getdirectbuf(src, srcDirect, srcBuf);
+	getdirectbuf(dst, dstDirect, dstBuf);
+	pinbuf(src, srcDirect, srcBuf);
+	pinbuf(dst, dstDirect, dstBuf);
+
+	if(tjEncodeYUV3(handle, &srcBuf[y*actualPitch + x*tjPixelSize[pf]], width,
+		pitch, height, pf, dstBuf, pad, subsamp, flags)==-1)
+		_throwtj();
+
+	bailout:
+	releasebuf(dst, dstDirect, dstBuf);
+	releasebuf(src, srcDirect, srcBuf);
+	return;
+}
+
+/* XXX UVCCamera: TJCompressor::encodeYUV() direct ByteBuffer source */
+JNIEXPORT void JNICALL Java_org_libjpegturbo_turbojpeg_TJCompressor_encodeYUV__Ljava_nio_ByteBuffer_2IIIIII_3BIII
+	(JNIEnv *env, jobject obj, jobject src, jint x, jint y, jint width,
+		jint pitch, jint height, jint pf, jbyteArray dst, jint pad, jint subsamp,
+		jint flags)
+{
+	TJCompressor_encodeYUVUnified(env, obj, src, JNI_TRUE, x, y, width, pitch,
+		height, pf, dst, JNI_FALSE, pad, subsamp, flags);
+}
+
+/* XXX UVCCamera: TJCompressor::encodeYUV() direct ByteBuffer destination */
+JNIEXPORT void JNICALL Java_org_libjpegturbo_turbojpeg_TJCompressor_encodeYUV___3BIIIIIILjava_nio_ByteBuffer_2III
+	(JNIEnv *env, jobject obj, jbyteArray src, jint x, jint y, jint width,
+		jint pitch, jint height, jint pf, jobject dst, jint pad, jint subsamp,
+		jint flags)
+{
+	TJCompressor_encodeYUVUnified(env, obj, src, JNI_FALSE, x, y, width, pitch,
+		height, pf, dst, JNI_TRUE, pad, subsamp, flags);
+}
+
+/* XXX UVCCamera: TJCompressor::encodeYUV() direct ByteBuffer source and
+   destination */
+JNIEXPORT void JNICALL Java_org_libjpegturbo_turbojpeg_TJCompressor_encodeYUV__Ljava_nio_ByteBuffer_2IIIIIILjava_nio_ByteBuffer_2III
+	(JNIEnv *env, jobject obj, jobject src, jint x, jint y, jint width,
+		jint pitch, jint height, jint pf, jobject dst, jint pad, jint subsamp,
+		jint flags)
+{
+	TJCompressor_encodeYUVUnified(env, obj, src, JNI_TRUE, x, y, width, pitch,
+		height, pf, dst, JNI_TRUE, pad, subsamp, flags);
+}
+
 /* TurboJPEG 1.2.x: TJCompressor::destroy() */
 JNIEXPORT void JNICALL Java_org_libjpegturbo_turbojpeg_TJCompressor_destroy
 	(JNIEnv *env, jobject obj)
@@ -590,9 +726,8 @@ JNIEXPORT jobjectArray JNICALL Java_org_libjpegturbo_turbojpeg_TJ_getScalingFact
 	return sfjava;
 }
 
-/* TurboJPEG 1.2.x: TJDecompressor::decompressHeader() */
-JNIEXPORT void JNICALL Java_org_libjpegturbo_turbojpeg_TJDecompressor_decompressHeader
-	(JNIEnv *env, jobject obj, jbyteArray src, jint jpegSize)
+static void TJDecompressor_decompressHeader
+	(JNIEnv *env, jobject obj, jobject src, jboolean srcDirect, jint jpegSize)
 {
 	tjhandle handle=0;
 	unsigned char *jpegBuf=NULL;
@@ -600,16 +735,17 @@ JNIEXPORT void JNICALL Java_org_libjpegturbo_turbojpeg_TJDecompressor_decompress
 
 	gethandle();
 
-	if((*env)->GetArrayLength(env, src)<jpegSize)
+	if(getbufsize(src, srcDirect, 1)<jpegSize)
 		_throwarg("Source buffer is not large enough");
 
-	bailif0(jpegBuf=(*env)->GetPrimitiveArrayCritical(env, src, 0));
+	getdirectbuf(src, srcDirect, jpegBuf);
+	pinbuf(src, srcDirect, jpegBuf);
 
 	if(tjDecompressHeader3(handle, jpegBuf, (unsigned long)jpegSize,
 		&width, &height, &jpegSubsamp, &jpegColorspace)==-1)
 		_throwtj();
 
-	(*env)->ReleasePrimitiveArrayCritical(env, src, jpegBuf, 0);  jpegBuf=NULL;
+	releasebuf(src, srcDirect, jpegBuf);  jpegBuf=NULL;
 
 	bailif0(_fid=(*env)->GetFieldID(env, _cls, "jpegSubsamp", "I"));
 	(*env)->SetIntField(env, obj, _fid, jpegSubsamp);
@@ -623,14 +759,29 @@ JNIEXPORT void JNICALL Java_org_libjpegturbo_turbojpeg_TJDecompressor_decompress
 	(*env)->SetIntField(env, obj, _fid, height);
 
 	bailout:
-	if(jpegBuf) (*env)->ReleasePrimitiveArrayCritical(env, src, jpegBuf, 0);
+	releasebuf(src, srcDirect, jpegBuf);
 	return;
 }
 
+/* TurboJPEG 1.2.x: TJDecompressor::decompressHeader() byte source */
+/* XXX UVCCamera: exported with the long name since the method is overloaded */
+JNIEXPORT void JNICALL Java_org_libjpegturbo_turbojpeg_TJDecompressor_decompressHeader___3BI
+	(JNIEnv *env, jobject obj, jbyteArray src, jint jpegSize)
+{
+	TJDecompressor_decompressHeader(env, obj, src, JNI_FALSE, jpegSize);
+}
+
+/* XXX UVCCamera: TJDecompressor::decompressHeader() direct ByteBuffer source */
+JNIEXPORT void JNICALL Java_org_libjpegturbo_turbojpeg_TJDecompressor_decompressHeader__Ljava_nio_ByteBuffer_2I
+	(JNIEnv *env, jobject obj, jobject src, jint jpegSize)
+{
+	TJDecompressor_decompressHeader(env, obj, src, JNI_TRUE, jpegSize);
+}
+
 static void TJDecompressor_decompress
-	(JNIEnv *env, jobject obj, jbyteArray src, jint jpegSize, jarray dst,
-		jint dstElementSize, jint x, jint y, jint width, jint pitch, jint height,
-		jint pf, jint flags)
+	(JNIEnv *env, jobject obj, jobject src, jboolean srcDirect, jint jpegSize,
+		jobject dst, jboolean dstDirect, jint dstElementSize, jint x, jint y,
+		jint width, jint pitch, jint height, jint pf, jint flags)
 {
 	tjhandle handle=0;
 	jsize arraySize=0, actualPitch;
@@ -643,15 +794,17 @@ static void TJDecompressor_decompress
 	if(org_libjpegturbo_turbojpeg_TJ_NUMPF!=TJ_NUMPF)
 		_throwarg("Mismatch between Java and C API");
 
-	if((*env)->GetArrayLength(env, src)<jpegSize)
+	if(getbufsize(src, srcDirect, 1)<jpegSize)
 		_throwarg("Source buffer is not large enough");
 	actualPitch=(pitch==0)? width*tjPixelSize[pf]:pitch;
 	arraySize=(y+height-1)*actualPitch + (x+width)*tjPixelSize[pf];
-	if((*env)->GetArrayLength(env, dst)*dstElementSize<arraySize)
+	if(getbufsize(dst, dstDirect, dstElementSize)<arraySize)
 		_throwarg("Destination buffer is not large enough");
 
-	bailif0(jpegBuf=(*env)->GetPrimitiveArrayCritical(env, src, 0));
-	bailif0(dstBuf=(*env)->GetPrimitiveArrayCritical(env, dst, 0));
+	getdirectbuf(src, srcDirect, jpegBuf);
+	getdirectbuf(dst, dstDirect, dstBuf);
+	pinbuf(src, srcDirect, jpegBuf);
+	pinbuf(dst, dstDirect, dstBuf);
 
 	if(tjDecompress2(handle, jpegBuf, (unsigned long)jpegSize,
 		&dstBuf[y*actualPitch + x*tjPixelSize[pf]], width, pitch, height, pf,
@@ -659,8 +812,8 @@ static void TJDecompressor_decompress
 		_throwtj();
 
 	bailout:
-	if(dstBuf) (*env)->ReleasePrimitiveArrayCritical(env, dst, dstBuf, 0);
-	if(jpegBuf) (*env)->ReleasePrimitiveArrayCritical(env, src, jpegBuf, 0);
+	releasebuf(dst, dstDirect, dstBuf);
+	releasebuf(src, srcDirect, jpegBuf);
 	return;
 }
 
@@ -669,8 +822,8 @@ JNIEXPORT void JNICALL Java_org_libjpegturbo_turbojpeg_TJDecompressor_decompress
 	(JNIEnv *env, jobject obj, jbyteArray src, jint jpegSize, jbyteArray dst,
 		jint x, jint y, jint width, jint pitch, jint height, jint pf, jint flags)
 {
-	TJDecompressor_decompress(env, obj, src, jpegSize, dst, 1, x, y, width,
-		pitch, height, pf, flags);
+	TJDecompressor_decompress(env, obj, src, JNI_FALSE, jpegSize, dst,
+		JNI_FALSE, 1, x, y, width, pitch, height, pf, flags);
 }
 
 /* TurboJPEG 1.2.x: TJDecompressor::decompress() byte destination */
@@ -678,8 +831,8 @@ JNIEXPORT void JNICALL Java_org_libjpegturbo_turbojpeg_TJDecompressor_decompress
 	(JNIEnv *env, jobject obj, jbyteArray src, jint jpegSize, jbyteArray dst,
 		jint width, jint pitch, jint height, jint pf, jint flags)
 {
-	TJDecompressor_decompress(env, obj, src, jpegSize, dst, 1, 0, 0, width,
-		pitch, height, pf, flags);
+	TJDecompressor_decompress(env, obj, src, JNI_FALSE, jpegSize, dst,
+		JNI_FALSE, 1, 0, 0, width, pitch, height, pf, flags);
 }
 
 /* TurboJPEG 1.3.x: TJDecompressor::decompress() int destination */
@@ -692,8 +845,9 @@ JNIEXPORT void JNICALL Java_org_libjpegturbo_turbojpeg_TJDecompressor_decompress
 	if(tjPixelSize[pf]!=sizeof(jint))
 		_throwarg("Pixel format must be 32-bit when decompressing to an integer buffer.");
 
-	TJDecompressor_decompress(env, obj, src, jpegSize, dst, sizeof(jint), x, y,
-		width, stride*sizeof(jint), height, pf, flags);
+	TJDecompressor_decompress(env, obj, src, JNI_FALSE, jpegSize, dst,
+		JNI_FALSE, sizeof(jint), x, y, width, stride*sizeof(jint), height, pf,
+		flags);
 
 	bailout:
 	return;
@@ -709,14 +863,43 @@ JNIEXPORT void JNICALL Java_org_libjpegturbo_turbojpeg_TJDecompressor_decompress
 	if(tjPixelSize[pf]!=sizeof(jint))
 		_throwarg("Pixel format must be 32-bit when decompressing to an integer buffer.");
 
-	TJDecompressor_decompress(env, obj, src, jpegSize, dst, sizeof(jint), 0, 0,
-		width, stride*sizeof(jint), height, pf, flags);
+	TJDecompressor_decompress(env, obj, src, JNI_FALSE, jpegSize, dst,
+		JNI_FALSE, sizeof(jint), 0, 0, width, stride*sizeof(jint), height, pf,
+		flags);
 
 	bailout:
 	return;
 
 }
 
+/* XXX UVCCamera: TJDecompressor::decompress() direct ByteBuffer source */
+JNIEXPORT void JNICALL Java_org_libjpegturbo_turbojpeg_TJDecompressor_decompress__Ljava_nio_ByteBuffer_2I_3BIIIIIII
+	(JNIEnv *env, jobject obj, jobject src, jint jpegSize, jbyteArray dst,
+		jint x, jint y, jint width, jint pitch, jint height, jint pf, jint flags)
+{
+	TJDecompressor_decompress(env, obj, src, JNI_TRUE, jpegSize, dst,
+		JNI_FALSE, 1, x, y, width, pitch, height, pf, flags);
+}
+
+/* XXX UVCCamera: TJDecompressor::decompress() direct ByteBuffer destination */
+JNIEXPORT void JNICALL Java_org_libjpegturbo_turbojpeg_TJDecompressor_decompress___3BILjava_nio_ByteBuffer_2IIIIIII
+	(JNIEnv *env, jobject obj, jbyteArray src, jint jpegSize, jobject dst,
+		jint x, jint y, jint width, jint pitch, jint height, jint pf, jint flags)
+{
+	TJDecompressor_decompress(env, obj, src, JNI_FALSE, jpegSize, dst,
+		JNI_TRUE, 1, x, y, width, pitch, height, pf, flags);
+}
+
+/* XXX UVCCamera: TJDecompressor::decompress() direct ByteBuffer source and
+   destination */
+JNIEXPORT void JNICALL Java_org_libjpegturbo_turbojpeg_TJDecompressor_decompress__Ljava_nio_ByteBuffer_2ILjava_nio_ByteBuffer_2IIIIIII
+	(JNIEnv *env, jobject obj, jobject src, jint jpegSize, jobject dst,
+		jint x, jint y, jint width, jint pitch, jint height, jint pf, jint flags)
+{
+	TJDecompressor_decompress(env, obj, src, JNI_TRUE, jpegSize, dst,
+		JNI_TRUE, 1, x, y, width, pitch, height, pf, flags);
+}
+
 /* TurboJPEG 1.4.x: TJDecompressor::decompressToYUV() */
 JNIEXPORT void JNICALL Java_org_libjpegturbo_turbojpeg_TJDecompressor_decompressToYUV___3BI_3_3B_3II_3III
 	(JNIEnv *env, jobject obj, jbyteArray src, jint jpegSize,
@@ -842,6 +1025,76 @@ JNIEXPORT void JNICALL Java_org_libjpegturbo_turbojpeg_TJDecompressor_decompress
 	return;
 }
 
+/* XXX UVCCamera: decompress into a unified YUV buffer, either of the buffers
+   can be a direct ByteBuffer */
+static void TJDecompressor_decompressToYUVUnified
+	(JNIEnv *env, jobject obj, jobject src, jboolean srcDirect, jint jpegSize,
+		jobject dst, jboolean dstDirect, jint width, jint pad, jint height,
+		jint flags)
+{
+	tjhandle handle=0;
+	unsigned char *jpegBuf=NULL, *dstBuf=NULL;
+	unsigned long yuvSize=0;
+	int jpegSubsamp=-1;
+
+	gethandle();
+
+	if(width<1 || height<1)
+		_throwarg("Invalid argument in decompressToYUV()");
+	if(getbufsize(src, srcDirect, 1)<jpegSize)
+		_throwarg("Source buffer is not large enough");
+	bailif0(_fid=(*env)->GetFieldID(env, _cls, "jpegSubsamp", "I"));
+	jpegSubsamp=(int)(*env)->GetIntField(env, obj, _fid);
+	if((yuvSize=tjBufSizeYUV2(width, pad, height, jpegSubsamp))
+		==(unsigned long)-1)
+		_throwarg(tjGetErrorStr());
+	if(getbufsize(dst, dstDirect, 1)<(jlong)yuvSize)
+		_throwarg("Destination buffer is not large enough");
+
+	getdirectbuf(src, srcDirect, jpegBuf);
+	getdirectbuf(dst, dstDirect, dstBuf);
+	pinbuf(src, srcDirect, jpegBuf);
+	pinbuf(dst, dstDirect, dstBuf);
+
+	if(tjDecompressToYUV2(handle, jpegBuf, (unsigned long)jpegSize, dstBuf,
+		width, pad, height, flags)==-1)
+		_throwtj();
+
+	bailout:
+	releasebuf(dst, dstDirect, dstBuf);
+	releasebuf(src, srcDirect, jpegBuf);
+	return;
+}
+
+/* XXX UVCCamera: TJDecompressor::decompressToYUV() direct ByteBuffer source */
+JNIEXPORT void JNICALL Java_org_libjpegturbo_turbojpeg_TJDecompressor_decompressToYUV__Ljava_nio_ByteBuffer_2I_3BIIII
+	(JNIEnv *env, jobject obj, jobject src, jint jpegSize, jbyteArray dst,
+		jint width, jint pad, jint height, jint flags)
+{
+	TJDecompressor_decompressToYUVUnified(env, obj, src, JNI_TRUE, jpegSize,
+		dst, JNI_FALSE, width, pad, height, flags);
+}
+
+/* XXX UVCCamera: TJDecompressor::decompressToYUV() direct ByteBuffer
+   destination */
+JNIEXPORT void JNICALL Java_org_libjpegturbo_turbojpeg_TJDecompressor_decompressToYUV___3BILjava_nio_ByteBuffer_2IIII
+	(JNIEnv *env, jobject obj, jbyteArray src, jint jpegSize, jobject dst,
+		jint width, jint pad, jint height, jint flags)
+{
+	TJDecompressor_decompressToYUVUnified(env, obj, src, JNI_FALSE, jpegSize,
+		dst, JNI_TRUE, width, pad, height, flags);
+}
+
+/* XXX UVCCamera: TJDecompressor::decompressToYUV() direct ByteBuffer source
+   and destination */
+JNIEXPORT void JNICALL Java_org_libjpegturbo_turbojpeg_TJDecompressor_decompressToYUV__Ljava_nio_ByteBuffer_2ILjava_nio_ByteBuffer_2IIII
+	(JNIEnv *env, jobject obj, jobject src, jint jpegSize, jobject dst,
+		jint width, jint pad, jint height, jint flags)
+{
+	TJDecompressor_decompressToYUVUnified(env, obj, src, JNI_TRUE, jpegSize,
+		dst, JNI_TRUE, width, pad, height, flags);
+}
+
 static void TJDecompressor_decodeYUV
 	(JNIEnv *env, jobject obj, jobjectArray srcobjs, jintArray jSrcOffsets,
 		jintArray jSrcStrides, jint subsamp, jarray dst, jint dstElementSize,
@@ -999,30 +1252,31 @@ static int JNICustomFilter(short *coeffs, tjregion arrayRegion,
 		"()Ljava/nio/ShortBuffer;"));
 	bailif0(bufobj=(*env)->CallObjectMethod(env, bufobj, mid));
 
-	bailif0(cls=(*env)->FindClass(env, "java/awt/Rectangle"));
+	/* UVCCamera: regions are android.graphics.Rect because Android has no java.awt */
+	bailif0(cls=(*env)->FindClass(env, "android/graphics/Rect"));
 	bailif0(arrayRegionObj=(*env)->AllocObject(env, cls));
-	bailif0(fid=(*env)->GetFieldID(env, cls, "x", "I"));
+	bailif0(fid=(*env)->GetFieldID(env, cls, "left", "I"));
 	(*env)->SetIntField(env, arrayRegionObj, fid, arrayRegion.x);
-	bailif0(fid=(*env)->GetFieldID(env, cls, "y", "I"));
+	bailif0(fid=(*env)->GetFieldID(env, cls, "top", "I"));
 	(*env)->SetIntField(env, arrayRegionObj, fid, arrayRegion.y);
-	bailif0(fid=(*env)->GetFieldID(env, cls, "width", "I"));
-	(*env)->SetIntField(env, arrayRegionObj, fid, arrayRegion.w);
-	bailif0(fid=(*env)->GetFieldID(env, cls, "height", "I"));
-	(*env)->SetIntField(env, arrayRegionObj, fid, arrayRegion.h);
+	bailif0(fid=(*env)->GetFieldID(env, cls, "right", "I"));
+	(*env)->SetIntField(env, arrayRegionObj, fid, arrayRegion.x+arrayRegion.w);
+	bailif0(fid=(*env)->GetFieldID(env, cls, "bottom", "I"));
+	(*env)->SetIntField(env, arrayRegionObj, fid, arrayRegion.y+arrayRegion.h);
 
 	bailif0(planeRegionObj=(*env)->AllocObject(env, cls));
-	bailif0(fid=(*env)->GetFieldID(env, cls, "x", "I"));
+	bailif0(fid=(*env)->GetFieldID(env, cls, "left", "I"));
 	(*env)->SetIntField(env, planeRegionObj, fid, planeRegion.x);
-	bailif0(fid=(*env)->GetFieldID(env, cls, "y", "I"));
+	bailif0(fid=(*env)->GetFieldID(env, cls, "top", "I"));
 	(*env)->SetIntField(env, planeRegionObj, fid, planeRegion.y);
-	bailif0(fid=(*env)->GetFieldID(env, cls, "width", "I"));
-	(*env)->SetIntField(env, planeRegionObj, fid, planeRegion.w);
-	bailif0(fid=(*env)->GetFieldID(env, cls, "height", "I"));
-	(*env)->SetIntField(env, planeRegionObj, fid, planeRegion.h);
+	bailif0(fid=(*env)->GetFieldID(env, cls, "right", "I"));
+	(*env)->SetIntField(env, planeRegionObj, fid, planeRegion.x+planeRegion.w);
+	bailif0(fid=(*env)->GetFieldID(env, cls, "bottom", "I"));
+	(*env)->SetIntField(env, planeRegionObj, fid, planeRegion.y+planeRegion.h);
 
 	bailif0(cls=(*env)->GetObjectClass(env, cfobj));
 	bailif0(mid=(*env)->GetMethodID(env, cls, "customFilter",
-		"(Ljava/nio/ShortBuffer;Ljava/awt/Rectangle;Ljava/awt/Rectangle;IILorg/libjpegturbo/turbojpeg/TJTransform;)V"));
+		"(Ljava/nio/ShortBuffer;Landroid/graphics/Rect;Landroid/graphics/Rect;IILorg/libjpegturbo/turbojpeg/TJTransform;)V"));
 	(*env)->CallVoidMethod(env, cfobj, mid, bufobj, arrayRegionObj,
 		planeRegionObj, componentIndex, transformIndex, tobj);
 
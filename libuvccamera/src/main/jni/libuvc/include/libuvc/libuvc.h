@@ -123,6 +123,17 @@ enum uvc_frame_format {
 #define UVC_COLOR_FORMAT_MJPEG UVC_FRAME_FORMAT_MJPEG
 #define UVC_COLOR_FORMAT_GRAY8 UVC_FRAME_FORMAT_GRAY8
 
+/** Orientation correction applied while copying/decoding frames, XXX */
+enum uvc_orientation {
+	UVC_ORIENTATION_NORMAL = 0,
+	/** mirrored left and right */
+	UVC_ORIENTATION_HFLIP = 1,
+	/** mirrored top and bottom */
+	UVC_ORIENTATION_VFLIP = 2,
+	/** upside-down, same as UVC_ORIENTATION_HFLIP | UVC_ORIENTATION_VFLIP */
+	UVC_ORIENTATION_ROT180 = 3,
+};
+
 /** VideoStreaming interface descriptor subtype (A.6) */
 enum uvc_vs_desc_subtype {
   UVC_VS_UNDEFINED = 0x00,
@@ -482,6 +493,16 @@ typedef struct uvc_frame {
 	 * Set this field to zero if you are supplying the buffer.
 	 */
 	uint8_t library_owns_data;
+	/** XXX CLOCK_MONOTONIC time in nanoseconds when the application received this frame,
+	 * used for latency statistics, libuvc itself does not set this */
+	int64_t receive_time;
+	/** XXX presentation time stamp in the payload header, in device clock, 0 if the device did not send it */
+	uint32_t pts;
+	/** XXX source time clock of source clock reference in the payload header, in device clock,
+	 * 0 if the device did not send it */
+	uint32_t scr;
+	/** XXX 11 bits USB SOF token counter of source clock reference in the payload header */
+	uint16_t scr_sof;
 } uvc_frame_t;
 
 /** A callback function to handle incoming assembled UVC frames
@@ -786,6 +807,12 @@ uvc_frame_t *uvc_allocate_frame(size_t data_bytes);
 void uvc_free_frame(uvc_frame_t *frame);
 
 uvc_error_t uvc_duplicate_frame(uvc_frame_t *in, uvc_frame_t *out);
+uvc_error_t uvc_duplicate_frame_oriented(uvc_frame_t *in, uvc_frame_t *out, const int orientation);	// XXX
+uvc_error_t uvc_yuyv_scaled(uvc_frame_t *in, uvc_frame_t *out,
+	const int scale_num, const int scale_denom);	// XXX
+uvc_error_t uvc_yuyv_roi(uvc_frame_t *in, uvc_frame_t *out,
+	const int roi_x, const int roi_y, const int roi_width, const int roi_height,
+	const int scale_num, const int scale_denom);	// XXX
 //----------------------------------------------------------------------
 uvc_error_t uvc_yuyv2rgb(uvc_frame_t *in, uvc_frame_t *out);
 uvc_error_t uvc_uyvy2rgb(uvc_frame_t *in, uvc_frame_t *out);
@@ -801,6 +828,11 @@ uvc_error_t uvc_mjpeg2bgr(uvc_frame_t *in, uvc_frame_t *out);		// XXX
 uvc_error_t uvc_mjpeg2rgb565(uvc_frame_t *in, uvc_frame_t *out);	// XXX
 uvc_error_t uvc_mjpeg2rgbx(uvc_frame_t *in, uvc_frame_t *out);		// XXX
 uvc_error_t uvc_mjpeg2yuyv(uvc_frame_t *in, uvc_frame_t *out);		// XXX
+uvc_error_t uvc_mjpeg2yuyv_scaled(uvc_frame_t *in, uvc_frame_t *out,
+	const int scale_num, const int scale_denom);	// XXX
+uvc_error_t uvc_mjpeg2yuyv_roi(uvc_frame_t *in, uvc_frame_t *out,
+	const int roi_x, const int roi_y, const int roi_width, const int roi_height,
+	const int scale_num, const int scale_denom, const int orientation);	// XXX
 #endif
 
 uvc_error_t uvc_yuyv2rgb565(uvc_frame_t *in, uvc_frame_t *out);		// XXX
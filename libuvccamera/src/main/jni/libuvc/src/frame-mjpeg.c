@@ -189,6 +189,9 @@ uvc_error_t uvc_mjpeg2rgb(uvc_frame_t *in, uvc_frame_t *out) {
 	out->step = in->width * 3;
 	out->sequence = in->sequence;
 	out->capture_time = in->capture_time;
+	out->pts = in->pts;	// XXX
+	out->scr = in->scr;	// XXX
+	out->scr_sof = in->scr_sof;	// XXX
 	out->source = in->source;
 
 	dinfo.err = jpeg_std_error(&jerr.super);
@@ -259,6 +262,9 @@ uvc_error_t uvc_mjpeg2bgr(uvc_frame_t *in, uvc_frame_t *out) {
 	out->step = in->width * 3;
 	out->sequence = in->sequence;
 	out->capture_time = in->capture_time;
+	out->pts = in->pts;	// XXX
+	out->scr = in->scr;	// XXX
+	out->scr_sof = in->scr_sof;	// XXX
 	out->source = in->source;
 
 	dinfo.err = jpeg_std_error(&jerr.super);
@@ -333,6 +339,9 @@ uvc_error_t uvc_mjpeg2rgb565(uvc_frame_t *in, uvc_frame_t *out) {
 	out->step = in->width * 2;
 	out->sequence = in->sequence;
 	out->capture_time = in->capture_time;
+	out->pts = in->pts;	// XXX
+	out->scr = in->scr;	// XXX
+	out->scr_sof = in->scr_sof;	// XXX
 	out->source = in->source;
 
 	dinfo.err = jpeg_std_error(&jerr.super);
@@ -410,6 +419,9 @@ uvc_error_t uvc_mjpeg2rgbx(uvc_frame_t *in, uvc_frame_t *out) {
 	out->step = in->width * 4;
 	out->sequence = in->sequence;
 	out->capture_time = in->capture_time;
+	out->pts = in->pts;	// XXX
+	out->scr = in->scr;	// XXX
+	out->scr_sof = in->scr_sof;	// XXX
 	out->source = in->source;
 
 	dinfo.err = jpeg_std_error(&jerr.super);
@@ -464,6 +476,15 @@ static inline unsigned char sat(int i) {
 		*(yuyv++) = (*(YCbCr+2) + *(YCbCr+5)) >> 1; \
 	}
 
+// same as YCbCr_YUYV_2 but 2 pixels are swapped for horizontal flip
+#define YCbCr_YUYV_2_FLIP(YCbCr, yuyv) \
+	{ \
+		*(yuyv++) = *(YCbCr+3); \
+		*(yuyv++) = (*(YCbCr+1) + *(YCbCr+4)) >> 1; \
+		*(yuyv++) = *(YCbCr+0); \
+		*(yuyv++) = (*(YCbCr+2) + *(YCbCr+5)) >> 1; \
+	}
+
 uvc_error_t uvc_mjpeg2yuyv(uvc_frame_t *in, uvc_frame_t *out) {
 
 	out->actual_bytes = 0;	// XXX
@@ -484,6 +505,9 @@ uvc_error_t uvc_mjpeg2yuyv(uvc_frame_t *in, uvc_frame_t *out) {
 	out->step = in->width * 2;
 	out->sequence = in->sequence;
 	out->capture_time = in->capture_time;
+	out->pts = in->pts;	// XXX
+	out->scr = in->scr;	// XXX
+	out->scr_sof = in->scr_sof;	// XXX
 	out->source = in->source;
 
 	struct jpeg_decompress_struct dinfo;
@@ -550,3 +574,194 @@ fail:
 	return lines_read == out->height ? UVC_SUCCESS : UVC_ERROR_OTHER+1;
 }
 
+/** @brief Convert an MJPEG frame to YUYV with scaling while decoding(IDCT scaling)
+ * the frame is decoded at the smallest size of M/8(M=1...8) that is scale_num/scale_denom or larger,
+ * this is much cheaper than decoding in full size and scaling down.
+ * the width of output frame is rounded down to even number for YUYV.
+ * @ingroup frame
+ *
+ * @param in MJPEG frame
+ * @param out YUYV frame
+ * @param scale_num numerator of scaling factor
+ * @param scale_denom denominator of scaling factor, same as uvc_mjpeg2yuyv if scale_num >= scale_denom
+ */
+uvc_error_t uvc_mjpeg2yuyv_scaled(uvc_frame_t *in, uvc_frame_t *out,
+	const int scale_num, const int scale_denom) {
+
+	if (scale_num >= scale_denom)
+		return uvc_mjpeg2yuyv(in, out);
+
+	return uvc_mjpeg2yuyv_roi(in, out, 0, 0, 0, 0, scale_num, scale_denom, UVC_ORIENTATION_NORMAL);
+}
+
+/** @brief Convert a region of an MJPEG frame to YUYV with scaling while decoding
+ * only the iMCU columns that overlap the region are decoded(jpeg_crop_scanline)
+ * and the rows above the region are skipped without color conversion/upsampling(jpeg_skip_scanlines),
+ * decoding stops after the last row of the region.
+ * the region is given in the coordinates of the input frame after orientation correction
+ * and is scaled same as the frame,
+ * the left edge of output frame is rounded down and its width is rounded down to even number for YUYV.
+ * orientation is corrected while converting decoded lines to YUYV without extra pass.
+ * @ingroup frame
+ *
+ * @param in MJPEG frame
+ * @param out YUYV frame
+ * @param roi_x left of region
+ * @param roi_y top of region
+ * @param roi_width width of region, 0 means whole frame
+ * @param roi_height height of region, 0 means whole frame
+ * @param scale_num numerator of scaling factor
+ * @param scale_denom denominator of scaling factor
+ * @param orientation one of uvc_orientation
+ */
+uvc_error_t uvc_mjpeg2yuyv_roi(uvc_frame_t *in, uvc_frame_t *out,
+	const int roi_x, const int roi_y, const int roi_width, const int roi_height,
+	const int scale_num, const int scale_denom, const int orientation) {
+
+	out->actual_bytes = 0;	// XXX
+	if (UNLIKELY((in->frame_format != UVC_FRAME_FORMAT_MJPEG)
+		|| (scale_num <= 0) || (scale_denom <= 0)
+		|| (roi_x < 0) || (roi_y < 0) || (roi_width < 0) || (roi_height < 0)))
+		return UVC_ERROR_INVALID_PARAM;
+
+	volatile size_t lines_read = 0;
+	volatile int height = 0;
+	int i, j, width;
+	int num_scanlines;
+	int64_t rx, ry;
+	JDIMENSION x0, y0, x1, y1, crop_x, crop_width, skip_x;
+	const int hflip = orientation & UVC_ORIENTATION_HFLIP;
+	const int vflip = orientation & UVC_ORIENTATION_VFLIP;
+	register uint8_t *yuyv, *ycbcr;
+
+	struct jpeg_decompress_struct dinfo;
+	struct error_mgr jerr;
+	dinfo.err = jpeg_std_error(&jerr.super);
+	jerr.super.error_exit = _error_exit;
+
+	if (setjmp(jerr.jmp)) {
+		goto fail;
+	}
+
+	jpeg_create_decompress(&dinfo);
+	jpeg_mem_src(&dinfo, in->data, in->actual_bytes/*in->data_bytes*/);	// XXX
+	jpeg_read_header(&dinfo, TRUE);
+
+	if (dinfo.dc_huff_tbl_ptrs[0] == NULL) {
+		/* This frame is missing the Huffman tables: fill in the standard ones */
+		insert_huff_tables(&dinfo);
+	}
+
+	dinfo.out_color_space = JCS_YCbCr;
+	dinfo.dct_method = JDCT_IFAST;
+	if (scale_num < scale_denom) {
+		dinfo.scale_num = scale_num;
+		dinfo.scale_denom = scale_denom;
+	}
+	// output_width/output_height are valid after this
+	jpeg_calc_output_dimensions(&dinfo);
+	// map the region to output coordinates, the region is extended to cover partial pixels
+	x0 = y0 = 0;
+	x1 = dinfo.output_width;
+	y1 = dinfo.output_height;
+	if (roi_width && roi_height) {
+		// flip the region into the coordinates of the input frame
+		rx = hflip ? (int64_t)dinfo.image_width - roi_x - roi_width : roi_x;
+		ry = vflip ? (int64_t)dinfo.image_height - roi_y - roi_height : roi_y;
+		x0 = rx > 0 ? (JDIMENSION)(((uint64_t)rx * dinfo.output_width) / dinfo.image_width) : 0;
+		y0 = ry > 0 ? (JDIMENSION)(((uint64_t)ry * dinfo.output_height) / dinfo.image_height) : 0;
+		x1 = rx + roi_width > 0 ? (JDIMENSION)((((uint64_t)(rx + roi_width)) * dinfo.output_width
+			+ dinfo.image_width - 1) / dinfo.image_width) : 0;
+		y1 = ry + roi_height > 0 ? (JDIMENSION)((((uint64_t)(ry + roi_height)) * dinfo.output_height
+			+ dinfo.image_height - 1) / dinfo.image_height) : 0;
+		if (x1 > dinfo.output_width) x1 = dinfo.output_width;
+		if (y1 > dinfo.output_height) y1 = dinfo.output_height;
+		x0 &= ~1;	// keep chroma pairs of YUYV
+	}
+	width = (x1 > x0) ? (x1 - x0) & ~1 : 0;
+	height = (y1 > y0) ? y1 - y0 : 0;
+	if (UNLIKELY(!width || !height)) {
+		jpeg_destroy_decompress(&dinfo);
+		return UVC_ERROR_INVALID_PARAM;
+	}
+
+	if (UNLIKELY(uvc_ensure_frame_size(out, width * height * 2) < 0)) {
+		jpeg_destroy_decompress(&dinfo);
+		return UVC_ERROR_NO_MEM;
+	}
+	out->width = width;
+	out->height = height;
+	out->frame_format = UVC_FRAME_FORMAT_YUYV;
+	out->step = width * 2;
+	out->sequence = in->sequence;
+	out->capture_time = in->capture_time;
+	out->pts = in->pts;	// XXX
+	out->scr = in->scr;	// XXX
+	out->scr_sof = in->scr_sof;	// XXX
+	out->source = in->source;
+
+	// start decompressor
+	jpeg_start_decompress(&dinfo);
+
+	skip_x = 0;
+	if (width < dinfo.output_width) {
+		// crop_x is rounded down to iMCU boundary and crop_width is widened to match
+		crop_x = x0;
+		crop_width = width;
+		jpeg_crop_scanline(&dinfo, &crop_x, &crop_width);
+		skip_x = x0 - crop_x;
+	}
+	if (y0 > 0) {
+		jpeg_skip_scanlines(&dinfo, y0);
+	}
+
+	// output_width is the cropped width here
+	const int row_stride = dinfo.output_width * dinfo.output_components;
+
+	// allocate buffer
+	register JSAMPARRAY buffer = (*dinfo.mem->alloc_sarray)
+		((j_common_ptr) &dinfo, JPOOL_IMAGE, row_stride, MAX_READLINE);
+
+	// local copy
+	uint8_t *data = out->data;
+	const int out_step = out->step;
+	const int offset = skip_x * 3;
+
+	for (; lines_read < height ;) {
+		// convert lines of mjpeg data to YCbCr
+		num_scanlines = jpeg_read_scanlines(&dinfo, buffer,
+			height - lines_read < MAX_READLINE ? height - lines_read : MAX_READLINE);
+		if (UNLIKELY(num_scanlines <= 0)) break;
+		// convert YCbCr to yuyv(YUV422), scaled/cropped width is not always multiple of 8
+		for (j = 0; j < num_scanlines; j++) {
+			yuyv = data + (vflip ? height - 1 - (lines_read + j) : lines_read + j) * out_step;
+			ycbcr = buffer[j] + offset;
+			if (hflip) {
+				// read 2 pixels from the right end and write them swapped
+				for (i = width - 2; i >= 0; i -= 2) {
+					YCbCr_YUYV_2_FLIP(ycbcr + i * 3, yuyv);
+				}
+			} else {
+				for (i = 0; i < width; i += 2) {	// step by YCbCr x 2 pixels = 3 x 2 bytes
+					YCbCr_YUYV_2(ycbcr + i * 3, yuyv);
+				}
+			}
+		}
+		lines_read += num_scanlines;
+	}
+	out->actual_bytes = width * height * 2;	// XXX
+
+	if (dinfo.output_scanline < dinfo.output_height) {
+		// rows below the region are not necessary
+		jpeg_abort_decompress(&dinfo);
+	} else {
+		jpeg_finish_decompress(&dinfo);
+	}
+	jpeg_destroy_decompress(&dinfo);
+	return lines_read == height ? UVC_SUCCESS : UVC_ERROR_OTHER;
+
+fail:
+	jpeg_destroy_decompress(&dinfo);
+	return UVC_ERROR_OTHER+1;
+}
+
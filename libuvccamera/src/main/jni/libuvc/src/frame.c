@@ -135,6 +135,10 @@ uvc_error_t uvc_duplicate_frame(uvc_frame_t *in, uvc_frame_t *out) {
 		out->step = in->step;
 	out->sequence = in->sequence;
 	out->capture_time = in->capture_time;
+	out->pts = in->pts;	// XXX
+	out->scr = in->scr;	// XXX
+	out->scr_sof = in->scr_sof;	// XXX
+	out->receive_time = in->receive_time;	// XXX
 	out->source = in->source;
 	out->actual_bytes = in->actual_bytes;	// XXX
 
@@ -167,6 +171,68 @@ uvc_error_t uvc_duplicate_frame(uvc_frame_t *in, uvc_frame_t *out) {
 	return UVC_SUCCESS;
 }
 
+/** @brief Duplicate a frame with orientation correction, preserving color format
+ * YUYV/UYVY frames are flipped while copying, so no extra pass is necessary,
+ * other formats are duplicated as is(MJPEG frames are flipped while decoding)
+ * @ingroup frame
+ *
+ * @param in Original frame
+ * @param out Duplicate frame
+ * @param orientation one of uvc_orientation
+ */
+uvc_error_t uvc_duplicate_frame_oriented(uvc_frame_t *in, uvc_frame_t *out, const int orientation) {
+	if (!(orientation & UVC_ORIENTATION_ROT180) || (in->width & 1)
+		|| ((in->frame_format != UVC_FRAME_FORMAT_YUYV) && (in->frame_format != UVC_FRAME_FORMAT_UYVY)))
+		return uvc_duplicate_frame(in, out);
+
+	const int width = in->width;
+	const int height = in->height;
+	const int row_bytes = width * 2;
+	if (UNLIKELY(in->actual_bytes < (size_t)(row_bytes * height)))
+		return UVC_ERROR_INVALID_PARAM;
+	if (UNLIKELY(uvc_ensure_frame_size(out, row_bytes * height) < 0))
+		return UVC_ERROR_NO_MEM;
+
+	out->width = width;
+	out->height = height;
+	out->frame_format = in->frame_format;
+	if (out->library_owns_data)
+		out->step = row_bytes;
+	out->sequence = in->sequence;
+	out->capture_time = in->capture_time;
+	out->pts = in->pts;
+	out->scr = in->scr;
+	out->scr_sof = in->scr_sof;
+	out->receive_time = in->receive_time;
+	out->source = in->source;
+	out->actual_bytes = row_bytes * height;
+
+	const int istep = in->step ? in->step : row_bytes;
+	const int ostep = out->step ? out->step : row_bytes;
+	// luma is at even offset for YUYV and odd offset for UYVY
+	const int y0 = in->frame_format == UVC_FRAME_FORMAT_YUYV ? 0 : 1;
+	const int hflip = orientation & UVC_ORIENTATION_HFLIP;
+	const int vflip = orientation & UVC_ORIENTATION_VFLIP;
+	int h, i;
+	for (h = 0; h < height; h++) {
+		const uint8_t *ip = (uint8_t *)in->data + (vflip ? height - 1 - h : h) * istep;
+		uint8_t *op = (uint8_t *)out->data + h * ostep;
+		if (hflip) {
+			// reverse the order of 2 pixel groups and swap 2 luma in each group, chroma is shared by them
+			const uint8_t *src = ip + row_bytes - 4;
+			for (i = 0; i < row_bytes; i += 4, src -= 4, op += 4) {
+				op[y0] = src[y0 + 2];
+				op[1 - y0] = src[1 - y0];
+				op[y0 + 2] = src[y0];
+				op[3 - y0] = src[3 - y0];
+			}
+		} else {
+			memcpy(op, ip, row_bytes);
+		}
+	}
+	return UVC_SUCCESS;
+}
+
 #define PIXEL_RGB565		2
 #define PIXEL_UYVY			2
 #define PIXEL_YUYV			2
@@ -241,6 +307,9 @@ uvc_error_t uvc_rgb2rgbx(uvc_frame_t *in, uvc_frame_t *out) {
 		out->step = in->width * PIXEL_RGBX;
 	out->sequence = in->sequence;
 	out->capture_time = in->capture_time;
+	out->pts = in->pts;	// XXX
+	out->scr = in->scr;	// XXX
+	out->scr_sof = in->scr_sof;	// XXX
 	out->source = in->source;
 
 	uint8_t *prgb = in->data;
@@ -323,6 +392,9 @@ uvc_error_t uvc_rgb2rgb565(uvc_frame_t *in, uvc_frame_t *out) {
 		out->step = in->width * PIXEL_RGB565;
 	out->sequence = in->sequence;
 	out->capture_time = in->capture_time;
+	out->pts = in->pts;	// XXX
+	out->scr = in->scr;	// XXX
+	out->scr_sof = in->scr_sof;	// XXX
 	out->source = in->source;
 
 	uint8_t *prgb = in->data;
@@ -426,6 +498,9 @@ uvc_error_t uvc_yuyv2rgb(uvc_frame_t *in, uvc_frame_t *out) {
 		out->step = in->width * PIXEL_RGB;
 	out->sequence = in->sequence;
 	out->capture_time = in->capture_time;
+	out->pts = in->pts;	// XXX
+	out->scr = in->scr;	// XXX
+	out->scr_sof = in->scr_sof;	// XXX
 	out->source = in->source;
 
 	uint8_t *pyuv = in->data;
@@ -490,6 +565,9 @@ uvc_error_t uvc_yuyv2rgb565(uvc_frame_t *in, uvc_frame_t *out) {
 		out->step = in->width * PIXEL_RGB565;
 	out->sequence = in->sequence;
 	out->capture_time = in->capture_time;
+	out->pts = in->pts;	// XXX
+	out->scr = in->scr;	// XXX
+	out->scr_sof = in->scr_sof;	// XXX
 	out->source = in->source;
 
 	uint8_t *pyuv = in->data;
@@ -586,6 +664,9 @@ uvc_error_t uvc_yuyv2rgbx(uvc_frame_t *in, uvc_frame_t *out) {
 		out->step = in->width * PIXEL_RGBX;
 	out->sequence = in->sequence;
 	out->capture_time = in->capture_time;
+	out->pts = in->pts;	// XXX
+	out->scr = in->scr;	// XXX
+	out->scr_sof = in->scr_sof;	// XXX
 	out->source = in->source;
 
 	uint8_t *pyuv = in->data;
@@ -676,6 +757,9 @@ uvc_error_t uvc_yuyv2bgr(uvc_frame_t *in, uvc_frame_t *out) {
 		out->step = in->width * PIXEL_BGR;
 	out->sequence = in->sequence;
 	out->capture_time = in->capture_time;
+	out->pts = in->pts;	// XXX
+	out->scr = in->scr;	// XXX
+	out->scr_sof = in->scr_sof;	// XXX
 	out->source = in->source;
 
 	uint8_t *pyuv = in->data;
@@ -765,6 +849,9 @@ uvc_error_t uvc_uyvy2rgb(uvc_frame_t *in, uvc_frame_t *out) {
 		out->step = in->width * PIXEL_RGB;
 	out->sequence = in->sequence;
 	out->capture_time = in->capture_time;
+	out->pts = in->pts;	// XXX
+	out->scr = in->scr;	// XXX
+	out->scr_sof = in->scr_sof;	// XXX
 	out->source = in->source;
 
 	uint8_t *pyuv = in->data;
@@ -829,6 +916,9 @@ uvc_error_t uvc_uyvy2rgb565(uvc_frame_t *in, uvc_frame_t *out) {
 		out->step = in->width * PIXEL_RGB565;
 	out->sequence = in->sequence;
 	out->capture_time = in->capture_time;
+	out->pts = in->pts;	// XXX
+	out->scr = in->scr;	// XXX
+	out->scr_sof = in->scr_sof;	// XXX
 	out->source = in->source;
 
 	uint8_t *pyuv = in->data;
@@ -925,6 +1015,9 @@ uvc_error_t uvc_uyvy2rgbx(uvc_frame_t *in, uvc_frame_t *out) {
 		out->step = in->width * PIXEL_RGBX;
 	out->sequence = in->sequence;
 	out->capture_time = in->capture_time;
+	out->pts = in->pts;	// XXX
+	out->scr = in->scr;	// XXX
+	out->scr_sof = in->scr_sof;	// XXX
 	out->source = in->source;
 
 	uint8_t *pyuv = in->data;
@@ -1014,6 +1107,9 @@ uvc_error_t uvc_uyvy2bgr(uvc_frame_t *in, uvc_frame_t *out) {
 		out->step = in->width * PIXEL_BGR;
 	out->sequence = in->sequence;
 	out->capture_time = in->capture_time;
+	out->pts = in->pts;	// XXX
+	out->scr = in->scr;	// XXX
+	out->scr_sof = in->scr_sof;	// XXX
 	out->source = in->source;
 
 	uint8_t *pyuv = in->data;
@@ -1236,6 +1332,119 @@ uvc_error_t uvc_yuyv2iyuv420SP(uvc_frame_t *in, uvc_frame_t *out) {
 	RETURN(UVC_SUCCESS, uvc_error_t);
 }
 
+/** @brief Scale down a YUYV/UYVY frame to the same size as uvc_mjpeg2yuyv_scaled
+ * for frames that are already decoded or received as YUYV/UYVY.
+ * the frame is scaled to the smallest size of M/8(M=1...8) that is scale_num/scale_denom or larger
+ * by picking the nearest pixels, the width is rounded down to even number.
+ * chroma of each output pixel pair is taken from the pair of its left pixel.
+ * @ingroup frame
+ *
+ * @param in YUYV/UYVY frame
+ * @param out frame of same format as in
+ * @param scale_num numerator of scaling factor
+ * @param scale_denom denominator of scaling factor, same as uvc_duplicate_frame if scale_num >= scale_denom
+ */
+uvc_error_t uvc_yuyv_scaled(uvc_frame_t *in, uvc_frame_t *out,
+	const int scale_num, const int scale_denom) {
+
+	if ((scale_num >= scale_denom) && (scale_denom > 0)
+		&& ((in->frame_format == UVC_FRAME_FORMAT_YUYV) || (in->frame_format == UVC_FRAME_FORMAT_UYVY)))
+		return uvc_duplicate_frame(in, out);
+
+	return uvc_yuyv_roi(in, out, 0, 0, 0, 0, scale_num, scale_denom);
+}
+
+/** @brief Crop a region of a YUYV/UYVY frame and scale it down
+ * to the same size as uvc_mjpeg2yuyv_roi for frames that are already decoded or received as YUYV/UYVY.
+ * the region is given in the coordinates of the input frame and is scaled same as the frame,
+ * the left edge of output frame is rounded down and its width is rounded down to even number.
+ * pixels are picked from the nearest ones and chroma of each output pixel pair
+ * is taken from the pair of its left pixel.
+ * @ingroup frame
+ *
+ * @param in YUYV/UYVY frame
+ * @param out frame of same format as in
+ * @param roi_x left of region
+ * @param roi_y top of region
+ * @param roi_width width of region, 0 means whole frame
+ * @param roi_height height of region, 0 means whole frame
+ * @param scale_num numerator of scaling factor
+ * @param scale_denom denominator of scaling factor
+ */
+uvc_error_t uvc_yuyv_roi(uvc_frame_t *in, uvc_frame_t *out,
+	const int roi_x, const int roi_y, const int roi_width, const int roi_height,
+	const int scale_num, const int scale_denom) {
+
+	out->actual_bytes = 0;	// XXX
+	if (UNLIKELY(((in->frame_format != UVC_FRAME_FORMAT_YUYV) && (in->frame_format != UVC_FRAME_FORMAT_UYVY))
+		|| (scale_num <= 0) || (scale_denom <= 0)
+		|| (roi_x < 0) || (roi_y < 0) || (roi_width < 0) || (roi_height < 0)))
+		return UVC_ERROR_INVALID_PARAM;
+
+	// same as jpeg_calc_output_dimensions of libjpeg-turbo
+	int m = 8;
+	if (scale_num < scale_denom) {
+		for (m = 1; (m < 8) && (scale_num * 8 > scale_denom * m); m++);
+	}
+	const int scaled_width = (in->width * m + 7) / 8;
+	const int scaled_height = (in->height * m + 7) / 8;
+	// map the region to scaled coordinates same as uvc_mjpeg2yuyv_roi
+	int x0 = 0, y0 = 0, x1 = scaled_width, y1 = scaled_height;
+	if (roi_width && roi_height) {
+		x0 = (int)(((int64_t)roi_x * scaled_width) / in->width);
+		y0 = (int)(((int64_t)roi_y * scaled_height) / in->height);
+		x1 = (int)((((int64_t)roi_x + roi_width) * scaled_width + in->width - 1) / in->width);
+		y1 = (int)((((int64_t)roi_y + roi_height) * scaled_height + in->height - 1) / in->height);
+		if (x1 > scaled_width) x1 = scaled_width;
+		if (y1 > scaled_height) y1 = scaled_height;
+		x0 &= ~1;	// keep chroma pairs of YUYV
+	}
+	const int width = (x1 > x0) ? (x1 - x0) & ~1 : 0;
+	const int height = (y1 > y0) ? y1 - y0 : 0;
+	const int row_bytes = width * 2;
+	const int istep = in->step ? in->step : in->width * 2;
+	if (UNLIKELY(!width || !height || (in->actual_bytes < (size_t)(istep * in->height))))
+		return UVC_ERROR_INVALID_PARAM;
+	if (UNLIKELY(uvc_ensure_frame_size(out, row_bytes * height) < 0))
+		return UVC_ERROR_NO_MEM;
+
+	out->width = width;
+	out->height = height;
+	out->frame_format = in->frame_format;
+	out->step = row_bytes;
+	out->sequence = in->sequence;
+	out->capture_time = in->capture_time;
+	out->pts = in->pts;
+	out->scr = in->scr;
+	out->scr_sof = in->scr_sof;
+	out->receive_time = in->receive_time;
+	out->source = in->source;
+	out->actual_bytes = row_bytes * height;
+
+	// luma is at even offset for YUYV and odd offset for UYVY
+	const int yoff = in->frame_format == UVC_FRAME_FORMAT_YUYV ? 0 : 1;
+	int h, x, sx0, sx1;
+	for (h = 0; h < height; h++) {
+		const uint8_t *ip = (uint8_t *)in->data + ((y0 + h) * 8 / m) * istep;
+		uint8_t *op = (uint8_t *)out->data + h * row_bytes;
+		if (m == 8) {
+			// crop only
+			memcpy(op, ip + x0 * 2, row_bytes);
+			continue;
+		}
+		for (x = x0; x < x0 + width; x += 2, op += 4) {
+			sx0 = x * 8 / m;
+			sx1 = (x + 1) * 8 / m;
+			const uint8_t *src = ip + (sx0 & ~1) * 2;
+			op[yoff] = ip[sx0 * 2 + yoff];
+			op[1 - yoff] = src[1 - yoff];
+			op[yoff + 2] = ip[sx1 * 2 + yoff];
+			op[3 - yoff] = src[3 - yoff];
+		}
+	}
+	return UVC_SUCCESS;
+}
+
 /** @brief Convert a frame to RGB565
  * @ingroup frame
  *
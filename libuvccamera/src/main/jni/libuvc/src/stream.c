@@ -611,6 +611,7 @@ static void _uvc_swap_buffers(uvc_stream_handle_t *strmh) {
 		strmh->holdbuf = strmh->outbuf;
 		strmh->outbuf = tmp_buf;
 		strmh->hold_last_scr = strmh->last_scr;
+		strmh->hold_last_sof = strmh->last_sof;	// XXX
 		strmh->hold_pts = strmh->pts;
 		strmh->hold_seq = strmh->seq;
 
@@ -621,6 +622,7 @@ static void _uvc_swap_buffers(uvc_stream_handle_t *strmh) {
 	strmh->seq++;
 	strmh->got_bytes = 0;
 	strmh->last_scr = 0;
+	strmh->last_sof = 0;	// XXX
 	strmh->pts = 0;
 	strmh->bfh_err = 0;	// XXX
 }
@@ -757,10 +759,14 @@ static void _uvc_process_payload(uvc_stream_handle_t *strmh, const uint8_t *payl
 			// XXX saki some camera may send broken packet or failed to receive all data
 			if (LIKELY(variable_offset + 4 <= header_len)) {
 				strmh->last_scr = DW_TO_INT(payload + variable_offset);
+				// XXX SCR has 2 bytes SOF token counter after STC
+				strmh->last_sof = LIKELY(variable_offset + 6 <= header_len)
+					? SW_TO_SHORT(payload + variable_offset + 4) & 0x07ff : 0;
 				variable_offset += 4;
 			} else {
 				MARK("bogus packet: header info has UVC_STREAM_SCR, but no data");
 				strmh->last_scr = 0;
+				strmh->last_sof = 0;	// XXX
 			}
 		}
 	}
@@ -899,9 +905,12 @@ static inline void _uvc_process_payload_iso(uvc_stream_handle_t *strmh, struct l
 					// XXX saki some camera may send broken packet or failed to receive all data
 					if (LIKELY(header_len >= 10)) {
 						strmh->last_scr = DW_TO_INT(pktbuf + 6);
+						// XXX SCR has 2 bytes SOF token counter after STC
+						strmh->last_sof = LIKELY(header_len >= 12) ? SW_TO_SHORT(pktbuf + 10) & 0x07ff : 0;
 					} else {
 						MARK("bogus packet: header info has UVC_STREAM_SCR, but no data");
 						strmh->last_scr = 0;
+						strmh->last_sof = 0;	// XXX
 					}
 				}
 
@@ -1121,9 +1130,12 @@ static void _uvc_iso_callback(struct libusb_transfer *transfer) {
 						// XXX saki some camera may send broken packet or failed to receive all data
 						if (LIKELY(header_len >= 10)) {
 							strmh->last_scr = DW_TO_INT(pktbuf + 6);
+							// XXX SCR has 2 bytes SOF token counter after STC
+							strmh->last_sof = LIKELY(header_len >= 12) ? SW_TO_SHORT(pktbuf + 10) & 0x07ff : 0;
 						} else {
 							MARK("bogus packet: header info has UVC_STREAM_SCR, but no data");
 							strmh->last_scr = 0;
+							strmh->last_sof = 0;	// XXX
 						}
 					}
 
@@ -1406,6 +1418,7 @@ uvc_error_t uvc_stream_start_bandwidth(uvc_stream_handle_t *strmh,
 	strmh->fid = 0;
 	strmh->pts = 0;
 	strmh->last_scr = 0;
+	strmh->last_sof = 0;	// XXX
 	strmh->bfh_err = 0;	// XXX
 
 	frame_desc = uvc_find_frame_desc_stream(strmh, ctrl->bFormatIndex, ctrl->bFrameIndex);
@@ -1702,7 +1715,14 @@ void _uvc_populate_frame(uvc_stream_handle_t *strmh) {
 	}
 	memcpy(frame->data, strmh->holdbuf, strmh->hold_bytes/*frame->data_bytes*/);	// XXX
 
-	/** @todo set the frame time */
+	// XXX copy the payload header values that are kept for this frame
+	frame->sequence = strmh->hold_seq;
+	frame->pts = strmh->hold_pts;
+	frame->scr = strmh->hold_last_scr;
+	frame->scr_sof = strmh->hold_last_sof;
+	/** @todo estimate the frame time from pts and scr, currently this is the host time
+	 * when the frame was passed to user code */
+	gettimeofday(&frame->capture_time, NULL);
 }
 
 /** Poll for a frame
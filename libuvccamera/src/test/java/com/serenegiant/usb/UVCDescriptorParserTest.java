@@ -0,0 +1,167 @@
+/*
+ *  UVCCamera
+ *  library and sample to access to UVC web camera on non-rooted Android device
+ *
+ * Copyright (c) 2014-2017 saki t_saki@serenegiant.com
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ *
+ *  All files in the folder are under this Apache License, Version 2.0.
+ *  Files in the libjpeg-turbo, libusb, libuvc, rapidjson folder
+ *  may have a different license, see the respective files.
+ */
+
+package com.serenegiant.usb;
+
+import org.junit.Test;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+
+/**
+ * Compares UVCDescriptorParser with native code on descriptors of real cameras.
+ * descriptors/*.hex are rebuilt from lsusb -v dumps in jni/libuvc/cameras,
+ * descriptors/*.sizes are what libuvc(device.c) and UVCDiags#getSupportedSizeArray
+ * return for the same descriptors.
+ */
+public class UVCDescriptorParserTest {
+
+	@Test
+	public void iSightMatchesNative() throws IOException {
+		final int[] values = assertSameAsNative("isight_imac");
+		final UVCSize size = new UVCSize(values);
+		assertEquals(1, size.getFormatCount());
+		final UVCSize.Format yuyv = size.getFormat(0);
+		assertEquals(4, yuyv.getDescriptorSubtype());
+		assertEquals(1, yuyv.getDefaultFrameIndex());
+		assertEquals(3, yuyv.getFrameCount());
+		// continuous interval, min/max/step are kept in 100ns unit
+		final UVCSize.Frame frame = yuyv.getFrame(2);
+		assertEquals("640x480", frame.getResolutionString());
+		assertEquals(30, frame.getDefaultFrameInterval());
+		assertEquals(0, frame.getFrameIntervalType());
+		assertEquals(333333, frame.getMinFrameInterval());
+		assertEquals(333333, frame.getMaxFrameInterval());
+		assertEquals(0, frame.getIntervalCount());
+	}
+
+	@Test
+	public void lifeCamShowMatchesNative() throws IOException {
+		final int[] values = assertSameAsNative("ms_lifecam_show");
+		final UVCSize size = new UVCSize(values);
+		assertEquals(2, size.getFormatCount());
+		final UVCSize.Format mjpeg = size.getFormat(1);
+		assertEquals(6, mjpeg.getDescriptorSubtype());
+		assertEquals(2, mjpeg.getFormatIndex());
+		assertEquals(1, mjpeg.getDefaultFrameIndex());
+		assertEquals(9, mjpeg.getFrameCount());
+		final UVCSize.Frame frame = mjpeg.getFrame(mjpeg.findFrame("1600x1200"));
+		assertEquals("1600x1200", frame.getResolutionString());
+		assertEquals(7, frame.getDefaultFrameInterval());
+		assertArrayEquals(new int[] {7}, frame.getIntervals(new int[frame.getIntervalCount()]));
+	}
+
+	@Test
+	public void quickCamPro9000MatchesNative() throws IOException {
+		final int[] values = assertSameAsNative("quickcampro9000");
+		final UVCSize size = new UVCSize(values);
+		assertEquals(2, size.getFormatCount());
+		final UVCSize.Format yuyv = size.getFormat(0);
+		assertEquals(4, yuyv.getDescriptorSubtype());
+		assertEquals(1, yuyv.getDefaultFrameIndex());
+		assertEquals(18, yuyv.getFrameCount());
+		// default frame(bFrameIndex=1) is 640x480@30fps, intervals are sorted ascending
+		UVCSize.Frame frame = yuyv.getFrame(yuyv.findFrame("640x480"));
+		assertEquals(30, frame.getDefaultFrameInterval());
+		assertArrayEquals(new int[] {5, 10, 15, 20, 25, 30},
+			frame.getIntervals(new int[frame.getIntervalCount()]));
+		// default interval that is not the first one
+		frame = yuyv.getFrame(yuyv.findFrame("960x720"));
+		assertEquals(10, frame.getDefaultFrameInterval());
+		assertArrayEquals(new int[] {5, 10, 15},
+			frame.getIntervals(new int[frame.getIntervalCount()]));
+		final UVCSize.Format mjpeg = size.getFormat(1);
+		assertEquals(6, mjpeg.getDescriptorSubtype());
+		assertEquals(18, mjpeg.getFrameCount());
+		frame = mjpeg.getFrame(mjpeg.findFrame("1600x1200"));
+		assertEquals(5, frame.getDefaultFrameInterval());
+	}
+
+	@Test
+	public void noDescriptors() {
+		assertArrayEquals(new int[] {0}, UVCDescriptorParser.parse(null));
+		assertEquals(0, UVCDescriptorParser.parseSupportedSize(new byte[0]).getFormatCount());
+	}
+
+	/**
+	 * parse descriptors and compare them with the values native code returns
+	 * @return parsed values
+	 */
+	private static int[] assertSameAsNative(final String name) throws IOException {
+		final int[] values = UVCDescriptorParser.parse(readDescriptors(name));
+		assertArrayEquals(name, readValues(name + ".sizes"), values);
+		// UVCSize is same whether it is built from parsed values or from native values
+		assertEquals(new UVCSize(readValues(name + ".sizes")).toString(),
+			UVCDescriptorParser.parseSupportedSize(readDescriptors(name)).toString());
+		return values;
+	}
+
+	private static byte[] readDescriptors(final String name) throws IOException {
+		final List<String> tokens = readTokens(name + ".hex");
+		final byte[] result = new byte[tokens.size()];
+		for (int i = 0; i < result.length; i++) {
+			result[i] = (byte)Integer.parseInt(tokens.get(i), 16);
+		}
+		return result;
+	}
+
+	private static int[] readValues(final String file) throws IOException {
+		final List<String> tokens = readTokens(file);
+		final int[] result = new int[tokens.size()];
+		for (int i = 0; i < result.length; i++) {
+			result[i] = Integer.parseInt(tokens.get(i));
+		}
+		return result;
+	}
+
+	/**
+	 * read whitespace separated tokens, lines starting with # are comments
+	 */
+	private static List<String> readTokens(final String file) throws IOException {
+		final InputStream in = UVCDescriptorParserTest.class.getResourceAsStream("/descriptors/" + file);
+		assertNotNull(file, in);
+		final List<String> result = new ArrayList<String>();
+		final BufferedReader reader = new BufferedReader(new InputStreamReader(in, "UTF-8"));
+		try {
+			String line;
+			while ((line = reader.readLine()) != null) {
+				line = line.trim();
+				if (line.isEmpty() || line.startsWith("#")) continue;
+				for (final String token : line.split("\\s+")) {
+					result.add(token);
+				}
+			}
+		} finally {
+			reader.close();
+		}
+		return result;
+	}
+}